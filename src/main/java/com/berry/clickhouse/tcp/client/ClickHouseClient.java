@@ -5,21 +5,48 @@
  */
 package com.berry.clickhouse.tcp.client;
 
+import com.berry.clickhouse.tcp.client.buffer.CompressionMethod;
+import com.berry.clickhouse.tcp.client.buffer.MemoryBudget;
 import com.berry.clickhouse.tcp.client.data.Block;
 import com.berry.clickhouse.tcp.client.data.BlockResultSet;
+import com.berry.clickhouse.tcp.client.data.ColumnFactory;
 import com.berry.clickhouse.tcp.client.data.ColumnWriterBufferFactory;
+import com.berry.clickhouse.tcp.client.data.ColumnWriterBufferLeakDetector;
+import com.berry.clickhouse.tcp.client.data.DataTypeFactory;
+import com.berry.clickhouse.tcp.client.data.IColumn;
+import com.berry.clickhouse.tcp.client.data.IDataType;
+import com.berry.clickhouse.tcp.client.data.NativeFileWriter;
+import com.berry.clickhouse.tcp.client.data.ResultMapper;
+import com.berry.clickhouse.tcp.client.exception.ClickHouseSQLException;
+import com.berry.clickhouse.tcp.client.insert.BatchingInserter;
+import com.berry.clickhouse.tcp.client.insert.InsertRetryPolicy;
 import com.berry.clickhouse.tcp.client.jdbc.ClickHouseConnection;
 import com.berry.clickhouse.tcp.client.jdbc.ClickHouseConnectionFactory;
 import com.berry.clickhouse.tcp.client.jdbc.ClickHouseTableMetaData;
+import com.berry.clickhouse.tcp.client.log.Logger;
+import com.berry.clickhouse.tcp.client.log.LoggerFactory;
 import com.berry.clickhouse.tcp.client.meta.ClickHouseTableMetaDataManager;
+import com.berry.clickhouse.tcp.client.misc.Validate;
+import com.berry.clickhouse.tcp.client.protocol.EncodedDataRequest;
 import com.berry.clickhouse.tcp.client.settings.ClickHouseClientConfig;
+import com.berry.clickhouse.tcp.client.stream.BlockRing;
+import com.berry.clickhouse.tcp.client.stream.BlockStream;
+import com.berry.clickhouse.tcp.client.stream.CachedQueryResult;
 import com.berry.clickhouse.tcp.client.stream.QueryResult;
+import com.berry.clickhouse.tcp.client.stream.QueryResultCache;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 
+import java.io.IOException;
 import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * ClickHouse TCP客户端的主要实现类
@@ -28,11 +55,18 @@ import java.util.Set;
  */
 public class ClickHouseClient {
 
+    private static final Logger LOG = LoggerFactory.getLogger(ClickHouseClient.class);
+
     /**
      * 获取表结构信息的SQL模板
      */
     private static final String GET_SAMPLE_BLOCK_SQL = "insert into %s values ";
 
+    /**
+     * 流式查询默认预取的数据块数量
+     */
+    private static final int DEFAULT_PREFETCH_BLOCKS = 4;
+
     /**
      * ClickHouse连接池
      */
@@ -48,18 +82,38 @@ public class ClickHouseClient {
      */
     private final ClickHouseTableMetaDataManager metaDataManager;
 
+    /**
+     * 自动采集的表结构的有效期，为0时不自动采集
+     */
+    private final Duration tableMetaDataTtl;
+
+    /**
+     * 正在执行的流式查询，按查询ID索引，用于cancel()
+     */
+    private final ConcurrentMap<String, BlockStream> runningStreams = new ConcurrentHashMap<>();
+
+    /**
+     * 查询结果缓存，为null时不缓存
+     */
+    private final QueryResultCache queryCache;
+
     /**
      * 私有构造方法，通过Builder模式创建实例
      *
      * @param pool            ClickHouse连接池
      * @param serverContext   服务器上下文信息
      * @param metaDataManager 表元数据管理器
+     * @param tableMetaDataTtl 自动采集的表结构的有效期
+     * @param queryCache      查询结果缓存，为null时不缓存
      */
     private ClickHouseClient(GenericObjectPool<ClickHouseConnection> pool, NativeContext.ServerContext serverContext,
-                             ClickHouseTableMetaDataManager metaDataManager) {
+                             ClickHouseTableMetaDataManager metaDataManager, Duration tableMetaDataTtl,
+                             QueryResultCache queryCache) {
         this.pool = pool;
         this.serverContext = serverContext;
         this.metaDataManager = metaDataManager;
+        this.tableMetaDataTtl = tableMetaDataTtl;
+        this.queryCache = queryCache;
     }
 
     /**
@@ -142,7 +196,11 @@ public class ClickHouseClient {
             // 创建连接池
             pool = new GenericObjectPool<>(new ClickHouseConnectionFactory(clickHouseClientConfig), genericObjectPoolConfig);
             pool.use(clickHouseConnection);
-            return new ClickHouseClient(this.pool, this.serverContext, this.metaDataManager);
+            QueryResultCache queryCache = (clickHouseClientConfig.getQueryCacheMaxBytes() > 0)
+                    ? new QueryResultCache(clickHouseClientConfig.getQueryCacheMaxBytes(), clickHouseClientConfig.getQueryCacheTtl())
+                    : null;
+            return new ClickHouseClient(this.pool, this.serverContext, this.metaDataManager,
+                    clickHouseClientConfig.getTableMetaDataTtl(), queryCache);
         }
     }
 
@@ -183,11 +241,61 @@ public class ClickHouseClient {
         } else {
             // 如果元数据不存在，则通过查询获取样本数据块
             Block block = getSampleBlock(tableName);
+            if (!tableMetaDataTtl.isZero()) {
+                // 缓存样本数据块的结构，有效期内的数据块在本地创建，插入时再发送插入查询
+                this.metaDataManager.register(ClickHouseTableMetaDataManager.capture(tableName, block), tableMetaDataTtl);
+            }
             block.initWriteBuffer();
             return block;
         }
     }
 
+    /**
+     * 获取指定表的元数据，包括通过Builder注册的和从样本数据块自动采集的
+     *
+     * @param tableName 表名
+     * @return 表元数据，不存在或已过期时返回null
+     */
+    public ClickHouseTableMetaData getTableMetaData(String tableName) {
+        return this.metaDataManager.getTableMetaData(tableName);
+    }
+
+    /**
+     * 获取指定表的列，按表的列顺序排列，只用于解析列结构，不分配写入缓冲区
+     * 有表元数据时在本地创建；否则获取样本数据块后立即结束其插入查询并归还连接，不占用连接
+     *
+     * @param tableName 表名
+     * @return 表的列
+     * @throws Exception 如果获取表结构失败
+     */
+    public IColumn[] tableColumns(String tableName) throws Exception {
+        ClickHouseTableMetaData metaData = this.metaDataManager.getTableMetaData(tableName);
+        if (null != metaData) {
+            List<String> names = metaData.getColumnNames();
+            List<String> types = metaData.getColumnTypes();
+            byte[][] namesBytes = metaData.getColNameBytes();
+            IColumn[] columns = new IColumn[names.size()];
+            for (int i = 0; i < columns.length; i++) {
+                IDataType<?> dataType = DataTypeFactory.get(types.get(i), this.serverContext);
+                columns[i] = ColumnFactory.createColumn(names.get(i), dataType, namesBytes[i], null);
+            }
+            return columns;
+        }
+        Block sample = getSampleBlock(tableName);
+        try {
+            if (!tableMetaDataTtl.isZero()) {
+                this.metaDataManager.register(ClickHouseTableMetaDataManager.capture(tableName, sample), tableMetaDataTtl);
+            }
+            IColumn[] columns = new IColumn[sample.columnCnt()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = sample.getColumn(i);
+            }
+            return columns;
+        } finally {
+            releaseBlock(sample);
+        }
+    }
+
     /**
      * 创建数据块结果集
      *
@@ -250,6 +358,19 @@ public class ClickHouseClient {
         pool.returnObject(connection);
     }
 
+    /**
+     * 将出错的连接从连接池中移除并关闭
+     *
+     * @param connection 出错的连接
+     */
+    private void invalidateConnection(ClickHouseConnection connection) {
+        try {
+            pool.invalidateObject(connection);
+        } catch (Exception e) {
+            LOG.debug("invalidate connection throw exception.", e);
+        }
+    }
+
     /**
      * 执行查询
      *
@@ -258,7 +379,13 @@ public class ClickHouseClient {
      * @throws SQLException 如果查询执行失败
      */
     private QueryResult query(String query) throws SQLException {
-        return query(query);
+        try {
+            return query(query, true);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException(e.getMessage(), e);
+        }
     }
 
     /**
@@ -281,6 +408,244 @@ public class ClickHouseClient {
         }
     }
 
+    /**
+     * 流式执行查询，使用默认的预取数量
+     *
+     * @param query SQL查询语句
+     * @return 按数据块返回结果的流，使用完毕后必须关闭
+     * @throws SQLException 如果发送查询或读取结果头部失败
+     */
+    public BlockStream queryStream(String query) throws SQLException {
+        return queryStream(query, DEFAULT_PREFETCH_BLOCKS);
+    }
+
+    /**
+     * 流式执行查询，后台线程最多预取prefetch个数据块，结果不会一次性全部加载到内存
+     * 结果读取完毕后连接归还连接池；提前关闭时连接被关闭
+     *
+     * @param query    SQL查询语句
+     * @param prefetch 最多预取的数据块数量
+     * @return 按数据块返回结果的流，使用完毕后必须关闭
+     * @throws SQLException 如果发送查询或读取结果头部失败
+     */
+    public BlockStream queryStream(String query, int prefetch) throws SQLException {
+        return queryStream(query, prefetch, false);
+    }
+
+    /**
+     * 流式执行查询，recycle为true时数据块来自固定大小的环（预取数量加2），调用方处理完每个数据块后必须调用
+     * BlockStream.release()，读取线程覆盖已释放数据块的列和值数组，长查询的内存占用保持不变
+     *
+     * @param query    SQL查询语句
+     * @param prefetch 最多预取的数据块数量
+     * @param recycle  是否复用数据块
+     * @return 按数据块返回结果的流，使用完毕后必须关闭
+     * @throws SQLException 如果发送查询或读取结果头部失败
+     */
+    public BlockStream queryStream(String query, int prefetch, boolean recycle) throws SQLException {
+        Validate.isTrue(prefetch > 0, "prefetch must be positive");
+        ClickHouseConnection connection;
+        try {
+            connection = acquireConnection();
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("Failed to acquire connection", e);
+        }
+        BlockStream stream;
+        try {
+            if (!recycle) {
+                QueryResult result = connection.sendQueryRequest(query, connection.cfg(), true, true);
+                stream = new BlockStream(connection, result, prefetch, this::releaseStreamConnection);
+            } else {
+                BlockRing ring = new BlockRing(prefetch + 2); // 预取的数据块、调用方正在处理的数据块和正在读取的数据块
+                QueryResult result = connection.sendQueryRequest(query, connection.cfg(), ring::reuse);
+                stream = new BlockStream(connection, result, prefetch, ring, this::releaseStreamConnection);
+            }
+        } catch (SQLException | RuntimeException e) {
+            invalidateConnection(connection); // 结果可能只读取了一部分
+            throw e;
+        }
+        runningStreams.put(stream.queryId(), stream);
+        if (stream.isReleased()) {
+            runningStreams.remove(stream.queryId(), stream); // 在登记之前已经读取完成
+        }
+        return stream;
+    }
+
+    /**
+     * 取消本客户端发起的、正在执行的流式查询
+     * 向服务器发送取消请求，剩余的响应在后台读取并丢弃，读取到数据流结束后连接归还连接池，无需等待连接超时或重建连接；
+     * 被取消的BlockStream已经取出的数据块仍然可以访问，之后hasNext()返回false
+     *
+     * @param queryId 查询ID，参见BlockStream.queryId()
+     * @return 查询正在执行并已发起取消时返回true，查询不存在或已经结束时返回false
+     */
+    public boolean cancel(String queryId) {
+        BlockStream stream = runningStreams.get(queryId);
+        if (null == stream) {
+            return false;
+        }
+        stream.cancel();
+        return true;
+    }
+
+    /**
+     * 执行查询并将每一行映射为指定类的对象，映射规则参见ResultMapper
+     *
+     * @param query SQL查询语句
+     * @param type  结果对象的类型
+     * @param <T>   结果对象的类型
+     * @return 结果对象，按行顺序排列
+     * @throws SQLException 如果查询失败，或者结果无法映射为指定类的对象
+     */
+    public <T> List<T> queryObjects(String query, Class<T> type) throws SQLException {
+        try (BlockStream stream = queryStream(query)) {
+            ResultMapper<T> mapper = ResultMapper.of(type, stream.header());
+            List<T> rows = new ArrayList<>();
+            while (stream.hasNext()) {
+                rows.addAll(mapper.mapAll(stream.next()));
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * 执行查询，结果使用默认有效期缓存，参见queryCached(String, Duration)
+     *
+     * @param query SQL查询语句
+     * @return 查询结果
+     * @throws SQLException 如果查询失败
+     */
+    public QueryResult queryCached(String query) throws SQLException {
+        return queryCached(query, null);
+    }
+
+    /**
+     * 执行查询并缓存结果，有效期内相同的查询（规范化的SQL和查询设置相同）直接从缓存返回，不访问服务器；
+     * 同一个查询并发执行时只向服务器发送一次。缓存的是数据块解压后的字节，每次返回的都是新解码的数据块。
+     * 未配置queryCacheMaxBytes时每次都执行查询
+     *
+     * @param query SQL查询语句
+     * @param ttl   有效期，为null时使用配置的默认有效期
+     * @return 查询结果
+     * @throws SQLException 如果查询失败
+     */
+    public QueryResult queryCached(String query, Duration ttl) throws SQLException {
+        if (null == queryCache) {
+            return queryFramed(query).open(serverContext);
+        }
+        ClickHouseClientConfig cfg = serverContext.getConfigure();
+        return queryCache.get(query, cfg.settings(), ttl, () -> queryFramed(query)).open(serverContext);
+    }
+
+    /**
+     * 使引用指定表的缓存查询结果失效，通常在写入该表之后调用
+     *
+     * @param table 表名，可以带数据库名
+     */
+    public void invalidateQueryCache(String table) {
+        if (null != queryCache) {
+            queryCache.invalidateTable(table);
+        }
+    }
+
+    /**
+     * 使全部缓存查询结果失效
+     */
+    public void invalidateQueryCache() {
+        if (null != queryCache) {
+            queryCache.invalidateAll();
+        }
+    }
+
+    /**
+     * 执行查询并将结果按Native格式写入文件，数据块只分帧不解码，直接复制到文件（启用压缩时重新压缩）
+     * 写出的文件可以通过createBlockResultSet()以内存映射方式读取，压缩时enableCompress为true
+     *
+     * @param query  SQL查询语句
+     * @param path   文件路径，文件已存在时覆盖
+     * @param method 压缩方法，为null时不压缩
+     * @return 写入的行数
+     * @throws SQLException 如果查询或写入文件失败
+     */
+    public long queryToFile(String query, Path path, CompressionMethod method) throws SQLException {
+        try (NativeFileWriter writer = new NativeFileWriter(path, method)) { // 先创建文件，创建失败时不占用连接
+            ClickHouseConnection connection;
+            try {
+                connection = acquireConnection();
+            } catch (SQLException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SQLException("Failed to acquire connection", e);
+            }
+            boolean drained = false; // 结果是否已经读取到数据流结束
+            try {
+                connection.sendFramedQueryRequest(query, connection.cfg(), frame -> {
+                    try {
+                        writer.write(frame);
+                    } catch (IOException e) {
+                        throw new SQLException("Failed to write " + path + ": " + e.getMessage(), e);
+                    }
+                });
+                drained = true;
+                return writer.rows();
+            } catch (ClickHouseSQLException e) {
+                drained = true; // 服务器返回的异常已经结束了数据流
+                throw e;
+            } finally {
+                releaseStreamConnection(connection, drained); // 结果只读取了一部分时关闭连接
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to write " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 执行查询并接收完整的结果，数据块只分帧不解码
+     *
+     * @param query SQL查询语句
+     * @return 查询结果
+     * @throws SQLException 如果查询失败
+     */
+    private CachedQueryResult queryFramed(String query) throws SQLException {
+        ClickHouseConnection connection;
+        try {
+            connection = acquireConnection();
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("Failed to acquire connection", e);
+        }
+        boolean drained = false; // 结果是否已经读取到数据流结束
+        try {
+            CachedQueryResult result = new CachedQueryResult(connection.sendFramedQueryRequest(query, connection.cfg()));
+            drained = true;
+            return result;
+        } catch (ClickHouseSQLException e) {
+            drained = true; // 服务器返回的异常已经结束了数据流
+            throw e;
+        } finally {
+            releaseStreamConnection(connection, drained); // I/O或协议错误时连接状态未知，关闭连接
+        }
+    }
+
+    /**
+     * 释放流式查询使用的连接，结果完整读取（或取消后剩余响应已经读完）时归还连接池，否则关闭连接
+     */
+    private void releaseStreamConnection(ClickHouseConnection connection, boolean reusable) {
+        runningStreams.remove(connection.queryId());
+        if (!reusable) {
+            invalidateConnection(connection);
+            return;
+        }
+        try {
+            returnConnection(connection);
+        } catch (Exception e) {
+            LOG.debug("return connection throw exception.", e);
+        }
+    }
+
     /**
      * 插入数据块
      *
@@ -299,13 +664,33 @@ public class ClickHouseClient {
      * @throws Exception 如果插入失败
      */
     public void insert(Block block, boolean clean) throws Exception {
+        InsertRetryPolicy retryPolicy = this.serverContext.getConfigure().getInsertRetryPolicy();
+        if (null != retryPolicy) {
+            insertWithRetry(block, clean, retryPolicy);
+            return;
+        }
         ClickHouseConnection clickHouseConnection = block.getConnection();
+        ClickHouseTableMetaData tableMetaData = block.getTableMetaData();
         boolean result = false;
         try {
-            if (null == clickHouseConnection)
+            if (null == clickHouseConnection) {
                 clickHouseConnection = acquireConnection();
-            clickHouseConnection.sendInsertRequest(block);
+                if (null != tableMetaData) {
+                    // 按缓存的表结构在本地创建的数据块，插入时才发送插入查询
+                    clickHouseConnection.sendInsertRequest(String.format(GET_SAMPLE_BLOCK_SQL, tableMetaData.getTable()), block);
+                } else {
+                    clickHouseConnection.sendInsertRequest(block);
+                }
+            } else {
+                clickHouseConnection.sendInsertRequest(block);
+            }
             result = true;
+        } catch (SQLException e) {
+            if (null != tableMetaData && ClickHouseTableMetaDataManager.isSchemaMismatch(e)
+                    && this.metaDataManager.invalidate(tableMetaData.getTable())) {
+                LOG.warn("Table structure of {} changed, cached metadata invalidated: {}", tableMetaData.getTable(), e.getMessage());
+            }
+            throw e;
         } finally {
             // 如果需要清理且操作成功，则清理数据块
             if (clean && result) {
@@ -317,6 +702,84 @@ public class ClickHouseClient {
         }
     }
 
+    /**
+     * 可重试地插入数据块：数据块只编码一次，每次尝试都发送同一份编码结果并携带同一个去重令牌
+     * 失败的连接不归还连接池，下一次尝试从连接池获取新的连接
+     *
+     * @param block 要插入的数据块
+     * @param clean 是否在插入后清理数据块
+     * @param retryPolicy 重试策略
+     * @throws Exception 如果所有尝试都失败或者遇到不可重试的错误
+     */
+    private void insertWithRetry(Block block, boolean clean, InsertRetryPolicy retryPolicy) throws Exception {
+        ClickHouseConnection clickHouseConnection = block.getConnection();
+        ClickHouseTableMetaData tableMetaData = block.getTableMetaData();
+        String insertQuery = (null != tableMetaData) ? String.format(GET_SAMPLE_BLOCK_SQL, tableMetaData.getTable())
+                : (null != clickHouseConnection) ? clickHouseConnection.pendingInsertQuery() : null;
+        EncodedDataRequest payload;
+        try {
+            Validate.isTrue(null != insertQuery, "Call getSampleBlock before insert.");
+            ClickHouseClientConfig cfg = this.serverContext.getConfigure();
+            payload = EncodedDataRequest.encode(block, cfg.getMaxInsertBlockRows(), cfg.getMaxInsertBlockBytes());
+        } catch (SQLException | RuntimeException e) {
+            if (null != clickHouseConnection) {
+                if (clickHouseConnection.isIdle()) {
+                    returnConnection(clickHouseConnection);
+                } else {
+                    invalidateConnection(clickHouseConnection); // 样本数据块打开的插入仍未结束
+                }
+            }
+            throw e;
+        }
+
+        String token = retryPolicy.nextDeduplicationToken();
+        for (int attempt = 1; ; attempt++) {
+            boolean broken = true;
+            try {
+                if (null == clickHouseConnection) {
+                    clickHouseConnection = acquireConnection();
+                }
+                clickHouseConnection.sendInsertRequest(insertQuery, token, block, payload);
+                broken = false;
+                break;
+            } catch (SQLException e) {
+                if (null != tableMetaData && ClickHouseTableMetaDataManager.isSchemaMismatch(e)
+                        && this.metaDataManager.invalidate(tableMetaData.getTable())) {
+                    LOG.warn("Table structure of {} changed, cached metadata invalidated: {}", tableMetaData.getTable(), e.getMessage());
+                }
+                broken = !(e instanceof ClickHouseSQLException); // 服务端返回的异常不影响连接本身
+                if (attempt >= retryPolicy.getMaxAttempts() || !retryPolicy.isRetryable(e)) {
+                    throw e;
+                }
+                LOG.warn("Insert attempt {} of {} failed, retrying with deduplication token {}: {}",
+                        attempt, retryPolicy.getMaxAttempts(), token, e.getMessage());
+            } finally {
+                if (null != clickHouseConnection) {
+                    if (broken || !clickHouseConnection.isIdle()) {
+                        invalidateConnection(clickHouseConnection); // 仍在等待插入的连接不能归还连接池
+                    } else {
+                        returnConnection(clickHouseConnection);
+                    }
+                    clickHouseConnection = null;
+                }
+            }
+            Thread.sleep(retryPolicy.backoff(attempt).toMillis());
+        }
+        if (clean) {
+            block.cleanup();
+        }
+    }
+
+    /**
+     * 创建指定表的批量插入器构建器，批量插入器把多线程写入的行累积成大数据块后在后台发送
+     *
+     * @param tableName 表名
+     * @return 批量插入器构建器
+     */
+    public BatchingInserter.Builder batchingInserter(String tableName) {
+        return BatchingInserter.builder(this, tableName);
+    }
+
     /**
      * 清理数据块资源
      *
@@ -326,6 +789,60 @@ public class ClickHouseClient {
         block.cleanup();
     }
 
+    /**
+     * 放弃一个不再插入的数据块，归还写入缓冲区
+     * 通过样本数据块创建的数据块持有一个已发送插入查询的连接，cleanBlock不会释放该连接；
+     * 此方法先结束该连接上等待中的插入再归还连接池，结束失败时丢弃连接
+     *
+     * @param block 要放弃的数据块
+     */
+    public void releaseBlock(Block block) {
+        ClickHouseConnection connection = block.getConnection();
+        block.setConnection(null);
+        block.cleanup();
+        if (null == connection) {
+            return;
+        }
+        try {
+            if (!connection.isIdle()) {
+                connection.abortInsert();
+            }
+            returnConnection(connection);
+        } catch (Exception e) {
+            LOG.warn("Failed to abort pending insert of released block: {}", e.getMessage());
+            invalidateConnection(connection);
+        }
+    }
+
+    /**
+     * 获取写入缓冲区当前占用的内存字节数
+     *
+     * 未设置预算上限时也会统计；自定义缓冲池管理器未提供预算时返回0
+     *
+     * @return 已占用的字节数
+     */
+    public long memoryUsed() {
+        return memoryBudget().used();
+    }
+
+    /**
+     * 获取写入缓冲区的内存预算
+     *
+     * @return 内存预算，未设置上限时为只统计不限制的预算
+     */
+    public MemoryBudget memoryBudget() {
+        return this.serverContext.getColumnWriterBufferFactory().getMemoryBudget();
+    }
+
+    /**
+     * 获取列写入缓冲区的泄漏检测器，可查询泄漏的缓冲区数量和字节数
+     *
+     * @return 泄漏检测器，未启用泄漏检测时返回null
+     */
+    public ColumnWriterBufferLeakDetector bufferLeakDetector() {
+        return this.serverContext.getColumnWriterBufferFactory().getLeakDetector();
+    }
+
     /**
      * 关闭客户端，释放连接池资源
      *
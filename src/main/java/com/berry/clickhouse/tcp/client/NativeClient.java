@@ -8,8 +8,11 @@ import com.berry.clickhouse.tcp.client.buffer.SocketBuffedReader;
 import com.berry.clickhouse.tcp.client.buffer.SocketBuffedWriter;
 import com.berry.clickhouse.tcp.client.ssl.SSLContextBuilder;
 import com.berry.clickhouse.tcp.client.data.Block;
+import com.berry.clickhouse.tcp.client.exception.ClickHouseSQLException;
 import com.berry.clickhouse.tcp.client.log.Logger;
 import com.berry.clickhouse.tcp.client.log.LoggerFactory;
+import com.berry.clickhouse.tcp.client.misc.CheckedConsumer;
+import com.berry.clickhouse.tcp.client.misc.CheckedSupplier;
 import com.berry.clickhouse.tcp.client.misc.Validate;
 import com.berry.clickhouse.tcp.client.protocol.*;
 import com.berry.clickhouse.tcp.client.serde.BinaryDeserializer;
@@ -18,7 +21,9 @@ import com.berry.clickhouse.tcp.client.settings.ClickHouseClientConfig;
 import com.berry.clickhouse.tcp.client.settings.ClickHouseDefines;
 import com.berry.clickhouse.tcp.client.settings.SettingKey;
 import com.berry.clickhouse.tcp.client.stream.ClickHouseQueryResult;
+import com.berry.clickhouse.tcp.client.stream.ParallelResponseDecoder;
 import com.berry.clickhouse.tcp.client.stream.QueryResult;
+import com.berry.clickhouse.tcp.client.stream.QuerySpool;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocket;
@@ -35,10 +40,12 @@ import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
 import java.sql.SQLException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Clickhouse数据库原生TCP协议客户端
@@ -134,6 +141,16 @@ public class NativeClient {
      */
     private final BinaryDeserializer deserializer;
 
+    /**
+     * 是否有查询尚未读取到数据流结束，发送查询时置为true，读取到EndOfStream或异常响应时置为false
+     */
+    private volatile boolean queryRunning;
+
+    /**
+     * 最近一次发送的查询ID
+     */
+    private volatile String queryId;
+
     /**
      * 使用已存在的Socket创建NativeClient
      * 
@@ -240,6 +257,28 @@ public class NativeClient {
         sendRequest(new DataRequest("", data));
     }
 
+    /**
+     * 发送数据块中[fromRow, toRow)范围内的行
+     *
+     * @param data 数据块
+     * @param fromRow 起始行（包含）
+     * @param toRow 结束行（不包含）
+     * @throws SQLException 如果发送失败
+     */
+    public void sendData(Block data, int fromRow, int toRow) throws SQLException {
+        sendRequest(new DataRequest("", data, fromRow, toRow));
+    }
+
+    /**
+     * 发送预编码的数据包
+     *
+     * @param data 预编码数据请求
+     * @throws SQLException 如果发送失败
+     */
+    public void sendData(EncodedDataRequest data) throws SQLException {
+        sendRequest(data);
+    }
+
     /**
      * 接收Hello响应
      * 
@@ -268,6 +307,20 @@ public class NativeClient {
         return (EOFStreamResponse) response;
     }
 
+    /**
+     * 懒加载并反序列化查询结果，每个数据包优先覆盖reuse提供的数据块
+     *
+     * @param soTimeout Socket超时时间
+     * @param info 服务器上下文信息
+     * @param reuse 提供可覆盖的数据块，没有可用数据块时返回null
+     * @return 查询结果
+     * @throws SQLException 如果接收失败
+     */
+    public QueryResult receiveQuery(Duration soTimeout, NativeContext.ServerContext info,
+                                    CheckedSupplier<Block, SQLException> reuse) throws SQLException {
+        return new ClickHouseQueryResult(() -> receiveResponse(soTimeout, info, true, reuse.get()));
+    }
+
     /**
      * 接收查询结果
      * 
@@ -280,9 +333,20 @@ public class NativeClient {
      */
     public QueryResult receiveQuery(Duration soTimeout, NativeContext.ServerContext info, boolean lazy, boolean serialize) throws SQLException {
         if (lazy) {
+            ForkJoinPool decodePool = info.getConfigure().getDecodePool();
+            if (serialize && null != decodePool) {
+                // 当前线程只读取和解压数据包，数据块在线程池中并行解码
+                return new ClickHouseQueryResult(new ParallelResponseDecoder(() -> receiveFramedResponse(soTimeout, info),
+                        info, decodePool, decodePool.getParallelism() * 2));
+            }
             // 懒加载模式
             return new ClickHouseQueryResult(() -> receiveResponse(soTimeout, info, serialize));
         } else {
+            long spoolThreshold = info.getConfigure().getQuerySpoolThresholdBytes();
+            if (serialize && spoolThreshold > 0) {
+                // 超过阈值的结果写入临时文件，迭代时通过内存映射读取
+                return receiveSpooledQuery(soTimeout, info, spoolThreshold);
+            }
             // 立即加载全部数据
             List<Block> blocks = new LinkedList<>();
             try {
@@ -325,6 +389,126 @@ public class NativeClient {
         }
     }
 
+    /**
+     * 接收完整的查询结果，内存中的数据块超过阈值时写入临时文件（内部方法）
+     * 写入临时文件失败时读取并丢弃剩余的响应，接收失败或无法读取到数据流结束时断开连接，
+     * 连接下次使用时重新建立，不会把剩余的响应当作下一个查询的结果
+     *
+     * @param soTimeout Socket超时时间
+     * @param info 服务器上下文信息
+     * @param thresholdBytes 内存中保存的最大字节数
+     * @return 查询结果
+     * @throws SQLException 如果接收失败或写入临时文件失败
+     */
+    private QueryResult receiveSpooledQuery(Duration soTimeout, NativeContext.ServerContext info,
+                                            long thresholdBytes) throws SQLException {
+        QuerySpool spool = new QuerySpool(thresholdBytes, info.getConfigure().getQuerySpoolDirectory(), info);
+        boolean[] spoolFailed = new boolean[1]; // 失败是否发生在写入临时文件时，此时数据流仍然完整
+        try {
+            receiveFramedQuery(soTimeout, info, frame -> {
+                try {
+                    spool.add(frame);
+                } catch (SQLException | RuntimeException e) {
+                    spoolFailed[0] = true;
+                    throw e;
+                }
+            });
+            return spool.finish();
+        } catch (SQLException | RuntimeException e) {
+            spool.discard();
+            if (queryRunning && !(spoolFailed[0] && drainQuery(soTimeout, info))) {
+                silentDisconnect();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 接收完整的查询结果，数据块只分帧不解码，第一个数据块为结果头部
+     *
+     * @param soTimeout Socket超时时间
+     * @param info 服务器上下文信息
+     * @return 按接收顺序排列的数据块
+     * @throws SQLException 如果接收失败或服务器返回异常
+     */
+    public List<FramedDataResponse> receiveFramedQuery(Duration soTimeout, NativeContext.ServerContext info) throws SQLException {
+        List<FramedDataResponse> frames = new ArrayList<>();
+        receiveFramedQuery(soTimeout, info, frames::add);
+        return frames;
+    }
+
+    /**
+     * 接收完整的查询结果，数据块只分帧不解码，每收到一个数据块交给consumer处理，第一个数据块为结果头部
+     *
+     * @param soTimeout Socket超时时间
+     * @param info 服务器上下文信息
+     * @param consumer 按接收顺序处理数据块
+     * @throws SQLException 如果接收失败、服务器返回异常或consumer处理失败
+     */
+    public void receiveFramedQuery(Duration soTimeout, NativeContext.ServerContext info,
+                                   CheckedConsumer<FramedDataResponse, SQLException> consumer) throws SQLException {
+        while (true) {
+            Response response = receiveFramedResponse(soTimeout, info);
+            if (response instanceof FramedDataResponse) {
+                consumer.accept((FramedDataResponse) response);
+            } else if (response instanceof EOFStreamResponse) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 获取最近一次发送的查询ID
+     *
+     * @return 查询ID，尚未发送查询时返回null
+     */
+    public String queryId() {
+        return queryId;
+    }
+
+    /**
+     * 是否有查询尚未读取到数据流结束
+     *
+     * @return 查询正在执行时返回true
+     */
+    public boolean isQueryRunning() {
+        return queryRunning;
+    }
+
+    /**
+     * 取消正在执行的查询，查询已经结束时不发送任何请求
+     * 可以在读取响应的线程之外调用，发送后需要调用drainQuery()读取剩余的响应
+     *
+     * @throws SQLException 如果发送失败
+     */
+    public void sendCancel() throws SQLException {
+        if (queryRunning) {
+            sendRequest(CancelRequest.INSTANCE);
+        }
+    }
+
+    /**
+     * 读取并丢弃当前查询剩余的响应，直到数据流结束
+     * 数据块只分帧不解码，服务器返回的异常（如查询被取消）视为数据流正常结束
+     *
+     * @param soTimeout Socket超时时间
+     * @param info 服务器上下文信息
+     * @return 读取到数据流结束时返回true，连接可以继续使用；读取失败时返回false
+     */
+    public boolean drainQuery(Duration soTimeout, NativeContext.ServerContext info) {
+        try {
+            while (queryRunning) {
+                receiveFramedResponse(soTimeout, info);
+            }
+            return true;
+        } catch (ClickHouseSQLException ex) {
+            return true;
+        } catch (SQLException ex) {
+            LOG.warn("drain query [{}] failed: {}", queryId, ex.getMessage());
+            return false;
+        }
+    }
+
     /**
      * 静默断开连接，忽略可能的异常
      */
@@ -367,6 +551,8 @@ public class NativeClient {
      */
     private void sendQuery(String id, int stage, NativeContext.ClientContext info, String query,
                            Map<SettingKey, Serializable> settings) throws SQLException {
+        queryId = id;
+        queryRunning = true;
         sendRequest(new QueryRequest(id, info, stage, compression, query, settings));
     }
 
@@ -399,6 +585,28 @@ public class NativeClient {
         return receiveResponse(soTimeout, info, serialize, null);
     }
 
+    /**
+     * 接收响应，数据响应只分帧不解码（内部方法）
+     *
+     * @param soTimeout Socket超时时间
+     * @param info 服务器上下文信息
+     * @return 接收到的响应，数据响应为FramedDataResponse
+     * @throws SQLException 如果接收失败
+     */
+    private Response receiveFramedResponse(Duration soTimeout, NativeContext.ServerContext info) throws SQLException {
+        try {
+            socket.setSoTimeout(((int) soTimeout.toMillis()));
+            Response response = Response.readFramedFrom(deserializer, info);
+            LOG.trace("recv response: {}", response.type());
+            return trackEndOfStream(response);
+        } catch (ClickHouseSQLException ex) {
+            queryRunning = false;
+            throw ex;
+        } catch (IOException ex) {
+            throw new SQLException(ex.getMessage(), ex);
+        }
+    }
+
     /**
      * 接收响应，可指定数据块（内部方法）
      * 
@@ -416,9 +624,26 @@ public class NativeClient {
             // 从流中读取响应
             Response response = Response.readFrom(deserializer, info, serialize, block);
             LOG.trace("recv response: {}", response.type());
-            return response;
+            return trackEndOfStream(response);
+        } catch (ClickHouseSQLException ex) {
+            // 服务器返回的异常响应结束当前查询
+            queryRunning = false;
+            throw ex;
         } catch (IOException ex) {
             throw new SQLException(ex.getMessage(), ex);
         }
     }
+
+    /**
+     * 读取到EndOfStream时标记查询已经结束（内部方法）
+     *
+     * @param response 接收到的响应
+     * @return 原响应
+     */
+    private Response trackEndOfStream(Response response) {
+        if (response instanceof EOFStreamResponse) {
+            queryRunning = false;
+        }
+        return response;
+    }
 }
@@ -21,6 +21,25 @@ public interface BuffedReader {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * 跳过指定数量的字节，默认读取后丢弃
+     *
+     * @param length 字节数
+     * @throws IOException 如果剩余字节不足或读取失败
+     */
+    default void skip(long length) throws IOException {
+        byte[] scratch = new byte[(int) Math.min(length, 8192)];
+        while (length > 0) {
+            int n = (int) Math.min(length, scratch.length);
+            if (n == scratch.length) {
+                readBinary(scratch);
+            } else {
+                readBinary(new byte[n]);
+            }
+            length -= n;
+        }
+    }
+
     void rewind();
 
     void clear();
@@ -1,6 +1,8 @@
 package com.berry.clickhouse.tcp.client.buffer;
 
 import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 
 public interface BuffedWriter {
 
@@ -9,4 +11,24 @@ public interface BuffedWriter {
     void writeBinary(byte[] bytes, int offset, int length) throws IOException;
 
     void flushToTarget(boolean force) throws IOException;
+
+    /**
+     * 写入字节缓冲区中剩余的字节，支持堆外缓冲区和内存映射缓冲区
+     *
+     * @param src 源字节缓冲区
+     * @throws IOException 如果写入失败
+     */
+    default void writeBinary(ByteBuffer src) throws IOException {
+        if (src.hasArray()) {
+            writeBinary(src.array(), src.arrayOffset() + src.position(), src.remaining());
+            ((Buffer) src).position(src.limit());
+            return;
+        }
+        byte[] chunk = new byte[Math.min(8192, src.remaining())];
+        while (src.hasRemaining()) {
+            int num = Math.min(chunk.length, src.remaining());
+            src.get(chunk, 0, num);
+            writeBinary(chunk, 0, num);
+        }
+    }
 }
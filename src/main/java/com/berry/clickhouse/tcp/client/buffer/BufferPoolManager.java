@@ -19,6 +19,30 @@ public interface BufferPoolManager {
      */
     ByteBuffer allocate(String colName, IDataType<?> dataType);
 
+    /**
+     * 按列的预期大小分配一个字节缓冲区
+     *
+     * @param colName 列名
+     * @param dataType 数据类型
+     * @param sizeHint 列在一个数据块中的预期字节数，小于等于0表示未知
+     * @return 分配的字节缓冲区
+     */
+    default ByteBuffer allocate(String colName, IDataType<?> dataType, int sizeHint) {
+        return allocate(colName, dataType);
+    }
+
+    /**
+     * 获取按列的预期大小分配时使用的分段大小
+     *
+     * @param colName 列名
+     * @param dataType 数据类型
+     * @param sizeHint 列在一个数据块中的预期字节数，小于等于0表示未知
+     * @return 分段大小，不支持按预期大小分配时返回-1
+     */
+    default int segmentSize(String colName, IDataType<?> dataType, int sizeHint) {
+        return -1;
+    }
+
     /**
      * 回收一个字节缓冲区
      * 
@@ -26,4 +50,13 @@ public interface BufferPoolManager {
      */
     void recycle(ByteBuffer buffer);
 
+    /**
+     * 获取缓冲池使用的内存预算
+     *
+     * @return 内存预算，未启用时返回null
+     */
+    default MemoryBudget getMemoryBudget() {
+        return null;
+    }
+
 }
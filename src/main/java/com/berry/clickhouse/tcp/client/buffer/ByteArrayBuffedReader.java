@@ -0,0 +1,108 @@
+package com.berry.clickhouse.tcp.client.buffer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * ByteArrayBuffedReader类从内存中按顺序排列的字节段读取数据
+ * 与RecordingBuffedReader配合，在解码线程中重新读取记录下的数据包
+ */
+public class ByteArrayBuffedReader implements BuffedReader {
+
+    private final List<byte[]> segments; // 字节段
+    private int index = -1; // 当前段的索引
+    private byte[] buf = new byte[0]; // 当前段
+    private int position; // 当前段的读取位置
+    private long consumed; // 当前段之前各段的字节数
+
+    /**
+     * @param segments 按顺序排列的字节段
+     */
+    public ByteArrayBuffedReader(List<byte[]> segments) {
+        this.segments = segments;
+    }
+
+    @Override
+    public int readBinary() throws IOException {
+        if (position == buf.length && !nextSegment()) {
+            throw new EOFException("Attempt to read after eof."); // 抛出EOF异常
+        }
+        return buf[position++] & 0xFF;
+    }
+
+    @Override
+    public int readBinary(byte[] bytes) throws IOException {
+        return readBinary(bytes, bytes.length);
+    }
+
+    @Override
+    public int readBinary(byte[] bytes, int length) throws IOException {
+        for (int i = 0; i < length; ) {
+            if (position == buf.length && !nextSegment()) {
+                throw new EOFException("Attempt to read after eof."); // 抛出EOF异常
+            }
+            int fillLength = Math.min(length - i, buf.length - position);
+            System.arraycopy(buf, position, bytes, i, fillLength);
+            i += fillLength;
+            position += fillLength;
+        }
+        return length;
+    }
+
+    @Override
+    public void readBinary(BuffedReadWriter buffedReadWriter, int length) throws IOException {
+        for (int i = 0; i < length; ) {
+            if (position == buf.length && !nextSegment()) {
+                throw new EOFException("Attempt to read after eof."); // 抛出EOF异常
+            }
+            int fillLength = Math.min(length - i, buf.length - position);
+            buffedReadWriter.writeBinary(buf, position, fillLength);
+            i += fillLength;
+            position += fillLength;
+        }
+    }
+
+    @Override
+    public void skip(long length) throws IOException {
+        while (length > 0) {
+            if (position == buf.length && !nextSegment()) {
+                throw new EOFException("Attempt to read after eof."); // 抛出EOF异常
+            }
+            int n = (int) Math.min(length, buf.length - position);
+            position += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * 获取已读取（包括跳过）的字节数
+     *
+     * @return 字节数
+     */
+    public long position() {
+        return consumed + position;
+    }
+
+    @Override
+    public void rewind() {
+        // 该方法未实现
+    }
+
+    @Override
+    public void clear() {
+        // 该方法未实现
+    }
+
+    private boolean nextSegment() {
+        while (index + 1 < segments.size()) {
+            consumed += buf.length;
+            buf = segments.get(++index);
+            position = 0;
+            if (buf.length > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
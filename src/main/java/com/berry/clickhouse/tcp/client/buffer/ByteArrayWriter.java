@@ -3,42 +3,63 @@ package com.berry.clickhouse.tcp.client.buffer;
 import java.io.IOException;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Deque;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 import java.util.function.Consumer;
-import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
 /**
  * ByteArrayWriter类实现了BuffedWriter和BuffedReader接口
  * 用于在字节数组中写入和读取数据
+ * 分段保存在数组中，按下标O(1)访问，写入和读取均支持跨分段的批量操作
  */
 public class ByteArrayWriter implements BuffedWriter, BuffedReader {
 
-    private int nextReadBuffer; // 下一个读取的缓冲区索引
+    private static final int INITIAL_SEGMENTS = 4; // 分段数组的初始长度
+
+    private ByteBuffer[] segments = new ByteBuffer[INITIAL_SEGMENTS]; // 分段数组
+    private int segmentCount; // 分段数量
+    private int current; // 当前缓冲区在分段数组中的下标
     private ByteBuffer buffer; // 当前缓冲区
-    private final List<ByteBuffer> byteBufferList = new LinkedList<>(); // 存储字节缓冲区列表
-    private final Deque<ByteBuffer> freeList = new LinkedList<>(); // 存储空闲缓冲区的队列
+    private final Deque<ByteBuffer> freeList = new ArrayDeque<>(); // 存储空闲缓冲区的队列
     private final int freeListSize; // 空闲缓冲区大小
-    private final Supplier<ByteBuffer> allocateBuffer; // 分配缓冲区的供应商
+    private final IntFunction<ByteBuffer> allocateBuffer; // 按期望大小分配缓冲区的函数
     private final Consumer<ByteBuffer> recycleBuffer; // 回收缓冲区的消费者
+    private final SegmentGrowthPolicy growthPolicy; // 分段增长策略
 
     /**
      * 构造函数，初始化ByteArrayWriter
-     * 
+     *
      * @param freeListSize 空闲缓冲区大小
-     * @param allocateBuffer 分配缓冲区的供应商
+     * @param allocateBuffer 按期望大小分配缓冲区的函数，参数小于等于0表示使用默认大小
      * @param recycleBuffer 回收缓冲区的消费者
+     * @param growthPolicy 分段增长策略
      */
-    public ByteArrayWriter(int freeListSize, Supplier<ByteBuffer> allocateBuffer, Consumer<ByteBuffer> recycleBuffer) {
+    public ByteArrayWriter(int freeListSize, IntFunction<ByteBuffer> allocateBuffer, Consumer<ByteBuffer> recycleBuffer,
+                           SegmentGrowthPolicy growthPolicy) {
         this.freeListSize = freeListSize; // 设置空闲缓冲区大小
-        this.allocateBuffer = allocateBuffer; // 设置分配缓冲区的供应商
+        this.allocateBuffer = allocateBuffer; // 设置分配缓冲区的函数
         this.recycleBuffer = recycleBuffer; // 设置回收缓冲区的消费者
+        this.growthPolicy = (null == growthPolicy) ? SegmentGrowthPolicy.FIXED : growthPolicy; // 设置分段增长策略
         reuseOrAllocateByteBuffer(); // 复用或分配字节缓冲区
     }
 
+    /**
+     * 构造函数，初始化ByteArrayWriter
+     *
+     * @param freeListSize 空闲缓冲区大小
+     * @param allocateBuffer 分配缓冲区的供应商
+     * @param recycleBuffer 回收缓冲区的消费者
+     */
+    public ByteArrayWriter(int freeListSize, Supplier<ByteBuffer> allocateBuffer, Consumer<ByteBuffer> recycleBuffer) {
+        this(freeListSize, size -> allocateBuffer.get(), recycleBuffer, SegmentGrowthPolicy.FIXED);
+    }
+
     public ByteArrayWriter(Supplier<ByteBuffer> allocateBuffer, Consumer<ByteBuffer> recycleBuffer) {
         this(-1, allocateBuffer, recycleBuffer);
     }
@@ -63,105 +84,279 @@ public class ByteArrayWriter implements BuffedWriter, BuffedReader {
         buffer.put(bytes, offset, length); // 写入剩余字节
     }
 
+    /**
+     * 将字节缓冲区中剩余的字节批量写入，可跨越多个分段
+     *
+     * @param src 源字节缓冲区
+     * @throws IOException 如果写入过程中发生I/O错误
+     */
+    @Override
+    public void writeBinary(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            flushToTarget(false); // 刷新到目标
+            int num = Math.min(buffer.remaining(), src.remaining());
+            int limit = src.limit();
+            ((Buffer) src).limit(src.position() + num);
+            buffer.put(src); // 写入当前分段能容纳的字节
+            ((Buffer) src).limit(limit);
+        }
+    }
+
     @Override
     public void flushToTarget(boolean force) throws IOException {
         if (buffer.hasRemaining() && !force) {
             return; // 如果缓冲区还有剩余且不强制刷新，直接返回
         }
+        if (current + 1 < segmentCount) {
+            // 清空后重新写入时复用后续已有的分段
+            buffer = segments[++current];
+            ((Buffer) buffer).clear();
+            return;
+        }
         reuseOrAllocateByteBuffer(); // 复用或分配字节缓冲区
     }
 
+    /**
+     * 获取分段列表的只读视图
+     *
+     * @return 分段列表
+     */
     public List<ByteBuffer> getBufferList() {
-        return byteBufferList;
+        return Collections.unmodifiableList(Arrays.asList(segments).subList(0, segmentCount));
+    }
+
+    /**
+     * 获取分段数量
+     *
+     * @return 分段数量
+     */
+    public int segmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * 按下标获取分段
+     *
+     * @param index 分段下标
+     * @return 分段
+     */
+    public ByteBuffer segment(int index) {
+        if (index < 0 || index >= segmentCount) {
+            throw new IndexOutOfBoundsException("segment " + index + " of " + segmentCount);
+        }
+        return segments[index];
     }
 
     public void reset() {
+        trim(); // 收缩缓冲区
+        reuseOrAllocateByteBuffer();
+    }
 
-        if (this.freeListSize < 0) {
-            byteBufferList.forEach(b -> {
+    /**
+     * 收缩缓冲区，保留freeListSize个缓冲区以便复用，超出部分归还给缓冲池
+     * 收缩后在调用reset之前不可写入
+     */
+    public void trim() {
+        for (int i = 0; i < segmentCount; i++) {
+            ByteBuffer b = segments[i];
+            segments[i] = null;
+            if (b instanceof MappedByteBuffer
+                    || (this.freeListSize >= 0 && freeList.size() >= this.freeListSize)) {
+                // 溢写到磁盘的分段不保留
+                this.recycleBuffer.accept(b);
+            } else {
                 // upcast is necessary, see detail at:
                 // https://bitbucket.org/ijabz/jaudiotagger/issues/313/java-8-javalangnosuchmethoderror
                 ((Buffer) b).clear();
                 freeList.addLast(b);
-            });
-        } else {
-            for (int i = 0; i < byteBufferList.size(); i++) {
-                if (i >= this.freeListSize) {
-                    ByteBuffer b = byteBufferList.get(i);
-                    this.recycleBuffer.accept(b);
-                } else {
-                    ByteBuffer b = byteBufferList.get(i);
-                    ((Buffer) b).clear();
-                    freeList.addLast(b);
-                }
             }
         }
-        byteBufferList.clear();
-        reuseOrAllocateByteBuffer();
+        this.segmentCount = 0;
+        this.current = 0;
+        this.buffer = null;
+    }
+
+    /**
+     * 释放所有缓冲区（包括空闲列表），全部归还给缓冲池
+     * 释放后该写入器不可再使用
+     */
+    public void release() {
+        for (int i = 0; i < segmentCount; i++) {
+            this.recycleBuffer.accept(segments[i]);
+            segments[i] = null;
+        }
+        freeList.forEach(this.recycleBuffer);
+        freeList.clear();
+        this.segmentCount = 0;
+        this.current = 0;
+        this.buffer = null;
+    }
+
+    /**
+     * 将容量超过指定大小的空闲缓冲区归还给缓冲池
+     *
+     * @param maxCapacity 保留的空闲缓冲区的最大容量
+     */
+    public void trimFreeList(int maxCapacity) {
+        freeList.removeIf(b -> {
+            if (b.capacity() > maxCapacity) {
+                this.recycleBuffer.accept(b);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * 获取已写入的字节数
+     *
+     * @return 已写入的字节数
+     */
+    public long writtenBytes() {
+        long bytes = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            bytes += segments[i].position();
+        }
+        return bytes;
+    }
+
+    /**
+     * 将已写入的字节截断到指定长度，之后的写入从截断位置继续，截断位置之后的分段保留以便复用
+     *
+     * @param bytes 保留的字节数，不能超过已写入的字节数
+     */
+    public void truncate(long bytes) {
+        if (segmentCount == 0 && bytes == 0) {
+            return;
+        }
+        long remaining = bytes;
+        int index = -1;
+        for (int i = 0; i < segmentCount; i++) {
+            ByteBuffer b = segments[i];
+            if (index >= 0) {
+                ((Buffer) b).clear(); // 截断位置之后的分段
+            } else if (remaining <= b.position()) {
+                ((Buffer) b).limit(b.capacity());
+                ((Buffer) b).position((int) remaining);
+                index = i;
+            } else {
+                remaining -= b.position();
+            }
+        }
+        if (index < 0) {
+            throw new IllegalArgumentException("Cannot truncate to " + bytes + " bytes, only "
+                    + writtenBytes() + " bytes written");
+        }
+        this.current = index;
+        this.buffer = segments[index];
+    }
+
+    /**
+     * 获取持有的全部分段（包括空闲列表）的容量之和
+     *
+     * @return 持有的字节数
+     */
+    public long retainedBytes() {
+        long bytes = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            bytes += segments[i].capacity();
+        }
+        for (ByteBuffer b : freeList) {
+            bytes += b.capacity();
+        }
+        return bytes;
     }
 
     private ByteBuffer reuseOrAllocateByteBuffer() {
         ByteBuffer newBuffer = freeList.pollLast(); // 从空闲列表中获取缓冲区
         if (newBuffer == null) {
-            newBuffer = allocateBuffer.get(); // 分配新的缓冲区
+            int lastCapacity = (segmentCount == 0) ? -1 : segments[segmentCount - 1].capacity();
+            newBuffer = allocateBuffer.apply(growthPolicy.nextSegmentSize(lastCapacity)); // 分配新的缓冲区
         }
+        if (segmentCount == segments.length) {
+            segments = Arrays.copyOf(segments, segments.length << 1); // 扩容分段数组
+        }
+        segments[segmentCount] = newBuffer; // 添加到分段数组
+        current = segmentCount++;
         buffer = newBuffer; // 设置当前缓冲区
-        byteBufferList.add(buffer); // 添加到字节缓冲区列表
         return buffer; // 返回当前缓冲区
     }
 
+    /**
+     * 切换到下一个分段进行读取
+     *
+     * @throws IOException 如果没有更多分段
+     */
+    private void nextReadSegment() throws IOException {
+        if (this.current + 1 >= this.segmentCount) {
+            throw new IOException("read error! don`t has more byte buffer!"); // 抛出读取错误
+        }
+        this.buffer = this.segments[++this.current]; // 获取下一个缓冲区
+        this.buffer.rewind(); // 重置缓冲区位置
+    }
+
     @Override
     public int readBinary() throws IOException {
-        if (this.buffer.position() == this.buffer.limit()) {
-            if (this.nextReadBuffer == this.byteBufferList.size()) {
-                throw new IOException("read error! don`t has more byte buffer!"); // 抛出读取错误
-            }
-            this.buffer = this.byteBufferList.get(this.nextReadBuffer); // 获取下一个缓冲区
-            this.buffer.rewind(); // 重置缓冲区位置
-            this.nextReadBuffer++; // 更新下一个读取的缓冲区索引
+        while (!this.buffer.hasRemaining()) {
+            nextReadSegment();
         }
         return this.buffer.get(); // 返回读取的字节
     }
 
     @Override
     public int readBinary(byte[] bytes) throws IOException {
-        for (int i = 0; i < bytes.length; ) {
-            if (this.buffer.position() == this.buffer.limit()) {
-                if (this.nextReadBuffer == this.byteBufferList.size()) {
-                    throw new IOException("read error! don`t has more byte buffer!"); // 抛出读取错误
-                }
-                this.buffer = this.byteBufferList.get(this.nextReadBuffer); // 获取下一个缓冲区
-                this.buffer.rewind(); // 重置缓冲区位置
-                this.nextReadBuffer++; // 更新下一个读取的缓冲区索引
-            }
-            int padding = bytes.length - i; // 剩余字节数
-            int fillLength = Math.min(padding, this.buffer.capacity() - this.buffer.position()); // 可填充的字节数
-            if (fillLength > 0) {
-                this.buffer.get(bytes, i, fillLength); // 从缓冲区读取字节
-                i += fillLength; // 更新已读取字节数
+        return readBinary(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public int readBinary(byte[] bytes, int length) throws IOException {
+        return readBinary(bytes, 0, length);
+    }
+
+    /**
+     * 批量读取字节，可跨越多个分段
+     *
+     * @param bytes 目标字节数组
+     * @param offset 目标偏移量
+     * @param length 读取长度
+     * @return 读取的字节数
+     * @throws IOException 如果没有足够的字节可读
+     */
+    public int readBinary(byte[] bytes, int offset, int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            if (!this.buffer.hasRemaining()) {
+                nextReadSegment();
+                continue;
             }
+            int fillLength = Math.min(remaining, this.buffer.remaining()); // 可填充的字节数
+            this.buffer.get(bytes, offset, fillLength); // 从缓冲区读取字节
+            offset += fillLength;
+            remaining -= fillLength;
         }
-        return bytes.length; // 返回读取的字节数
+        return length; // 返回读取的字节数
     }
 
     @Override
     public void rewind() {
-        this.nextReadBuffer = 1; // 重置下一个读取的缓冲区索引
-        this.buffer = this.byteBufferList.get(0); // 获取第一个缓冲区
+        this.current = 0; // 重置当前分段下标
+        this.buffer = this.segments[0]; // 获取第一个缓冲区
         this.buffer.rewind(); // 重置缓冲区位置
     }
 
     @Override
     public void clear() {
-        this.nextReadBuffer = 1; // 重置下一个读取的缓冲区索引
-        this.byteBufferList.forEach(ByteBuffer::clear); // 清空所有缓冲区
-        this.buffer = this.byteBufferList.get(0); // 获取第一个缓冲区
+        for (int i = 0; i < segmentCount; i++) {
+            ((Buffer) segments[i]).clear(); // 清空所有缓冲区
+        }
+        this.current = 0; // 重置当前分段下标
+        this.buffer = this.segments[0]; // 获取第一个缓冲区
     }
 
-    public void writeReverse(byte[] bytes, int offset, int length) {
+    public void writeReverse(byte[] bytes, int offset, int length) throws IOException {
         int start = (offset + length) - 1;
         for (int i = start; i >= offset; i--) {
-            buffer.put(bytes[i]);
+            writeBinary(bytes[i]);
         }
     }
 }
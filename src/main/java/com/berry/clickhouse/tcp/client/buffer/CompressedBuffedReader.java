@@ -63,6 +63,20 @@ public class CompressedBuffedReader implements BuffedReader, BytesHelper {
         return bytes.length; // 返回读取的字节数
     }
 
+    @Override
+    public void skip(long length) throws IOException {
+        while (length > 0) {
+            if (position == capacity) {
+                decompressed = readCompressedData(); // 跨越压缩帧时仍需解压下一帧
+                this.position = 0;
+                this.capacity = decompressed.length;
+            }
+            int n = (int) Math.min(length, capacity - position);
+            position += n;
+            length -= n;
+        }
+    }
+
     @Override
     public void rewind() {
         // 该方法未实现
@@ -100,6 +114,8 @@ public class CompressedBuffedReader implements BuffedReader, BytesHelper {
         switch (method) {
             case LZ4:
                 return readLZ4CompressedData(compressedSize - COMPRESSION_HEADER_LENGTH, decompressedSize); // 读取LZ4压缩数据
+            case ZSTD:
+                return readZSTDCompressedData(compressedSize - COMPRESSION_HEADER_LENGTH, decompressedSize); // 读取ZSTD压缩数据
             case NONE:
                 return readNoneCompressedData(decompressedSize); // 读取未压缩数据
             default:
@@ -144,4 +160,25 @@ public class CompressedBuffedReader implements BuffedReader, BytesHelper {
 
         throw new IOException("Cannot decompress use LZ4 method."); // 抛出无法解压异常
     }
+
+    /**
+     * 读取ZSTD压缩数据
+     * 
+     * @param compressedSize 压缩数据大小
+     * @param decompressedSize 解压后数据大小
+     * @return 解压后的字节数组
+     * @throws IOException IO异常
+     */
+    private byte[] readZSTDCompressedData(int compressedSize, int decompressedSize) throws IOException {
+        byte[] compressed = new byte[compressedSize]; // 创建压缩数据字节数组
+        if (buf.readBinary(compressed) == compressedSize) {
+            byte[] decompressed = new byte[decompressedSize]; // 创建解压后的字节数组
+
+            if (zstdDecompressor.decompress(compressed, 0, compressedSize, decompressed, 0, decompressedSize) == decompressedSize) {
+                return decompressed; // 返回解压后的字节数组
+            }
+        }
+
+        throw new IOException("Cannot decompress use ZSTD method."); // 抛出无法解压异常
+    }
 }
@@ -7,6 +7,7 @@ import io.airlift.compress.lz4.Lz4Compressor;
 import io.airlift.compress.zstd.ZstdCompressor;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import static com.berry.clickhouse.tcp.client.settings.ClickHouseDefines.CHECKSUM_LENGTH;
 import static com.berry.clickhouse.tcp.client.settings.ClickHouseDefines.COMPRESSION_HEADER_LENGTH;
@@ -20,6 +21,7 @@ public class CompressedBuffedWriter implements BuffedWriter, BytesHelper {
     private final int capacity; // 缓冲区容量
     private final byte[] writtenBuf; // 写入的字节缓冲区
     private final BuffedWriter writer; // 原始的BuffedWriter
+    private final CompressionMethod method; // 压缩方法
 
     private final Compressor lz4Compressor = new Lz4Compressor(); // LZ4压缩器
     private final Compressor zstdCompressor = new ZstdCompressor(); // ZSTD压缩器
@@ -33,9 +35,21 @@ public class CompressedBuffedWriter implements BuffedWriter, BytesHelper {
      * @param writer 原始的BuffedWriter
      */
     public CompressedBuffedWriter(int capacity, BuffedWriter writer) {
+        this(capacity, writer, CompressionMethod.LZ4);
+    }
+
+    /**
+     * 构造函数，初始化CompressedBuffedWriter
+     *
+     * @param capacity 缓冲区容量，即每个压缩帧的最大原始数据大小
+     * @param writer 原始的BuffedWriter
+     * @param method 压缩方法
+     */
+    public CompressedBuffedWriter(int capacity, BuffedWriter writer, CompressionMethod method) {
         this.capacity = capacity; // 设置缓冲区容量
         this.writtenBuf = new byte[capacity]; // 创建写入的字节缓冲区
         this.writer = writer; // 设置原始的BuffedWriter
+        this.method = method; // 设置压缩方法
     }
 
     @Override
@@ -59,15 +73,32 @@ public class CompressedBuffedWriter implements BuffedWriter, BytesHelper {
         flushToTarget(false); // 刷新到目标
     }
 
+    @Override
+    public void writeBinary(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            int num = Math.min(remaining(), src.remaining()); // 当前可写入的字节数
+            src.get(writtenBuf, position, num); // 直接复制到写入缓冲区
+            position += num; // 更新写入位置
+            flushToTarget(false); // 刷新到目标
+        }
+    }
+
     @Override
     public void flushToTarget(boolean force) throws IOException {
         if (position > 0 && (force || !hasRemaining())) {
-            int maxLen = lz4Compressor.maxCompressedLength(position); // 获取最大压缩长度
+            Compressor compressor = (CompressionMethod.ZSTD == method) ? zstdCompressor : lz4Compressor;
+            int maxLen = (CompressionMethod.NONE == method) ? position : compressor.maxCompressedLength(position); // 获取最大压缩长度
 
             byte[] compressedBuffer = new byte[maxLen + COMPRESSION_HEADER_LENGTH + CHECKSUM_LENGTH]; // 创建压缩缓冲区
-            int res = lz4Compressor.compress(writtenBuf, 0, position, compressedBuffer, COMPRESSION_HEADER_LENGTH + CHECKSUM_LENGTH, compressedBuffer.length); // 压缩数据
-
-            compressedBuffer[CHECKSUM_LENGTH] = (byte) (0x82 & 0xFF); // 设置压缩方法
+            int res;
+            if (CompressionMethod.NONE == method) {
+                System.arraycopy(writtenBuf, 0, compressedBuffer, COMPRESSION_HEADER_LENGTH + CHECKSUM_LENGTH, position); // 不压缩
+                res = position;
+            } else {
+                res = compressor.compress(writtenBuf, 0, position, compressedBuffer, COMPRESSION_HEADER_LENGTH + CHECKSUM_LENGTH, maxLen); // 压缩数据
+            }
+
+            compressedBuffer[CHECKSUM_LENGTH] = (byte) (method.code() & 0xFF); // 设置压缩方法
             int compressedSize = res + COMPRESSION_HEADER_LENGTH; // 更新压缩数据大小
             System.arraycopy(getBytesLE(compressedSize), 0, compressedBuffer, CHECKSUM_LENGTH + 1, Integer.BYTES); // 写入压缩大小
             System.arraycopy(getBytesLE(position), 0, compressedBuffer, CHECKSUM_LENGTH + Integer.BYTES + 1, Integer.BYTES); // 写入原始数据大小
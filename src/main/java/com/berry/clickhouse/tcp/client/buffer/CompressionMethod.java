@@ -0,0 +1,38 @@
+package com.berry.clickhouse.tcp.client.buffer;
+
+/**
+ * CompressionMethod枚举定义了ClickHouse压缩帧支持的压缩方法
+ * 压缩帧头部的第一个字节为压缩方法的代码
+ */
+public enum CompressionMethod {
+
+    /**
+     * 不压缩，帧中直接保存原始数据
+     */
+    NONE(0x02),
+
+    /**
+     * LZ4压缩，压缩和解压速度快
+     */
+    LZ4(0x82),
+
+    /**
+     * ZSTD压缩，压缩率更高
+     */
+    ZSTD(0x90);
+
+    private final int code; // 压缩方法代码
+
+    CompressionMethod(int code) {
+        this.code = code;
+    }
+
+    /**
+     * 获取压缩方法代码
+     *
+     * @return 压缩帧头部中的压缩方法代码
+     */
+    public int code() {
+        return code;
+    }
+}
@@ -11,7 +11,13 @@ import java.nio.ByteBuffer;
  */
 public class DefaultBufferPoolManager implements BufferPoolManager {
 
+    /**
+     * 按预期大小分配时的最小分段大小
+     */
+    public static final int MIN_SEGMENT_SIZE = 1024;
+
     private final int blockSize; // 缓冲区块大小
+    protected final MemoryBudget memoryBudget; // 内存预算
 
     /**
      * 构造函数，初始化DefaultBufferPoolManager
@@ -19,16 +25,61 @@ public class DefaultBufferPoolManager implements BufferPoolManager {
      * @param blockSize 缓冲区块大小
      */
     public DefaultBufferPoolManager(int blockSize) {
+        this(blockSize, MemoryBudget.unlimited());
+    }
+
+    /**
+     * 构造函数，初始化带内存预算的DefaultBufferPoolManager
+     *
+     * @param blockSize 缓冲区块大小
+     * @param memoryBudget 内存预算
+     */
+    public DefaultBufferPoolManager(int blockSize, MemoryBudget memoryBudget) {
         this.blockSize = blockSize; // 设置缓冲区块大小
+        this.memoryBudget = (null == memoryBudget) ? MemoryBudget.unlimited() : memoryBudget; // 设置内存预算
     }
 
     @Override
     public ByteBuffer allocate(String colName, IDataType<?> dataType) {
+        this.memoryBudget.acquire(this.blockSize); // 申请内存预算，不足时阻塞或失败
         return ByteBuffer.allocate(this.blockSize); // 分配指定大小的字节缓冲区
     }
 
+    @Override
+    public ByteBuffer allocate(String colName, IDataType<?> dataType, int sizeHint) {
+        int size = segmentSize(colName, dataType, sizeHint);
+        this.memoryBudget.acquire(size); // 申请内存预算，不足时阻塞或失败
+        return ByteBuffer.allocate(size); // 分配按预期大小确定的字节缓冲区
+    }
+
+    @Override
+    public int segmentSize(String colName, IDataType<?> dataType, int sizeHint) {
+        return roundSegmentSize(sizeHint, this.blockSize);
+    }
+
+    /**
+     * 将预期大小向上取整到2的幂，使不同大小的列共用有限几种分段规格
+     *
+     * @param sizeHint 预期字节数，小于等于0表示未知
+     * @param maxSize 最大分段大小
+     * @return 分段大小
+     */
+    protected static int roundSegmentSize(int sizeHint, int maxSize) {
+        if (sizeHint <= 0 || sizeHint >= maxSize) {
+            return maxSize;
+        }
+        int size = Math.max(MIN_SEGMENT_SIZE, Integer.highestOneBit(sizeHint - 1) << 1);
+        return Math.min(size, maxSize);
+    }
+
     @Override
     public void recycle(ByteBuffer buffer) {
         ((Buffer) buffer).clear(); // 清空缓冲区以便重用
+        this.memoryBudget.release(buffer.capacity()); // 归还内存预算
+    }
+
+    @Override
+    public MemoryBudget getMemoryBudget() {
+        return this.memoryBudget;
     }
 }
@@ -0,0 +1,89 @@
+package com.berry.clickhouse.tcp.client.buffer;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * FileChannelBuffedWriter类实现了BuffedWriter接口
+ * 用于将数据顺序写入FileChannel，写入的字节先合并到缓冲区，缓冲区写满或强制刷新时才写入文件
+ * 大于缓冲区的写入直接写入文件，不经过缓冲区复制
+ */
+public class FileChannelBuffedWriter implements BuffedWriter {
+
+    private final FileChannel channel; // 目标文件通道
+    private final ByteBuffer buffer; // 写入缓冲区
+    private long written; // 已写入文件的字节数
+
+    /**
+     * 构造函数，初始化FileChannelBuffedWriter
+     *
+     * @param channel 目标文件通道，从当前位置开始写入
+     * @param capacity 缓冲区容量
+     */
+    public FileChannelBuffedWriter(FileChannel channel, int capacity) {
+        this.channel = channel; // 设置目标文件通道
+        this.buffer = ByteBuffer.allocate(capacity); // 创建写入缓冲区
+    }
+
+    @Override
+    public void writeBinary(byte byt) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain(); // 缓冲区已满时写入文件
+        }
+        buffer.put(byt); // 写入字节
+    }
+
+    @Override
+    public void writeBinary(byte[] bytes, int offset, int length) throws IOException {
+        if (length > buffer.remaining()) {
+            drain();
+            if (length >= buffer.capacity()) {
+                write(ByteBuffer.wrap(bytes, offset, length)); // 大块数据直接写入文件
+                return;
+            }
+        }
+        buffer.put(bytes, offset, length); // 写入缓冲区
+    }
+
+    @Override
+    public void writeBinary(ByteBuffer src) throws IOException {
+        if (src.remaining() > buffer.remaining()) {
+            drain();
+            if (src.remaining() >= buffer.capacity()) {
+                write(src); // 大块数据直接写入文件
+                return;
+            }
+        }
+        buffer.put(src); // 写入缓冲区
+    }
+
+    @Override
+    public void flushToTarget(boolean force) throws IOException {
+        if (force || !buffer.hasRemaining()) {
+            drain(); // 将缓冲区的数据写入文件
+        }
+    }
+
+    /**
+     * 获取已写入的字节数，包括仍在缓冲区中的字节
+     *
+     * @return 字节数
+     */
+    public long writtenBytes() {
+        return written + buffer.position();
+    }
+
+    private void drain() throws IOException {
+        ((Buffer) buffer).flip();
+        write(buffer);
+        ((Buffer) buffer).clear();
+    }
+
+    private void write(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            written += channel.write(src);
+        }
+    }
+}
@@ -2,7 +2,8 @@ package com.berry.clickhouse.tcp.client.buffer;
 
 import java.io.EOFException;
 import java.io.IOException;
-import java.nio.MappedByteBuffer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 
 /**
  * MappedByteBufferReader类实现了BuffedReader接口
@@ -18,7 +19,7 @@ public class MappedByteBufferReader implements BuffedReader {
 
     private final byte[] buf; // 缓冲区字节数组
 
-    private MappedByteBuffer buffer; // 映射的字节缓冲区
+    private ByteBuffer buffer; // 映射的字节缓冲区
 
     private int limit; // 当前限制
     private int position; // 当前读取位置
@@ -26,9 +27,9 @@ public class MappedByteBufferReader implements BuffedReader {
     /**
      * 构造函数，初始化MappedByteBufferReader
      * 
-     * @param buffer 映射的字节缓冲区
+     * @param buffer 映射的字节缓冲区，或其duplicate()
      */
-    public MappedByteBufferReader(MappedByteBuffer buffer) {
+    public MappedByteBufferReader(ByteBuffer buffer) {
         this.buffer = buffer; // 设置映射的字节缓冲区
         this.limit = 0; // 初始化限制
         this.position = 0; // 初始化读取位置
@@ -64,7 +65,7 @@ public class MappedByteBufferReader implements BuffedReader {
                 this.position += fillLength; // 更新当前读取位置
             }
         }
-        return 0; // 返回0表示没有数据
+        return length; // 返回读取的字节数
     }
 
     @Override
@@ -83,6 +84,20 @@ public class MappedByteBufferReader implements BuffedReader {
         }
     }
 
+    @Override
+    public void skip(long length) throws IOException {
+        int buffered = (int) Math.min(length, this.limit - position); // 先跳过已复制到缓冲区的字节
+        position += buffered;
+        length -= buffered;
+        if (length > 0) {
+            if (length > this.leftLength) {
+                throw new EOFException();
+            }
+            ((Buffer) this.buffer).position(this.buffer.position() + (int) length); // 其余字节直接移动映射缓冲区的位置
+            this.leftLength -= (int) length;
+        }
+    }
+
     @Override
     public void rewind() {
         // 该方法未实现
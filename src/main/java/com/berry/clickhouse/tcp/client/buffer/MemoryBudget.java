@@ -0,0 +1,202 @@
+package com.berry.clickhouse.tcp.client.buffer;
+
+import com.berry.clickhouse.tcp.client.exception.MemoryBudgetExceededException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * MemoryBudget类是写入缓冲区共享的全局内存记账器
+ * 统计数据块写入缓冲区当前持有的字节数，预算耗尽时新的分配会阻塞等待或直接失败
+ * 缓冲区从分配到被丢弃期间一直计入预算，缓冲池中空闲的缓冲区同样计入，所有缓冲池管理器都遵循这一规则
+ */
+public class MemoryBudget {
+
+    /**
+     * 不限制内存的预算，仅做统计
+     */
+    public static final long UNLIMITED = -1L;
+
+    private final long limit; // 预算上限（字节），小于等于0表示不限制
+    private final long waitNanos; // 预算不足时的最长等待时间，0表示立即失败
+    private final ReentrantLock lock = new ReentrantLock(); // 预算锁
+    private final Condition released = lock.newCondition(); // 预算释放条件
+    private long used; // 已使用的字节数
+    private long peak; // 已使用字节数的峰值
+
+    /**
+     * 构造函数，初始化MemoryBudget
+     *
+     * @param limit 预算上限（字节），小于等于0表示不限制
+     * @param wait 预算不足时的最长等待时间，null或0表示立即失败
+     */
+    public MemoryBudget(long limit, Duration wait) {
+        this.limit = limit;
+        this.waitNanos = (null == wait || wait.isNegative()) ? 0L : wait.toNanos();
+    }
+
+    /**
+     * 创建不限制内存的预算
+     *
+     * @return MemoryBudget实例
+     */
+    public static MemoryBudget unlimited() {
+        return new MemoryBudget(UNLIMITED, Duration.ZERO);
+    }
+
+    /**
+     * 申请指定字节数的预算，预算不足时在等待时间内阻塞
+     *
+     * @param bytes 申请的字节数
+     * @throws MemoryBudgetExceededException 如果超时仍无法申请到预算
+     */
+    public void acquire(long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (isLimited()) {
+                if (bytes > limit) {
+                    throw new MemoryBudgetExceededException("Request of " + bytes
+                            + " bytes is larger than memory budget " + limit + " bytes");
+                }
+                long nanos = waitNanos;
+                while (used + bytes > limit) {
+                    if (nanos <= 0L) {
+                        throw new MemoryBudgetExceededException("Memory budget exhausted, used " + used
+                                + " of " + limit + " bytes, requested " + bytes + " bytes");
+                    }
+                    nanos = released.awaitNanos(nanos);
+                }
+            }
+            used += bytes;
+            peak = Math.max(peak, used);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MemoryBudgetExceededException("Interrupted while waiting for memory budget", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 尝试立即申请指定字节数的预算，不阻塞
+     *
+     * @param bytes 申请的字节数
+     * @return 申请成功返回true
+     */
+    public boolean tryAcquire(long bytes) {
+        if (bytes <= 0) {
+            return true;
+        }
+        lock.lock();
+        try {
+            if (isLimited() && used + bytes > limit) {
+                return false;
+            }
+            used += bytes;
+            peak = Math.max(peak, used);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 释放指定字节数的预算并唤醒等待者
+     *
+     * @param bytes 释放的字节数
+     */
+    public void release(long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            used = Math.max(0L, used - bytes);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 是否限制了内存上限
+     *
+     * @return 有上限返回true
+     */
+    public boolean isLimited() {
+        return limit > 0;
+    }
+
+    /**
+     * 获取预算上限
+     *
+     * @return 预算上限（字节）
+     */
+    public long limit() {
+        return limit;
+    }
+
+    /**
+     * 获取当前已使用的字节数
+     *
+     * @return 已使用的字节数
+     */
+    public long used() {
+        lock.lock();
+        try {
+            return used;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取已使用字节数的峰值
+     *
+     * @return 峰值字节数
+     */
+    public long peak() {
+        lock.lock();
+        try {
+            return peak;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取剩余可用的字节数，不限制时返回Long.MAX_VALUE
+     *
+     * @return 剩余可用的字节数
+     */
+    public long available() {
+        if (!isLimited()) {
+            return Long.MAX_VALUE;
+        }
+        lock.lock();
+        try {
+            return Math.max(0L, limit - used);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取预算不足时的最长等待时间
+     *
+     * @return 等待时间（毫秒）
+     */
+    public long waitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryBudget{used=" + used() + ", limit=" + (isLimited() ? limit : "unlimited") + "}";
+    }
+}
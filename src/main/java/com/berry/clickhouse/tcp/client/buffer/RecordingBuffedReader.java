@@ -0,0 +1,104 @@
+package com.berry.clickhouse.tcp.client.buffer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * RecordingBuffedReader类在读取的同时记录读取（包括跳过）的全部字节
+ * 用于读取线程只确定数据包的边界，记录下的字节交给其他线程重新读取和解码
+ * 较小的读取合并到同一段，较大的跳过直接读入独立的一段，每个字节只复制一次
+ */
+public class RecordingBuffedReader implements BuffedReader {
+
+    private static final int SEGMENT_SIZE = 8192; // 合并小读取的段大小
+
+    private final BuffedReader delegate; // 实际读取的BuffedReader
+    private final List<byte[]> segments = new ArrayList<>(); // 已经写满的段
+    private byte[] current = new byte[SEGMENT_SIZE]; // 正在写入的段
+    private int position; // 正在写入的段的写入位置
+
+    /**
+     * @param delegate 实际读取的BuffedReader
+     */
+    public RecordingBuffedReader(BuffedReader delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public int readBinary() throws IOException {
+        int b = delegate.readBinary();
+        if (position == current.length) {
+            segments.add(current);
+            current = new byte[SEGMENT_SIZE];
+            position = 0;
+        }
+        current[position++] = (byte) b;
+        return b;
+    }
+
+    @Override
+    public int readBinary(byte[] bytes) throws IOException {
+        int n = delegate.readBinary(bytes);
+        append(bytes);
+        return n;
+    }
+
+    @Override
+    public void skip(long length) throws IOException {
+        if (length <= current.length - position) {
+            for (int i = 0; i < length; i++) {
+                readBinary();
+            }
+            return;
+        }
+        flushCurrent();
+        while (length > 0) {
+            byte[] segment = new byte[(int) Math.min(length, Integer.MAX_VALUE - 8)]; // 跳过的字节直接读入独立的段
+            delegate.readBinary(segment);
+            segments.add(segment);
+            length -= segment.length;
+        }
+    }
+
+    /**
+     * 结束记录
+     *
+     * @return 按读取顺序排列的已记录字节段
+     */
+    public List<byte[]> segments() {
+        flushCurrent();
+        return segments;
+    }
+
+    @Override
+    public void rewind() {
+        delegate.rewind();
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    private void append(byte[] bytes) {
+        if (bytes.length > current.length - position) {
+            flushCurrent();
+            if (bytes.length >= SEGMENT_SIZE) {
+                segments.add(bytes.clone());
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, current, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void flushCurrent() {
+        if (position > 0) {
+            segments.add(Arrays.copyOf(current, position));
+            current = new byte[SEGMENT_SIZE];
+            position = 0;
+        }
+    }
+}
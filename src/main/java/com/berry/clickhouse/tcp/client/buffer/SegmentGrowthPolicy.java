@@ -0,0 +1,30 @@
+package com.berry.clickhouse.tcp.client.buffer;
+
+/**
+ * SegmentGrowthPolicy定义了分段缓冲区写满后新分段的大小策略
+ */
+public enum SegmentGrowthPolicy {
+
+    /**
+     * 每个新分段使用相同的默认大小
+     */
+    FIXED,
+
+    /**
+     * 每个新分段的大小为上一个分段的两倍，由缓冲池管理器限制最大值
+     */
+    DOUBLING;
+
+    /**
+     * 根据上一个分段的容量计算新分段的期望大小
+     *
+     * @param lastCapacity 上一个分段的容量，没有分段时小于等于0
+     * @return 新分段的期望大小，小于等于0表示使用默认大小
+     */
+    public int nextSegmentSize(int lastCapacity) {
+        if (this == FIXED || lastCapacity <= 0) {
+            return -1;
+        }
+        return (int) Math.min(1 << 30, 2L * lastCapacity);
+    }
+}
@@ -63,6 +63,18 @@ public class SocketBuffedReader implements BuffedReader {
         return bytes.length; // 返回读取的字节数
     }
 
+    @Override
+    public void skip(long length) throws IOException {
+        while (length > 0) {
+            if (!remaining() && !refill()) {
+                throw new EOFException("Attempt to read after eof."); // 抛出EOF异常
+            }
+            int n = (int) Math.min(length, limit - position); // 直接移动读取位置
+            position += n;
+            length -= n;
+        }
+    }
+
     @Override
     public void rewind() {
         // 该方法未实现
@@ -0,0 +1,142 @@
+package com.berry.clickhouse.tcp.client.buffer;
+
+import com.berry.clickhouse.tcp.client.exception.ClickHouseClientException;
+import com.berry.clickhouse.tcp.client.log.Logger;
+import com.berry.clickhouse.tcp.client.log.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * SpillFile类是列写入缓冲区溢写使用的内存映射临时文件
+ * 分段按顺序映射到文件的不同区域，所有分段归还后关闭并删除文件
+ * 提前关闭时只停止映射新的分段，文件的删除推迟到最后一个分段归还之后
+ * 非线程安全，与所属的列写入缓冲区在同一线程中使用
+ */
+public class SpillFile {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillFile.class);
+
+    private final Path path; // 临时文件路径
+    private final FileChannel channel; // 文件通道
+    private long mappedBytes; // 已映射的字节数
+    private final Set<ByteBuffer> outstanding = Collections.newSetFromMap(new IdentityHashMap<>()); // 尚未归还的分段
+    private boolean closed; // 是否已关闭
+    private boolean deleted; // 文件是否已删除
+
+    /**
+     * 在指定目录中创建临时文件
+     *
+     * @param directory 临时文件目录
+     * @throws IOException 如果创建文件失败
+     */
+    public SpillFile(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.path = Files.createTempFile(directory, "clickhouse-spill-", ".bin");
+        this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * 在文件末尾映射一个新的分段
+     *
+     * @param size 分段大小
+     * @return 内存映射的分段
+     */
+    public MappedByteBuffer map(int size) {
+        if (closed) {
+            throw new ClickHouseClientException("Spill file " + path + " is closed");
+        }
+        try {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, mappedBytes, size);
+            mappedBytes += size;
+            outstanding.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new ClickHouseClientException("Failed to map spill segment in " + path, e);
+        }
+    }
+
+    /**
+     * 归还一个分段，所有分段归还后关闭并删除文件
+     * 不是从该文件映射的分段或重复归还的分段被忽略
+     *
+     * @param segment 内存映射的分段
+     * @return 文件已关闭返回true
+     */
+    public boolean release(ByteBuffer segment) {
+        if (outstanding.remove(segment) && outstanding.isEmpty()) {
+            close();
+        }
+        return closed;
+    }
+
+    /**
+     * 关闭文件，之后不能再映射新的分段
+     * 仍有分段未归还时文件保留到最后一个分段归还后再删除，避免删除仍在使用的映射区域
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            try {
+                channel.close(); // 关闭通道不影响已映射的区域
+            } catch (IOException e) {
+                LOG.warn("Failed to close spill file {}: {}", path, e.getMessage());
+            }
+        }
+        if (outstanding.isEmpty()) {
+            delete();
+        }
+    }
+
+    private void delete() {
+        if (deleted) {
+            return;
+        }
+        deleted = true;
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOG.warn("Failed to delete spill file {}: {}", path, e.getMessage());
+            path.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * 获取已映射的字节数
+     *
+     * @return 已映射的字节数
+     */
+    public long mappedBytes() {
+        return mappedBytes;
+    }
+
+    /**
+     * 获取尚未归还的分段数量
+     *
+     * @return 尚未归还的分段数量
+     */
+    public int outstandingSegments() {
+        return outstanding.size();
+    }
+
+    /**
+     * 文件是否已删除
+     *
+     * @return 已删除返回true
+     */
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public Path path() {
+        return path;
+    }
+}
@@ -0,0 +1,70 @@
+package com.berry.clickhouse.tcp.client.buffer;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * SpillPolicy类定义了列写入缓冲区溢写到磁盘的策略
+ * 内存预算无法满足新分段的申请时，已写入的字节数达到阈值的列写入缓冲区改为从内存映射的临时文件中分配分段，不再占用堆内存
+ * 未达到阈值的列仍按内存预算的规则等待或失败，避免为很小的列创建临时文件
+ */
+public class SpillPolicy {
+
+    /**
+     * 默认的内存映射分段大小
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * 不溢写的策略
+     */
+    public static final SpillPolicy DISABLED = new SpillPolicy(-1L, null, DEFAULT_SEGMENT_SIZE);
+
+    private final long thresholdBytes; // 允许溢写的列已写入的最小字节数，小于等于0表示不溢写
+    private final Path directory; // 临时文件目录
+    private final int segmentSize; // 内存映射分段大小
+
+    /**
+     * 构造函数，初始化SpillPolicy
+     *
+     * @param thresholdBytes 允许溢写的列已写入的最小字节数，小于等于0表示不溢写
+     * @param directory 临时文件目录，为null时使用系统临时目录
+     * @param segmentSize 内存映射分段大小，小于等于0时使用默认大小
+     */
+    public SpillPolicy(long thresholdBytes, Path directory, int segmentSize) {
+        this.thresholdBytes = thresholdBytes;
+        this.directory = (null == directory) ? Paths.get(System.getProperty("java.io.tmpdir")) : directory;
+        this.segmentSize = (segmentSize <= 0) ? DEFAULT_SEGMENT_SIZE : segmentSize;
+    }
+
+    /**
+     * 是否启用溢写
+     *
+     * @return 启用返回true
+     */
+    public boolean isEnabled() {
+        return thresholdBytes > 0;
+    }
+
+    /**
+     * 判断内存预算耗尽时，已写入指定字节数的缓冲区是否应该溢写
+     *
+     * @param writtenBytes 已写入的字节数
+     * @return 应该溢写返回true
+     */
+    public boolean shouldSpill(long writtenBytes) {
+        return isEnabled() && writtenBytes >= thresholdBytes;
+    }
+
+    public long thresholdBytes() {
+        return thresholdBytes;
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    public int segmentSize() {
+        return segmentSize;
+    }
+}
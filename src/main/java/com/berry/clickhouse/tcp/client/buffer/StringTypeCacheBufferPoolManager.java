@@ -3,6 +3,7 @@ package com.berry.clickhouse.tcp.client.buffer;
 import com.berry.clickhouse.tcp.client.data.IDataType;
 import com.berry.clickhouse.tcp.client.data.type.complex.DataTypeString;
 
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -24,7 +25,19 @@ public class StringTypeCacheBufferPoolManager extends DefaultBufferPoolManager {
      * @param cacheLength 缓存长度
      */
     public StringTypeCacheBufferPoolManager(int blockSize, int stringBlockSize, int cacheLength) {
-        super(blockSize); // 调用父类构造函数
+        this(blockSize, stringBlockSize, cacheLength, MemoryBudget.unlimited());
+    }
+
+    /**
+     * 构造函数，初始化带内存预算的StringTypeCacheBufferPoolManager
+     *
+     * @param blockSize 缓冲区块大小
+     * @param stringBlockSize 字符串块大小
+     * @param cacheLength 缓存长度
+     * @param memoryBudget 内存预算
+     */
+    public StringTypeCacheBufferPoolManager(int blockSize, int stringBlockSize, int cacheLength, MemoryBudget memoryBudget) {
+        super(blockSize, memoryBudget); // 调用父类构造函数
         this.queue = new ArrayBlockingQueue<>(cacheLength); // 初始化字节缓冲区队列
         this.stringBlockSize = stringBlockSize; // 设置字符串块大小
     }
@@ -33,8 +46,9 @@ public class StringTypeCacheBufferPoolManager extends DefaultBufferPoolManager {
     public ByteBuffer allocate(String colName, IDataType<?> dataType) {
         ByteBuffer newBuffer;
         if (dataType instanceof DataTypeString) {
-            newBuffer = queue.poll(); // 从队列中获取缓冲区
+            newBuffer = queue.poll(); // 从队列中获取缓冲区，缓存中的缓冲区已计入预算
             if (null == newBuffer) {
+                this.memoryBudget.acquire(this.stringBlockSize); // 申请内存预算，不足时阻塞或失败
                 newBuffer = ByteBuffer.allocate(this.stringBlockSize); // 分配新的字符串缓冲区
             }
         } else {
@@ -43,8 +57,36 @@ public class StringTypeCacheBufferPoolManager extends DefaultBufferPoolManager {
         return newBuffer; // 返回分配的缓冲区
     }
 
+    @Override
+    public ByteBuffer allocate(String colName, IDataType<?> dataType, int sizeHint) {
+        if (dataType instanceof DataTypeString) {
+            int size = segmentSize(colName, dataType, sizeHint);
+            if (size == this.stringBlockSize) {
+                return allocate(colName, dataType); // 规格相同时使用字符串缓冲区缓存
+            }
+            this.memoryBudget.acquire(size); // 申请内存预算，不足时阻塞或失败
+            return ByteBuffer.allocate(size); // 分配按预期大小确定的字节缓冲区
+        }
+        return super.allocate(colName, dataType, sizeHint); // 调用父类的分配方法
+    }
+
+    @Override
+    public int segmentSize(String colName, IDataType<?> dataType, int sizeHint) {
+        if (dataType instanceof DataTypeString) {
+            return roundSegmentSize(sizeHint, this.stringBlockSize);
+        }
+        return super.segmentSize(colName, dataType, sizeHint);
+    }
+
     @Override
     public void recycle(ByteBuffer buffer) {
-        super.recycle(buffer); // 调用父类的回收方法
+        if (buffer.capacity() == this.stringBlockSize) {
+            ((Buffer) buffer).clear(); // 清空缓冲区以便重用
+            if (!queue.offer(buffer)) { // 放回字符串缓冲区队列，缓存中的缓冲区仍计入预算
+                this.memoryBudget.release(buffer.capacity()); // 队列已满，丢弃缓冲区并归还内存预算
+            }
+        } else {
+            super.recycle(buffer); // 调用父类的回收方法
+        }
     }
 }
@@ -3,16 +3,26 @@ package com.berry.clickhouse.tcp.client.data;
 import com.berry.clickhouse.tcp.client.serde.BinaryDeserializer;
 
 import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
 
 public abstract class AbstractColumn implements IColumn {
 
+    /**
+     * 每写入多少行记录一次写入缓冲区的字节偏移量，数据块只能在这些行边界上拆分
+     */
+    public static final int ROW_MARK_INTERVAL = 1024;
+
     protected final String name;
     protected final IDataType<?> type;
     protected byte[] nameBytes;
     protected Object[] values;
     protected ColumnWriterBuffer buffer;
     protected int rowCnt = 0;
+    protected long[] rowMarks = new long[0]; // 第(i + 1) * ROW_MARK_INTERVAL行结束时写入缓冲区的字节偏移量
 
     public AbstractColumn(String name, IDataType<?> type, Object[] values) {
         this.name = name;
@@ -54,6 +64,57 @@ public abstract class AbstractColumn implements IColumn {
             buffer.clear();
         }
         this.rowCnt = 0;
+        this.rowMarks = new long[0];
+    }
+
+    @Override
+    public ColumnMark mark() {
+        return mark(0);
+    }
+
+    /**
+     * 记录列当前的写入位置以及附加列表的长度和嵌套列的写入位置
+     *
+     * @param entries 附加列表的长度
+     * @param nested  嵌套列
+     * @return 写入位置
+     */
+    protected ColumnMark mark(int entries, IColumn... nested) {
+        ColumnMark[] nestedMarks = new ColumnMark[nested.length];
+        for (int i = 0; i < nested.length; i++) {
+            nestedMarks[i] = nested[i].mark();
+        }
+        return new ColumnMark(rowCnt, (null == buffer) ? 0 : buffer.writtenBytes(), entries, nestedMarks);
+    }
+
+    @Override
+    public void rollback(ColumnMark mark) {
+        this.rowCnt = mark.rowCnt; // 之后的行标记在重新写到对应行时被覆盖
+        if (null != buffer) {
+            buffer.truncate(mark.writtenBytes);
+        }
+    }
+
+    /**
+     * 回滚嵌套列，与本列共用写入缓冲区的嵌套列截断到相同的位置
+     *
+     * @param mark   本列的写入位置
+     * @param nested 嵌套列，顺序与记录时一致
+     */
+    protected static void rollbackNested(ColumnMark mark, IColumn... nested) {
+        for (int i = 0; i < nested.length; i++) {
+            nested[i].rollback(mark.nested[i]);
+        }
+    }
+
+    /**
+     * 将附加列表截断到记录时的长度
+     *
+     * @param list 附加列表
+     * @param mark 本列的写入位置
+     */
+    protected static void truncate(List<?> list, ColumnMark mark) {
+        list.subList(mark.entries, list.size()).clear();
     }
 
     @Override
@@ -101,7 +162,75 @@ public abstract class AbstractColumn implements IColumn {
 
     @Override
     public int addRowCnt() {
-        return ++this.rowCnt;
+        ++this.rowCnt;
+        markRow();
+        return this.rowCnt;
+    }
+
+    /**
+     * 批量写入后增加行数，批量写入必须按rowsToNextMark分段，使每段结束时的行数不跨越行标记
+     *
+     * @param count 本段写入的行数
+     */
+    protected void addWrittenRows(int count) {
+        this.rowCnt += count;
+        markRow();
+    }
+
+    /**
+     * 获取批量写入时本段最多可写入的行数，保证不越过下一个行标记
+     *
+     * @param rows 剩余待写入的行数
+     * @return 本段写入的行数
+     */
+    protected int rowsToNextMark(int rows) {
+        return Math.min(rows, ROW_MARK_INTERVAL - this.rowCnt % ROW_MARK_INTERVAL);
+    }
+
+    /**
+     * 当前行数是ROW_MARK_INTERVAL的整数倍时记录写入缓冲区的字节偏移量
+     */
+    private void markRow() {
+        if (this.rowCnt % ROW_MARK_INTERVAL == 0 && this.rowCnt > 0 && isExported() && null != buffer) {
+            int index = this.rowCnt / ROW_MARK_INTERVAL - 1;
+            if (index >= rowMarks.length) {
+                rowMarks = Arrays.copyOf(rowMarks, Math.max(8, rowMarks.length << 1));
+            }
+            rowMarks[index] = buffer.writtenBytes();
+        }
+    }
+
+    /**
+     * 从定长值的字节缓冲区中切出接下来的length个字节，并将源缓冲区的位置后移
+     *
+     * @param values 源字节缓冲区
+     * @param length 切出的字节数
+     * @return 切出的字节缓冲区
+     */
+    protected static ByteBuffer take(ByteBuffer values, int length) {
+        ByteBuffer slice = values.duplicate();
+        ((Buffer) slice).limit(values.position() + length);
+        ((Buffer) values).position(values.position() + length);
+        return slice;
+    }
+
+    /**
+     * 获取指定行在写入缓冲区中的起始字节偏移量
+     *
+     * @param row 行号，必须是ROW_MARK_INTERVAL的整数倍或者等于行数
+     * @return 字节偏移量
+     */
+    protected long rowOffset(int row) {
+        if (row == 0) {
+            return 0;
+        }
+        if (row == this.rowCnt) {
+            return buffer.writtenBytes();
+        }
+        if (row % ROW_MARK_INTERVAL != 0 || row > this.rowCnt) {
+            throw new IllegalArgumentException("Row " + row + " is not a row mark of column " + name);
+        }
+        return rowMarks[row / ROW_MARK_INTERVAL - 1];
     }
 
     @Override
@@ -5,22 +5,35 @@
  */
 package com.berry.clickhouse.tcp.client.data;
 
-import com.berry.clickhouse.tcp.client.buffer.EmptyReadWriter;
 import com.berry.clickhouse.tcp.client.NativeContext;
 import com.berry.clickhouse.tcp.client.data.BlockSettings.Setting;
+import com.berry.clickhouse.tcp.client.data.type.DataTypeFloat32;
+import com.berry.clickhouse.tcp.client.data.type.DataTypeFloat64;
+import com.berry.clickhouse.tcp.client.data.type.complex.DataTypeNullable;
+import com.berry.clickhouse.tcp.client.data.type.complex.DataTypeString;
 import com.berry.clickhouse.tcp.client.jdbc.ClickHouseConnection;
 import com.berry.clickhouse.tcp.client.jdbc.ClickHouseTableMetaData;
+import com.berry.clickhouse.tcp.client.log.Logger;
+import com.berry.clickhouse.tcp.client.log.LoggerFactory;
+import com.berry.clickhouse.tcp.client.meta.ColumnSizeStatistics;
 import com.berry.clickhouse.tcp.client.misc.Validate;
 import com.berry.clickhouse.tcp.client.serde.BinaryDeserializer;
 import com.berry.clickhouse.tcp.client.serde.BinarySerializer;
 import com.berry.clickhouse.tcp.client.util.BinarySerializerUtil;
 
 import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * 数据块类
@@ -29,6 +42,13 @@ import java.util.Set;
  */
 public class Block {
 
+    private static final Logger LOG = LoggerFactory.getLogger(Block.class);
+
+    /**
+     * 批量写入基本类型数组时转换缓冲区的字节数
+     */
+    private static final int BULK_CHUNK_BYTES = 64 * 1024;
+
     /**
      * 服务器上下文信息
      */
@@ -98,12 +118,16 @@ public class Block {
         Map<String, IColumn> columnMap = new HashMap<>(columnCnt);
 
         ColumnWriterBufferFactory factory = serverContext.getColumnWriterBufferFactory();
+        ColumnSizeStatistics sizeStatistics = metaData.getColumnSizeStatistics();
         IColumn[] columns = new IColumn[columnCnt];
         for (int i = 0; i < columnCnt; i++) {
             IDataType<?> dataType = DataTypeFactory.get(types.get(i), serverContext);
             String columnName = names.get(i);
             IColumn column = ColumnFactory.createColumn(names.get(i), dataType, namesBytes[i], null);
-            column.setColumnWriterBuffer(factory.getBuffer(column), factory);
+            // 按历史数据块中该列的大小确定写入缓冲区的分段大小
+            long expectedBytes = sizeStatistics.expectedBytes(columnName);
+            int sizeHint = (int) Math.min(Integer.MAX_VALUE, expectedBytes);
+            column.setColumnWriterBuffer(factory.getBuffer(column, sizeHint), factory);
             columns[i] = column;
             columnMap.put(columnName, column);
         }
@@ -143,8 +167,8 @@ public class Block {
             IColumn column = block.getColumnMap().get(name);
             if (rowCnt > 0) {
                 if (exclude.contains(name)) {
-                    IDataType dataType = DataTypeFactory.get(type, block.serverContext);
-                    dataType.deserializeBinaryBulk(rowCnt, EmptyReadWriter.DEFAULT, deserializer);
+                    IDataType<?> dataType = DataTypeFactory.get(type, block.serverContext);
+                    dataType.skipBinaryBulk(rowCnt, deserializer); // 排除的列不解码，直接跳过
                 } else if (type.equals(column.type().name())) {
                     if (serializeCols.contains(name)) {
                         Object[] values = column.type().deserializeBinaryBulk(rowCnt, deserializer);
@@ -159,7 +183,7 @@ public class Block {
                         Object[] values = column.type().deserializeBinaryBulk(rowCnt, deserializer);
                         column.setValues(values);
                     } else {
-                        dataType.deserializeBinaryBulk(rowCnt, EmptyReadWriter.DEFAULT, deserializer);
+                        dataType.skipBinaryBulk(rowCnt, deserializer);
                     }
                 }
             }
@@ -173,11 +197,13 @@ public class Block {
 
         for (int i = 0; i < columnCnt; i++) {
             String name = deserializer.readUTF8StringBinary();
-            deserializer.readUTF8StringBinary();
+            String type = deserializer.readUTF8StringBinary();
             IColumn column = block.getColumnMap().get(name);
             if (rowCnt > 0 && null != column) {
                 column.read(rowCnt, deserializer);
                 column.addRowCnt(rowCnt);
+            } else if (rowCnt > 0) {
+                DataTypeFactory.get(type, block.serverContext).skipBinaryBulk(rowCnt, deserializer); // 数据块中没有的列直接跳过
             }
         }
         block.rowCnt += rowCnt;
@@ -192,7 +218,26 @@ public class Block {
     public static Block readFrom(BinaryDeserializer deserializer,
                                  NativeContext.ServerContext serverContext, boolean serialize) throws IOException, SQLException {
         BlockSettings info = BlockSettings.readFrom(deserializer);
+        return readColumnsFrom(deserializer, serverContext, serialize, info);
+    }
 
+    /**
+     * 读取Native格式（不包含BlockSettings）的数据块，如NativeFileWriter写出的数据块
+     *
+     * @param deserializer  二进制反序列化器
+     * @param serverContext 服务器上下文信息
+     * @param serialize     是否反序列化为值数组
+     * @return 数据块，BlockSettings为默认值
+     * @throws IOException  如果读取过程中发生I/O错误
+     * @throws SQLException 如果解析类型失败
+     */
+    public static Block readNativeFrom(BinaryDeserializer deserializer,
+                                       NativeContext.ServerContext serverContext, boolean serialize) throws IOException, SQLException {
+        return readColumnsFrom(deserializer, serverContext, serialize, new BlockSettings(BlockSettings.Setting.defaultValues()));
+    }
+
+    private static Block readColumnsFrom(BinaryDeserializer deserializer, NativeContext.ServerContext serverContext,
+                                         boolean serialize, BlockSettings info) throws IOException, SQLException {
         int columnCnt = (int) deserializer.readVarInt();
         int rowCnt = (int) deserializer.readVarInt();
 
@@ -233,6 +278,60 @@ public class Block {
                 , columnMap, BlockDataModel.READ, serialize, null);
     }
 
+    /**
+     * 读取反序列化后的数据块，列名和类型与reuse一致时复用reuse的列对象和值数组（行数相同时），
+     * 不再重新解析类型、创建列和列名映射；否则创建新的数据块，此时reuse的部分列可能已经属于新的数据块，reuse不能再使用
+     *
+     * @param deserializer  二进制反序列化器
+     * @param serverContext 服务器上下文信息
+     * @param reuse         已被调用方释放、可以覆盖的数据块，必须是反序列化模式读取的数据块
+     * @return reuse或新创建的数据块
+     * @throws IOException  如果读取过程中发生I/O错误
+     * @throws SQLException 如果解析类型失败
+     */
+    public static Block refillFrom(BinaryDeserializer deserializer, NativeContext.ServerContext serverContext,
+                                   Block reuse) throws IOException, SQLException {
+        BlockSettings info = BlockSettings.readFrom(deserializer);
+
+        int columnCnt = (int) deserializer.readVarInt();
+        int rowCnt = (int) deserializer.readVarInt();
+
+        boolean reusable = reuse.serializeCols && columnCnt == reuse.columns.length;
+        IColumn[] columns = reusable ? reuse.columns : new IColumn[columnCnt];
+        for (int i = 0; i < columnCnt; i++) {
+            String name = deserializer.readUTF8StringBinary();
+            String type = deserializer.readUTF8StringBinary();
+            IColumn column = reusable ? columns[i] : null;
+            if (null != column && column.name().equals(name) && column.type().name().equals(type)) {
+                Object[] values = column.values();
+                column.clear();
+                column.setValues((rowCnt > 0) ? column.type().deserializeBinaryBulk(rowCnt, deserializer, values) : null);
+                column.addRowCnt(rowCnt);
+                continue;
+            }
+            if (reusable) {
+                // 列结构发生变化，之前已经复用的列也不能再属于reuse
+                reusable = false;
+                columns = Arrays.copyOf(columns, columnCnt);
+            }
+            IDataType<?> dataType = DataTypeFactory.get(type, serverContext);
+            Object[] arr = (rowCnt > 0) ? dataType.deserializeBinaryBulk(rowCnt, deserializer) : null;
+            columns[i] = ColumnFactory.createColumn(name, dataType, BinarySerializerUtil.serializeString(name), arr);
+            columns[i].addRowCnt(rowCnt);
+        }
+        if (reusable) {
+            reuse.rowCnt = rowCnt;
+            reuse.readRows = 0;
+            reuse.readBytes = 0;
+            return reuse;
+        }
+        Map<String, IColumn> columnMap = new HashMap<>(columnCnt);
+        for (IColumn column : columns) {
+            columnMap.put(column.name(), column);
+        }
+        return new Block(rowCnt, columns, info, serverContext, columnMap, BlockDataModel.READ, true, null);
+    }
+
     private final IColumn[] columns;
     private final BlockSettings settings;
     private final Map<String, Integer> nameAndPositions;
@@ -321,6 +420,415 @@ public class Block {
         }
     }
 
+    /**
+     * 通过行写入器添加一行数据，对象的字段直接写入对应的列
+     *
+     * @param row    行对象
+     * @param writer 按本数据块的列结构编译的行写入器
+     * @param <T>    行对象的类型
+     * @throws SQLException 如果添加失败
+     */
+    public <T> void appendRow(T row, RowWriter<T> writer) throws SQLException {
+        writer.write(row, columns);
+        rowCnt++;
+    }
+
+    /**
+     * 添加一行数据，对象的字段按列名绑定到对应的列
+     *
+     * @param row 行对象
+     * @param <T> 行对象的类型
+     * @throws SQLException 如果添加失败
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void appendRow(T row) throws SQLException {
+        appendRow(row, rowWriter((Class<T>) row.getClass()));
+    }
+
+    /**
+     * 获取指定类型的行写入器，按表元数据创建的数据块使用表级缓存
+     *
+     * @param type 行对象的类型
+     * @param <T>  行对象的类型
+     * @return 行写入器
+     * @throws SQLException 如果编译行写入器失败
+     */
+    public <T> RowWriter<T> rowWriter(Class<T> type) throws SQLException {
+        if (null != this.tableMetaData) {
+            return this.tableMetaData.getRowWriter(type, columns);
+        }
+        return RowWriter.compile(type, columns);
+    }
+
+    /**
+     * 批量添加多行数据，按列编码：每列依次写入所有行的值
+     * 配置了并行编码线程池且单元格数（行数乘以列数）达到阈值时，各列在ForkJoinPool中并行编码到各自的写入缓冲区
+     *
+     * @param rows 行数据，每行的值按列顺序排列
+     * @throws SQLException 如果添加失败
+     */
+    public void appendRows(Object[][] rows) throws SQLException {
+        encodeColumns(rows.length, (columnIdx, column) -> {
+            for (Object[] row : rows) {
+                column.write(row[columnIdx]);
+            }
+        });
+        rowCnt += rows.length;
+    }
+
+    /**
+     * 通过行写入器批量添加多行数据，按列编码，参见appendRows(Object[][])
+     *
+     * @param rows   行对象
+     * @param writer 按本数据块的列结构编译的行写入器
+     * @param <T>    行对象的类型
+     * @throws SQLException 如果添加失败
+     */
+    public <T> void appendRows(List<T> rows, RowWriter<T> writer) throws SQLException {
+        encodeColumns(rows.size(), (columnIdx, column) -> {
+            for (T row : rows) {
+                writer.writeColumn(columnIdx, row, column);
+            }
+        });
+        rowCnt += rows.size();
+    }
+
+    /**
+     * 将整列long值追加到列末尾，按小端批量编码后整段拷贝到列的写入缓冲区
+     * 列的类型必须是8字节的整数类型（Int64、UInt64、DateTime64、Decimal64等）或者其Nullable
+     * 各列分别追加，发送前所有列的行数必须相同，否则写出和插入时抛出SQLException，参见checkRowCounts
+     *
+     * @param name   列名
+     * @param values 列值
+     * @throws SQLException 如果列不存在、类型不匹配或者写入失败
+     */
+    public void setColumnData(String name, long[] values) throws SQLException {
+        setColumnData(name, values, null);
+    }
+
+    /**
+     * 将整列long值追加到列末尾，参见setColumnData(String, long[])
+     *
+     * @param name   列名
+     * @param values 列值，空值位置的值被忽略
+     * @param nulls  空值位图，第i位表示第i个值为空，可以为null
+     * @throws SQLException 如果列不存在、类型不匹配、非Nullable列含有空值或者写入失败
+     */
+    public void setColumnData(String name, long[] values, BitSet nulls) throws SQLException {
+        writeFixedWidth(fixedWidthColumn(name, Long.BYTES, false), values.length, Long.BYTES, nulls,
+                (chunk, from, n) -> chunk.asLongBuffer().put(values, from, n));
+    }
+
+    public void setColumnData(String name, int[] values) throws SQLException {
+        setColumnData(name, values, null);
+    }
+
+    /**
+     * 将整列int值追加到列末尾，列的类型必须是4字节的整数类型（Int32、UInt32、DateTime、Date32等）或者其Nullable
+     *
+     * @param name   列名
+     * @param values 列值
+     * @param nulls  空值位图，可以为null
+     * @throws SQLException 如果列不存在、类型不匹配或者写入失败
+     */
+    public void setColumnData(String name, int[] values, BitSet nulls) throws SQLException {
+        writeFixedWidth(fixedWidthColumn(name, Integer.BYTES, false), values.length, Integer.BYTES, nulls,
+                (chunk, from, n) -> chunk.asIntBuffer().put(values, from, n));
+    }
+
+    public void setColumnData(String name, short[] values) throws SQLException {
+        setColumnData(name, values, null);
+    }
+
+    /**
+     * 将整列short值追加到列末尾，列的类型必须是2字节的整数类型（Int16、UInt16、Date、Enum16等）或者其Nullable
+     *
+     * @param name   列名
+     * @param values 列值
+     * @param nulls  空值位图，可以为null
+     * @throws SQLException 如果列不存在、类型不匹配或者写入失败
+     */
+    public void setColumnData(String name, short[] values, BitSet nulls) throws SQLException {
+        writeFixedWidth(fixedWidthColumn(name, Short.BYTES, false), values.length, Short.BYTES, nulls,
+                (chunk, from, n) -> chunk.asShortBuffer().put(values, from, n));
+    }
+
+    public void setColumnData(String name, byte[] values) throws SQLException {
+        setColumnData(name, values, (BitSet) null);
+    }
+
+    /**
+     * 将整列byte值追加到列末尾，列的类型必须是1字节的整数类型（Int8、UInt8、Enum8等）或者其Nullable
+     * 数组直接作为编码写入，不经过中间缓冲区
+     *
+     * @param name   列名
+     * @param values 列值
+     * @param nulls  空值位图，可以为null
+     * @throws SQLException 如果列不存在、类型不匹配或者写入失败
+     */
+    public void setColumnData(String name, byte[] values, BitSet nulls) throws SQLException {
+        IColumn column = fixedWidthColumn(name, Byte.BYTES, false);
+        writeColumnData(column, () -> column.writeFixedWidth(ByteBuffer.wrap(values), values.length, nulls, 0));
+    }
+
+    public void setColumnData(String name, double[] values) throws SQLException {
+        setColumnData(name, values, null);
+    }
+
+    /**
+     * 将整列double值追加到列末尾，列的类型必须是Float64或者Nullable(Float64)
+     *
+     * @param name   列名
+     * @param values 列值
+     * @param nulls  空值位图，可以为null
+     * @throws SQLException 如果列不存在、类型不匹配或者写入失败
+     */
+    public void setColumnData(String name, double[] values, BitSet nulls) throws SQLException {
+        writeFixedWidth(fixedWidthColumn(name, Double.BYTES, true), values.length, Double.BYTES, nulls,
+                (chunk, from, n) -> chunk.asDoubleBuffer().put(values, from, n));
+    }
+
+    public void setColumnData(String name, float[] values) throws SQLException {
+        setColumnData(name, values, null);
+    }
+
+    /**
+     * 将整列float值追加到列末尾，列的类型必须是Float32或者Nullable(Float32)
+     *
+     * @param name   列名
+     * @param values 列值
+     * @param nulls  空值位图，可以为null
+     * @throws SQLException 如果列不存在、类型不匹配或者写入失败
+     */
+    public void setColumnData(String name, float[] values, BitSet nulls) throws SQLException {
+        writeFixedWidth(fixedWidthColumn(name, Float.BYTES, true), values.length, Float.BYTES, nulls,
+                (chunk, from, n) -> chunk.asFloatBuffer().put(values, from, n));
+    }
+
+    /**
+     * 将已按Native格式编码的整列定长值追加到列末尾，缓冲区中剩余的字节是若干个小端编码的值，直接拷贝到写入缓冲区
+     * 适用于任意定长类型（包括UUID、IPv6、Decimal128等），值的个数由剩余字节数除以类型的字节数得到
+     *
+     * @param name   列名
+     * @param values 定长值的编码，写入后位置移动到末尾
+     * @param nulls  空值位图，可以为null
+     * @throws SQLException 如果列不存在、不是定长类型、字节数不是类型字节数的整数倍或者写入失败
+     */
+    public void setColumnData(String name, ByteBuffer values, BitSet nulls) throws SQLException {
+        IColumn column = getColumn(name);
+        int byteSize = column.type().byteSize();
+        Validate.isTrue(byteSize > 0 && values.remaining() % byteSize == 0,
+                "Column[" + name + "] of type " + column.type().name() + " cannot take " + values.remaining()
+                        + " bytes of fixed-width values");
+        writeColumnData(column, () -> column.writeFixedWidth(values, values.remaining() / byteSize, nulls, 0));
+    }
+
+    public void setColumnData(String name, byte[] arena, int[] offsets) throws SQLException {
+        setColumnData(name, arena, offsets, null);
+    }
+
+    /**
+     * 将整列字符串追加到列末尾，第i个值是arena中[offsets[i], offsets[i + 1])范围内的字节，按长度前缀加整段拷贝写入
+     * 列的类型必须是String或者Nullable(String)
+     *
+     * @param name    列名
+     * @param arena   字符串字节
+     * @param offsets 各字符串在arena中的起始偏移量，最后一个元素是末尾偏移量，长度为行数加一
+     * @param nulls   空值位图，可以为null
+     * @throws SQLException 如果列不存在、类型不匹配或者写入失败
+     */
+    public void setColumnData(String name, byte[] arena, int[] offsets, BitSet nulls) throws SQLException {
+        IColumn column = getColumn(name);
+        Validate.isTrue(leafType(column) instanceof DataTypeString,
+                "Column[" + name + "] of type " + column.type().name() + " does not accept string values");
+        Validate.isTrue(offsets.length > 0, "String offsets must contain the end offset");
+        writeColumnData(column, () -> column.writeStrings(arena, offsets, 0, offsets.length - 1, nulls));
+    }
+
+    /**
+     * 获取用于批量写入定长值的列，并检查列的类型与数组元素类型一致
+     */
+    private IColumn fixedWidthColumn(String name, int byteSize, boolean floating) throws SQLException {
+        IColumn column = getColumn(name);
+        IDataType<?> type = leafType(column);
+        boolean floatType = type instanceof DataTypeFloat32 || type instanceof DataTypeFloat64;
+        Validate.isTrue(floatType == floating && type.byteSize() == byteSize,
+                "Column[" + name + "] of type " + column.type().name() + " cannot take " + byteSize + "-byte "
+                        + (floating ? "floating-point" : "integer") + " values");
+        return column;
+    }
+
+    private static IDataType<?> leafType(IColumn column) {
+        IDataType<?> type = column.type();
+        return (type instanceof DataTypeNullable) ? ((DataTypeNullable) type).getNestedDataType() : type;
+    }
+
+    /**
+     * 将基本类型数组按块转换为小端编码后批量写入列，每块不超过BULK_CHUNK_BYTES字节
+     */
+    private void writeFixedWidth(IColumn column, int rows, int byteSize, BitSet nulls, ChunkFiller filler)
+            throws SQLException {
+        int chunkRows = Math.max(1, Math.min(rows, BULK_CHUNK_BYTES / byteSize));
+        ByteBuffer chunk = ByteBuffer.allocate(chunkRows * byteSize).order(ByteOrder.LITTLE_ENDIAN);
+        writeColumnData(column, () -> {
+            for (int from = 0; from < rows; from += chunkRows) {
+                int n = Math.min(chunkRows, rows - from);
+                ((Buffer) chunk).clear();
+                filler.fill(chunk, from, n); // 视图缓冲区批量写入，不移动chunk的位置
+                ((Buffer) chunk).limit(n * byteSize);
+                column.writeFixedWidth(chunk, n, nulls, from);
+            }
+        });
+    }
+
+    private void writeColumnData(IColumn column, ColumnDataWriter writer) throws SQLException {
+        Validate.isTrue(isWrite() && null != column.getColumnWriterBuffer(),
+                "Block is not writable, column data can only be set on a block created for insert");
+        try {
+            writer.write();
+        } catch (IOException e) {
+            throw new SQLException("Exception processing values for column: " + column.name(), e);
+        }
+    }
+
+    /**
+     * 将数组中[from, from + n)范围内的值以小端编码填充到块缓冲区
+     */
+    @FunctionalInterface
+    private interface ChunkFiller {
+
+        void fill(ByteBuffer chunk, int from, int n);
+    }
+
+    /**
+     * 单列的批量写入操作
+     */
+    @FunctionalInterface
+    private interface ColumnDataWriter {
+
+        void write() throws IOException, SQLException;
+    }
+
+    /**
+     * 对每一列执行编码操作，满足条件时并行执行
+     * 任意一列编码失败时，其他列可能已经写入了这批行，因此编码前记录各列的写入位置，失败时全部回滚到该位置，之前写入的行保持不变
+     *
+     * @param rows    行数
+     * @param encoder 单列的编码操作
+     * @throws SQLException 如果编码失败，此时各列已回滚到这批行写入之前
+     */
+    private void encodeColumns(int rows, ColumnEncoder encoder) throws SQLException {
+        ForkJoinPool pool = (null == serverContext || null == serverContext.getConfigure())
+                ? null : serverContext.getConfigure().getEncodePool();
+        ColumnMark[] marks = new ColumnMark[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            marks[i] = columns[i].mark();
+        }
+        try {
+            if (null != pool && columns.length > 1
+                    && (long) rows * columns.length >= serverContext.getConfigure().getParallelEncodeMinCells()) {
+                try {
+                    pool.invoke(new ColumnEncodeTask(columns, encoder, 0, columns.length));
+                } catch (ColumnEncodeException e) {
+                    throw e.sqlException;
+                }
+                return;
+            }
+            for (int i = 0; i < columns.length; i++) {
+                encodeColumn(columns, encoder, i);
+            }
+        } catch (SQLException | RuntimeException e) {
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].rollback(marks[i]); // 并行编码抛出异常时所有列都已结束写入
+            }
+            throw e;
+        }
+    }
+
+    private static void encodeColumn(IColumn[] columns, ColumnEncoder encoder, int columnIdx) throws SQLException {
+        IColumn column = columns[columnIdx];
+        try {
+            encoder.encode(columnIdx, column);
+        } catch (IOException | ClassCastException e) {
+            throw new SQLException("Exception processing values for column: " + column.name(), e);
+        }
+    }
+
+    /**
+     * 单列的编码操作
+     */
+    @FunctionalInterface
+    private interface ColumnEncoder {
+
+        void encode(int columnIdx, IColumn column) throws IOException, SQLException;
+    }
+
+    /**
+     * 按列二分的并行编码任务，每个叶子任务编码一列，各列只写入自己的写入缓冲区
+     */
+    private static final class ColumnEncodeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IColumn[] columns; // 数据块的列
+        private final ColumnEncoder encoder; // 单列的编码操作
+        private final int from; // 起始列（包含）
+        private final int to; // 结束列（不包含）
+
+        ColumnEncodeTask(IColumn[] columns, ColumnEncoder encoder, int from, int to) {
+            this.columns = columns;
+            this.encoder = encoder;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                try {
+                    encodeColumn(columns, encoder, from);
+                } catch (SQLException e) {
+                    throw new ColumnEncodeException(e);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            ColumnEncodeTask right = new ColumnEncodeTask(columns, encoder, mid, to);
+            right.fork();
+            RuntimeException failure = null;
+            try {
+                new ColumnEncodeTask(columns, encoder, from, mid).invoke();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            try {
+                right.join(); // 左半部分失败时也等待右半部分结束，保证抛出异常时没有列仍在写入
+            } catch (RuntimeException e) {
+                if (null == failure) {
+                    failure = e;
+                }
+            }
+            if (null != failure) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * 在ForkJoinPool中传递列编码失败的SQLException
+     */
+    private static final class ColumnEncodeException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SQLException sqlException; // 列编码失败的异常
+
+        ColumnEncodeException(SQLException sqlException) {
+            super(sqlException);
+            this.sqlException = sqlException;
+        }
+    }
+
     public void setObject(int columnIdx, Object object) {
         rowData[columnIdx] = object;
     }
@@ -343,6 +851,7 @@ public class Block {
      * @throws SQLException 如果写入过程中发生SQL错误
      */
     public void writeTo(BinarySerializer serializer) throws IOException, SQLException {
+        checkRowCounts(); // 写出任何字节之前检查，避免发送损坏的数据块
         settings.writeTo(serializer);
 
         this.rowCnt = loadRowsCnt();
@@ -354,6 +863,145 @@ public class Block {
         }
     }
 
+    /**
+     * 按Native格式写入数据块，与writeTo()相同但不包含BlockSettings，写出的数据可以由BlockResultSet读取
+     *
+     * @param serializer 二进制序列化器
+     * @throws IOException 如果写入过程中发生I/O错误
+     * @throws SQLException 如果写入过程中发生SQL错误
+     */
+    public void writeNativeTo(BinarySerializer serializer) throws IOException, SQLException {
+        checkRowCounts();
+        this.rowCnt = loadRowsCnt();
+        serializer.writeVarInt(columns.length);
+        serializer.writeVarInt(rowCnt);
+
+        for (IColumn column : columns) {
+            column.flushToSerializer(serializer, true);
+        }
+    }
+
+    /**
+     * 将[fromRow, toRow)范围内的行作为一个数据块写入二进制序列化器
+     *
+     * @param serializer 二进制序列化器
+     * @param fromRow 起始行（包含）
+     * @param toRow 结束行（不包含）
+     * @throws IOException 如果写入过程中发生I/O错误
+     * @throws SQLException 如果列不支持按行范围写出
+     */
+    public void writeTo(BinarySerializer serializer, int fromRow, int toRow) throws IOException, SQLException {
+        checkRowCounts();
+        settings.writeTo(serializer);
+
+        serializer.writeVarInt(columns.length);
+        serializer.writeVarInt(toRow - fromRow);
+
+        for (IColumn column : columns) {
+            column.flushToSerializer(serializer, fromRow, toRow);
+        }
+    }
+
+    /**
+     * 检查写入模式的数据块中各列的行数是否一致
+     * 按列追加（setColumnData）时各列分别写入，全部写完后行数必须相同，否则数据块头部的行数与列数据不符
+     *
+     * @throws SQLException 如果有列的行数与第一列不同
+     */
+    public void checkRowCounts() throws SQLException {
+        if (!isWrite() || null == columns) {
+            return;
+        }
+        IColumn first = null;
+        for (IColumn column : columns) {
+            if (null == column) {
+                continue;
+            }
+            if (null == first) {
+                first = column;
+            } else if (column.rowCnt() != first.rowCnt()) {
+                throw new SQLException("Column[" + column.name() + "] has " + column.rowCnt() + " rows but column["
+                        + first.name() + "] has " + first.rowCnt() + ", all columns of a block must have the same number of rows");
+            }
+        }
+    }
+
+    /**
+     * 按最大行数和最大字节数计算数据块的拆分边界，拆分只发生在AbstractColumn.ROW_MARK_INTERVAL的整数倍行上
+     * 以下情况无法满足上限，超出上限的数据包照常发送并记录警告：
+     * 行数不超过ROW_MARK_INTERVAL的数据块不拆分；单个ROW_MARK_INTERVAL区间超过上限时该区间作为一个数据包；
+     * 有列不支持按行范围写出时不拆分，Tuple、Map以及元素不是普通列的Array、Nullable（如Array(Array(...))）都不支持
+     *
+     * @param maxRows 每个数据包的最大行数
+     * @param maxBytes 每个数据包的最大字节数
+     * @return 拆分边界，第一个元素为0，最后一个元素为行数，不拆分时只有这两个元素
+     * @throws SQLException 如果各列的行数不一致
+     */
+    public int[] splitRows(long maxRows, long maxBytes) throws SQLException {
+        checkRowCounts();
+        int rows = loadRowsCnt();
+        int[] whole = new int[]{0, rows};
+        if (rows <= maxRows && writtenBytes() <= maxBytes) {
+            return whole;
+        }
+        if (rows <= AbstractColumn.ROW_MARK_INTERVAL) {
+            LOG.warn("Block of {} rows and {} bytes exceeds the insert limit of {} rows and {} bytes but blocks of at most"
+                    + " {} rows cannot be split, sending it whole", rows, writtenBytes(), maxRows, maxBytes,
+                    AbstractColumn.ROW_MARK_INTERVAL);
+            return whole;
+        }
+        for (IColumn column : columns) {
+            if (null == column) {
+                return whole;
+            }
+            if (!column.supportsRowRange()) {
+                LOG.warn("Block of {} rows and {} bytes exceeds the insert limit of {} rows and {} bytes but column[{}]"
+                        + " of type {} cannot be split by rows, sending it whole", rows, writtenBytes(), maxRows,
+                        maxBytes, column.name(), column.type().name());
+                return whole;
+            }
+        }
+
+        int[] bounds = new int[8];
+        int count = 1;
+        int start = 0;
+        long startBytes = 0;
+        int prev = 0;
+        long prevBytes = 0;
+        boolean oversized = false; // 是否有数据包超过上限
+        while (prev < rows) {
+            int end = Math.min(rows, prev + AbstractColumn.ROW_MARK_INTERVAL);
+            long endBytes = 0;
+            for (IColumn column : columns) {
+                endBytes += column.rowRangeBytes(0, end);
+            }
+            if (end - start > maxRows || endBytes - startBytes > maxBytes) {
+                if (prev > start) {
+                    if (count == bounds.length) {
+                        bounds = Arrays.copyOf(bounds, count << 1);
+                    }
+                    bounds[count++] = prev; // 在上一个行标记处拆分
+                    start = prev;
+                    startBytes = prevBytes;
+                }
+                if (end - start > maxRows || endBytes - startBytes > maxBytes) {
+                    oversized = true; // 单个区间已经超过上限，无法再拆分
+                }
+            }
+            prev = end;
+            prevBytes = endBytes;
+        }
+        if (count == bounds.length) {
+            bounds = Arrays.copyOf(bounds, count + 1);
+        }
+        bounds[count++] = rows;
+        if (oversized) {
+            LOG.warn("Block of {} rows is split at every {} rows but some parts still exceed the insert limit of {} rows"
+                    + " and {} bytes", rows, AbstractColumn.ROW_MARK_INTERVAL, maxRows, maxBytes);
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
     /**
      * 获取指定索引的列
      * 
@@ -431,6 +1079,7 @@ public class Block {
                 continue;
             }
 
+            recordColumnSize(column);
             column.recycleColumnWriterBuffer(factory);
             this.columnMap.remove(column.name());
             columns[index] = null;
@@ -446,6 +1095,7 @@ public class Block {
         if (columnNum < columns.length) {
             IColumn column = columns[columnNum];
             if (null != column) {
+                recordColumnSize(column);
                 column.recycleColumnWriterBuffer(this.serverContext.getColumnWriterBufferFactory());
                 this.columnMap.remove(column.name());
                 columns[columnNum] = null;
@@ -481,8 +1131,12 @@ public class Block {
 
         ColumnWriterBufferFactory bufferFactory = this.serverContext.getColumnWriterBufferFactory();
         for (IColumn column : columns) {
+            if (null == column) {
+                continue;
+            }
             ColumnWriterBuffer writeBuffer = column.getColumnWriterBuffer();
             if (writeBuffer != null) {
+                recordColumnSize(column);
                 bufferFactory.recycleBuffer(writeBuffer);
                 column.setColumnWriterBuffer(null);
             }
@@ -491,6 +1145,39 @@ public class Block {
         this.columnMap.clear();
     }
 
+    /**
+     * 获取各列写入缓冲区中已写入的字节数之和
+     *
+     * @return 已写入的字节数
+     */
+    public long writtenBytes() {
+        if (null == columns) {
+            return 0;
+        }
+        long bytes = 0;
+        for (IColumn column : columns) {
+            if (null != column && null != column.getColumnWriterBuffer()) {
+                bytes += column.getColumnWriterBuffer().writtenBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 将列在本数据块中写入的字节数记录到表的列大小统计中
+     *
+     * @param column 列对象
+     */
+    private void recordColumnSize(IColumn column) {
+        if (null == this.tableMetaData || !isWrite()) {
+            return;
+        }
+        ColumnWriterBuffer writeBuffer = column.getColumnWriterBuffer();
+        if (null != writeBuffer) {
+            this.tableMetaData.getColumnSizeStatistics().record(column.name(), writeBuffer.writtenBytes(), column.rowCnt());
+        }
+    }
+
     /**
      * 清理数据块数据
      */
@@ -580,7 +1267,7 @@ public class Block {
     }
 
     public boolean isWrite() {
-        return this.model == BlockDataModel.READ;
+        return this.model == BlockDataModel.WRITE;
     }
 
     public ClickHouseTableMetaData getTableMetaData() {
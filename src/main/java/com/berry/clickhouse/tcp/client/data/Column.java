@@ -1,9 +1,12 @@
 package com.berry.clickhouse.tcp.client.data;
 
+import com.berry.clickhouse.tcp.client.data.type.complex.DataTypeString;
 import com.berry.clickhouse.tcp.client.serde.BinarySerializer;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
+import java.util.BitSet;
 
 /**
  * Column类实现了IColumn接口
@@ -30,6 +33,63 @@ public class Column extends AbstractColumn {
         addRowCnt();
     }
 
+    @Override
+    public void writeLong(long value) throws IOException, SQLException {
+        type().serializeLong(value, buffer.column); // 不经过装箱直接序列化
+        addRowCnt();
+    }
+
+    @Override
+    public void writeDouble(double value) throws IOException, SQLException {
+        type().serializeDouble(value, buffer.column); // 不经过装箱直接序列化
+        addRowCnt();
+    }
+
+    @Override
+    public void writeFixedWidth(ByteBuffer values, int rows, BitSet nulls, int firstRow) throws IOException, SQLException {
+        ensureNoNulls(nulls, firstRow, rows);
+        int byteSize = type.byteSize();
+        if (byteSize <= 0 || values.remaining() != (long) rows * byteSize) {
+            throw new SQLException("Column[" + name + "] of type " + type.name() + " expects " + rows + " values of "
+                    + byteSize + " bytes, got " + values.remaining() + " bytes");
+        }
+        for (int done = 0; done < rows; ) {
+            int n = rowsToNextMark(rows - done); // 按行标记分段，保证数据块仍可在行标记处拆分
+            buffer.column.writeBytes(take(values, n * byteSize)); // 整段拷贝，不逐值序列化
+            addWrittenRows(n);
+            done += n;
+        }
+    }
+
+    @Override
+    public void writeStrings(byte[] arena, int[] offsets, int firstRow, int rows, BitSet nulls) throws IOException, SQLException {
+        ensureNoNulls(nulls, firstRow, rows);
+        if (!(type instanceof DataTypeString)) {
+            throw new SQLException("Column[" + name + "] of type " + type.name() + " does not accept string values");
+        }
+        BinarySerializer serializer = buffer.column;
+        for (int done = 0; done < rows; ) {
+            int n = rowsToNextMark(rows - done);
+            for (int row = firstRow + done, end = row + n; row < end; row++) {
+                int length = offsets[row + 1] - offsets[row];
+                serializer.writeVarInt(length); // 写入长度前缀
+                serializer.writeBytes(arena, offsets[row], length); // 直接拷贝字符串字节
+            }
+            addWrittenRows(n);
+            done += n;
+        }
+    }
+
+    private void ensureNoNulls(BitSet nulls, int firstRow, int rows) throws SQLException {
+        if (null != nulls) {
+            int nullRow = nulls.nextSetBit(firstRow);
+            if (nullRow >= 0 && nullRow < firstRow + rows) {
+                throw new SQLException("Column[" + name + "] of type " + type.name() + " is not Nullable, but row "
+                        + (nullRow - firstRow) + " is null");
+            }
+        }
+    }
+
     @Override
     public void flushToSerializer(BinarySerializer serializer, boolean now) throws IOException, SQLException {
         if (isExported()) {
@@ -42,6 +102,23 @@ public class Column extends AbstractColumn {
         }
     }
 
+    @Override
+    public boolean supportsRowRange() {
+        return isExported();
+    }
+
+    @Override
+    public long rowRangeBytes(int fromRow, int toRow) {
+        return rowOffset(toRow) - rowOffset(fromRow);
+    }
+
+    @Override
+    public void flushToSerializer(BinarySerializer serializer, int fromRow, int toRow) throws IOException {
+        serializer.writeUTF8StringBinary(name); // 写入列名
+        serializer.writeUTF8StringBinary(type.name()); // 写入数据类型名称
+        buffer.writeTo(serializer, rowOffset(fromRow), rowOffset(toRow)); // 写入范围内的行
+    }
+
     @Override
     public void recycleColumnWriterBuffer(ColumnWriterBufferFactory factory) {
         if (null != this.buffer) {
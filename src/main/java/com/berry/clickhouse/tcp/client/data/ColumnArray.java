@@ -71,6 +71,28 @@ public class ColumnArray extends AbstractColumn {
         }
     }
 
+    @Override
+    public boolean supportsRowRange() {
+        return isExported() && data.getClass() == Column.class; // 元素与偏移量共用写入缓冲区时才能按行定位
+    }
+
+    @Override
+    public long rowRangeBytes(int fromRow, int toRow) {
+        return (long) Long.BYTES * (toRow - fromRow) + rowOffset(toRow) - rowOffset(fromRow);
+    }
+
+    @Override
+    public void flushToSerializer(BinarySerializer serializer, int fromRow, int toRow) throws IOException {
+        serializer.writeUTF8StringBinary(name); // 写入列名
+        serializer.writeUTF8StringBinary(type.name()); // 写入数据类型名称
+
+        long base = (fromRow == 0) ? 0 : offsets.get(fromRow - 1);
+        for (int i = fromRow; i < toRow; i++) {
+            serializer.writeLong(offsets.get(i) - base); // 写入相对于范围起点的偏移量
+        }
+        buffer.writeTo(serializer, rowOffset(fromRow), rowOffset(toRow)); // 写入范围内的元素
+    }
+
     @Override
     public void setColumnWriterBuffer(ColumnWriterBuffer buffer) {
         super.setColumnWriterBuffer(buffer); // 设置列的写入缓冲区
@@ -88,6 +110,18 @@ public class ColumnArray extends AbstractColumn {
         this.data.rewind(); // 重置元素列的读取位置
     }
 
+    @Override
+    public ColumnMark mark() {
+        return mark(offsets.size(), data);
+    }
+
+    @Override
+    public void rollback(ColumnMark mark) {
+        super.rollback(mark); // 回滚列
+        truncate(offsets, mark); // 截断偏移量列表
+        rollbackNested(mark, data); // 回滚元素列
+    }
+
     @Override
     public void clear() {
         super.clear(); // 清空列
@@ -109,6 +109,18 @@ public class ColumnMap extends AbstractColumn {
         }
     }
 
+    @Override
+    public ColumnMark mark() {
+        return mark(offsets.size(), columnDataArray);
+    }
+
+    @Override
+    public void rollback(ColumnMark mark) {
+        super.rollback(mark); // 回滚列
+        truncate(offsets, mark); // 截断偏移量列表
+        rollbackNested(mark, columnDataArray); // 回滚嵌套列
+    }
+
     @Override
     public void clear() {
         super.clear(); // 清空列
@@ -0,0 +1,20 @@
+package com.berry.clickhouse.tcp.client.data;
+
+/**
+ * ColumnMark类记录列在某一时刻的写入位置
+ * 批量写入失败时，列可以通过IColumn.rollback回滚到该位置，丢弃之后写入的行
+ */
+public final class ColumnMark {
+
+    final int rowCnt; // 行数
+    final long writtenBytes; // 写入缓冲区已写入的字节数
+    final int entries; // 偏移量或空值标志等附加列表的长度
+    final ColumnMark[] nested; // 嵌套列的写入位置
+
+    ColumnMark(int rowCnt, long writtenBytes, int entries, ColumnMark[] nested) {
+        this.rowCnt = rowCnt;
+        this.writtenBytes = writtenBytes;
+        this.entries = entries;
+        this.nested = nested;
+    }
+}
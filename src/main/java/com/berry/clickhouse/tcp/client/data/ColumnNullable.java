@@ -4,8 +4,10 @@ import com.berry.clickhouse.tcp.client.data.type.complex.DataTypeNullable;
 import com.berry.clickhouse.tcp.client.serde.BinarySerializer;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -43,6 +45,39 @@ public class ColumnNullable extends AbstractColumn {
         addRowCnt();
     }
 
+    @Override
+    public void writeFixedWidth(ByteBuffer values, int rows, BitSet nulls, int firstRow) throws IOException, SQLException {
+        int byteSize = type.byteSize();
+        if (byteSize <= 0 || values.remaining() != (long) rows * byteSize) {
+            throw new SQLException("Column[" + name + "] of type " + type.name() + " expects " + rows + " values of "
+                    + byteSize + " bytes, got " + values.remaining() + " bytes");
+        }
+        for (int done = 0; done < rows; ) {
+            int n = rowsToNextMark(rows - done);
+            addNullableSigns(nulls, firstRow + done, n);
+            data.writeFixedWidth(take(values, n * byteSize), n, null, 0); // 空值位置的值照常写入，服务端忽略
+            addWrittenRows(n);
+            done += n;
+        }
+    }
+
+    @Override
+    public void writeStrings(byte[] arena, int[] offsets, int firstRow, int rows, BitSet nulls) throws IOException, SQLException {
+        for (int done = 0; done < rows; ) {
+            int n = rowsToNextMark(rows - done);
+            addNullableSigns(nulls, firstRow + done, n);
+            data.writeStrings(arena, offsets, firstRow + done, n, null);
+            addWrittenRows(n);
+            done += n;
+        }
+    }
+
+    private void addNullableSigns(BitSet nulls, int from, int rows) {
+        for (int row = from, end = from + rows; row < end; row++) {
+            nullableSign.add((null != nulls && nulls.get(row)) ? (byte) 1 : (byte) 0);
+        }
+    }
+
     @Override
     public void flushToSerializer(BinarySerializer serializer, boolean immediate) throws IOException {
         if (isExported()) {
@@ -59,6 +94,27 @@ public class ColumnNullable extends AbstractColumn {
         }
     }
 
+    @Override
+    public boolean supportsRowRange() {
+        return isExported() && data.getClass() == Column.class; // 实际数据与可空标志共用写入缓冲区时才能按行定位
+    }
+
+    @Override
+    public long rowRangeBytes(int fromRow, int toRow) {
+        return (toRow - fromRow) + rowOffset(toRow) - rowOffset(fromRow);
+    }
+
+    @Override
+    public void flushToSerializer(BinarySerializer serializer, int fromRow, int toRow) throws IOException {
+        serializer.writeUTF8StringBinary(name); // 写入列名
+        serializer.writeUTF8StringBinary(type.name()); // 写入数据类型名称
+
+        for (int i = fromRow; i < toRow; i++) {
+            serializer.writeByte(nullableSign.get(i)); // 写入范围内的可空标志
+        }
+        buffer.writeTo(serializer, rowOffset(fromRow), rowOffset(toRow)); // 写入范围内的实际数据
+    }
+
     @Override
     public void setColumnWriterBuffer(ColumnWriterBuffer buffer) {
         super.setColumnWriterBuffer(buffer); // 设置列的写入缓冲区
@@ -75,4 +131,23 @@ public class ColumnNullable extends AbstractColumn {
     public void rewind() {
         this.data.rewind(); // 重置实际数据列的读取位置
     }
+
+    @Override
+    public ColumnMark mark() {
+        return mark(nullableSign.size(), data);
+    }
+
+    @Override
+    public void rollback(ColumnMark mark) {
+        super.rollback(mark); // 回滚列
+        truncate(nullableSign, mark); // 截断可空标志列表
+        rollbackNested(mark, data); // 回滚实际数据列
+    }
+
+    @Override
+    public void clear() {
+        super.clear(); // 清空列
+        nullableSign.clear(); // 清空可空标志列表
+        data.clear(); // 清空实际数据列
+    }
 }
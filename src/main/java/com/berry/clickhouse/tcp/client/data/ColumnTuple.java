@@ -86,6 +86,17 @@ public class ColumnTuple extends AbstractColumn {
         }
     }
 
+    @Override
+    public ColumnMark mark() {
+        return mark(0, columnDataArray);
+    }
+
+    @Override
+    public void rollback(ColumnMark mark) {
+        super.rollback(mark); // 回滚列
+        rollbackNested(mark, columnDataArray); // 回滚嵌套列
+    }
+
     @Override
     public void clear() {
         super.clear(); // 清空列
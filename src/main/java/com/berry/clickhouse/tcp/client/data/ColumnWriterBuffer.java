@@ -2,12 +2,19 @@ package com.berry.clickhouse.tcp.client.data;
 
 import com.berry.clickhouse.tcp.client.buffer.BufferPoolManager;
 import com.berry.clickhouse.tcp.client.buffer.ByteArrayWriter;
+import com.berry.clickhouse.tcp.client.buffer.SegmentGrowthPolicy;
+import com.berry.clickhouse.tcp.client.buffer.SpillFile;
+import com.berry.clickhouse.tcp.client.buffer.SpillPolicy;
+import com.berry.clickhouse.tcp.client.exception.ClickHouseClientException;
+import com.berry.clickhouse.tcp.client.exception.MemoryBudgetExceededException;
 import com.berry.clickhouse.tcp.client.serde.BinarySerializer;
 
 import java.io.IOException;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
-import java.util.Queue;
+import java.nio.MappedByteBuffer;
 import java.util.function.Consumer;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
 /**
@@ -22,6 +29,10 @@ public class ColumnWriterBuffer {
 
     public final ColumnWriterBufferPoolManager manager; // 列写入缓冲区管理器
 
+    private final SegmentAllocator allocator; // 按当前绑定列分配分段的分配器
+
+    ColumnWriterBufferLeakDetector.LeakRecord leakRecord; // 泄漏检测的跟踪记录，未启用泄漏检测时为null
+
     /**
      * 构造函数，初始化ColumnWriterBuffer
      * 
@@ -34,6 +45,94 @@ public class ColumnWriterBuffer {
         this.columnWriter = new ByteArrayWriter(length, allocateBuffer, recycleBuffer); // 创建字节数组写入器
         this.column = new BinarySerializer(columnWriter, false); // 创建二进制序列化器
         this.manager = manager; // 设置列写入缓冲区管理器
+        this.allocator = null;
+    }
+
+    /**
+     * 构造函数，初始化绑定到指定列的ColumnWriterBuffer
+     * 分段按列名、类型和预期大小从缓冲池管理器分配，缓冲区被复用于其他列时可通过bind重新绑定
+     *
+     * @param manager 列写入缓冲区管理器
+     * @param length 缓冲区长度
+     * @param bufferPoolManager 缓冲池管理器
+     * @param column 绑定的列
+     * @param sizeHint 列在一个数据块中的预期字节数，小于等于0表示未知
+     */
+    public ColumnWriterBuffer(ColumnWriterBufferPoolManager manager, int length, BufferPoolManager bufferPoolManager,
+                              IColumn column, int sizeHint) {
+        this(manager, length, bufferPoolManager, column, sizeHint, SegmentGrowthPolicy.FIXED);
+    }
+
+    /**
+     * 构造函数，初始化绑定到指定列并使用指定分段增长策略的ColumnWriterBuffer
+     *
+     * @param manager 列写入缓冲区管理器
+     * @param length 缓冲区长度
+     * @param bufferPoolManager 缓冲池管理器
+     * @param column 绑定的列
+     * @param sizeHint 列在一个数据块中的预期字节数，小于等于0表示未知
+     * @param growthPolicy 分段增长策略
+     */
+    public ColumnWriterBuffer(ColumnWriterBufferPoolManager manager, int length, BufferPoolManager bufferPoolManager,
+                              IColumn column, int sizeHint, SegmentGrowthPolicy growthPolicy) {
+        this(manager, length, bufferPoolManager, column, sizeHint, growthPolicy, SpillPolicy.DISABLED);
+    }
+
+    /**
+     * 构造函数，初始化绑定到指定列、使用指定分段增长策略和溢写策略的ColumnWriterBuffer
+     * 内存预算耗尽且已写入的字节数达到溢写阈值时，新的分段从内存映射的临时文件中分配
+     *
+     * @param manager 列写入缓冲区管理器
+     * @param length 缓冲区长度
+     * @param bufferPoolManager 缓冲池管理器
+     * @param column 绑定的列
+     * @param sizeHint 列在一个数据块中的预期字节数，小于等于0表示未知
+     * @param growthPolicy 分段增长策略
+     * @param spillPolicy 溢写策略
+     */
+    public ColumnWriterBuffer(ColumnWriterBufferPoolManager manager, int length, BufferPoolManager bufferPoolManager,
+                              IColumn column, int sizeHint, SegmentGrowthPolicy growthPolicy, SpillPolicy spillPolicy) {
+        this.allocator = new SegmentAllocator(bufferPoolManager, column, sizeHint, spillPolicy);
+        this.columnWriter = new ByteArrayWriter(length, this.allocator, this.allocator::recycle, growthPolicy); // 创建字节数组写入器
+        this.allocator.writer = this.columnWriter;
+        this.column = new BinarySerializer(columnWriter, false); // 创建二进制序列化器
+        this.manager = manager; // 设置列写入缓冲区管理器
+    }
+
+    /**
+     * 将复用的缓冲区重新绑定到指定列
+     * 之后分配的分段使用新列的名称、类型和预期大小，保留的空闲分段明显大于新列所需时归还给缓冲池
+     *
+     * @param column 绑定的列
+     * @param sizeHint 列在一个数据块中的预期字节数，小于等于0表示未知
+     */
+    public void bind(IColumn column, int sizeHint) {
+        if (null == allocator) {
+            return;
+        }
+        allocator.bind(column, sizeHint);
+        int segmentSize = allocator.segmentSize();
+        if (segmentSize > 0) {
+            columnWriter.trimFreeList(segmentSize * 2); // 归还过大的空闲分段
+        }
+    }
+
+    /**
+     * 获取字节数组写入器
+     *
+     * @return 字节数组写入器
+     */
+    ByteArrayWriter writer() {
+        return columnWriter;
+    }
+
+    /**
+     * 获取已写入的字节数
+     *
+     * @return 已写入的字节数
+     */
+    public long writtenBytes() {
+        return columnWriter.writtenBytes(); // 返回字节数组写入器已写入的字节数
     }
 
     /**
@@ -43,12 +142,59 @@ public class ColumnWriterBuffer {
      * @throws IOException 如果写入过程中发生I/O错误
      */
     public void writeTo(BinarySerializer serializer) throws IOException {
-        for (ByteBuffer buffer : columnWriter.getBufferList()) {
-            serializer.writeBytes(buffer.array(), buffer.arrayOffset(), buffer.position()); // 写入字节数组
-            buffer.limit(buffer.position()); // 设置缓冲区限制
+        for (int i = 0, n = columnWriter.segmentCount(); i < n; i++) {
+            ByteBuffer buffer = columnWriter.segment(i);
+            if (buffer.hasArray()) {
+                serializer.writeBytes(buffer.array(), buffer.arrayOffset(), buffer.position()); // 写入字节数组
+            } else {
+                ByteBuffer written = buffer.duplicate();
+                ((Buffer) written).flip();
+                serializer.writeBytes(written); // 从内存映射中直接写出溢写的分段
+            }
+            ((Buffer) buffer).limit(buffer.position()); // 设置缓冲区限制
         }
     }
 
+    /**
+     * 将已写入数据中[fromByte, toByte)范围的字节写入二进制序列化器
+     *
+     * @param serializer 二进制序列化器
+     * @param fromByte 起始字节偏移量（包含）
+     * @param toByte 结束字节偏移量（不包含）
+     * @throws IOException 如果写入过程中发生I/O错误
+     */
+    public void writeTo(BinarySerializer serializer, long fromByte, long toByte) throws IOException {
+        long segmentStart = 0;
+        for (int i = 0, n = columnWriter.segmentCount(); i < n && segmentStart < toByte; i++) {
+            ByteBuffer buffer = columnWriter.segment(i);
+            int written = buffer.position();
+            long segmentEnd = segmentStart + written;
+            if (segmentEnd > fromByte) {
+                int from = (int) Math.max(0, fromByte - segmentStart);
+                int to = (int) Math.min(written, toByte - segmentStart);
+                if (buffer.hasArray()) {
+                    serializer.writeBytes(buffer.array(), buffer.arrayOffset() + from, to - from); // 写入字节数组
+                } else {
+                    ByteBuffer range = buffer.duplicate();
+                    ((Buffer) range).limit(to);
+                    ((Buffer) range).position(from);
+                    serializer.writeBytes(range); // 从内存映射中直接写出溢写的分段
+                }
+            }
+            ((Buffer) buffer).limit(written); // 设置缓冲区限制
+            segmentStart = segmentEnd;
+        }
+    }
+
+    /**
+     * 将已写入的字节截断到指定长度，丢弃之后写入的数据
+     *
+     * @param bytes 保留的字节数
+     */
+    public void truncate(long bytes) {
+        columnWriter.truncate(bytes); // 截断字节数组写入器
+    }
+
     /**
      * 重置写入缓冲区
      */
@@ -56,6 +202,20 @@ public class ColumnWriterBuffer {
         columnWriter.reset(); // 重置字节数组写入器
     }
 
+    /**
+     * 收缩写入缓冲区，超出保留数量的缓冲区归还给缓冲池
+     */
+    public void trim() {
+        columnWriter.trim(); // 收缩字节数组写入器
+    }
+
+    /**
+     * 释放写入缓冲区持有的全部缓冲区
+     */
+    public void release() {
+        columnWriter.release(); // 释放字节数组写入器
+    }
+
     /**
      * 清空写入缓冲区
      */
@@ -78,4 +238,81 @@ public class ColumnWriterBuffer {
     public ColumnWriterBufferPoolManager getManager() {
         return manager; // 返回列写入缓冲区管理器
     }
+
+    /**
+     * 按绑定列分配分段的分配器
+     * 独立于ColumnWriterBuffer，使字节数组写入器不持有对写入缓冲区的引用
+     */
+    private static final class SegmentAllocator implements IntFunction<ByteBuffer> {
+
+        private final BufferPoolManager bufferPoolManager; // 缓冲池管理器
+        private final SpillPolicy spillPolicy; // 溢写策略
+        private ByteArrayWriter writer; // 使用该分配器的字节数组写入器
+        private SpillFile spillFile; // 当前的溢写文件
+        private String columnName; // 绑定的列名
+        private IDataType<?> dataType; // 绑定的列类型
+        private int sizeHint; // 绑定列的预期字节数
+
+        SegmentAllocator(BufferPoolManager bufferPoolManager, IColumn column, int sizeHint, SpillPolicy spillPolicy) {
+            this.bufferPoolManager = bufferPoolManager;
+            this.spillPolicy = (null == spillPolicy) ? SpillPolicy.DISABLED : spillPolicy;
+            bind(column, sizeHint);
+        }
+
+        void bind(IColumn column, int sizeHint) {
+            this.columnName = column.name();
+            this.dataType = column.type();
+            this.sizeHint = sizeHint;
+        }
+
+        int segmentSize() {
+            return bufferPoolManager.segmentSize(columnName, dataType, sizeHint);
+        }
+
+        @Override
+        public ByteBuffer apply(int segmentSize) {
+            try {
+                // 增长策略给出期望大小时按期望大小分配，否则按列的预期大小分配
+                return bufferPoolManager.allocate(columnName, dataType, (segmentSize > 0) ? segmentSize : sizeHint);
+            } catch (MemoryBudgetExceededException e) {
+                // 内存预算耗尽时，已写入足够多数据的列溢写到磁盘，其余仍然失败
+                if (Thread.currentThread().isInterrupted() || null == writer
+                        || !spillPolicy.shouldSpill(writer.writtenBytes())) {
+                    throw e;
+                }
+                return spill();
+            }
+        }
+
+        /**
+         * 从溢写文件中映射一个新的分段
+         *
+         * @return 内存映射的分段
+         */
+        private ByteBuffer spill() {
+            if (null == spillFile) {
+                try {
+                    spillFile = new SpillFile(spillPolicy.directory());
+                } catch (IOException e) {
+                    throw new ClickHouseClientException("Failed to create spill file for column " + columnName, e);
+                }
+            }
+            return spillFile.map(spillPolicy.segmentSize());
+        }
+
+        /**
+         * 回收分段，溢写的分段归还给溢写文件，其余归还给缓冲池
+         *
+         * @param buffer 分段
+         */
+        void recycle(ByteBuffer buffer) {
+            if (buffer instanceof MappedByteBuffer) {
+                if (null != spillFile && spillFile.release(buffer)) {
+                    spillFile = null;
+                }
+                return;
+            }
+            bufferPoolManager.recycle(buffer);
+        }
+    }
 }
@@ -0,0 +1,162 @@
+package com.berry.clickhouse.tcp.client.data;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ColumnWriterBufferCache类是列写入缓冲区的无锁缓存
+ * 每个线程持有一个只由本线程访问的弹匣（magazine），线程本地取还不产生任何同步；
+ * 本地弹匣满时溢出到无锁的共享仓库（depot），本地弹匣为空时从仓库获取，
+ * 仓库也为空时回收已结束线程弹匣中的缓冲区，避免缓冲区滞留在死亡线程中；
+ * 回收需要遍历所有弹匣，因此每RECLAIM_INTERVAL_NANOS最多由一个线程执行一次，
+ * 存活线程的弹匣不会被回收，其中空闲的缓冲区最多为magazineSize个
+ */
+public class ColumnWriterBufferCache {
+
+    /**
+     * 默认的线程本地弹匣大小
+     */
+    public static final int DEFAULT_MAGAZINE_SIZE = 64;
+
+    private static final long RECLAIM_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100); // 两次回收之间的最短间隔
+
+    private final LimitedConcurrentLinkedDeque<ColumnWriterBuffer> depot; // 共享仓库
+    private final int magazineSize; // 线程本地弹匣大小
+    private final Queue<Magazine> magazines = new ConcurrentLinkedQueue<>(); // 所有线程的弹匣
+    private final ThreadLocal<Magazine> local; // 线程本地弹匣
+    private final AtomicLong nextReclaim = new AtomicLong(System.nanoTime()); // 下次允许回收的时间（System.nanoTime()）
+
+    /**
+     * 构造函数，初始化ColumnWriterBufferCache
+     *
+     * @param depotSize 共享仓库容量
+     * @param magazineSize 线程本地弹匣大小，小于等于0时不使用线程本地缓存
+     */
+    public ColumnWriterBufferCache(int depotSize, int magazineSize) {
+        this.depot = new LimitedConcurrentLinkedDeque<>(Math.max(1, depotSize));
+        this.magazineSize = magazineSize;
+        this.local = ThreadLocal.withInitial(this::register);
+    }
+
+    /**
+     * 为当前线程创建并登记弹匣
+     *
+     * @return 当前线程的弹匣
+     */
+    private Magazine register() {
+        if (magazineSize <= 0) {
+            return null;
+        }
+        Magazine magazine = new Magazine(Thread.currentThread(), magazineSize);
+        magazines.offer(magazine);
+        return magazine;
+    }
+
+    /**
+     * 取出一个缓存的缓冲区
+     *
+     * @return 缓冲区，缓存为空时返回null
+     */
+    public ColumnWriterBuffer poll() {
+        Magazine magazine = local.get();
+        if (null != magazine && magazine.size > 0) {
+            return magazine.pop();
+        }
+        ColumnWriterBuffer buffer = depot.pollLast();
+        if (null != buffer) {
+            return buffer;
+        }
+        return reclaim();
+    }
+
+    /**
+     * 放回一个缓冲区
+     *
+     * @param buffer 缓冲区
+     * @return 缓存已满时返回false
+     */
+    public boolean offer(ColumnWriterBuffer buffer) {
+        Magazine magazine = local.get();
+        if (null != magazine && magazine.size < magazine.items.length) {
+            magazine.push(buffer);
+            return true;
+        }
+        return depot.offerLast(buffer);
+    }
+
+    /**
+     * 从已结束线程的弹匣中回收缓冲区，并移除这些弹匣
+     * 线程结束与isAlive返回false之间存在happens-before关系，因此可以安全地读取其弹匣；
+     * 距上次回收不足RECLAIM_INTERVAL_NANOS或其他线程正在回收时直接返回null，使未命中的开销与线程数无关
+     *
+     * @return 回收到的一个缓冲区，没有可回收的缓冲区时返回null
+     */
+    private ColumnWriterBuffer reclaim() {
+        long next = nextReclaim.get();
+        long now = System.nanoTime();
+        if (now - next < 0 || !nextReclaim.compareAndSet(next, now + RECLAIM_INTERVAL_NANOS)) {
+            return null;
+        }
+        ColumnWriterBuffer result = null;
+        Iterator<Magazine> iterator = magazines.iterator();
+        while (iterator.hasNext()) {
+            Magazine magazine = iterator.next();
+            if (magazine.isOwnerAlive()) {
+                continue;
+            }
+            iterator.remove(); // 同一时刻只有一个线程回收
+            while (magazine.size > 0) {
+                ColumnWriterBuffer buffer = magazine.pop();
+                if (null == result) {
+                    result = buffer;
+                } else if (!depot.offerLast(buffer)) {
+                    buffer.release(); // 仓库已满，释放缓冲区
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取共享仓库中的缓冲区数量
+     *
+     * @return 缓冲区数量
+     */
+    public int depotSize() {
+        return depot.size();
+    }
+
+    /**
+     * 线程本地弹匣，只允许所属线程访问
+     */
+    private static final class Magazine {
+
+        private final WeakReference<Thread> owner; // 弹匣所属线程
+        private final ColumnWriterBuffer[] items; // 弹匣中的缓冲区
+        private int size; // 弹匣中的缓冲区数量
+
+        Magazine(Thread owner, int capacity) {
+            this.owner = new WeakReference<>(owner);
+            this.items = new ColumnWriterBuffer[capacity];
+        }
+
+        ColumnWriterBuffer pop() {
+            ColumnWriterBuffer buffer = items[--size];
+            items[size] = null;
+            return buffer;
+        }
+
+        void push(ColumnWriterBuffer buffer) {
+            items[size++] = buffer;
+        }
+
+        boolean isOwnerAlive() {
+            Thread thread = owner.get();
+            return null != thread && thread.isAlive();
+        }
+    }
+}
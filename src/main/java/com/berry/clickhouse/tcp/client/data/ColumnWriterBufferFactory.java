@@ -1,6 +1,7 @@
 package com.berry.clickhouse.tcp.client.data;
 
 import com.berry.clickhouse.tcp.client.buffer.BufferPoolManager;
+import com.berry.clickhouse.tcp.client.buffer.MemoryBudget;
 import com.berry.clickhouse.tcp.client.settings.ClickHouseClientConfig;
 
 /**
@@ -15,6 +16,10 @@ public class ColumnWriterBufferFactory {
 
     private final BufferPoolManager bufferPoolManager; // 缓冲池管理器
 
+    private final ColumnWriterBufferLeakDetector leakDetector; // 泄漏检测器，未启用时为null
+
+    private final MemoryBudget memoryBudget; // 内存预算，缓冲池管理器未提供时为不记账的预算
+
     /**
      * 获取ColumnWriterBufferFactory的单例实例
      * 
@@ -40,6 +45,10 @@ public class ColumnWriterBufferFactory {
     private ColumnWriterBufferFactory(ClickHouseClientConfig clickHouseClientConfig) {
         this.columnWriterBufferPoolManager = clickHouseClientConfig.getColumnWriterBufferPoolManager(); // 获取列写入缓冲区管理器
         this.bufferPoolManager = clickHouseClientConfig.getBufferPoolManager(); // 获取缓冲池管理器
+        MemoryBudget budget = this.bufferPoolManager.getMemoryBudget();
+        this.memoryBudget = (null == budget) ? MemoryBudget.unlimited() : budget; // 自定义缓冲池管理器可能不提供预算
+        this.leakDetector = clickHouseClientConfig.isLeakDetection()
+                ? new ColumnWriterBufferLeakDetector(clickHouseClientConfig.getLeakDetectionSamplingInterval()) : null; // 创建泄漏检测器
     }
 
     /**
@@ -49,7 +58,32 @@ public class ColumnWriterBufferFactory {
      * @return ColumnWriterBuffer实例
      */
     public ColumnWriterBuffer getBuffer(IColumn column) {
-        return this.columnWriterBufferPoolManager.allocate(column, this.bufferPoolManager); // 分配列的写入缓冲区
+        return track(this.columnWriterBufferPoolManager.allocate(column, this.bufferPoolManager), column); // 分配列的写入缓冲区
+    }
+
+    /**
+     * 按列的预期大小获取列的写入缓冲区
+     *
+     * @param column 列对象
+     * @param sizeHint 列在一个数据块中的预期字节数，小于等于0表示未知
+     * @return ColumnWriterBuffer实例
+     */
+    public ColumnWriterBuffer getBuffer(IColumn column, int sizeHint) {
+        return track(this.columnWriterBufferPoolManager.allocate(column, this.bufferPoolManager, sizeHint), column); // 按预期大小分配列的写入缓冲区
+    }
+
+    /**
+     * 启用泄漏检测时跟踪分配出的缓冲区
+     *
+     * @param buffer 列的写入缓冲区
+     * @param column 列对象
+     * @return 列的写入缓冲区
+     */
+    private ColumnWriterBuffer track(ColumnWriterBuffer buffer, IColumn column) {
+        if (null != this.leakDetector) {
+            this.leakDetector.track(buffer, column);
+        }
+        return buffer;
     }
 
     /**
@@ -58,6 +92,27 @@ public class ColumnWriterBufferFactory {
      * @param buffer 列的写入缓冲区
      */
     public void recycleBuffer(ColumnWriterBuffer buffer) {
+        if (null != this.leakDetector) {
+            this.leakDetector.untrack(buffer); // 停止跟踪
+        }
         this.columnWriterBufferPoolManager.recycle(buffer); // 回收列的写入缓冲区
     }
+
+    /**
+     * 获取泄漏检测器
+     *
+     * @return 泄漏检测器，未启用泄漏检测时返回null
+     */
+    public ColumnWriterBufferLeakDetector getLeakDetector() {
+        return this.leakDetector;
+    }
+
+    /**
+     * 获取写入缓冲区的内存预算
+     *
+     * @return 内存预算，不为null；缓冲池管理器未提供预算时返回不限制的预算，其已使用字节数始终为0
+     */
+    public MemoryBudget getMemoryBudget() {
+        return this.memoryBudget; // 返回内存预算
+    }
 }
@@ -0,0 +1,147 @@
+package com.berry.clickhouse.tcp.client.data;
+
+import com.berry.clickhouse.tcp.client.buffer.ByteArrayWriter;
+import com.berry.clickhouse.tcp.client.log.Logger;
+import com.berry.clickhouse.tcp.client.log.LoggerFactory;
+
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ColumnWriterBufferLeakDetector类检测未回收的列写入缓冲区
+ * ColumnWriterBufferFactory分配出的每个缓冲区都注册到Cleaner，缓冲区未经回收就变为不可达时记录泄漏，
+ * 输出按采样间隔捕获的分配堆栈，并将其持有的分段归还给缓冲池作为兜底
+ */
+public class ColumnWriterBufferLeakDetector {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ColumnWriterBufferLeakDetector.class);
+
+    private final Cleaner cleaner = Cleaner.create(); // 清理器
+    private final int samplingInterval; // 分配堆栈的采样间隔
+    private final AtomicLong allocations = new AtomicLong(); // 已跟踪的分配次数
+    private final LongAdder tracked = new LongAdder(); // 正在跟踪的缓冲区数量
+    private final LongAdder leakedBuffers = new LongAdder(); // 泄漏的缓冲区数量
+    private final LongAdder leakedBytes = new LongAdder(); // 泄漏的字节数
+
+    /**
+     * 构造函数，初始化ColumnWriterBufferLeakDetector
+     *
+     * @param samplingInterval 每隔多少次分配捕获一次分配堆栈，小于等于0表示不捕获
+     */
+    public ColumnWriterBufferLeakDetector(int samplingInterval) {
+        this.samplingInterval = samplingInterval;
+    }
+
+    /**
+     * 开始跟踪分配出的缓冲区
+     *
+     * @param buffer 列写入缓冲区
+     * @param column 使用缓冲区的列
+     */
+    void track(ColumnWriterBuffer buffer, IColumn column) {
+        long count = allocations.incrementAndGet();
+        Throwable allocationSite = (samplingInterval > 0 && count % samplingInterval == 0)
+                ? new Throwable("ColumnWriterBuffer allocated for column " + column.name()) : null;
+        // 清理动作只能引用字节数组写入器，不能引用缓冲区本身，否则缓冲区永远不会变为不可达
+        LeakRecord record = new LeakRecord(this, buffer.writer(), column.name(), allocationSite);
+        record.cleanable = cleaner.register(buffer, record);
+        buffer.leakRecord = record;
+        tracked.increment();
+    }
+
+    /**
+     * 缓冲区已正常回收，停止跟踪
+     *
+     * @param buffer 列写入缓冲区
+     */
+    void untrack(ColumnWriterBuffer buffer) {
+        LeakRecord record = buffer.leakRecord;
+        if (null == record) {
+            return;
+        }
+        buffer.leakRecord = null;
+        record.recycled = true;
+        record.cleanable.clean();
+        tracked.decrement();
+    }
+
+    /**
+     * 记录一次泄漏
+     *
+     * @param record 泄漏记录
+     */
+    private void onLeak(LeakRecord record) {
+        tracked.decrement();
+        long bytes = record.writer.retainedBytes();
+        leakedBuffers.increment();
+        leakedBytes.add(bytes);
+        if (null != record.allocationSite) {
+            LOG.warn("ColumnWriterBuffer of column " + record.columnName + " (" + bytes
+                    + " bytes) was not recycled before being garbage collected", record.allocationSite);
+        } else {
+            LOG.warn("ColumnWriterBuffer of column {} ({} bytes) was not recycled before being garbage collected, "
+                    + "allocation stack is not sampled", record.columnName, bytes);
+        }
+        try {
+            record.writer.release(); // 兜底：将分段归还给缓冲池
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to release leaked ColumnWriterBuffer segments", e);
+        }
+    }
+
+    /**
+     * 获取正在跟踪（已分配且未回收）的缓冲区数量
+     *
+     * @return 缓冲区数量
+     */
+    public long trackedBuffers() {
+        return tracked.sum();
+    }
+
+    /**
+     * 获取泄漏的缓冲区数量
+     *
+     * @return 泄漏的缓冲区数量
+     */
+    public long leakedBuffers() {
+        return leakedBuffers.sum();
+    }
+
+    /**
+     * 获取泄漏的字节数
+     *
+     * @return 泄漏的字节数
+     */
+    public long leakedBytes() {
+        return leakedBytes.sum();
+    }
+
+    /**
+     * 单个缓冲区的跟踪记录，同时作为Cleaner的清理动作
+     */
+    static final class LeakRecord implements Runnable {
+
+        private final ColumnWriterBufferLeakDetector detector; // 泄漏检测器
+        private final ByteArrayWriter writer; // 缓冲区的字节数组写入器
+        private final String columnName; // 列名
+        private final Throwable allocationSite; // 采样的分配堆栈
+        private volatile boolean recycled; // 是否已正常回收
+        private Cleaner.Cleanable cleanable; // 清理句柄
+
+        LeakRecord(ColumnWriterBufferLeakDetector detector, ByteArrayWriter writer, String columnName,
+                   Throwable allocationSite) {
+            this.detector = detector;
+            this.writer = writer;
+            this.columnName = columnName;
+            this.allocationSite = allocationSite;
+        }
+
+        @Override
+        public void run() {
+            if (!recycled) {
+                detector.onLeak(this);
+            }
+        }
+    }
+}
@@ -17,6 +17,18 @@ public interface ColumnWriterBufferPoolManager {
      */
     ColumnWriterBuffer allocate(IColumn column, BufferPoolManager bufferPoolManager);
 
+    /**
+     * 按列的预期大小分配列的写入缓冲区
+     *
+     * @param column 列对象
+     * @param bufferPoolManager 缓冲池管理器
+     * @param sizeHint 列在一个数据块中的预期字节数，小于等于0表示未知
+     * @return 分配的ColumnWriterBuffer实例
+     */
+    default ColumnWriterBuffer allocate(IColumn column, BufferPoolManager bufferPoolManager, int sizeHint) {
+        return allocate(column, bufferPoolManager);
+    }
+
     /**
      * 回收列的写入缓冲区
      * 
@@ -1,9 +1,8 @@
 package com.berry.clickhouse.tcp.client.data;
 
 import com.berry.clickhouse.tcp.client.buffer.BufferPoolManager;
-
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
+import com.berry.clickhouse.tcp.client.buffer.SegmentGrowthPolicy;
+import com.berry.clickhouse.tcp.client.buffer.SpillPolicy;
 
 /**
  * DefaultColumnWriterBufferPoolManager类实现了ColumnWriterBufferPoolManager接口
@@ -12,7 +11,9 @@ import java.util.concurrent.ArrayBlockingQueue;
 public class DefaultColumnWriterBufferPoolManager implements ColumnWriterBufferPoolManager {
 
     private final int selfBufferSize; // 自定义缓冲区大小
-    private final Queue<ColumnWriterBuffer> stack; // 缓冲区队列
+    private final ColumnWriterBufferCache stack; // 缓冲区缓存
+    private final SegmentGrowthPolicy growthPolicy; // 分段增长策略
+    private final SpillPolicy spillPolicy; // 溢写策略
 
     /**
      * 构造函数，初始化DefaultColumnWriterBufferPoolManager
@@ -21,18 +22,63 @@ public class DefaultColumnWriterBufferPoolManager implements ColumnWriterBufferP
      * @param selfBufferSize 自定义缓冲区大小
      */
     public DefaultColumnWriterBufferPoolManager(int stackSize, int selfBufferSize) {
+        this(stackSize, selfBufferSize, ColumnWriterBufferCache.DEFAULT_MAGAZINE_SIZE);
+    }
+
+    /**
+     * 构造函数，初始化DefaultColumnWriterBufferPoolManager
+     *
+     * @param stackSize 共享缓冲区队列大小
+     * @param selfBufferSize 自定义缓冲区大小
+     * @param magazineSize 线程本地缓存大小，小于等于0时不使用线程本地缓存
+     */
+    public DefaultColumnWriterBufferPoolManager(int stackSize, int selfBufferSize, int magazineSize) {
+        this(stackSize, selfBufferSize, magazineSize, SegmentGrowthPolicy.FIXED);
+    }
+
+    /**
+     * 构造函数，初始化DefaultColumnWriterBufferPoolManager
+     *
+     * @param stackSize 共享缓冲区队列大小
+     * @param selfBufferSize 自定义缓冲区大小
+     * @param magazineSize 线程本地缓存大小，小于等于0时不使用线程本地缓存
+     * @param growthPolicy 分段增长策略
+     */
+    public DefaultColumnWriterBufferPoolManager(int stackSize, int selfBufferSize, int magazineSize,
+                                                SegmentGrowthPolicy growthPolicy) {
+        this(stackSize, selfBufferSize, magazineSize, growthPolicy, SpillPolicy.DISABLED);
+    }
+
+    /**
+     * 构造函数，初始化DefaultColumnWriterBufferPoolManager
+     *
+     * @param stackSize 共享缓冲区队列大小
+     * @param selfBufferSize 自定义缓冲区大小
+     * @param magazineSize 线程本地缓存大小，小于等于0时不使用线程本地缓存
+     * @param growthPolicy 分段增长策略
+     * @param spillPolicy 溢写策略
+     */
+    public DefaultColumnWriterBufferPoolManager(int stackSize, int selfBufferSize, int magazineSize,
+                                                SegmentGrowthPolicy growthPolicy, SpillPolicy spillPolicy) {
         this.selfBufferSize = selfBufferSize; // 设置自定义缓冲区大小
-        this.stack = new ArrayBlockingQueue<>(stackSize); // 初始化缓冲区队列
+        this.stack = new ColumnWriterBufferCache(stackSize, magazineSize); // 初始化缓冲区缓存
+        this.growthPolicy = growthPolicy; // 设置分段增长策略
+        this.spillPolicy = spillPolicy; // 设置溢写策略
     }
 
     @Override
     public ColumnWriterBuffer allocate(IColumn column, BufferPoolManager bufferPoolManager) {
+        return allocate(column, bufferPoolManager, -1);
+    }
+
+    @Override
+    public ColumnWriterBuffer allocate(IColumn column, BufferPoolManager bufferPoolManager, int sizeHint) {
         ColumnWriterBuffer pop = stack.poll(); // 从队列中获取缓冲区
         if (null == pop) {
-            pop = new ColumnWriterBuffer(this, this.selfBufferSize, // 创建新的缓冲区
-                    () -> bufferPoolManager.allocate(column.name(), column.type()),
-                    bufferPoolManager::recycle);
+            pop = new ColumnWriterBuffer(this, this.selfBufferSize, bufferPoolManager, column, sizeHint,
+                    this.growthPolicy, this.spillPolicy); // 创建新的缓冲区
         } else {
+            pop.bind(column, sizeHint); // 绑定到当前列
             pop.reset(); // 重置缓冲区
         }
         return pop; // 返回缓冲区
@@ -40,6 +86,9 @@ public class DefaultColumnWriterBufferPoolManager implements ColumnWriterBufferP
 
     @Override
     public void recycle(ColumnWriterBuffer columnWriterBuffer) {
-        stack.offer(columnWriterBuffer); // 将缓冲区放回队列
+        columnWriterBuffer.trim(); // 收缩缓冲区，归还超出部分的内存预算
+        if (!stack.offer(columnWriterBuffer)) {
+            columnWriterBuffer.release(); // 队列已满，释放全部缓冲区
+        }
     }
 }
@@ -4,7 +4,9 @@ import com.berry.clickhouse.tcp.client.serde.BinaryDeserializer;
 import com.berry.clickhouse.tcp.client.serde.BinarySerializer;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
+import java.util.BitSet;
 
 /**
  * IColumn接口定义了列的基本操作
@@ -57,6 +59,57 @@ public interface IColumn {
      */
     void write(Object object) throws IOException, SQLException;
 
+    /**
+     * 将long值写入列，不经过装箱
+     *
+     * @param value 要写入的值
+     * @throws IOException  如果写入过程中发生I/O错误
+     * @throws SQLException 如果列不支持写入long值
+     */
+    default void writeLong(long value) throws IOException, SQLException {
+        throw new SQLException("Column[" + name() + "] does not support writing primitive long. ");
+    }
+
+    /**
+     * 将double值写入列，不经过装箱
+     *
+     * @param value 要写入的值
+     * @throws IOException  如果写入过程中发生I/O错误
+     * @throws SQLException 如果列不支持写入double值
+     */
+    default void writeDouble(double value) throws IOException, SQLException {
+        throw new SQLException("Column[" + name() + "] does not support writing primitive double. ");
+    }
+
+    /**
+     * 批量写入定长值，values中剩余的字节是rows个值按Native格式（小端）连续排列的编码，直接拷贝到写入缓冲区
+     *
+     * @param values   定长值的编码，写入后位置移动到末尾
+     * @param rows     值的个数
+     * @param nulls    空值位图，第firstRow + i位表示第i个值为空，可以为null
+     * @param firstRow 第一个值在空值位图中的下标
+     * @throws IOException  如果写入过程中发生I/O错误
+     * @throws SQLException 如果列不支持批量写入定长值
+     */
+    default void writeFixedWidth(ByteBuffer values, int rows, BitSet nulls, int firstRow) throws IOException, SQLException {
+        throw new SQLException("Column[" + name() + "] does not support writing fixed-width values in bulk. ");
+    }
+
+    /**
+     * 批量写入字符串，第i行的值是arena中[offsets[i], offsets[i + 1])范围内的字节
+     *
+     * @param arena    字符串字节
+     * @param offsets  各字符串在arena中的起始偏移量，长度至少为firstRow + rows + 1
+     * @param firstRow 起始行在offsets和空值位图中的下标
+     * @param rows     写入的行数
+     * @param nulls    空值位图，可以为null
+     * @throws IOException  如果写入过程中发生I/O错误
+     * @throws SQLException 如果列不支持批量写入字符串
+     */
+    default void writeStrings(byte[] arena, int[] offsets, int firstRow, int rows, BitSet nulls) throws IOException, SQLException {
+        throw new SQLException("Column[" + name() + "] does not support writing strings in bulk. ");
+    }
+
     /**
      * 将字节数组写入列
      *
@@ -122,6 +175,59 @@ public interface IColumn {
      */
     void flushToSerializer(BinarySerializer serializer, boolean now) throws IOException, SQLException;
 
+    /**
+     * 是否支持按行范围写出列数据，支持时数据块可以在行边界拆分为多个数据包发送
+     *
+     * @return 支持返回true
+     */
+    default boolean supportsRowRange() {
+        return false;
+    }
+
+    /**
+     * 获取[fromRow, toRow)范围内的行写出后的字节数
+     * 行号必须是AbstractColumn.ROW_MARK_INTERVAL的整数倍或者等于行数
+     *
+     * @param fromRow 起始行（包含）
+     * @param toRow   结束行（不包含）
+     * @return 字节数
+     */
+    default long rowRangeBytes(int fromRow, int toRow) {
+        throw new UnsupportedOperationException("Column[" + name() + "] does not support row ranges");
+    }
+
+    /**
+     * 将[fromRow, toRow)范围内的行写入二进制序列化器
+     * 行号必须是AbstractColumn.ROW_MARK_INTERVAL的整数倍或者等于行数
+     *
+     * @param serializer 二进制序列化器
+     * @param fromRow    起始行（包含）
+     * @param toRow      结束行（不包含）
+     * @throws IOException  如果写入过程中发生I/O错误
+     * @throws SQLException 如果列不支持按行范围写出
+     */
+    default void flushToSerializer(BinarySerializer serializer, int fromRow, int toRow) throws IOException, SQLException {
+        throw new SQLException("Column[" + name() + "] does not support row ranges");
+    }
+
+    /**
+     * 记录列当前的写入位置
+     *
+     * @return 写入位置
+     */
+    default ColumnMark mark() {
+        throw new UnsupportedOperationException("Column[" + name() + "] does not support rollback");
+    }
+
+    /**
+     * 回滚到mark记录的写入位置，丢弃之后写入的行，之前写入的行保持不变
+     *
+     * @param mark 同一列上mark返回的写入位置
+     */
+    default void rollback(ColumnMark mark) {
+        throw new UnsupportedOperationException("Column[" + name() + "] does not support rollback");
+    }
+
     /**
      * 清空列
      */
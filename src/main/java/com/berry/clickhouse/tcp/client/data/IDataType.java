@@ -6,6 +6,7 @@
 package com.berry.clickhouse.tcp.client.data;
 
 import com.berry.clickhouse.tcp.client.buffer.BuffedReadWriter;
+import com.berry.clickhouse.tcp.client.buffer.EmptyReadWriter;
 import com.berry.clickhouse.tcp.client.exception.ClickHouseSQLException;
 import com.berry.clickhouse.tcp.client.exception.InvalidOperationException;
 import com.berry.clickhouse.tcp.client.exception.NoDefaultValueException;
@@ -92,6 +93,30 @@ public interface IDataType<CK> {
         serializer.writeByte(byt);
     }
 
+    /**
+     * 将long值直接序列化为二进制格式，不经过装箱
+     *
+     * @param value      要序列化的值
+     * @param serializer 二进制序列化器
+     * @throws SQLException 如果数据类型不支持写入long值
+     * @throws IOException  如果序列化过程中发生I/O错误
+     */
+    default void serializeLong(long value, BinarySerializer serializer) throws SQLException, IOException {
+        throw new SQLException("This data type[" + name() + "] does not support writing primitive long. ");
+    }
+
+    /**
+     * 将double值直接序列化为二进制格式，不经过装箱
+     *
+     * @param value      要序列化的值
+     * @param serializer 二进制序列化器
+     * @throws SQLException 如果数据类型不支持写入double值
+     * @throws IOException  如果序列化过程中发生I/O错误
+     */
+    default void serializeDouble(double value, BinarySerializer serializer) throws SQLException, IOException {
+        throw new SQLException("This data type[" + name() + "] does not support writing primitive double. ");
+    }
+
     /**
      * 将数据序列化为二进制格式
      *
@@ -216,6 +241,45 @@ public interface IDataType<CK> {
         return data;
     }
 
+    /**
+     * 批量从二进制流反序列化数据，行数与reuse的长度相同时直接写入reuse，用于复用读取数据块的值数组
+     * 自定义了批量反序列化格式的类型需要覆盖此方法
+     *
+     * @param rows         行数
+     * @param deserializer 二进制反序列化器
+     * @param reuse        可复用的数组，可以为null
+     * @return 反序列化后的数据数组
+     * @throws SQLException 如果反序列化过程中发生SQL错误
+     * @throws IOException  如果反序列化过程中发生I/O错误
+     */
+    default Object[] deserializeBinaryBulk(int rows, BinaryDeserializer deserializer, Object[] reuse) throws SQLException, IOException {
+        if (null == reuse || reuse.length != rows) {
+            return deserializeBinaryBulk(rows, deserializer);
+        }
+        for (int row = 0; row < rows; row++) {
+            reuse[row] = this.deserializeBinary(deserializer);
+        }
+        return reuse;
+    }
+
+    /**
+     * 跳过指定行数的数据，不解码也不分配值对象，用于读取时排除的列
+     * 定长类型直接跳过rows * byteSize()个字节，变长类型需要覆盖此方法，否则按批量反序列化后丢弃
+     *
+     * @param rows         行数
+     * @param deserializer 二进制反序列化器
+     * @throws SQLException 如果反序列化过程中发生SQL错误
+     * @throws IOException  如果读取过程中发生I/O错误
+     */
+    default void skipBinaryBulk(int rows, BinaryDeserializer deserializer) throws SQLException, IOException {
+        int byteSize = byteSize();
+        if (byteSize > 0) {
+            deserializer.skipBytes((long) rows * byteSize);
+        } else {
+            deserializeBinaryBulk(rows, deserializer);
+        }
+    }
+
     /**
      * 批量从二进制流反序列化数据到缓冲区
      *
@@ -226,6 +290,10 @@ public interface IDataType<CK> {
      * @throws IOException  如果反序列化过程中发生I/O错误
      */
     default void deserializeBinaryBulk(int rows, BuffedReadWriter buffedReadWriter, BinaryDeserializer deserializer) throws SQLException, IOException {
+        if (buffedReadWriter instanceof EmptyReadWriter) {
+            skipBinaryBulk(rows, deserializer); // 写入空缓冲区等同于跳过
+            return;
+        }
         throw new IOException();
     }
 }
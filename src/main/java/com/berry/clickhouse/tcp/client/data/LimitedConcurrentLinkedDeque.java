@@ -1,17 +1,148 @@
 package com.berry.clickhouse.tcp.client.data;
 
+import java.util.Collection;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class LimitedConcurrentLinkedDeque extends ConcurrentLinkedDeque {
+/**
+ * LimitedConcurrentLinkedDeque是有容量上限的无锁双端队列
+ * 通过CAS维护元素计数，超过容量时offer返回false、add抛出IllegalStateException
+ * 仅保证双端的入队、出队及按元素删除操作的计数正确，不支持通过迭代器或批量条件删除元素
+ *
+ * @param <E> 元素类型
+ */
+public class LimitedConcurrentLinkedDeque<E> extends ConcurrentLinkedDeque<E> {
 
-    private final int capacity;
+    private final int capacity; // 队列容量
+    private final AtomicInteger count = new AtomicInteger(); // 当前元素数量
 
+    /**
+     * 构造函数，初始化LimitedConcurrentLinkedDeque
+     *
+     * @param capacity 队列容量
+     */
     public LimitedConcurrentLinkedDeque(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
         this.capacity = capacity;
     }
 
+    /**
+     * 预占一个元素位置
+     *
+     * @return 队列未满且预占成功返回true
+     */
+    private boolean reserve() {
+        for (;;) {
+            int c = count.get();
+            if (c >= capacity) {
+                return false;
+            }
+            if (count.compareAndSet(c, c + 1)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean offerFirst(E e) {
+        if (!reserve()) {
+            return false;
+        }
+        super.offerFirst(e);
+        return true;
+    }
+
+    @Override
+    public boolean offerLast(E e) {
+        if (!reserve()) {
+            return false;
+        }
+        super.offerLast(e);
+        return true;
+    }
+
+    @Override
+    public void addFirst(E e) {
+        if (!offerFirst(e)) {
+            throw new IllegalStateException("Deque full");
+        }
+    }
+
+    @Override
+    public void addLast(E e) {
+        if (!offerLast(e)) {
+            throw new IllegalStateException("Deque full");
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        boolean modified = false;
+        for (E e : c) {
+            addLast(e);
+            modified = true;
+        }
+        return modified;
+    }
+
     @Override
-    public boolean add(Object o) {
-        return super.add(o);
+    public E pollFirst() {
+        E e = super.pollFirst();
+        if (null != e) {
+            count.decrementAndGet();
+        }
+        return e;
+    }
+
+    @Override
+    public E pollLast() {
+        E e = super.pollLast();
+        if (null != e) {
+            count.decrementAndGet();
+        }
+        return e;
+    }
+
+    @Override
+    public boolean removeFirstOccurrence(Object o) {
+        boolean removed = super.removeFirstOccurrence(o);
+        if (removed) {
+            count.decrementAndGet();
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean removeLastOccurrence(Object o) {
+        boolean removed = super.removeLastOccurrence(o);
+        if (removed) {
+            count.decrementAndGet();
+        }
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return count.get();
+    }
+
+    /**
+     * 获取队列容量
+     *
+     * @return 队列容量
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 获取队列剩余容量
+     *
+     * @return 剩余容量
+     */
+    public int remainingCapacity() {
+        return Math.max(0, capacity - count.get());
     }
 }
@@ -0,0 +1,130 @@
+package com.berry.clickhouse.tcp.client.data;
+
+import com.berry.clickhouse.tcp.client.buffer.CompressionMethod;
+import com.berry.clickhouse.tcp.client.buffer.FileChannelBuffedWriter;
+import com.berry.clickhouse.tcp.client.protocol.FramedDataResponse;
+import com.berry.clickhouse.tcp.client.serde.BinarySerializer;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+
+/**
+ * NativeFileWriter类将数据块按Native格式写入文件，与BlockResultSet相对应
+ * 每个数据块依次写入列数、行数和各列的数据；启用压缩时每个数据块单独压缩成一个或多个压缩帧，
+ * 读取时BlockResultSet的enableCompress需要为true（LZ4、ZSTD和NONE都可以读取）
+ * 查询结果以FramedDataResponse写入时直接复制数据包的字节，不解码列数据
+ */
+public class NativeFileWriter implements AutoCloseable {
+
+    private static final int WRITE_BUFFER_BYTES = 1024 * 1024; // 写入缓冲区大小
+
+    private final FileChannel channel; // 目标文件通道
+    private final FileChannelBuffedWriter writer; // 文件写入器
+    private final BinarySerializer serializer; // 二进制序列化器
+    private long rows; // 已写入的行数
+    private int blocks; // 已写入的数据块数量
+
+    /**
+     * 创建不压缩的Native格式文件，文件已存在时覆盖
+     *
+     * @param path 文件路径
+     * @throws IOException 如果创建文件失败
+     */
+    public NativeFileWriter(Path path) throws IOException {
+        this(path, null);
+    }
+
+    /**
+     * 创建Native格式文件，文件已存在时覆盖
+     *
+     * @param path   文件路径
+     * @param method 压缩方法，为null时不压缩
+     * @throws IOException 如果创建文件失败
+     */
+    public NativeFileWriter(Path path, CompressionMethod method) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.writer = new FileChannelBuffedWriter(channel, WRITE_BUFFER_BYTES);
+        this.serializer = new BinarySerializer(writer, method);
+    }
+
+    /**
+     * 写入写入模式的数据块（如createBlock()创建并追加了行的数据块），没有行的数据块不写入
+     *
+     * @param block 数据块
+     * @throws IOException  如果写入文件失败
+     * @throws SQLException 如果写入列数据失败
+     */
+    public void write(Block block) throws IOException, SQLException {
+        int rowCnt = block.rowCnt();
+        if (rowCnt <= 0) {
+            return;
+        }
+        serializer.maybeEnableCompressed();
+        block.writeNativeTo(serializer);
+        serializer.maybeDisableCompressed();
+        rows += rowCnt;
+        blocks++;
+    }
+
+    /**
+     * 写入查询结果的数据块，直接复制记录的字节，没有行的数据块（如结果头部）不写入
+     *
+     * @param frame 已分帧的数据响应
+     * @throws IOException 如果写入文件失败
+     */
+    public void write(FramedDataResponse frame) throws IOException {
+        if (frame.rowCnt() <= 0) {
+            return;
+        }
+        serializer.maybeEnableCompressed();
+        frame.writeNativeTo(serializer);
+        serializer.maybeDisableCompressed();
+        rows += frame.rowCnt();
+        blocks++;
+    }
+
+    /**
+     * 获取已写入的行数
+     *
+     * @return 行数
+     */
+    public long rows() {
+        return rows;
+    }
+
+    /**
+     * 获取已写入的数据块数量
+     *
+     * @return 数据块数量
+     */
+    public int blocks() {
+        return blocks;
+    }
+
+    /**
+     * 获取已写入的字节数（压缩后）
+     *
+     * @return 字节数
+     */
+    public long writtenBytes() {
+        return writer.writtenBytes();
+    }
+
+    /**
+     * 将缓冲区中的数据写入文件并关闭文件
+     *
+     * @throws IOException 如果写入或关闭文件失败
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            serializer.flushToTarget(true);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,623 @@
+package com.berry.clickhouse.tcp.client.data;
+
+import com.berry.clickhouse.tcp.client.jdbc.ClickHouseArray;
+import com.berry.clickhouse.tcp.client.misc.Validate;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ResultMapper类将反序列化模式读取的查询结果映射为Java对象（POJO或record）
+ * 每个结果列在编译时绑定到对象的同名字段（或下划线命名转换后的驼峰字段），与RowWriter的规则相同；
+ * 字段通过MethodHandle写入，基本类型字段直接从列值取出基本类型值后写入，映射每一行时没有反射调用
+ * 有无参构造方法且字段都可写入时先创建对象再写入字段，否则使用参数与实例字段一一对应的构造方法（例如record）
+ * Nullable列的null值写入基本类型字段时为0或false；Array列可以映射到数组（包括基本类型数组）或List字段
+ * 编译后的ResultMapper不可变且线程安全，按(类, 结果列结构)缓存
+ *
+ * @param <T> 结果对象的类型
+ */
+public final class ResultMapper<T> {
+
+    private static final MethodType LONG_SETTER = MethodType.methodType(void.class, Object.class, long.class);
+    private static final MethodType DOUBLE_SETTER = MethodType.methodType(void.class, Object.class, double.class);
+    private static final MethodType BOOLEAN_SETTER = MethodType.methodType(void.class, Object.class, boolean.class);
+    private static final MethodType OBJECT_SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<ConcurrentMap<String, ResultMapper<?>>> CACHE =
+            new ClassValue<ConcurrentMap<String, ResultMapper<?>>>() {
+                @Override
+                protected ConcurrentMap<String, ResultMapper<?>> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            }; // 按类缓存，类卸载时随之释放
+
+    private final Class<T> type; // 结果对象的类型
+    private final String[] columnNames; // 编译时的结果列名
+    private final MethodHandle factory; // ()Object，或者(Object[])Object（构造方法参数）
+    private final Binding[] setters; // 按列顺序排列的字段绑定，没有对应字段的列为null，使用构造方法时为null
+    private final Argument[] arguments; // 按列顺序排列的构造方法参数绑定，不使用构造方法时为null
+    private final Object[] defaultArgs; // 没有对应列的构造方法参数
+
+    private ResultMapper(Class<T> type, String[] columnNames, MethodHandle factory, Binding[] setters,
+                         Argument[] arguments, Object[] defaultArgs) {
+        this.type = type;
+        this.columnNames = columnNames;
+        this.factory = factory;
+        this.setters = setters;
+        this.arguments = arguments;
+        this.defaultArgs = defaultArgs;
+    }
+
+    /**
+     * 获取指定类和结果列结构对应的ResultMapper，首次使用时编译并缓存
+     *
+     * @param type   结果对象的类型
+     * @param header 查询结果头部或任意结果数据块
+     * @param <T>    结果对象的类型
+     * @return ResultMapper
+     * @throws SQLException 如果没有可用的构造方法，或者字段不可访问
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ResultMapper<T> of(Class<T> type, Block header) throws SQLException {
+        String signature = signature(header);
+        ConcurrentMap<String, ResultMapper<?>> mappers = CACHE.get(type);
+        ResultMapper<?> mapper = mappers.get(signature);
+        if (null == mapper) {
+            mapper = compile(type, header);
+            ResultMapper<?> previous = mappers.putIfAbsent(signature, mapper);
+            if (null != previous) {
+                mapper = previous;
+            }
+        }
+        return (ResultMapper<T>) mapper;
+    }
+
+    /**
+     * 按结果列结构为指定类编译ResultMapper，不使用缓存
+     *
+     * @param type   结果对象的类型
+     * @param header 查询结果头部或任意结果数据块
+     * @param <T>    结果对象的类型
+     * @return 编译后的ResultMapper
+     * @throws SQLException 如果没有可用的构造方法，或者字段不可访问
+     */
+    public static <T> ResultMapper<T> compile(Class<T> type, Block header) throws SQLException {
+        int columnCnt = header.columnCnt();
+        String[] columnNames = new String[columnCnt];
+        Field[] fields = new Field[columnCnt];
+        boolean settable = true;
+        for (int i = 0; i < columnCnt; i++) {
+            columnNames[i] = header.getColumn(i).name();
+            fields[i] = RowWriter.findField(type, columnNames[i]);
+            if (null != fields[i] && Modifier.isFinal(fields[i].getModifiers())) {
+                settable = false;
+            }
+        }
+
+        MethodHandles.Lookup lookup = lookup(type);
+        Constructor<?> noArg = settable ? findConstructor(type) : null;
+        if (null != noArg) {
+            Binding[] setters = new Binding[columnCnt];
+            for (int i = 0; i < columnCnt; i++) {
+                if (null != fields[i]) {
+                    setters[i] = setterBinding(fields[i], unreflectSetter(lookup, type, fields[i]));
+                }
+            }
+            MethodHandle factory = unreflectConstructor(lookup, type, noArg)
+                    .asType(MethodType.methodType(Object.class));
+            return new ResultMapper<>(type, columnNames, factory, setters, null, null);
+        }
+
+        // 使用参数与实例字段一一对应的构造方法，record的规范构造方法满足该条件
+        Field[] instanceFields = instanceFields(type);
+        Class<?>[] parameterTypes = new Class<?>[instanceFields.length];
+        for (int p = 0; p < instanceFields.length; p++) {
+            parameterTypes[p] = instanceFields[p].getType();
+        }
+        Constructor<?> canonical = findConstructor(type, parameterTypes);
+        if (null == canonical) {
+            throw new SQLException(type.getName() + " has neither a no-arg constructor with settable fields"
+                    + " nor a constructor taking all instance fields in declaration order");
+        }
+        Object[] defaultArgs = new Object[instanceFields.length];
+        for (int p = 0; p < instanceFields.length; p++) {
+            defaultArgs[p] = zeroValue(parameterTypes[p]);
+        }
+        Argument[] arguments = new Argument[columnCnt];
+        for (int i = 0; i < columnCnt; i++) {
+            int p = (null == fields[i]) ? -1 : indexOf(instanceFields, fields[i]);
+            if (p >= 0) {
+                arguments[i] = new Argument(p, converter(fields[i].getType()));
+            }
+        }
+        MethodHandle factory = unreflectConstructor(lookup, type, canonical)
+                .asType(MethodType.genericMethodType(instanceFields.length))
+                .asSpreader(Object[].class, instanceFields.length);
+        return new ResultMapper<>(type, columnNames, factory, null, arguments, defaultArgs);
+    }
+
+    /**
+     * 映射数据块中的一行
+     *
+     * @param block 反序列化模式读取的数据块，列结构必须与编译时一致
+     * @param row   行号，从0开始
+     * @return 结果对象
+     * @throws SQLException 如果列结构不一致，或者列值无法转换为字段类型
+     */
+    public T map(Block block, int row) throws SQLException {
+        return mapRow(values(block), row);
+    }
+
+    /**
+     * 映射数据块中的所有行
+     *
+     * @param block 反序列化模式读取的数据块，列结构必须与编译时一致
+     * @return 结果对象，按行顺序排列
+     * @throws SQLException 如果列结构不一致，或者列值无法转换为字段类型
+     */
+    public List<T> mapAll(Block block) throws SQLException {
+        Object[][] values = values(block);
+        List<T> rows = new ArrayList<>(block.rowCnt());
+        for (int row = 0; row < block.rowCnt(); row++) {
+            rows.add(mapRow(values, row));
+        }
+        return rows;
+    }
+
+    public Class<T> type() {
+        return type;
+    }
+
+    private T mapRow(Object[][] values, int row) throws SQLException {
+        int i = -1;
+        try {
+            Object target;
+            if (null != arguments) {
+                Object[] args = defaultArgs.clone();
+                for (i = 0; i < arguments.length; i++) {
+                    if (null != arguments[i]) {
+                        args[arguments[i].parameter] = arguments[i].converter.convert(values[i][row]);
+                    }
+                }
+                i = -1;
+                target = (Object) factory.invokeExact(args);
+            } else {
+                target = (Object) factory.invokeExact();
+                for (i = 0; i < setters.length; i++) {
+                    if (null != setters[i]) {
+                        setters[i].set(target, values[i][row]);
+                    }
+                }
+            }
+            return type.cast(target);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            String where = (i < 0) ? "constructor" : "column " + columnNames[i];
+            throw new SQLException("Exception mapping " + type.getName() + " at " + where, t);
+        }
+    }
+
+    private Object[][] values(Block block) throws SQLException {
+        Validate.isTrue(block.columnCnt() == columnNames.length, "Block has " + block.columnCnt()
+                + " columns, mapper of " + type.getName() + " expects " + columnNames.length);
+        Validate.isTrue(block.rowCnt() == 0 || block.isSerializeCols(),
+                "ResultMapper requires a block read with deserialized values");
+        Object[][] values = new Object[columnNames.length][];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = block.getColumn(i).values();
+        }
+        return values;
+    }
+
+    private static String signature(Block header) throws SQLException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < header.columnCnt(); i++) {
+            IColumn column = header.getColumn(i);
+            sb.append(column.name()).append(' ').append(column.type().name()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static Binding setterBinding(Field field, MethodHandle setter) {
+        Class<?> fieldType = field.getType();
+        if (fieldType == long.class || fieldType == int.class || fieldType == short.class
+                || fieldType == byte.class || fieldType == char.class) {
+            return new LongBinding(MethodHandles.explicitCastArguments(setter, LONG_SETTER));
+        }
+        if (fieldType == double.class || fieldType == float.class) {
+            return new DoubleBinding(MethodHandles.explicitCastArguments(setter, DOUBLE_SETTER));
+        }
+        if (fieldType == boolean.class) {
+            return new BooleanBinding(setter.asType(BOOLEAN_SETTER));
+        }
+        return new ObjectBinding(setter.asType(OBJECT_SETTER), converter(fieldType));
+    }
+
+    /**
+     * 按字段类型选择列值的转换方式，转换结果的类型与字段类型完全一致（基本类型为对应的包装类型）
+     */
+    private static Converter converter(Class<?> fieldType) {
+        if (fieldType == long.class || fieldType == Long.class) {
+            return nullSafe(fieldType, value -> toLong(value));
+        }
+        if (fieldType == int.class || fieldType == Integer.class) {
+            return nullSafe(fieldType, value -> (int) toLong(value));
+        }
+        if (fieldType == short.class || fieldType == Short.class) {
+            return nullSafe(fieldType, value -> (short) toLong(value));
+        }
+        if (fieldType == byte.class || fieldType == Byte.class) {
+            return nullSafe(fieldType, value -> (byte) toLong(value));
+        }
+        if (fieldType == char.class || fieldType == Character.class) {
+            return nullSafe(fieldType, value -> (char) toLong(value));
+        }
+        if (fieldType == double.class || fieldType == Double.class) {
+            return nullSafe(fieldType, value -> toDouble(value));
+        }
+        if (fieldType == float.class || fieldType == Float.class) {
+            return nullSafe(fieldType, value -> (float) toDouble(value));
+        }
+        if (fieldType == boolean.class || fieldType == Boolean.class) {
+            return nullSafe(fieldType, value -> toBoolean(value));
+        }
+        if (fieldType == String.class) {
+            return value -> (null == value) ? null : value.toString();
+        }
+        if (fieldType == BigDecimal.class) {
+            return nullSafe(fieldType, ResultMapper::toBigDecimal);
+        }
+        if (fieldType == BigInteger.class) {
+            return nullSafe(fieldType, value -> (value instanceof BigInteger)
+                    ? value : BigInteger.valueOf(toLong(value)));
+        }
+        if (fieldType.isArray()) {
+            return nullSafe(fieldType, arrayConverter(fieldType.getComponentType()));
+        }
+        if (fieldType == List.class || fieldType == Collection.class || fieldType == ArrayList.class) {
+            return nullSafe(fieldType, ResultMapper::toList);
+        }
+        return fieldType::cast;
+    }
+
+    private static Converter nullSafe(Class<?> fieldType, Converter converter) {
+        Object zero = zeroValue(fieldType);
+        return value -> (null == value) ? zero : converter.convert(value);
+    }
+
+    private static Converter arrayConverter(Class<?> component) {
+        if (component == byte.class) {
+            Converter elements = primitiveArrayConverter(component);
+            return value -> (value instanceof CharSequence)
+                    ? value.toString().getBytes(StandardCharsets.UTF_8) : elements.convert(value);
+        }
+        if (component.isPrimitive()) {
+            return primitiveArrayConverter(component);
+        }
+        Converter elementConverter = converter(component);
+        return value -> {
+            Object[] elements = elements(value);
+            Object[] array = (Object[]) Array.newInstance(component, elements.length);
+            for (int i = 0; i < elements.length; i++) {
+                array[i] = elementConverter.convert(elements[i]);
+            }
+            return array;
+        };
+    }
+
+    private static Converter primitiveArrayConverter(Class<?> component) {
+        if (component == long.class) {
+            return value -> {
+                Object[] elements = elements(value);
+                long[] array = new long[elements.length];
+                for (int i = 0; i < elements.length; i++) {
+                    array[i] = (null == elements[i]) ? 0 : toLong(elements[i]);
+                }
+                return array;
+            };
+        }
+        if (component == int.class) {
+            return value -> {
+                Object[] elements = elements(value);
+                int[] array = new int[elements.length];
+                for (int i = 0; i < elements.length; i++) {
+                    array[i] = (null == elements[i]) ? 0 : (int) toLong(elements[i]);
+                }
+                return array;
+            };
+        }
+        if (component == double.class) {
+            return value -> {
+                Object[] elements = elements(value);
+                double[] array = new double[elements.length];
+                for (int i = 0; i < elements.length; i++) {
+                    array[i] = (null == elements[i]) ? 0 : toDouble(elements[i]);
+                }
+                return array;
+            };
+        }
+        if (component == float.class) {
+            return value -> {
+                Object[] elements = elements(value);
+                float[] array = new float[elements.length];
+                for (int i = 0; i < elements.length; i++) {
+                    array[i] = (null == elements[i]) ? 0 : (float) toDouble(elements[i]);
+                }
+                return array;
+            };
+        }
+        if (component == boolean.class) {
+            return value -> {
+                Object[] elements = elements(value);
+                boolean[] array = new boolean[elements.length];
+                for (int i = 0; i < elements.length; i++) {
+                    array[i] = null != elements[i] && toBoolean(elements[i]);
+                }
+                return array;
+            };
+        }
+        Converter elementConverter = converter(component); // short、byte和char数组
+        return value -> {
+            Object[] elements = elements(value);
+            Object array = Array.newInstance(component, elements.length);
+            for (int i = 0; i < elements.length; i++) {
+                Array.set(array, i, elementConverter.convert(elements[i]));
+            }
+            return array;
+        };
+    }
+
+    private static Object[] elements(Object value) throws SQLException {
+        if (value instanceof ClickHouseArray) {
+            return ((ClickHouseArray) value).getArray();
+        }
+        if (value instanceof Object[]) {
+            return (Object[]) value;
+        }
+        throw new ClassCastException("Cannot convert " + value.getClass().getName() + " to an array");
+    }
+
+    private static Object toList(Object value) throws SQLException {
+        Object[] elements = elements(value);
+        List<Object> list = new ArrayList<>(elements.length);
+        for (Object element : elements) {
+            list.add((element instanceof ClickHouseArray) ? toList(element) : element);
+        }
+        return list;
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Boolean) {
+            return ((Boolean) value) ? 1 : 0;
+        }
+        if (null == value) {
+            return 0;
+        }
+        throw new ClassCastException("Cannot convert " + value.getClass().getName() + " to long");
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return toLong(value);
+    }
+
+    private static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return toLong(value) != 0;
+    }
+
+    private static Object toBigDecimal(Object value) {
+        if (value instanceof BigDecimal) {
+            return value;
+        }
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return BigDecimal.valueOf(((Number) value).doubleValue());
+        }
+        return BigDecimal.valueOf(toLong(value));
+    }
+
+    private static Object zeroValue(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        }
+        if (type == char.class) {
+            return (char) 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0D;
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        return (type == byte.class) ? (Object) (byte) 0 : (Object) 0;
+    }
+
+    private static Field[] instanceFields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                fields.add(field);
+            }
+        }
+        return fields.toArray(new Field[0]);
+    }
+
+    private static int indexOf(Field[] fields, Field field) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].equals(field)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Constructor<?> findConstructor(Class<?> type, Class<?>... parameterTypes) {
+        try {
+            return type.getDeclaredConstructor(parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandles.Lookup lookup(Class<?> type) throws SQLException {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new SQLException(type.getName() + " is not accessible", e);
+        }
+    }
+
+    private static MethodHandle unreflectSetter(MethodHandles.Lookup lookup, Class<?> type, Field field) throws SQLException {
+        try {
+            MethodHandles.Lookup owner = (field.getDeclaringClass() == type)
+                    ? lookup : MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+            return owner.unreflectSetter(field);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new SQLException("Field " + field.getName() + " of " + type.getName() + " is not accessible", e);
+        }
+    }
+
+    private static MethodHandle unreflectConstructor(MethodHandles.Lookup lookup, Class<?> type,
+                                                     Constructor<?> constructor) throws SQLException {
+        try {
+            return lookup.unreflectConstructor(constructor);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new SQLException("Constructor of " + type.getName() + " is not accessible", e);
+        }
+    }
+
+    /**
+     * 列值到字段值的转换
+     */
+    @FunctionalInterface
+    private interface Converter {
+
+        Object convert(Object value) throws SQLException;
+    }
+
+    /**
+     * 单个列的字段绑定
+     */
+    private abstract static class Binding {
+
+        abstract void set(Object target, Object value) throws Throwable;
+    }
+
+    /**
+     * 整数和字符字段，列值取出long后写入，不经过装箱
+     */
+    private static final class LongBinding extends Binding {
+
+        private final MethodHandle setter; // (Object,long)void
+
+        LongBinding(MethodHandle setter) {
+            this.setter = setter;
+        }
+
+        @Override
+        void set(Object target, Object value) throws Throwable {
+            setter.invokeExact(target, toLong(value));
+        }
+    }
+
+    /**
+     * 浮点字段，列值取出double后写入，不经过装箱
+     */
+    private static final class DoubleBinding extends Binding {
+
+        private final MethodHandle setter; // (Object,double)void
+
+        DoubleBinding(MethodHandle setter) {
+            this.setter = setter;
+        }
+
+        @Override
+        void set(Object target, Object value) throws Throwable {
+            setter.invokeExact(target, (null == value) ? 0D : toDouble(value));
+        }
+    }
+
+    /**
+     * 布尔字段
+     */
+    private static final class BooleanBinding extends Binding {
+
+        private final MethodHandle setter; // (Object,boolean)void
+
+        BooleanBinding(MethodHandle setter) {
+            this.setter = setter;
+        }
+
+        @Override
+        void set(Object target, Object value) throws Throwable {
+            setter.invokeExact(target, null != value && toBoolean(value));
+        }
+    }
+
+    /**
+     * 其余字段，列值转换为字段类型后写入
+     */
+    private static final class ObjectBinding extends Binding {
+
+        private final MethodHandle setter; // (Object,Object)void
+        private final Converter converter; // 列值到字段值的转换
+
+        ObjectBinding(MethodHandle setter, Converter converter) {
+            this.setter = setter;
+            this.converter = converter;
+        }
+
+        @Override
+        void set(Object target, Object value) throws Throwable {
+            setter.invokeExact(target, converter.convert(value));
+        }
+    }
+
+    /**
+     * 通过构造方法参数写入的字段
+     */
+    private static final class Argument {
+
+        private final int parameter; // 构造方法参数的位置
+        private final Converter converter; // 列值到参数值的转换
+
+        Argument(int parameter, Converter converter) {
+            this.parameter = parameter;
+            this.converter = converter;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.berry.clickhouse.tcp.client.data;
+
+import com.berry.clickhouse.tcp.client.misc.Validate;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+
+/**
+ * RowCursor类按行遍历反序列化模式读取的数据块，直接读取各列已解码的值数组
+ * 列索引通过columnIndex()解析一次后在每行复用；移动到下一行和读取基本类型值都不分配对象，
+ * 同一个游标可以通过reset()依次绑定同一查询返回的多个数据块
+ * 值为null时，基本类型的读取方法返回0或false，字符串和对象的读取方法返回null，可以通过isNull()区分
+ */
+public final class RowCursor {
+
+    private final Block header; // 解析列索引使用的数据块
+    private Object[][] values = new Object[0][]; // 各列的值数组
+    private int rowCnt; // 当前数据块的行数
+    private int row = -1; // 当前行
+
+    /**
+     * 创建游标并绑定到数据块
+     *
+     * @param block 反序列化模式读取的数据块，也可以是查询结果头部
+     * @throws SQLException 如果数据块不是反序列化模式读取的
+     */
+    public RowCursor(Block block) throws SQLException {
+        this.header = block;
+        reset(block);
+    }
+
+    /**
+     * 绑定到下一个数据块，列结构必须与创建游标时的数据块一致，绑定后位于第一行之前
+     *
+     * @param block 反序列化模式读取的数据块
+     * @throws SQLException 如果列数量不一致，或者数据块不是反序列化模式读取的
+     */
+    public void reset(Block block) throws SQLException {
+        int columnCnt = block.columnCnt();
+        Validate.isTrue(columnCnt == header.columnCnt(),
+                "Block has " + columnCnt + " columns, cursor expects " + header.columnCnt());
+        Validate.isTrue(columnCnt == 0 || block.rowCnt() == 0 || block.isSerializeCols(),
+                "RowCursor requires a block read with deserialized values");
+        if (values.length != columnCnt) {
+            values = new Object[columnCnt][];
+        }
+        for (int i = 0; i < columnCnt; i++) {
+            values[i] = block.getColumn(i).values();
+        }
+        this.rowCnt = block.rowCnt();
+        this.row = -1;
+    }
+
+    /**
+     * 解析列名对应的列索引，遍历之前调用一次
+     *
+     * @param name 列名
+     * @return 列索引，从0开始
+     * @throws SQLException 如果列不存在
+     */
+    public int columnIndex(String name) throws SQLException {
+        return header.getPositionByName(name) - 1;
+    }
+
+    /**
+     * 移动到下一行
+     *
+     * @return 还有行返回true
+     */
+    public boolean next() {
+        if (row + 1 >= rowCnt) {
+            row = rowCnt;
+            return false;
+        }
+        row++;
+        return true;
+    }
+
+    /**
+     * 获取当前行在数据块中的位置
+     *
+     * @return 行号，从0开始
+     */
+    public int row() {
+        return row;
+    }
+
+    public int rowCount() {
+        return rowCnt;
+    }
+
+    public boolean isNull(int column) {
+        return null == values[column][row];
+    }
+
+    public Object getObject(int column) {
+        return values[column][row];
+    }
+
+    public long getLong(int column) throws SQLException {
+        Object value = values[column][row];
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Boolean) {
+            return ((Boolean) value) ? 1 : 0;
+        }
+        if (null == value) {
+            return 0;
+        }
+        throw cannotConvert(column, value, "long");
+    }
+
+    public int getInt(int column) throws SQLException {
+        Object value = values[column][row];
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        return (int) getLong(column);
+    }
+
+    public double getDouble(int column) throws SQLException {
+        Object value = values[column][row];
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (null == value) {
+            return 0;
+        }
+        throw cannotConvert(column, value, "double");
+    }
+
+    public float getFloat(int column) throws SQLException {
+        return (float) getDouble(column);
+    }
+
+    public boolean getBoolean(int column) throws SQLException {
+        Object value = values[column][row];
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return getLong(column) != 0;
+    }
+
+    /**
+     * 读取字符串值，非字符串类型的值转换为其字符串形式
+     */
+    public String getString(int column) {
+        Object value = values[column][row];
+        return (null == value) ? null : value.toString();
+    }
+
+    /**
+     * 读取字节值，字符串按UTF-8编码
+     */
+    public byte[] getBytes(int column) throws SQLException {
+        Object value = values[column][row];
+        if (null == value || value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        if (value instanceof CharSequence) {
+            return value.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        throw cannotConvert(column, value, "byte[]");
+    }
+
+    public BigDecimal getBigDecimal(int column) throws SQLException {
+        Object value = values[column][row];
+        if (null == value || value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return BigDecimal.valueOf(((Number) value).doubleValue());
+        }
+        if (value instanceof Number) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        throw cannotConvert(column, value, "BigDecimal");
+    }
+
+    public LocalDate getDate(int column) throws SQLException {
+        Object value = values[column][row];
+        if (null == value || value instanceof LocalDate) {
+            return (LocalDate) value;
+        }
+        if (value instanceof ZonedDateTime) {
+            return ((ZonedDateTime) value).toLocalDate();
+        }
+        throw cannotConvert(column, value, "LocalDate");
+    }
+
+    public ZonedDateTime getDateTime(int column) throws SQLException {
+        Object value = values[column][row];
+        if (null == value || value instanceof ZonedDateTime) {
+            return (ZonedDateTime) value;
+        }
+        throw cannotConvert(column, value, "ZonedDateTime");
+    }
+
+    private SQLException cannotConvert(int column, Object value, String target) {
+        String name;
+        try {
+            name = header.getColumn(column).name();
+        } catch (SQLException e) {
+            name = String.valueOf(column);
+        }
+        return new SQLException("Cannot convert " + value.getClass().getName() + " value of column " + name
+                + " to " + target);
+    }
+}
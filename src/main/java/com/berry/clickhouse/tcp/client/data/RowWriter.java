@@ -0,0 +1,342 @@
+package com.berry.clickhouse.tcp.client.data;
+
+import com.berry.clickhouse.tcp.client.data.type.BaseDataTypeInt;
+import com.berry.clickhouse.tcp.client.data.type.DataTypeFloat32;
+import com.berry.clickhouse.tcp.client.data.type.DataTypeFloat64;
+import com.berry.clickhouse.tcp.client.exception.NoDefaultValueException;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.SQLException;
+
+/**
+ * RowWriter类将Java对象（POJO或record）的一行数据写入数据块的各列
+ * 每个列在编译时绑定到对象的同名字段（或下划线命名转换后的驼峰字段），通过MethodHandle读取字段，
+ * 基本类型字段写入整数或浮点列时直接调用列的writeLong/writeDouble，不经过装箱；
+ * 没有对应字段的列写入数据类型的默认值
+ * 编译后的RowWriter不可变且线程安全，按(类, 表元数据)缓存在ClickHouseTableMetaData中
+ *
+ * @param <T> 行对象的类型
+ */
+public final class RowWriter<T> {
+
+    private static final MethodType LONG_GETTER = MethodType.methodType(long.class, Object.class);
+    private static final MethodType DOUBLE_GETTER = MethodType.methodType(double.class, Object.class);
+    private static final MethodType OBJECT_GETTER = MethodType.methodType(Object.class, Object.class);
+
+    private final Class<T> type; // 行对象的类型
+    private final Binding[] bindings; // 按列顺序排列的字段绑定
+
+    private RowWriter(Class<T> type, Binding[] bindings) {
+        this.type = type;
+        this.bindings = bindings;
+    }
+
+    /**
+     * 按数据块的列结构为指定类编译RowWriter
+     *
+     * @param type    行对象的类型
+     * @param columns 数据块的列
+     * @param <T>     行对象的类型
+     * @return 编译后的RowWriter
+     * @throws SQLException 如果字段不可访问，或者列没有对应的字段且没有默认值
+     */
+    public static <T> RowWriter<T> compile(Class<T> type, IColumn[] columns) throws SQLException {
+        Binding[] bindings = new Binding[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            IColumn column = columns[i];
+            Field field = findField(type, column.name());
+            if (null == field) {
+                try {
+                    bindings[i] = new DefaultBinding(column.type().defaultValue());
+                } catch (NoDefaultValueException e) {
+                    throw new SQLException("Column[" + column.name() + "] has no matching field in "
+                            + type.getName() + " and no default value", e);
+                }
+                continue;
+            }
+            MethodHandle getter = unreflectGetter(type, field);
+            Class<?> fieldType = field.getType();
+            boolean primitiveColumn = column.getClass() == Column.class;
+            if (primitiveColumn && isLongCompatible(fieldType) && acceptsLong(column.type())) {
+                bindings[i] = new LongBinding(MethodHandles.explicitCastArguments(getter, LONG_GETTER),
+                        getter.asType(OBJECT_GETTER));
+            } else if (primitiveColumn && isDoubleCompatible(fieldType) && acceptsDouble(column.type())) {
+                bindings[i] = new DoubleBinding(getter.asType(DOUBLE_GETTER), getter.asType(OBJECT_GETTER));
+            } else {
+                bindings[i] = new ObjectBinding(getter.asType(OBJECT_GETTER));
+            }
+        }
+        return new RowWriter<>(type, bindings);
+    }
+
+    /**
+     * 将一行数据写入各列
+     *
+     * @param row     行对象
+     * @param columns 数据块的列，结构必须与编译时一致
+     * @throws SQLException 如果写入失败
+     */
+    public void write(T row, IColumn[] columns) throws SQLException {
+        int i = 0;
+        try {
+            for (; i < bindings.length; i++) {
+                bindings[i].write(row, columns[i]);
+            }
+        } catch (IOException | ClassCastException e) {
+            throw new SQLException("Exception processing " + type.getName() + " for column: " + columns[i].name(), e);
+        }
+    }
+
+    /**
+     * 将一行数据中指定列的值写入该列，用于按列编码
+     *
+     * @param columnIdx 列索引
+     * @param row       行对象
+     * @param column    列
+     * @throws IOException  如果写入过程中发生I/O错误
+     * @throws SQLException 如果写入失败
+     */
+    public void writeColumn(int columnIdx, T row, IColumn column) throws IOException, SQLException {
+        bindings[columnIdx].write(row, column);
+    }
+
+    /**
+     * 读取一行数据中指定列对应的字段值，没有对应字段的列返回数据类型的默认值
+     *
+     * @param columnIdx 列索引
+     * @param row       行对象
+     * @return 字段值，基本类型字段返回装箱后的值
+     * @throws SQLException 如果读取字段失败
+     */
+    public Object readColumn(int columnIdx, T row) throws SQLException {
+        try {
+            return bindings[columnIdx].read(row);
+        } catch (IOException e) {
+            throw new SQLException("Exception reading " + type.getName() + " for column index " + columnIdx, e);
+        }
+    }
+
+    public Class<T> type() {
+        return type;
+    }
+
+    private static boolean isLongCompatible(Class<?> fieldType) {
+        return fieldType == long.class || fieldType == int.class || fieldType == short.class
+                || fieldType == byte.class || fieldType == char.class || fieldType == boolean.class;
+    }
+
+    private static boolean isDoubleCompatible(Class<?> fieldType) {
+        return fieldType == double.class || fieldType == float.class;
+    }
+
+    private static boolean acceptsLong(IDataType<?> dataType) {
+        return dataType instanceof BaseDataTypeInt || acceptsDouble(dataType);
+    }
+
+    private static boolean acceptsDouble(IDataType<?> dataType) {
+        return dataType instanceof DataTypeFloat32 || dataType instanceof DataTypeFloat64;
+    }
+
+    /**
+     * 在类及其父类中查找与列名对应的实例字段，先按列名精确匹配，再按下划线转驼峰匹配
+     *
+     * @param type       行对象的类型
+     * @param columnName 列名
+     * @return 字段，找不到返回null
+     */
+    static Field findField(Class<?> type, String columnName) {
+        Field field = findDeclaredField(type, columnName);
+        if (null == field && columnName.indexOf('_') >= 0) {
+            field = findDeclaredField(type, snakeToCamel(columnName));
+        }
+        return field;
+    }
+
+    private static Field findDeclaredField(Class<?> type, String name) {
+        for (Class<?> c = type; null != c && c != Object.class; c = c.getSuperclass()) {
+            try {
+                Field field = c.getDeclaredField(name);
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    return field;
+                }
+            } catch (NoSuchFieldException ignore) {
+                // 继续在父类中查找
+            }
+        }
+        return null;
+    }
+
+    private static String snakeToCamel(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        boolean upper = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '_') {
+                upper = sb.length() > 0;
+            } else {
+                sb.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static MethodHandle unreflectGetter(Class<?> type, Field field) throws SQLException {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+            return lookup.unreflectGetter(field);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new SQLException("Field " + field.getName() + " of " + type.getName() + " is not accessible", e);
+        }
+    }
+
+    /**
+     * 将字段读取异常中的受检异常转换为列写入的异常类型
+     */
+    private static SQLException rethrow(Throwable t) throws IOException {
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        }
+        if (t instanceof SQLException) {
+            return (SQLException) t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new SQLException(t);
+    }
+
+    /**
+     * 单个列的写入绑定
+     */
+    private abstract static class Binding {
+
+        abstract void write(Object row, IColumn column) throws IOException, SQLException;
+
+        abstract Object read(Object row) throws IOException, SQLException;
+    }
+
+    /**
+     * 整数、布尔和字符字段写入整数或浮点列，不经过装箱
+     */
+    private static final class LongBinding extends Binding {
+
+        private final MethodHandle getter; // (Object)long
+        private final MethodHandle boxedGetter; // (Object)Object
+
+        LongBinding(MethodHandle getter, MethodHandle boxedGetter) {
+            this.getter = getter;
+            this.boxedGetter = boxedGetter;
+        }
+
+        @Override
+        void write(Object row, IColumn column) throws IOException, SQLException {
+            long value;
+            try {
+                value = (long) getter.invokeExact(row);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+            column.writeLong(value);
+        }
+
+        @Override
+        Object read(Object row) throws IOException, SQLException {
+            try {
+                return (Object) boxedGetter.invokeExact(row);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+
+    /**
+     * 浮点字段写入浮点列，不经过装箱
+     */
+    private static final class DoubleBinding extends Binding {
+
+        private final MethodHandle getter; // (Object)double
+        private final MethodHandle boxedGetter; // (Object)Object
+
+        DoubleBinding(MethodHandle getter, MethodHandle boxedGetter) {
+            this.getter = getter;
+            this.boxedGetter = boxedGetter;
+        }
+
+        @Override
+        void write(Object row, IColumn column) throws IOException, SQLException {
+            double value;
+            try {
+                value = (double) getter.invokeExact(row);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+            column.writeDouble(value);
+        }
+
+        @Override
+        Object read(Object row) throws IOException, SQLException {
+            try {
+                return (Object) boxedGetter.invokeExact(row);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+
+    /**
+     * 其余字段按对象写入列
+     */
+    private static final class ObjectBinding extends Binding {
+
+        private final MethodHandle getter; // (Object)Object
+
+        ObjectBinding(MethodHandle getter) {
+            this.getter = getter;
+        }
+
+        @Override
+        void write(Object row, IColumn column) throws IOException, SQLException {
+            column.write(read(row));
+        }
+
+        @Override
+        Object read(Object row) throws IOException, SQLException {
+            try {
+                return (Object) getter.invokeExact(row);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+    }
+
+    /**
+     * 没有对应字段的列写入默认值
+     */
+    private static final class DefaultBinding extends Binding {
+
+        private final Object defaultValue; // 数据类型的默认值
+
+        DefaultBinding(Object defaultValue) {
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        void write(Object row, IColumn column) throws IOException, SQLException {
+            column.write(defaultValue);
+        }
+
+        @Override
+        Object read(Object row) {
+            return defaultValue;
+        }
+    }
+}
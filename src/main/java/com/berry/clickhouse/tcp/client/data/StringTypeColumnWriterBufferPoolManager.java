@@ -1,20 +1,21 @@
 package com.berry.clickhouse.tcp.client.data;
 
 import com.berry.clickhouse.tcp.client.buffer.BufferPoolManager;
+import com.berry.clickhouse.tcp.client.buffer.SegmentGrowthPolicy;
+import com.berry.clickhouse.tcp.client.buffer.SpillPolicy;
 import com.berry.clickhouse.tcp.client.data.type.complex.DataTypeString;
 
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
-
 /**
  * StringTypeColumnWriterBufferPoolManager类实现了ColumnWriterBufferPoolManager接口
  * 专门用于管理String类型列的写入缓冲区
  */
 public class StringTypeColumnWriterBufferPoolManager implements ColumnWriterBufferPoolManager {
 
-    private final Queue<ColumnWriterBuffer> queue; // 存储String类型列的写入缓冲区队列
+    private final ColumnWriterBufferCache queue; // 存储String类型列的写入缓冲区缓存
     private final int stringSelfBufferSize; // String类型列的自定义缓冲区大小
     private final DefaultColumnWriterBufferPoolManager defaultManager; // 默认缓冲区管理器
+    private final SegmentGrowthPolicy growthPolicy; // 分段增长策略
+    private final SpillPolicy spillPolicy; // 溢写策略
 
     /**
      * 构造函数，初始化StringTypeColumnWriterBufferPoolManager
@@ -25,25 +26,81 @@ public class StringTypeColumnWriterBufferPoolManager implements ColumnWriterBuff
      * @param stringSelfBufferSize String类型列的自定义缓冲区大小
      */
     public StringTypeColumnWriterBufferPoolManager(int stackSize, int selfBufferSize, int stringStackSize, int stringSelfBufferSize) {
-        this.defaultManager = new DefaultColumnWriterBufferPoolManager(stackSize, selfBufferSize); // 初始化默认缓冲区管理器
+        this(stackSize, selfBufferSize, stringStackSize, stringSelfBufferSize, ColumnWriterBufferCache.DEFAULT_MAGAZINE_SIZE);
+    }
+
+    /**
+     * 构造函数，初始化StringTypeColumnWriterBufferPoolManager
+     *
+     * @param stackSize 缓冲区队列大小
+     * @param selfBufferSize 自定义缓冲区大小
+     * @param stringStackSize String类型列的缓冲区队列大小
+     * @param stringSelfBufferSize String类型列的自定义缓冲区大小
+     * @param magazineSize 线程本地缓存大小，小于等于0时不使用线程本地缓存
+     */
+    public StringTypeColumnWriterBufferPoolManager(int stackSize, int selfBufferSize, int stringStackSize,
+                                                   int stringSelfBufferSize, int magazineSize) {
+        this(stackSize, selfBufferSize, stringStackSize, stringSelfBufferSize, magazineSize, SegmentGrowthPolicy.FIXED);
+    }
+
+    /**
+     * 构造函数，初始化StringTypeColumnWriterBufferPoolManager
+     *
+     * @param stackSize 缓冲区队列大小
+     * @param selfBufferSize 自定义缓冲区大小
+     * @param stringStackSize String类型列的缓冲区队列大小
+     * @param stringSelfBufferSize String类型列的自定义缓冲区大小
+     * @param magazineSize 线程本地缓存大小，小于等于0时不使用线程本地缓存
+     * @param growthPolicy 分段增长策略
+     */
+    public StringTypeColumnWriterBufferPoolManager(int stackSize, int selfBufferSize, int stringStackSize,
+                                                   int stringSelfBufferSize, int magazineSize,
+                                                   SegmentGrowthPolicy growthPolicy) {
+        this(stackSize, selfBufferSize, stringStackSize, stringSelfBufferSize, magazineSize, growthPolicy,
+                SpillPolicy.DISABLED);
+    }
+
+    /**
+     * 构造函数，初始化StringTypeColumnWriterBufferPoolManager
+     *
+     * @param stackSize 缓冲区队列大小
+     * @param selfBufferSize 自定义缓冲区大小
+     * @param stringStackSize String类型列的缓冲区队列大小
+     * @param stringSelfBufferSize String类型列的自定义缓冲区大小
+     * @param magazineSize 线程本地缓存大小，小于等于0时不使用线程本地缓存
+     * @param growthPolicy 分段增长策略
+     * @param spillPolicy 溢写策略
+     */
+    public StringTypeColumnWriterBufferPoolManager(int stackSize, int selfBufferSize, int stringStackSize,
+                                                   int stringSelfBufferSize, int magazineSize,
+                                                   SegmentGrowthPolicy growthPolicy, SpillPolicy spillPolicy) {
+        this.defaultManager = new DefaultColumnWriterBufferPoolManager(stackSize, selfBufferSize, magazineSize,
+                growthPolicy, spillPolicy); // 初始化默认缓冲区管理器
+        this.growthPolicy = growthPolicy; // 设置分段增长策略
+        this.spillPolicy = spillPolicy; // 设置溢写策略
         this.stringSelfBufferSize = stringSelfBufferSize; // 设置String类型列的自定义缓冲区大小
-        this.queue = new ArrayBlockingQueue<>(stringStackSize); // 初始化String类型列的缓冲区队列
+        this.queue = new ColumnWriterBufferCache(stringStackSize, magazineSize); // 初始化String类型列的缓冲区缓存
     }
 
     @Override
     public ColumnWriterBuffer allocate(IColumn column, BufferPoolManager bufferPoolManager) {
+        return allocate(column, bufferPoolManager, -1);
+    }
+
+    @Override
+    public ColumnWriterBuffer allocate(IColumn column, BufferPoolManager bufferPoolManager, int sizeHint) {
         ColumnWriterBuffer columnWriterBuffer;
         if (column.type() instanceof DataTypeString) {
             columnWriterBuffer = queue.poll(); // 从队列中获取缓冲区
             if (null == columnWriterBuffer) {
                 columnWriterBuffer = new ColumnWriterBuffer(this, this.stringSelfBufferSize, // 创建新的缓冲区
-                        () -> bufferPoolManager.allocate(column.name(), column.type()),
-                        bufferPoolManager::recycle);
+                        bufferPoolManager, column, sizeHint, this.growthPolicy, this.spillPolicy);
             } else {
+                columnWriterBuffer.bind(column, sizeHint); // 绑定到当前列
                 columnWriterBuffer.reset(); // 重置缓冲区
             }
         } else {
-            columnWriterBuffer = defaultManager.allocate(column, bufferPoolManager); // 使用默认管理器分配缓冲区
+            columnWriterBuffer = defaultManager.allocate(column, bufferPoolManager, sizeHint); // 使用默认管理器分配缓冲区
         }
         return columnWriterBuffer; // 返回缓冲区
     }
@@ -51,7 +108,10 @@ public class StringTypeColumnWriterBufferPoolManager implements ColumnWriterBuff
     @Override
     public void recycle(ColumnWriterBuffer columnWriterBuffer) {
         if (columnWriterBuffer.getManager() == this) {
-            queue.offer(columnWriterBuffer); // 将缓冲区放回队列
+            columnWriterBuffer.trim(); // 收缩缓冲区，归还超出部分的内存预算
+            if (!queue.offer(columnWriterBuffer)) {
+                columnWriterBuffer.release(); // 队列已满，释放全部缓冲区
+            }
         } else {
             defaultManager.recycle(columnWriterBuffer); // 使用默认管理器回收缓冲区
         }
@@ -5,6 +5,10 @@
 package com.berry.clickhouse.tcp.client.data.type;
 
 import com.berry.clickhouse.tcp.client.data.IDataType;
+import com.berry.clickhouse.tcp.client.serde.BinarySerializer;
+
+import java.io.IOException;
+import java.sql.SQLException;
 
 /**
  * 整数类型基础接口
@@ -14,4 +18,31 @@ import com.berry.clickhouse.tcp.client.data.IDataType;
  */
 public interface BaseDataTypeInt<CK> extends IDataType<CK> {
 
+    /**
+     * 按整数类型的字节宽度写入long值的低位字节，无符号类型与有符号类型的二进制表示相同
+     *
+     * @param value      要序列化的值
+     * @param serializer 二进制序列化器
+     * @throws SQLException 如果字节宽度不受支持
+     * @throws IOException  如果序列化过程中发生I/O错误
+     */
+    @Override
+    default void serializeLong(long value, BinarySerializer serializer) throws SQLException, IOException {
+        switch (byteSize()) {
+            case Byte.BYTES:
+                serializer.writeByte((byte) value);
+                break;
+            case Short.BYTES:
+                serializer.writeShort((short) value);
+                break;
+            case Integer.BYTES:
+                serializer.writeInt((int) value);
+                break;
+            case Long.BYTES:
+                serializer.writeLong(value);
+                break;
+            default:
+                throw new SQLException("This data type[" + name() + "] does not support writing primitive long. ");
+        }
+    }
 }
@@ -39,6 +39,16 @@ public class DataTypeFloat32 implements IDataType<Float> {
         serializer.writeFloat(data); // 序列化为二进制格式
     }
 
+    @Override
+    public void serializeLong(long value, BinarySerializer serializer) throws IOException {
+        serializer.writeFloat((float) value); // 不经过装箱直接序列化
+    }
+
+    @Override
+    public void serializeDouble(double value, BinarySerializer serializer) throws IOException {
+        serializer.writeFloat((float) value); // 不经过装箱直接序列化
+    }
+
     @Override
     public Float deserializeBinary(BinaryDeserializer deserializer) throws SQLException, IOException {
         return deserializer.readFloat(); // 从二进制流反序列化
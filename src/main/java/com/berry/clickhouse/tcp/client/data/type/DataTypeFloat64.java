@@ -39,6 +39,16 @@ public class DataTypeFloat64 implements IDataType<Double> {
         serializer.writeDouble(data); // 序列化为二进制格式
     }
 
+    @Override
+    public void serializeLong(long value, BinarySerializer serializer) throws IOException {
+        serializer.writeDouble(value); // 不经过装箱直接序列化
+    }
+
+    @Override
+    public void serializeDouble(double value, BinarySerializer serializer) throws IOException {
+        serializer.writeDouble(value); // 不经过装箱直接序列化
+    }
+
     @Override
     public Double deserializeBinary(BinaryDeserializer deserializer) throws SQLException, IOException {
         return deserializer.readDouble(); // 从二进制流反序列化
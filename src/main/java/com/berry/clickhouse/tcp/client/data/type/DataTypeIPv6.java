@@ -22,7 +22,7 @@ public class DataTypeIPv6 implements IDataType<BigInteger> {
 
     @Override
     public int byteSize() {
-        return Long.BYTES;
+        return 16; // IPv6地址占16个字节
     }
 
     @Override
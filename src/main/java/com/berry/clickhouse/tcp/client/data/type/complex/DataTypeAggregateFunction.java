@@ -64,4 +64,9 @@ public class DataTypeAggregateFunction implements IDataType<Object> {
     public IDataType getElemDataType() {
         return nestedType;
     }
+
+    @Override
+    public void skipBinaryBulk(int rows, BinaryDeserializer deserializer) throws SQLException, IOException {
+        getElemDataType().skipBinaryBulk(rows, deserializer);
+    }
 }
@@ -194,6 +194,29 @@ public class DataTypeArray implements IDataType<Object> {
         return arrays;
     }
 
+    @Override
+    public Object[] deserializeBinaryBulk(int rows, BinaryDeserializer deserializer, Object[] reuse) throws IOException, SQLException {
+        return deserializeBinaryBulk(rows, deserializer); // 按偏移量批量读取，不复用数组
+    }
+
+    /**
+     * 跳过指定行数的数组，只读取最后一个偏移量（即元素总数），其余偏移量和所有元素直接跳过
+     *
+     * @param rows 行数
+     * @param deserializer 二进制反序列化器
+     * @throws IOException 如果读取过程中发生I/O错误
+     * @throws SQLException 如果跳过元素时发生SQL错误
+     */
+    @Override
+    public void skipBinaryBulk(int rows, BinaryDeserializer deserializer) throws IOException, SQLException {
+        if (rows == 0) {
+            return;
+        }
+        deserializer.skipBytes((long) (rows - 1) * Long.BYTES);
+        long elements = deserializer.readLong();
+        elemDataType.skipBinaryBulk((int) elements, deserializer);
+    }
+
     /**
      * 获取数组元素的数据类型
      * 
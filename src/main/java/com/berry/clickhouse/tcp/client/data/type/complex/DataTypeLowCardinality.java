@@ -28,6 +28,10 @@ public class DataTypeLowCardinality implements IDataType {
         this.nestedDataType = nestedDataType;
     }
 
+    public IDataType<?> getNestedDataType() {
+        return nestedDataType;
+    }
+
     @Override
     public String name() {
         return this.name;
@@ -75,6 +79,16 @@ public class DataTypeLowCardinality implements IDataType {
         return data;
     }
 
+    @Override
+    public Object[] deserializeBinaryBulk(int rows, BinaryDeserializer deserializer, Object[] reuse) throws SQLException, IOException {
+        return this.nestedDataType.deserializeBinaryBulk(rows, deserializer, reuse);
+    }
+
+    @Override
+    public void skipBinaryBulk(int rows, BinaryDeserializer deserializer) throws SQLException, IOException {
+        this.nestedDataType.skipBinaryBulk(rows, deserializer);
+    }
+
     @Override
     public boolean isSigned() {
         return this.nestedDataType.isSigned();
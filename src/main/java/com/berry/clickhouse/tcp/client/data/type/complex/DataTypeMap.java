@@ -162,6 +162,11 @@ public class DataTypeMap implements IDataType<Object> {
         return map;
     }
 
+    @Override
+    public Object[] deserializeBinaryBulk(int rows, BinaryDeserializer deserializer, Object[] reuse) throws IOException, SQLException {
+        return deserializeBinaryBulk(rows, deserializer); // 按偏移量批量读取，不复用数组
+    }
+
     /**
      * 批量从二进制流反序列化Map
      * 读取所有Map的大小，然后读取所有键和所有值，最后按照偏移量组装成多个Map
@@ -201,6 +206,25 @@ public class DataTypeMap implements IDataType<Object> {
         return arrays;
     }
 
+    /**
+     * 跳过指定行数的Map，只读取最后一个偏移量（即键值对总数），其余偏移量和所有键值直接跳过
+     *
+     * @param rows 行数
+     * @param deserializer 二进制反序列化器
+     * @throws IOException 如果读取过程中发生I/O错误
+     * @throws SQLException 如果跳过键值时发生SQL错误
+     */
+    @Override
+    public void skipBinaryBulk(int rows, BinaryDeserializer deserializer) throws IOException, SQLException {
+        if (rows == 0) {
+            return;
+        }
+        deserializer.skipBytes((long) (rows - 1) * Long.BYTES);
+        int entries = (int) deserializer.readLong();
+        getNestedTypes()[0].skipBinaryBulk(entries, deserializer);
+        getNestedTypes()[1].skipBinaryBulk(entries, deserializer);
+    }
+
     /**
      * 获取嵌套数据类型数组
      * 
@@ -89,9 +89,14 @@ public class DataTypeNullable implements IDataType {
 
     @Override
     public Object[] deserializeBinaryBulk(int rows, BinaryDeserializer deserializer) throws SQLException, IOException {
+        return deserializeBinaryBulk(rows, deserializer, null);
+    }
+
+    @Override
+    public Object[] deserializeBinaryBulk(int rows, BinaryDeserializer deserializer, Object[] reuse) throws SQLException, IOException {
         Object[] nullMap = nullMapDataType.deserializeBinaryBulk(rows, deserializer);
 
-        Object[] data = nestedDataType.deserializeBinaryBulk(rows, deserializer);
+        Object[] data = nestedDataType.deserializeBinaryBulk(rows, deserializer, reuse);
         for (int i = 0; i < nullMap.length; i++) {
             if (IS_NULL.equals(nullMap[i])) {
                 data[i] = null;
@@ -104,4 +109,10 @@ public class DataTypeNullable implements IDataType {
     public boolean isSigned() {
         return nestedDataType.isSigned();
     }
+
+    @Override
+    public void skipBinaryBulk(int rows, BinaryDeserializer deserializer) throws SQLException, IOException {
+        nullMapDataType.skipBinaryBulk(rows, deserializer); // 跳过空值标记
+        nestedDataType.skipBinaryBulk(rows, deserializer);
+    }
 }
@@ -111,4 +111,11 @@ public class DataTypeString implements IDataType<CharSequence> {
         byte[] bs = deserializer.readBytesBinary();
         return new String(bs, charset);
     }
+
+    @Override
+    public void skipBinaryBulk(int rows, BinaryDeserializer deserializer) throws SQLException, IOException {
+        for (int row = 0; row < rows; row++) {
+            deserializer.skipBytesBinary(); // 按长度前缀跳过，不解码字符串
+        }
+    }
 }
@@ -95,6 +95,18 @@ public class DataTypeTuple implements IDataType<Object[]> {
         return getRowsWithElems(rows, deserializer);
     }
 
+    @Override
+    public Object[] deserializeBinaryBulk(int rows, BinaryDeserializer deserializer, Object[] reuse) throws SQLException, IOException {
+        return deserializeBinaryBulk(rows, deserializer); // 按元素逐列读取，不复用数组
+    }
+
+    @Override
+    public void skipBinaryBulk(int rows, BinaryDeserializer deserializer) throws SQLException, IOException {
+        for (IDataType<?> nestedType : getNestedTypes()) {
+            nestedType.skipBinaryBulk(rows, deserializer);
+        }
+    }
+
     private Object[][] getRowsWithElems(int rows, BinaryDeserializer deserializer) throws IOException, SQLException {
         Object[][] rowsWithElems = new Object[getNestedTypes().length][];
         for (int index = 0; index < getNestedTypes().length; index++) {
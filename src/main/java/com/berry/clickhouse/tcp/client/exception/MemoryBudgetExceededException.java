@@ -0,0 +1,22 @@
+package com.berry.clickhouse.tcp.client.exception;
+
+/**
+ * 内存预算耗尽异常
+ * 当写入缓冲区在等待时间内无法从全局内存预算中申请到空间时抛出
+ */
+public class MemoryBudgetExceededException extends ClickHouseClientException {
+
+    private static final long serialVersionUID = 1L;
+
+    public MemoryBudgetExceededException(String message) {
+        super(message);
+    }
+
+    public MemoryBudgetExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public MemoryBudgetExceededException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,25 @@
+package com.berry.clickhouse.tcp.client.insert;
+
+/**
+ * BatchListener接口接收批量插入器每个数据块的发送结果
+ * 回调在发送线程中执行（写入行失败丢弃数据块时在写入线程中执行），不应长时间阻塞
+ */
+public interface BatchListener {
+
+    /**
+     * 数据块发送成功
+     *
+     * @param result 发送结果
+     */
+    default void onFlush(BatchResult result) {
+    }
+
+    /**
+     * 数据块发送失败，数据块中的行已被丢弃
+     *
+     * @param result 发送结果
+     * @param cause  失败原因
+     */
+    default void onFailure(BatchResult result, Throwable cause) {
+    }
+}
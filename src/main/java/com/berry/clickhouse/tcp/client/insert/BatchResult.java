@@ -0,0 +1,64 @@
+package com.berry.clickhouse.tcp.client.insert;
+
+/**
+ * BatchResult类描述批量插入器发送的一个数据块
+ */
+public class BatchResult {
+
+    private final String table; // 表名
+    private final int rows; // 行数
+    private final long bytes; // 列数据的字节数
+    private final FlushReason reason; // 发送原因
+    private final long ageNanos; // 从第一行写入到发送完成的时间（纳秒）
+    private final long sendNanos; // 发送耗时（纳秒）
+    private final Object partition; // 数据块所属的分区，未按分区拆分时为null
+
+    public BatchResult(String table, int rows, long bytes, FlushReason reason, long ageNanos, long sendNanos) {
+        this(table, rows, bytes, reason, ageNanos, sendNanos, null);
+    }
+
+    public BatchResult(String table, int rows, long bytes, FlushReason reason, long ageNanos, long sendNanos,
+                       Object partition) {
+        this.table = table;
+        this.rows = rows;
+        this.bytes = bytes;
+        this.reason = reason;
+        this.ageNanos = ageNanos;
+        this.sendNanos = sendNanos;
+        this.partition = partition;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public FlushReason getReason() {
+        return reason;
+    }
+
+    public long getAgeNanos() {
+        return ageNanos;
+    }
+
+    public long getSendNanos() {
+        return sendNanos;
+    }
+
+    public Object getPartition() {
+        return partition;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{table=" + table + ((null == partition) ? "" : ", partition=" + partition) + ", rows=" + rows + ", bytes=" + bytes + ", reason=" + reason
+                + ", ageMillis=" + (ageNanos / 1_000_000) + ", sendMillis=" + (sendNanos / 1_000_000) + "}";
+    }
+}
@@ -0,0 +1,664 @@
+package com.berry.clickhouse.tcp.client.insert;
+
+import com.berry.clickhouse.tcp.client.ClickHouseClient;
+import com.berry.clickhouse.tcp.client.data.Block;
+import com.berry.clickhouse.tcp.client.data.RowWriter;
+import com.berry.clickhouse.tcp.client.jdbc.ClickHouseTableMetaData;
+import com.berry.clickhouse.tcp.client.log.Logger;
+import com.berry.clickhouse.tcp.client.log.LoggerFactory;
+import com.berry.clickhouse.tcp.client.meta.PartitionKey;
+import com.berry.clickhouse.tcp.client.misc.Validate;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * BatchingInserter类将多个线程写入的行累积到一个表的数据块中，达到行数、字节数或等待时间阈值后
+ * 由后台发送线程执行INSERT，避免调用方自行拼装大数据块或向服务端发送大量小数据块
+ * 待发送的数据块数量有上限，达到上限后写入线程阻塞，直到发送线程取走数据块
+ * 每个数据块的发送结果通过BatchListener回调
+ * 设置了分区键时，行按分区分别累积到不同的数据块，每个数据块只包含一个分区的行，避免服务端为一次插入生成多个数据分片
+ */
+public class BatchingInserter implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchingInserter.class);
+
+    private static final int BYTES_CHECK_INTERVAL = 64; // 每写入多少行检查一次字节数
+
+    private static final Batch POISON = new Batch(null, null, 0, 0, FlushReason.CLOSE, 0); // 通知发送线程退出
+
+    private static final Object UNPARTITIONED = new Object(); // 未设置分区键时所有行所属的分区
+
+    private static final float HASH_TABLE_LOAD_FACTOR = 0.75f; // 哈希表负载因子
+
+    private final ClickHouseClient client; // 客户端
+    private final String table; // 表名
+    private final int maxRows; // 每个数据块的最大行数
+    private final long maxBytes; // 每个数据块的最大字节数
+    private final long maxLatencyNanos; // 第一行写入后的最长等待时间（纳秒）
+    private final BatchListener listener; // 发送结果回调
+    private final PartitionKey partitionKey; // 分区键，为null时不按分区拆分
+    private final int maxOpenPartitions; // 同时累积的分区数量上限
+
+    private final ReentrantLock lock = new ReentrantLock(); // 保护正在累积的数据块
+    private final ReentrantLock idleLock = new ReentrantLock(); // 等待发送完成的锁，发送线程不能依赖写入锁
+    private final Condition idle = idleLock.newCondition(); // 所有数据块发送完成
+    private final Map<Object, Partition> partitions = new LinkedHashMap<>(16, HASH_TABLE_LOAD_FACTOR, true); // 正在累积的分区，按最近写入顺序排列
+    private final Map<Class<?>, RowWriter<?>> rowWriters = new HashMap<>(); // 按行对象类型缓存的行写入器
+    private Block spare; // 用于解析列结构、尚未分配给分区的空数据块
+    private int partitionColumnIdx = -1; // 分区键所在列的索引
+    private final AtomicInteger outstanding = new AtomicInteger(); // 已封存但尚未发送完成的数据块数量
+    private volatile boolean closed; // 是否已关闭
+
+    private final BlockingQueue<Batch> pending; // 待发送的数据块
+    private final Thread[] senders; // 发送线程
+    private final ScheduledExecutorService timer; // 检查等待时间的定时器
+
+    private final LongAdder flushedBlocks = new LongAdder(); // 发送成功的数据块数量
+    private final LongAdder flushedRows = new LongAdder(); // 发送成功的行数
+    private final LongAdder failedBlocks = new LongAdder(); // 发送失败的数据块数量
+    private final LongAdder failedRows = new LongAdder(); // 发送失败的行数
+
+    private BatchingInserter(Builder builder) {
+        this.client = builder.client;
+        this.table = builder.table;
+        this.maxRows = builder.maxRows;
+        this.maxBytes = builder.maxBytes;
+        this.maxLatencyNanos = builder.maxLatency.toNanos();
+        this.listener = (null == builder.listener) ? new BatchListener() {
+        } : builder.listener;
+        ClickHouseTableMetaData metaData = (null == builder.partitionKey) ? client.getTableMetaData(table) : null;
+        this.partitionKey = (null != builder.partitionKey) ? builder.partitionKey
+                : (null == metaData) ? null : metaData.getPartitionKey();
+        this.maxOpenPartitions = builder.maxOpenPartitions;
+        this.pending = new ArrayBlockingQueue<>(builder.maxPendingBlocks);
+
+        this.senders = new Thread[builder.senderThreads];
+        for (int i = 0; i < senders.length; i++) {
+            senders[i] = new Thread(this::sendLoop, "clickhouse-batching-" + table + "-sender-" + i);
+            senders[i].setDaemon(true);
+            senders[i].start();
+        }
+        long tickNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), maxLatencyNanos / 4);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "clickhouse-batching-" + table + "-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.scheduleAtFixedRate(this::checkLatency, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 创建指定表的批量插入器构建器
+     *
+     * @param client 客户端
+     * @param table  表名
+     * @return Builder实例
+     */
+    public static Builder builder(ClickHouseClient client, String table) {
+        return new Builder(client, table);
+    }
+
+    /**
+     * 写入一行数据，值按表的列顺序排列，值的数量必须与表的列数相同
+     * 写入某一列失败时，该行之前的列已经写入，所在分区的数据块被丢弃，其中的行通过BatchListener.onFailure回调
+     *
+     * @param values 行数据
+     * @throws SQLException 如果值的数量与列数不同，写入失败，或者等待发送队列时被中断
+     */
+    public void addRow(Object... values) throws SQLException {
+        lock.lock();
+        try {
+            ensureOpen();
+            int columnCnt = anyBlock().columnCnt();
+            if (values.length != columnCnt) {
+                throw new SQLException("Row of table " + table + " has " + values.length + " values, but the table has "
+                        + columnCnt + " columns");
+            }
+            Object key = UNPARTITIONED;
+            if (null != partitionKey) {
+                key = partitionKey.partitionOf(values[partitionColumnIdx()]);
+            }
+            Partition partition = partition(key);
+            Block block = partition.block;
+            for (int i = 0; i < values.length; i++) {
+                block.setObject(i, values[i]);
+            }
+            try {
+                block.appendRow();
+            } catch (SQLException | RuntimeException e) {
+                discard(partition, e);
+                throw e;
+            }
+            afterAppend(partition);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 写入一个行对象，字段按列名绑定，参见RowWriter
+     * 写入失败时与addRow相同，所在分区的数据块被丢弃
+     *
+     * @param row 行对象
+     * @throws SQLException 如果写入失败，或者等待发送队列时被中断
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void addObject(Object row) throws SQLException {
+        lock.lock();
+        try {
+            ensureOpen();
+            RowWriter writer = rowWriter(row.getClass());
+            Object key = (null == partitionKey) ? UNPARTITIONED
+                    : partitionKey.partitionOf(writer.readColumn(partitionColumnIdx(), row));
+            Partition partition = partition(key);
+            try {
+                partition.block.appendRow(row, writer);
+            } catch (SQLException | RuntimeException e) {
+                discard(partition, e);
+                throw e;
+            }
+            afterAppend(partition);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 提交调用方已经写好的数据块，提交后数据块归批量插入器所有，发送后被清理
+     * 正在累积的数据块先于该数据块封存，保持写入顺序
+     *
+     * @param block 数据块
+     * @throws SQLException 如果已关闭，或者等待发送队列时被中断
+     */
+    public void addBlock(Block block) throws SQLException {
+        lock.lock();
+        try {
+            ensureOpen();
+            sealAll(FlushReason.SUBMITTED);
+            enqueue(new Batch(block, null, block.rowCnt(), block.writtenBytes(), FlushReason.SUBMITTED, System.nanoTime()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 封存正在累积的数据块，并等待所有已封存的数据块发送完成
+     *
+     * @throws SQLException 如果等待时被中断
+     */
+    public void flush() throws SQLException {
+        sealPending();
+        awaitIdle();
+    }
+
+    /**
+     * 封存正在累积的数据块，不等待发送完成
+     *
+     * @throws SQLException 如果等待发送队列时被中断
+     */
+    void sealPending() throws SQLException {
+        lock.lock();
+        try {
+            sealAll(FlushReason.EXPLICIT);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待所有已封存的数据块发送完成
+     *
+     * @throws SQLException 如果等待时被中断
+     */
+    void awaitIdle() throws SQLException {
+        idleLock.lock();
+        try {
+            while (outstanding.get() > 0) {
+                idle.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while flushing batches of table " + table, e);
+        } finally {
+            idleLock.unlock();
+        }
+    }
+
+    /**
+     * 发送剩余的行并停止后台线程，返回时所有数据块都已发送完成
+     *
+     * @throws SQLException 如果等待时被中断
+     */
+    @Override
+    public void close() throws SQLException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            sealAll(FlushReason.CLOSE);
+            for (Partition partition : partitions.values()) {
+                client.releaseBlock(partition.block); // 归还空数据块的写入缓冲区和样本数据块的连接
+            }
+            partitions.clear();
+            if (null != spare) {
+                client.releaseBlock(spare);
+                spare = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        timer.shutdownNow();
+        try {
+            for (int i = 0; i < senders.length; i++) {
+                pending.put(POISON);
+            }
+            for (Thread sender : senders) {
+                sender.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while closing batching inserter of table " + table, e);
+        }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Batching inserter of table " + table + " is closed");
+        }
+    }
+
+    /**
+     * 获取分区正在累积的数据块，分区不存在时打开新的分区；打开的分区数量达到上限时先发送最久没有写入的分区
+     * 调用方必须持有锁
+     *
+     * @param key 分区
+     * @return 分区
+     * @throws SQLException 如果创建数据块失败，或者等待发送队列时被中断
+     */
+    private Partition partition(Object key) throws SQLException {
+        Partition partition = partitions.get(key);
+        if (null == partition) {
+            if (partitions.size() >= maxOpenPartitions) {
+                Iterator<Partition> eldest = partitions.values().iterator(); // 最久没有写入的分区
+                Partition evicted = eldest.next();
+                eldest.remove();
+                seal(evicted, FlushReason.PARTITIONS);
+            }
+            partition = new Partition(key, newBlock());
+            partitions.put(key, partition);
+        }
+        return partition;
+    }
+
+    private Block newBlock() throws SQLException {
+        if (null != spare) {
+            Block block = spare;
+            spare = null;
+            return block;
+        }
+        try {
+            return client.createBlock(table);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("Failed to create block for table " + table, e);
+        }
+    }
+
+    /**
+     * 获取任意一个本表的数据块，用于解析列结构
+     */
+    private Block anyBlock() throws SQLException {
+        if (!partitions.isEmpty()) {
+            return partitions.values().iterator().next().block;
+        }
+        if (null == spare) {
+            spare = newBlock();
+        }
+        return spare;
+    }
+
+    private int partitionColumnIdx() throws SQLException {
+        if (partitionColumnIdx < 0) {
+            partitionColumnIdx = anyBlock().getPositionByName(partitionKey.column()) - 1;
+        }
+        return partitionColumnIdx;
+    }
+
+    private RowWriter<?> rowWriter(Class<?> type) throws SQLException {
+        RowWriter<?> writer = rowWriters.get(type);
+        if (null == writer) {
+            writer = anyBlock().rowWriter(type);
+            rowWriters.put(type, writer);
+        }
+        return writer;
+    }
+
+    private void afterAppend(Partition partition) throws SQLException {
+        if (partition.rows++ == 0) {
+            partition.startNanos = System.nanoTime();
+        }
+        if (partition.rows >= maxRows) {
+            partitions.remove(partition.key);
+            seal(partition, FlushReason.ROWS);
+        } else if (++partition.rowsSinceBytesCheck >= BYTES_CHECK_INTERVAL) {
+            partition.rowsSinceBytesCheck = 0;
+            if (partition.block.writtenBytes() >= maxBytes) {
+                partitions.remove(partition.key);
+                seal(partition, FlushReason.BYTES);
+            }
+        }
+    }
+
+    /**
+     * 丢弃写入某一行失败的分区，调用方必须持有锁
+     * 失败的行可能已经写入了部分列，数据块中各列的行数不再一致，因此整个数据块不能再发送；
+     * 之前写入的行通过BatchListener.onFailure回调，失败的行由调用方收到的异常报告
+     *
+     * @param partition 分区
+     * @param cause     失败原因
+     */
+    private void discard(Partition partition, Throwable cause) {
+        partitions.remove(partition.key);
+        long bytes = partition.block.writtenBytes();
+        client.releaseBlock(partition.block);
+        if (partition.rows > 0) {
+            report(new BatchResult(table, partition.rows, bytes, FlushReason.ROW_FAILED,
+                    System.nanoTime() - partition.startNanos, 0, (UNPARTITIONED == partition.key) ? null : partition.key), cause);
+        }
+    }
+
+    /**
+     * 封存所有正在累积的分区并放入发送队列，调用方必须持有锁
+     *
+     * @param reason 发送原因
+     * @throws SQLException 如果等待发送队列时被中断
+     */
+    private void sealAll(FlushReason reason) throws SQLException {
+        Iterator<Partition> it = partitions.values().iterator();
+        while (it.hasNext()) {
+            Partition partition = it.next();
+            if (partition.rows > 0) {
+                it.remove();
+                seal(partition, reason);
+            }
+        }
+    }
+
+    /**
+     * 封存分区正在累积的数据块并放入发送队列，调用方必须持有锁，并且已经从分区表中移除该分区
+     *
+     * @param partition 分区
+     * @param reason 发送原因
+     * @throws SQLException 如果等待发送队列时被中断
+     */
+    private void seal(Partition partition, FlushReason reason) throws SQLException {
+        if (partition.rows == 0) {
+            client.releaseBlock(partition.block); // 归还空数据块的写入缓冲区和样本数据块的连接
+            return;
+        }
+        enqueue(new Batch(partition.block, (UNPARTITIONED == partition.key) ? null : partition.key, partition.rows,
+                partition.block.writtenBytes(), reason, partition.startNanos));
+    }
+
+    /**
+     * 将数据块放入发送队列，队列已满时阻塞，调用方必须持有锁，因此其它写入线程也会等待
+     *
+     * @param batch 数据块
+     * @throws SQLException 如果等待时被中断
+     */
+    private void enqueue(Batch batch) throws SQLException {
+        outstanding.incrementAndGet();
+        try {
+            pending.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            client.releaseBlock(batch.block); // 数据块没有进入发送队列
+            complete(batch, 0, e);
+            throw new SQLException("Interrupted while waiting for a free batch slot of table " + table, e);
+        }
+    }
+
+    private void checkLatency() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            long now = System.nanoTime();
+            Iterator<Partition> it = partitions.values().iterator();
+            while (it.hasNext()) {
+                Partition partition = it.next();
+                if (partition.rows > 0 && now - partition.startNanos >= maxLatencyNanos) {
+                    it.remove();
+                    seal(partition, FlushReason.LATENCY);
+                }
+            }
+        } catch (SQLException e) {
+            LOG.warn("Failed to flush batch of table {}: {}", table, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sendLoop() {
+        while (true) {
+            Batch batch;
+            try {
+                batch = pending.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (batch == POISON) {
+                return;
+            }
+            long start = System.nanoTime();
+            Throwable failure = null;
+            try {
+                client.insert(batch.block, true);
+            } catch (Throwable t) {
+                failure = t;
+                client.cleanBlock(batch.block); // 发送失败时归还写入缓冲区
+            }
+            complete(batch, System.nanoTime() - start, failure);
+        }
+    }
+
+    private void complete(Batch batch, long sendNanos, Throwable failure) {
+        BatchResult result = new BatchResult(table, batch.rows, batch.bytes, batch.reason,
+                System.nanoTime() - batch.startNanos, sendNanos, batch.partition);
+        try {
+            report(result, failure);
+        } finally {
+            if (outstanding.decrementAndGet() == 0) {
+                idleLock.lock();
+                try {
+                    idle.signalAll();
+                } finally {
+                    idleLock.unlock();
+                }
+            }
+        }
+    }
+
+    private void report(BatchResult result, Throwable failure) {
+        try {
+            if (null == failure) {
+                flushedBlocks.increment();
+                flushedRows.add(result.getRows());
+                listener.onFlush(result);
+            } else {
+                failedBlocks.increment();
+                failedRows.add(result.getRows());
+                listener.onFailure(result, failure);
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("BatchListener of table " + table + " threw an exception", e);
+        }
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * 获取已封存但尚未发送完成的数据块数量
+     *
+     * @return 数据块数量
+     */
+    public int pendingBlocks() {
+        return outstanding.get();
+    }
+
+    public long flushedBlocks() {
+        return flushedBlocks.sum();
+    }
+
+    public long flushedRows() {
+        return flushedRows.sum();
+    }
+
+    public long failedBlocks() {
+        return failedBlocks.sum();
+    }
+
+    public long failedRows() {
+        return failedRows.sum();
+    }
+
+    /**
+     * 正在累积的分区
+     */
+    private static final class Partition {
+
+        private final Object key; // 分区
+        private final Block block; // 正在累积的数据块
+        private int rows; // 数据块的行数
+        private long startNanos; // 数据块写入第一行的时间
+        private int rowsSinceBytesCheck; // 上次检查字节数后写入的行数
+
+        Partition(Object key, Block block) {
+            this.key = key;
+            this.block = block;
+        }
+    }
+
+    /**
+     * 已封存的数据块
+     */
+    private static final class Batch {
+
+        private final Block block; // 数据块
+        private final Object partition; // 数据块所属的分区
+        private final int rows; // 行数
+        private final long bytes; // 字节数
+        private final FlushReason reason; // 发送原因
+        private final long startNanos; // 写入第一行的时间
+
+        Batch(Block block, Object partition, int rows, long bytes, FlushReason reason, long startNanos) {
+            this.block = block;
+            this.partition = partition;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.reason = reason;
+            this.startNanos = startNanos;
+        }
+    }
+
+    /**
+     * BatchingInserter的构建器
+     */
+    public static class Builder {
+
+        private final ClickHouseClient client; // 客户端
+        private final String table; // 表名
+        private int maxRows = 100_000; // 每个数据块的最大行数
+        private long maxBytes = 64L * 1024 * 1024; // 每个数据块的最大字节数
+        private Duration maxLatency = Duration.ofSeconds(1); // 第一行写入后的最长等待时间
+        private int senderThreads = 1; // 发送线程数量
+        private int maxPendingBlocks = 4; // 待发送数据块的最大数量
+        private BatchListener listener; // 发送结果回调
+        private PartitionKey partitionKey; // 分区键
+        private int maxOpenPartitions = 16; // 同时累积的分区数量上限
+
+        private Builder(ClickHouseClient client, String table) {
+            this.client = client;
+            this.table = table;
+        }
+
+        public Builder maxRows(int maxRows) {
+            this.maxRows = maxRows; // 设置每个数据块的最大行数
+            return this;
+        }
+
+        public Builder maxBytes(long maxBytes) {
+            this.maxBytes = maxBytes; // 设置每个数据块的最大字节数
+            return this;
+        }
+
+        public Builder maxLatency(Duration maxLatency) {
+            this.maxLatency = maxLatency; // 设置第一行写入后的最长等待时间
+            return this;
+        }
+
+        public Builder senderThreads(int senderThreads) {
+            this.senderThreads = senderThreads; // 设置发送线程数量
+            return this;
+        }
+
+        public Builder maxPendingBlocks(int maxPendingBlocks) {
+            this.maxPendingBlocks = maxPendingBlocks; // 设置待发送数据块的最大数量
+            return this;
+        }
+
+        public Builder listener(BatchListener listener) {
+            this.listener = listener; // 设置发送结果回调
+            return this;
+        }
+
+        /**
+         * 设置分区键，未设置时使用表元数据中的分区键
+         *
+         * @param partitionKey 分区键
+         * @return Builder实例
+         */
+        public Builder partitionKey(PartitionKey partitionKey) {
+            this.partitionKey = partitionKey; // 设置分区键
+            return this;
+        }
+
+        public Builder maxOpenPartitions(int maxOpenPartitions) {
+            this.maxOpenPartitions = maxOpenPartitions; // 设置同时累积的分区数量上限
+            return this;
+        }
+
+        public BatchingInserter build() {
+            Validate.ensure(null != client, "client must not be null");
+            Validate.ensure(null != table, "table must not be null");
+            Validate.ensure(maxRows > 0, "maxRows must be positive");
+            Validate.ensure(maxBytes > 0, "maxBytes must be positive");
+            Validate.ensure(null != maxLatency && !maxLatency.isNegative() && !maxLatency.isZero(),
+                    "maxLatency must be positive");
+            Validate.ensure(senderThreads > 0, "senderThreads must be positive");
+            Validate.ensure(maxPendingBlocks > 0, "maxPendingBlocks must be positive");
+            Validate.ensure(maxOpenPartitions > 0, "maxOpenPartitions must be positive");
+            return new BatchingInserter(this);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.berry.clickhouse.tcp.client.insert;
+
+/**
+ * FlushReason定义了批量插入器发送一个数据块的原因
+ */
+public enum FlushReason {
+
+    /**
+     * 行数达到阈值
+     */
+    ROWS,
+
+    /**
+     * 字节数达到阈值
+     */
+    BYTES,
+
+    /**
+     * 第一行写入后等待时间达到阈值
+     */
+    LATENCY,
+
+    /**
+     * 调用方显式刷新
+     */
+    EXPLICIT,
+
+    /**
+     * 调用方直接提交的数据块
+     */
+    SUBMITTED,
+
+    /**
+     * 打开的分区数量达到上限，最久没有写入的分区被发送
+     */
+    PARTITIONS,
+
+    /**
+     * 关闭批量插入器
+     */
+    CLOSE,
+
+    /**
+     * 写入一行时失败，数据块中各列的行数不一致，数据块未发送而是被丢弃
+     */
+    ROW_FAILED
+}
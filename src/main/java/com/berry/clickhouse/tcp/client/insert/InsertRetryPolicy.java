@@ -0,0 +1,156 @@
+package com.berry.clickhouse.tcp.client.insert;
+
+import com.berry.clickhouse.tcp.client.exception.ClickHouseSQLException;
+import com.berry.clickhouse.tcp.client.misc.Validate;
+import com.berry.clickhouse.tcp.client.settings.ClickHouseErrCode;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * InsertRetryPolicy类定义插入失败后的重试策略
+ * 启用后数据块只编码一次，编码后的数据包在服务端确认之前一直保留；插入因网络错误或可重试的服务端错误失败时，
+ * 在新的连接上用同一个insert_deduplication_token重新发送，副本表（或开启了non_replicated_deduplication_window的表）
+ * 会丢弃已经写入的重复数据
+ */
+public class InsertRetryPolicy {
+
+    /**
+     * 默认可重试的服务端错误码
+     */
+    private static final Set<Integer> DEFAULT_RETRYABLE_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            ClickHouseErrCode.CANNOT_READ_FROM_SOCKET.code(),
+            ClickHouseErrCode.CANNOT_WRITE_TO_SOCKET.code(),
+            ClickHouseErrCode.TIMEOUT_EXCEEDED.code(),
+            ClickHouseErrCode.TOO_MANY_SIMULTANEOUS_QUERIES.code(),
+            ClickHouseErrCode.SOCKET_TIMEOUT.code(),
+            ClickHouseErrCode.NETWORK_ERROR.code(),
+            ClickHouseErrCode.NO_ZOOKEEPER.code(),
+            ClickHouseErrCode.UNEXPECTED_ZOOKEEPER_ERROR.code(),
+            ClickHouseErrCode.TOO_MANY_PARTS.code(),
+            ClickHouseErrCode.ALL_CONNECTION_TRIES_FAILED.code(),
+            ClickHouseErrCode.KEEPER_EXCEPTION.code())));
+
+    private final int maxAttempts; // 最大尝试次数（包括第一次）
+    private final Duration initialBackoff; // 第一次重试前的等待时间
+    private final Duration maxBackoff; // 重试等待时间的上限
+    private final Set<Integer> retryableCodes; // 可重试的服务端错误码
+
+    private InsertRetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoff = builder.initialBackoff;
+        this.maxBackoff = builder.maxBackoff;
+        this.retryableCodes = Collections.unmodifiableSet(new HashSet<>(builder.retryableCodes));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public Set<Integer> getRetryableCodes() {
+        return retryableCodes;
+    }
+
+    /**
+     * 判断插入失败后是否可以重试
+     * 客户端的I/O错误（连接断开、读写超时）总是可以重试，服务端返回的错误按错误码判断
+     *
+     * @param e 插入失败的异常
+     * @return 可以重试返回true
+     */
+    public boolean isRetryable(SQLException e) {
+        for (Throwable t = e; null != t; t = t.getCause()) {
+            if (t instanceof ClickHouseSQLException) {
+                return retryableCodes.contains(((ClickHouseSQLException) t).getErrorCode());
+            }
+            if (t instanceof IOException) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取第attempt次尝试失败后的等待时间，按指数增长，不超过maxBackoff
+     *
+     * @param attempt 已失败的尝试次数，从1开始
+     * @return 等待时间
+     */
+    public Duration backoff(int attempt) {
+        long millis = initialBackoff.toMillis();
+        for (int i = 1; i < attempt && millis < maxBackoff.toMillis(); i++) {
+            millis <<= 1;
+        }
+        return Duration.ofMillis(Math.min(millis, maxBackoff.toMillis()));
+    }
+
+    /**
+     * 为一次插入生成去重令牌，同一次插入的所有尝试使用同一个令牌
+     *
+     * @return 去重令牌
+     */
+    public String nextDeduplicationToken() {
+        return UUID.randomUUID().toString();
+    }
+
+    public static class Builder {
+
+        private int maxAttempts = 3; // 最大尝试次数（包括第一次）
+        private Duration initialBackoff = Duration.ofMillis(100); // 第一次重试前的等待时间
+        private Duration maxBackoff = Duration.ofSeconds(5); // 重试等待时间的上限
+        private Set<Integer> retryableCodes = DEFAULT_RETRYABLE_CODES; // 可重试的服务端错误码
+
+        private Builder() {
+        }
+
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts; // 设置最大尝试次数
+            return this;
+        }
+
+        public Builder initialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff; // 设置第一次重试前的等待时间
+            return this;
+        }
+
+        public Builder maxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff; // 设置重试等待时间的上限
+            return this;
+        }
+
+        public Builder retryableCodes(Set<Integer> retryableCodes) {
+            this.retryableCodes = retryableCodes; // 设置可重试的服务端错误码
+            return this;
+        }
+
+        public InsertRetryPolicy build() {
+            Validate.ensure(maxAttempts > 0, "maxAttempts must be positive");
+            Validate.ensure(null != initialBackoff && !initialBackoff.isNegative(), "initialBackoff must not be negative");
+            Validate.ensure(null != maxBackoff && maxBackoff.compareTo(initialBackoff) >= 0,
+                    "maxBackoff must not be less than initialBackoff");
+            Validate.ensure(null != retryableCodes, "retryableCodes must not be null");
+            return new InsertRetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.berry.clickhouse.tcp.client.insert;
+
+import com.berry.clickhouse.tcp.client.ClickHouseClient;
+import com.berry.clickhouse.tcp.client.data.IColumn;
+import com.berry.clickhouse.tcp.client.data.IDataType;
+import com.berry.clickhouse.tcp.client.data.RowWriter;
+import com.berry.clickhouse.tcp.client.log.Logger;
+import com.berry.clickhouse.tcp.client.log.LoggerFactory;
+import com.berry.clickhouse.tcp.client.meta.ShardingKey;
+import com.berry.clickhouse.tcp.client.misc.Validate;
+import com.berry.clickhouse.tcp.client.settings.ClickHouseClientConfig;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * ShardedInserter类绕过Distributed表，将行按分片键直接写入各分片的本地表
+ * 每个分片使用独立的客户端（连接池）和BatchingInserter，各分片的数据块由各自的发送线程并行发送；
+ * 分片的选择与Distributed表一致：分片键对权重之和取模（按无符号数），按分片声明顺序和权重划分取值区间
+ * 行在写入数据块之前完成路由，已编码的数据块无法按列值重新拆分
+ */
+public class ShardedInserter implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedInserter.class);
+
+    private final String table; // 各分片的本地表名
+    private final ShardingKey shardingKey; // 分片键
+    private final Shard[] shards; // 分片，按声明顺序排列
+    private final int[] slotToShard; // 取模结果到分片索引的映射
+    private final int[] keyColumnIdx; // 分片键依赖的列的索引
+    private final IDataType<?>[] keyTypes; // 分片键依赖的列的数据类型
+    private final IColumn[] layout; // 本地表的列，只用于解析列结构
+    private final ConcurrentHashMap<Class<?>, RowWriter<?>> rowWriters = new ConcurrentHashMap<>(); // 按行对象类型缓存的行写入器
+
+    private ShardedInserter(String table, ShardingKey shardingKey, Shard[] shards) throws SQLException {
+        this.table = table;
+        this.shardingKey = shardingKey;
+        this.shards = shards;
+        this.layout = layoutOf(shards[0].client, table); // 各分片的本地表结构相同
+
+        int totalWeight = 0;
+        for (Shard shard : shards) {
+            totalWeight += shard.weight;
+        }
+        this.slotToShard = new int[totalWeight];
+        int slot = 0;
+        for (int i = 0; i < shards.length; i++) {
+            for (int w = 0; w < shards[i].weight; w++) {
+                slotToShard[slot++] = i;
+            }
+        }
+
+        String[] keyColumns = shardingKey.columns();
+        this.keyColumnIdx = new int[keyColumns.length];
+        this.keyTypes = new IDataType<?>[keyColumns.length];
+        for (int k = 0; k < keyColumns.length; k++) {
+            keyColumnIdx[k] = indexOf(layout, keyColumns[k]);
+            keyTypes[k] = layout[keyColumnIdx[k]].type();
+        }
+        shardingKey.validate(keyTypes);
+    }
+
+    /**
+     * 创建写入指定本地表的分片插入器构建器
+     *
+     * @param table 各分片的本地表名
+     * @return Builder实例
+     */
+    public static Builder builder(String table) {
+        return new Builder(table);
+    }
+
+    /**
+     * 写入一行数据，值按表的列顺序排列
+     *
+     * @param values 行数据
+     * @throws SQLException 如果无法计算分片键、写入失败，或者等待发送队列时被中断
+     */
+    public void addRow(Object... values) throws SQLException {
+        Object[] key = new Object[keyColumnIdx.length];
+        for (int k = 0; k < key.length; k++) {
+            key[k] = keyColumnIdx[k] < values.length ? values[keyColumnIdx[k]] : null;
+        }
+        shards[shardOf(key)].inserter.addRow(values);
+    }
+
+    /**
+     * 写入一个行对象，字段按列名绑定，参见RowWriter
+     *
+     * @param row 行对象
+     * @throws SQLException 如果无法计算分片键、写入失败，或者等待发送队列时被中断
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void addObject(Object row) throws SQLException {
+        Object[] key = new Object[keyColumnIdx.length];
+        if (key.length > 0) {
+            RowWriter writer = rowWriter(row.getClass());
+            for (int k = 0; k < key.length; k++) {
+                key[k] = writer.readColumn(keyColumnIdx[k], row);
+            }
+        }
+        shards[shardOf(key)].inserter.addObject(row);
+    }
+
+    /**
+     * 计算分片键依赖的列值所属的分片
+     *
+     * @param keyValues 分片键依赖的列的值，按ShardingKey.columns()的顺序排列
+     * @return 分片索引，按声明顺序从0开始
+     * @throws SQLException 如果无法计算分片键
+     */
+    public int shardOf(Object[] keyValues) throws SQLException {
+        long key = shardingKey.keyOf(keyValues, keyTypes);
+        return slotToShard[(int) Long.remainderUnsigned(key, slotToShard.length)];
+    }
+
+    /**
+     * 封存所有分片正在累积的数据块，并等待所有分片发送完成
+     * 各分片先全部封存再依次等待，发送过程并行进行
+     *
+     * @throws SQLException 如果等待时被中断
+     */
+    public void flush() throws SQLException {
+        for (Shard shard : shards) {
+            shard.inserter.sealPending();
+        }
+        for (Shard shard : shards) {
+            shard.inserter.awaitIdle();
+        }
+    }
+
+    /**
+     * 发送剩余的行并关闭所有分片，由构建器创建的客户端随之关闭
+     *
+     * @throws SQLException 如果关闭某个分片失败，其余分片仍会关闭
+     */
+    @Override
+    public void close() throws SQLException {
+        SQLException failure = null;
+        for (Shard shard : shards) {
+            try {
+                shard.inserter.sealPending(); // 先封存所有分片，剩余的数据块并行发送
+            } catch (SQLException e) {
+                failure = e;
+                break;
+            }
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.inserter.close();
+            } catch (SQLException e) {
+                if (null == failure) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+            shard.closeClient();
+        }
+        if (null != failure) {
+            throw failure;
+        }
+    }
+
+    private RowWriter<?> rowWriter(Class<?> type) throws SQLException {
+        RowWriter<?> writer = rowWriters.get(type);
+        if (null == writer) {
+            writer = RowWriter.compile(type, layout);
+            rowWriters.putIfAbsent(type, writer);
+        }
+        return writer;
+    }
+
+    /**
+     * 读取本地表的列结构，不创建数据块，也不占用连接
+     */
+    private static IColumn[] layoutOf(ClickHouseClient client, String table) throws SQLException {
+        try {
+            return client.tableColumns(table);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("Failed to read the layout of table " + table, e);
+        }
+    }
+
+    private static int indexOf(IColumn[] columns, String name) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].name().equals(name)) {
+                return i;
+            }
+        }
+        throw new SQLException("Sharding key column " + name + " does not exist");
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public ShardingKey getShardingKey() {
+        return shardingKey;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * 获取指定分片的批量插入器，用于查看发送统计
+     *
+     * @param shard 分片索引，按声明顺序从0开始
+     * @return 批量插入器
+     */
+    public BatchingInserter shard(int shard) {
+        return shards[shard].inserter;
+    }
+
+    public long flushedRows() {
+        long rows = 0;
+        for (Shard shard : shards) {
+            rows += shard.inserter.flushedRows();
+        }
+        return rows;
+    }
+
+    public long failedRows() {
+        long rows = 0;
+        for (Shard shard : shards) {
+            rows += shard.inserter.failedRows();
+        }
+        return rows;
+    }
+
+    /**
+     * 单个分片
+     */
+    private static final class Shard {
+
+        private final ClickHouseClient client; // 分片的客户端
+        private final int weight; // 分片的权重
+        private final boolean ownsClient; // 客户端是否由构建器创建
+        private BatchingInserter inserter; // 分片的批量插入器
+
+        Shard(ClickHouseClient client, int weight, boolean ownsClient) {
+            this.client = client;
+            this.weight = weight;
+            this.ownsClient = ownsClient;
+        }
+
+        void closeClient() {
+            if (ownsClient) {
+                try {
+                    client.close();
+                } catch (Exception e) {
+                    LOG.warn("Failed to close shard client: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * ShardedInserter的构建器
+     */
+    public static class Builder {
+
+        private final String table; // 各分片的本地表名
+        private final List<Object> shards = new ArrayList<>(); // 分片的客户端或配置，按声明顺序排列
+        private final List<Integer> weights = new ArrayList<>(); // 分片的权重
+        private ShardingKey shardingKey; // 分片键
+        private Consumer<BatchingInserter.Builder> batching = builder -> { }; // 各分片批量插入器的配置
+
+        private Builder(String table) {
+            this.table = table;
+        }
+
+        /**
+         * 添加一个分片，构建时按配置创建客户端，关闭时随之关闭；配置中的多个主机作为该分片的副本
+         *
+         * @param config 分片的客户端配置
+         * @param weight 分片的权重，与Distributed表集群配置中的weight一致
+         * @return Builder实例
+         */
+        public Builder shard(ClickHouseClientConfig config, int weight) {
+            Validate.ensure(null != config, "config must not be null");
+            this.shards.add(config);
+            this.weights.add(weight);
+            return this;
+        }
+
+        /**
+         * 添加一个分片，使用调用方的客户端，关闭时不关闭该客户端
+         *
+         * @param client 分片的客户端
+         * @param weight 分片的权重，与Distributed表集群配置中的weight一致
+         * @return Builder实例
+         */
+        public Builder shard(ClickHouseClient client, int weight) {
+            Validate.ensure(null != client, "client must not be null");
+            this.shards.add(client);
+            this.weights.add(weight);
+            return this;
+        }
+
+        public Builder shardingKey(ShardingKey shardingKey) {
+            this.shardingKey = shardingKey; // 设置分片键
+            return this;
+        }
+
+        /**
+         * 设置各分片批量插入器的参数，例如数据块大小、等待时间和发送线程数量
+         *
+         * @param batching 配置函数，对每个分片调用一次
+         * @return Builder实例
+         */
+        public Builder batching(Consumer<BatchingInserter.Builder> batching) {
+            this.batching = batching; // 设置各分片批量插入器的配置
+            return this;
+        }
+
+        /**
+         * 创建各分片的客户端和批量插入器
+         *
+         * @return 分片插入器
+         * @throws SQLException 如果连接分片失败，或者分片键依赖的列不存在或类型不受支持；已创建的分片随之关闭
+         */
+        public ShardedInserter build() throws SQLException {
+            Validate.ensure(null != table, "table must not be null");
+            Validate.ensure(!shards.isEmpty(), "at least one shard is required");
+            Validate.ensure(null != shardingKey, "shardingKey must not be null");
+            Validate.ensure(null != batching, "batching must not be null");
+            for (int weight : weights) {
+                Validate.ensure(weight > 0, "shard weight must be positive");
+            }
+
+            Shard[] built = new Shard[shards.size()];
+            try {
+                for (int i = 0; i < built.length; i++) {
+                    Object shard = shards.get(i);
+                    built[i] = (shard instanceof ClickHouseClient)
+                            ? new Shard((ClickHouseClient) shard, weights.get(i), false)
+                            : new Shard(connect((ClickHouseClientConfig) shard), weights.get(i), true);
+                    BatchingInserter.Builder builder = built[i].client.batchingInserter(table);
+                    batching.accept(builder);
+                    built[i].inserter = builder.build();
+                }
+                return new ShardedInserter(table, shardingKey, built);
+            } catch (SQLException | RuntimeException e) {
+                for (Shard shard : built) {
+                    if (null == shard) {
+                        continue;
+                    }
+                    if (null != shard.inserter) {
+                        try {
+                            shard.inserter.close();
+                        } catch (SQLException suppressed) {
+                            e.addSuppressed(suppressed);
+                        }
+                    }
+                    shard.closeClient();
+                }
+                throw e;
+            }
+        }
+
+        private static ClickHouseClient connect(ClickHouseClientConfig config) throws SQLException {
+            try {
+                return new ClickHouseClient.Builder().config(config).build();
+            } catch (SQLException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SQLException("Failed to connect shard " + config.host() + ":" + config.port(), e);
+            }
+        }
+    }
+}
@@ -5,14 +5,22 @@ import com.berry.clickhouse.tcp.client.NativeContext;
 import com.berry.clickhouse.tcp.client.SessionState;
 import com.berry.clickhouse.tcp.client.data.Block;
 import com.berry.clickhouse.tcp.client.data.ColumnWriterBufferFactory;
+import com.berry.clickhouse.tcp.client.data.IColumn;
+import com.berry.clickhouse.tcp.client.exception.ClickHouseSQLException;
 import com.berry.clickhouse.tcp.client.log.Logger;
 import com.berry.clickhouse.tcp.client.log.LoggerFactory;
+import com.berry.clickhouse.tcp.client.misc.CheckedConsumer;
+import com.berry.clickhouse.tcp.client.misc.CheckedSupplier;
 import com.berry.clickhouse.tcp.client.misc.Validate;
+import com.berry.clickhouse.tcp.client.protocol.EncodedDataRequest;
+import com.berry.clickhouse.tcp.client.protocol.FramedDataResponse;
 import com.berry.clickhouse.tcp.client.protocol.HelloResponse;
 import com.berry.clickhouse.tcp.client.settings.ClickHouseClientConfig;
 import com.berry.clickhouse.tcp.client.settings.ClickHouseDefines;
+import com.berry.clickhouse.tcp.client.settings.SettingKey;
 import com.berry.clickhouse.tcp.client.stream.QueryResult;
 
+import java.io.Serializable;
 import java.net.InetSocketAddress;
 import java.sql.ClientInfoStatus;
 import java.sql.SQLClientInfoException;
@@ -20,6 +28,7 @@ import java.sql.SQLException;
 import java.time.Duration;
 import java.time.ZoneId;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -35,12 +44,14 @@ import static com.berry.clickhouse.tcp.client.jdbc.ClickhousePropertiesParser.PO
 public class ClickHouseConnection {
 
     private static final Logger LOG = LoggerFactory.getLogger(ClickHouseConnection.class);
+    private static final int TYPE_MISMATCH = 53; // 服务端TYPE_MISMATCH错误码
     private static final Pattern VALUES_REGEX = Pattern.compile("[Vv][Aa][Ll][Uu][Ee][Ss]\\s*\\(");
 
     private final AtomicBoolean isClosed; // 连接是否关闭的状态
     private final AtomicReference<ClickHouseClientConfig> cfg; // 连接配置
     private final AtomicReference<SessionState> state = new AtomicReference<>(SessionState.IDLE); // 当前会话状态
     private volatile NativeContext nativeCtx; // 原生上下文
+    private volatile String pendingInsertQuery; // 等待插入数据的插入查询
 
     /**
      * 构造函数，初始化ClickHouseConnection实例
@@ -164,11 +175,40 @@ public class ClickHouseConnection {
      * @throws SQLException 如果获取样本数据块时发生错误
      */
     public Block getSampleBlock(final String insertQuery) throws SQLException {
+        return getSampleBlock(insertQuery, cfg.get().settings());
+    }
+
+    private Block getSampleBlock(final String insertQuery, Map<SettingKey, Serializable> settings) throws SQLException {
         NativeClient nativeClient = getHealthyNativeClient();
-        nativeClient.sendQuery(insertQuery, nativeCtx.clientCtx(), cfg.get().settings());
+        nativeClient.sendQuery(insertQuery, nativeCtx.clientCtx(), settings);
         Validate.isTrue(this.state.compareAndSet(SessionState.IDLE, SessionState.WAITING_INSERT),
                 "Connection is currently waiting for an insert operation, check your previous InsertStatement.");
-        return nativeClient.receiveSampleBlock(cfg.get().queryTimeout(), nativeCtx.serverCtx());
+        this.pendingInsertQuery = insertQuery;
+        try {
+            return nativeClient.receiveSampleBlock(cfg.get().queryTimeout(), nativeCtx.serverCtx());
+        } catch (SQLException | RuntimeException e) {
+            // 服务端以异常响应插入查询时没有打开插入，不能保持WAITING_INSERT；读取失败时连接由调用方丢弃
+            this.state.compareAndSet(SessionState.WAITING_INSERT, SessionState.IDLE);
+            throw e;
+        }
+    }
+
+    /**
+     * 连接是否空闲，即没有等待中的插入
+     *
+     * @return 空闲时返回true
+     */
+    public boolean isIdle() {
+        return this.state.get() == SessionState.IDLE;
+    }
+
+    /**
+     * 获取等待插入数据的插入查询
+     *
+     * @return 插入查询，没有等待中的插入时返回null
+     */
+    public String pendingInsertQuery() {
+        return (this.state.get() == SessionState.WAITING_INSERT) ? pendingInsertQuery : null;
     }
 
     /**
@@ -189,18 +229,84 @@ public class ClickHouseConnection {
         return nativeClient.receiveQuery(cfg.queryTimeout(), nativeCtx.serverCtx(), lazy, serialize);
     }
 
+    /**
+     * 发送查询请求，懒加载并反序列化结果，每个数据包优先覆盖reuse提供的数据块
+     *
+     * @param query 查询语句
+     * @param cfg 客户端配置
+     * @param reuse 提供可覆盖的数据块，没有可用数据块时返回null
+     * @return 查询结果
+     * @throws SQLException 如果发送查询请求时发生错误
+     */
+    public QueryResult sendQueryRequest(final String query, ClickHouseClientConfig cfg,
+                                        CheckedSupplier<Block, SQLException> reuse) throws SQLException {
+        Validate.isTrue(this.state.get() == SessionState.IDLE,
+                "Connection is currently waiting for an insert operation, check your previous InsertStatement.");
+        NativeClient nativeClient = getHealthyNativeClient();
+        nativeClient.sendQuery(query, nativeCtx.clientCtx(), cfg.settings());
+        return nativeClient.receiveQuery(cfg.queryTimeout(), nativeCtx.serverCtx(), reuse);
+    }
+
+    /**
+     * 发送查询请求并接收完整的结果，数据块只分帧不解码，用于缓存查询结果
+     *
+     * @param query 查询语句
+     * @param cfg 客户端配置
+     * @return 按接收顺序排列的数据块，第一个数据块为结果头部
+     * @throws SQLException 如果发送查询请求或接收结果时发生错误
+     */
+    public List<FramedDataResponse> sendFramedQueryRequest(final String query, ClickHouseClientConfig cfg) throws SQLException {
+        Validate.isTrue(this.state.get() == SessionState.IDLE,
+                "Connection is currently waiting for an insert operation, check your previous InsertStatement.");
+        NativeClient nativeClient = getHealthyNativeClient();
+        nativeClient.sendQuery(query, nativeCtx.clientCtx(), cfg.settings());
+        return nativeClient.receiveFramedQuery(cfg.queryTimeout(), nativeCtx.serverCtx());
+    }
+
+    /**
+     * 发送查询请求，每收到一个数据块交给consumer处理，数据块只分帧不解码
+     * consumer处理失败时结果没有读完，连接不能继续使用
+     *
+     * @param query 查询语句
+     * @param cfg 客户端配置
+     * @param consumer 按接收顺序处理数据块，第一个数据块为结果头部
+     * @throws SQLException 如果发送查询请求、接收结果或consumer处理时发生错误
+     */
+    public void sendFramedQueryRequest(final String query, ClickHouseClientConfig cfg,
+                                       CheckedConsumer<FramedDataResponse, SQLException> consumer) throws SQLException {
+        Validate.isTrue(this.state.get() == SessionState.IDLE,
+                "Connection is currently waiting for an insert operation, check your previous InsertStatement.");
+        NativeClient nativeClient = getHealthyNativeClient();
+        nativeClient.sendQuery(query, nativeCtx.clientCtx(), cfg.settings());
+        nativeClient.receiveFramedQuery(cfg.queryTimeout(), nativeCtx.serverCtx(), consumer);
+    }
+
     /**
      * 发送插入请求
      * 
      * @param block 数据块
      * @return 插入的行数
-     * @throws SQLException 如果发送插入请求时发生错误
+     * @throws SQLException 如果各列行数不一致或者发送插入请求时发生错误
      */
     public int sendInsertRequest(Block block) throws SQLException {
         Validate.isTrue(this.state.get() == SessionState.WAITING_INSERT, "Call getSampleBlock before insert.");
+        try {
+            block.checkRowCounts();
+        } catch (SQLException e) {
+            abortInsert(); // 各列行数不一致时不发送任何行
+            throw e;
+        }
         try {
             NativeClient nativeClient = getNativeClient();
-            nativeClient.sendData(block);
+            // 超过单个数据包行数或字节数上限的数据块在行边界拆分为多个连续的数据包
+            int[] bounds = block.splitRows(cfg.get().getMaxInsertBlockRows(), cfg.get().getMaxInsertBlockBytes());
+            if (bounds.length <= 2) {
+                nativeClient.sendData(block);
+            } else {
+                for (int i = 0; i + 1 < bounds.length; i++) {
+                    nativeClient.sendData(block, bounds[i], bounds[i + 1]);
+                }
+            }
             nativeClient.sendData(new Block());
             nativeClient.receiveEndOfStream(cfg.get().queryTimeout(), nativeCtx.serverCtx());
         } finally {
@@ -209,6 +315,118 @@ public class ClickHouseConnection {
         return block.rowCnt();
     }
 
+    /**
+     * 发送插入查询并插入按本地缓存的表结构创建的数据块
+     * 服务端返回的样本数据块与数据块的列名或类型不一致时，发送空数据块结束本次插入并抛出TYPE_MISMATCH异常
+     *
+     * @param insertQuery 插入查询
+     * @param block 数据块
+     * @return 插入的行数
+     * @throws SQLException 如果表结构不一致或插入时发生错误
+     */
+    public int sendInsertRequest(String insertQuery, Block block) throws SQLException {
+        Block sample = getSampleBlock(insertQuery);
+        String mismatch = structureMismatch(sample, block);
+        if (null == mismatch) {
+            return sendInsertRequest(block);
+        }
+        abortInsert();
+        throw new ClickHouseSQLException(TYPE_MISMATCH, "Structure of block doesn't match the table: " + mismatch);
+    }
+
+    /**
+     * 发送带去重令牌的插入查询并发送预编码的数据包，用于可重试的插入
+     * 连接上有未完成的插入（例如样本数据块的插入查询不带去重令牌）时先结束它
+     *
+     * @param insertQuery 插入查询
+     * @param deduplicationToken 去重令牌，同一次插入的每次尝试使用同一个令牌
+     * @param block 数据块，用于检查表结构
+     * @param payload 数据块编码后的全部数据包，包括结束插入的空数据块
+     * @return 插入的行数
+     * @throws SQLException 如果表结构不一致或插入时发生错误
+     */
+    public int sendInsertRequest(String insertQuery, String deduplicationToken, Block block,
+                                 EncodedDataRequest payload) throws SQLException {
+        if (this.state.get() == SessionState.WAITING_INSERT) {
+            abortInsert();
+        }
+        Map<SettingKey, Serializable> settings = new HashMap<>(cfg.get().settings());
+        settings.put(SettingKey.insert_deduplication_token, deduplicationToken);
+        Block sample = getSampleBlock(insertQuery, settings);
+        String mismatch = structureMismatch(sample, block);
+        if (null != mismatch) {
+            abortInsert();
+            throw new ClickHouseSQLException(TYPE_MISMATCH, "Structure of block doesn't match the table: " + mismatch);
+        }
+        try {
+            NativeClient nativeClient = getNativeClient();
+            nativeClient.sendData(payload);
+            nativeClient.receiveEndOfStream(cfg.get().queryTimeout(), nativeCtx.serverCtx());
+        } finally {
+            Validate.isTrue(this.state.compareAndSet(SessionState.WAITING_INSERT, SessionState.IDLE));
+        }
+        return payload.rows();
+    }
+
+    /**
+     * 不发送任何行，结束等待中的插入
+     *
+     * @throws SQLException 如果发送或接收失败
+     */
+    public void abortInsert() throws SQLException {
+        try {
+            NativeClient nativeClient = getNativeClient();
+            nativeClient.sendData(new Block()); // 不发送任何行，结束本次插入
+            nativeClient.receiveEndOfStream(cfg.get().queryTimeout(), nativeCtx.serverCtx());
+        } finally {
+            this.state.compareAndSet(SessionState.WAITING_INSERT, SessionState.IDLE);
+        }
+    }
+
+    /**
+     * 获取当前连接上最近一次发送的查询ID
+     *
+     * @return 查询ID，尚未发送查询时返回null
+     */
+    public String queryId() {
+        return getNativeClient().queryId();
+    }
+
+    /**
+     * 取消当前连接上正在执行的查询，可以在读取结果的线程之外调用
+     * 取消后需要由读取结果的线程调用drainQuery()读取剩余的响应，连接才能继续使用
+     *
+     * @throws SQLException 如果发送取消请求失败
+     */
+    public void cancelQuery() throws SQLException {
+        getNativeClient().sendCancel();
+    }
+
+    /**
+     * 读取并丢弃当前查询剩余的响应，直到数据流结束
+     *
+     * @return 读取到数据流结束时返回true，连接可以继续使用；读取失败时返回false，连接应当丢弃
+     */
+    public boolean drainQuery() {
+        return getNativeClient().drainQuery(cfg.get().queryTimeout(), nativeCtx.serverCtx());
+    }
+
+    private static String structureMismatch(Block sample, Block block) throws SQLException {
+        if (sample.columnCnt() != block.columnCnt()) {
+            return "expected " + sample.columnCnt() + " columns, got " + block.columnCnt();
+        }
+        for (int i = 0; i < sample.columnCnt(); i++) {
+            IColumn expected = sample.getColumn(i);
+            IColumn actual = block.getColumn(i);
+            if (null == actual || !expected.name().equals(actual.name())
+                    || !expected.type().name().equals(actual.type().name())) {
+                return "expected " + expected.name() + " " + expected.type().name() + " at position " + i + ", got "
+                        + ((null == actual) ? "nothing" : actual.name() + " " + actual.type().name());
+            }
+        }
+        return null;
+    }
+
     /**
      * 获取健康的NativeClient实例
      * 
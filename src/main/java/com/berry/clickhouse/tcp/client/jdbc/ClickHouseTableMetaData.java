@@ -1,10 +1,17 @@
 package com.berry.clickhouse.tcp.client.jdbc;
 
 import com.berry.clickhouse.tcp.client.NativeContext;
+import com.berry.clickhouse.tcp.client.data.IColumn;
+import com.berry.clickhouse.tcp.client.data.RowWriter;
+import com.berry.clickhouse.tcp.client.meta.ColumnSizeStatistics;
+import com.berry.clickhouse.tcp.client.meta.PartitionKey;
 import com.berry.clickhouse.tcp.client.util.BinarySerializerUtil;
 
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * ClickHouseTableMetaData类表示ClickHouse表的元数据
@@ -18,6 +25,9 @@ public class ClickHouseTableMetaData {
     private final byte[][] colNameBytes; // 列名的字节数组
     private NativeContext.ServerContext serverContext; // 服务器上下文
     private final Set<String> systemBufferColumns; // 系统缓冲列
+    private final ColumnSizeStatistics columnSizeStatistics = new ColumnSizeStatistics(); // 列大小统计
+    private final ConcurrentMap<Class<?>, RowWriter<?>> rowWriters = new ConcurrentHashMap<>(); // 按行对象类型缓存的行写入器
+    private volatile PartitionKey partitionKey; // 客户端计算的分区键，为null时不按分区拆分
 
     /**
      * 构造函数，初始化ClickHouseTableMetaData实例
@@ -100,4 +110,55 @@ public class ClickHouseTableMetaData {
     public Set<String> getSystemBufferColumns() {
         return systemBufferColumns; // 返回系统缓冲列集合
     }
+
+    /**
+     * 获取客户端计算的分区键
+     *
+     * @return 分区键，未设置时返回null
+     */
+    public PartitionKey getPartitionKey() {
+        return partitionKey; // 返回分区键
+    }
+
+    /**
+     * 设置客户端计算的分区键，批量插入时按分区把行分组到不同的数据块
+     *
+     * @param partitionKey 分区键，为null时不按分区拆分
+     * @return 当前实例
+     */
+    public ClickHouseTableMetaData withPartitionKey(PartitionKey partitionKey) {
+        this.partitionKey = partitionKey; // 设置分区键
+        return this;
+    }
+
+    /**
+     * 获取列大小统计，用于确定列写入缓冲区的分段大小
+     *
+     * @return 列大小统计
+     */
+    public ColumnSizeStatistics getColumnSizeStatistics() {
+        return columnSizeStatistics; // 返回列大小统计
+    }
+
+    /**
+     * 获取指定类型的行写入器，首次使用时按列结构编译并缓存
+     *
+     * @param type    行对象的类型
+     * @param columns 按本表元数据创建的数据块的列
+     * @param <T>     行对象的类型
+     * @return 行写入器
+     * @throws SQLException 如果编译行写入器失败
+     */
+    @SuppressWarnings("unchecked")
+    public <T> RowWriter<T> getRowWriter(Class<T> type, IColumn[] columns) throws SQLException {
+        RowWriter<?> writer = rowWriters.get(type);
+        if (null == writer) {
+            writer = RowWriter.compile(type, columns); // 编译行写入器
+            RowWriter<?> previous = rowWriters.putIfAbsent(type, writer);
+            if (null != previous) {
+                writer = previous;
+            }
+        }
+        return (RowWriter<T>) writer;
+    }
 }
@@ -1,33 +1,149 @@
 package com.berry.clickhouse.tcp.client.meta;
 
+import com.berry.clickhouse.tcp.client.data.Block;
+import com.berry.clickhouse.tcp.client.data.IColumn;
 import com.berry.clickhouse.tcp.client.jdbc.ClickHouseTableMetaData;
 
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ClickHouseTableMetaDataManager类用于管理ClickHouse表的元数据
  * 提供注册和获取表元数据的功能
+ * 通过Builder注册的元数据永久有效；从样本数据块自动采集的元数据在TTL到期或插入因表结构不一致被拒绝后失效
  */
 public class ClickHouseTableMetaDataManager {
 
-    private static final ConcurrentHashMap<String, ClickHouseTableMetaData> tables = new ConcurrentHashMap<>(); // 存储表元数据的并发哈希映射
+    /**
+     * 表示表结构与客户端缓存不一致的服务端错误码
+     * THERE_IS_NO_COLUMN、SIZES_OF_COLUMNS_DOESNT_MATCH、NOT_FOUND_COLUMN_IN_BLOCK、NO_SUCH_COLUMN_IN_TABLE、
+     * NUMBER_OF_COLUMNS_DOESNT_MATCH、CANNOT_READ_ALL_DATA、UNKNOWN_IDENTIFIER、UNKNOWN_TYPE、TYPE_MISMATCH、
+     * UNKNOWN_TABLE、CANNOT_CONVERT_TYPE
+     */
+    private static final int[] SCHEMA_ERROR_CODES = {8, 9, 10, 16, 20, 33, 47, 50, 53, 60, 70};
+
+    private static final ConcurrentHashMap<String, Entry> tables = new ConcurrentHashMap<>(); // 存储表元数据的并发哈希映射
 
     /**
-     * 注册表元数据
-     * 
+     * 注册表元数据，永久有效
+     *
      * @param tableMetaData ClickHouseTableMetaData实例
      */
     public void register(ClickHouseTableMetaData tableMetaData) {
-        tables.putIfAbsent(tableMetaData.getTable(), tableMetaData); // 如果表名不存在，则注册表元数据
+        tables.putIfAbsent(tableMetaData.getTable(), new Entry(tableMetaData, true, 0L)); // 如果表名不存在，则注册表元数据
+    }
+
+    /**
+     * 注册自动采集的表元数据，在TTL到期后失效
+     *
+     * @param tableMetaData ClickHouseTableMetaData实例
+     * @param ttl 有效期
+     */
+    public void register(ClickHouseTableMetaData tableMetaData, Duration ttl) {
+        long ttlNanos;
+        try {
+            ttlNanos = Math.min(ttl.toNanos(), Long.MAX_VALUE / 4);
+        } catch (ArithmeticException e) {
+            ttlNanos = Long.MAX_VALUE / 4; // 超出纳秒表示范围的TTL
+        }
+        long expiresAt = System.nanoTime() + ttlNanos;
+        tables.compute(tableMetaData.getTable(), (table, old) ->
+                (null != old && old.pinned()) ? old : new Entry(tableMetaData, false, expiresAt)); // 不覆盖永久有效的元数据
     }
 
     /**
      * 获取指定表的元数据
-     * 
+     *
      * @param tableName 表名
-     * @return ClickHouseTableMetaData实例，如果表不存在则返回null
+     * @return ClickHouseTableMetaData实例，如果表不存在或已过期则返回null
      */
     public ClickHouseTableMetaData getTableMetaData(String tableName) {
-        return tables.get(tableName); // 返回指定表的元数据
+        Entry entry = tables.get(tableName);
+        if (null == entry) {
+            return null;
+        }
+        if (!entry.pinned() && System.nanoTime() - entry.expiresAt >= 0) {
+            tables.remove(tableName, entry); // 移除过期的元数据
+            return null;
+        }
+        return entry.metaData; // 返回指定表的元数据
+    }
+
+    /**
+     * 使自动采集的表元数据失效，下次创建数据块时重新获取样本数据块
+     *
+     * @param tableName 表名
+     * @return 有元数据被移除返回true
+     */
+    public boolean invalidate(String tableName) {
+        Entry entry = tables.get(tableName);
+        return null != entry && !entry.pinned() && tables.remove(tableName, entry);
+    }
+
+    /**
+     * 从样本数据块采集表元数据
+     *
+     * @param tableName 表名
+     * @param sampleBlock 样本数据块
+     * @return 表元数据
+     * @throws SQLException 如果读取列失败
+     */
+    public static ClickHouseTableMetaData capture(String tableName, Block sampleBlock) throws SQLException {
+        int columnCnt = sampleBlock.columnCnt();
+        List<String> names = new ArrayList<>(columnCnt);
+        List<String> types = new ArrayList<>(columnCnt);
+        for (int i = 0; i < columnCnt; i++) {
+            IColumn column = sampleBlock.getColumn(i);
+            names.add(column.name());
+            types.add(column.type().name());
+        }
+        return new ClickHouseTableMetaData(tableName, names, types, Collections.emptySet());
+    }
+
+    /**
+     * 判断异常是否表示表结构与客户端缓存不一致
+     *
+     * @param throwable 异常
+     * @return 表结构不一致返回true
+     */
+    public static boolean isSchemaMismatch(Throwable throwable) {
+        for (Throwable t = throwable; null != t; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                int code = ((SQLException) t).getErrorCode();
+                for (int schemaErrorCode : SCHEMA_ERROR_CODES) {
+                    if (code == schemaErrorCode) {
+                        return true;
+                    }
+                }
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 表元数据及其过期时间
+     */
+    private static final class Entry {
+
+        private final ClickHouseTableMetaData metaData; // 表元数据
+        private final boolean pinned; // 是否永久有效
+        private final long expiresAt; // 过期时间（System.nanoTime）
+
+        Entry(ClickHouseTableMetaData metaData, boolean pinned, long expiresAt) {
+            this.metaData = metaData;
+            this.pinned = pinned;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean pinned() {
+            return pinned;
+        }
     }
 }
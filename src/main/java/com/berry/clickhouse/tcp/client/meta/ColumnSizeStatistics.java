@@ -0,0 +1,89 @@
+package com.berry.clickhouse.tcp.client.meta;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ColumnSizeStatistics类记录表中每一列在历史数据块中写入的字节数
+ * 使用指数加权移动平均估计下一个数据块中该列的大小，用于确定列写入缓冲区的分段大小
+ */
+public class ColumnSizeStatistics {
+
+    /**
+     * 指数加权移动平均的平滑系数
+     */
+    private static final double ALPHA = 0.2D;
+
+    private final Map<String, ColumnSize> sizes = new ConcurrentHashMap<>(); // 列名到列大小统计的映射
+
+    /**
+     * 记录一次数据块中某列写入的字节数和行数
+     *
+     * @param columnName 列名
+     * @param bytes 写入的字节数
+     * @param rows 写入的行数
+     */
+    public void record(String columnName, long bytes, int rows) {
+        if (null == columnName || bytes <= 0 || rows <= 0) {
+            return;
+        }
+        sizes.computeIfAbsent(columnName, k -> new ColumnSize()).update(bytes, rows);
+    }
+
+    /**
+     * 获取列在一个数据块中的预期字节数
+     *
+     * @param columnName 列名
+     * @return 预期字节数，没有统计数据时返回-1
+     */
+    public long expectedBytes(String columnName) {
+        ColumnSize size = sizes.get(columnName);
+        return (null == size) ? -1L : size.bytes();
+    }
+
+    /**
+     * 获取列每行的平均字节数
+     *
+     * @param columnName 列名
+     * @return 每行平均字节数，没有统计数据时返回-1
+     */
+    public double bytesPerRow(String columnName) {
+        ColumnSize size = sizes.get(columnName);
+        return (null == size) ? -1D : size.bytesPerRow();
+    }
+
+    /**
+     * 清空所有统计数据
+     */
+    public void clear() {
+        sizes.clear();
+    }
+
+    /**
+     * 单列的大小统计
+     */
+    private static final class ColumnSize {
+
+        private double bytes = -1D; // 每个数据块字节数的移动平均
+        private double bytesPerRow = -1D; // 每行字节数的移动平均
+
+        synchronized void update(long blockBytes, int rows) {
+            double perRow = (double) blockBytes / rows;
+            if (bytes < 0) {
+                bytes = blockBytes;
+                bytesPerRow = perRow;
+            } else {
+                bytes += ALPHA * (blockBytes - bytes);
+                bytesPerRow += ALPHA * (perRow - bytesPerRow);
+            }
+        }
+
+        synchronized long bytes() {
+            return (long) Math.ceil(bytes);
+        }
+
+        synchronized double bytesPerRow() {
+            return bytesPerRow;
+        }
+    }
+}
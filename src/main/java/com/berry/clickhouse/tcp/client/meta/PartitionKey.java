@@ -0,0 +1,170 @@
+package com.berry.clickhouse.tcp.client.meta;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.function.Function;
+
+/**
+ * PartitionKey类在客户端计算一行数据所属的分区，对应表的PARTITION BY表达式
+ * 写入时按分区把行分组到不同的数据块，每个数据块只包含一个分区的行，服务端每次插入只生成一个数据分片
+ * 计算结果只用于分组，不需要与服务端的分区ID完全一致，但同一分区的行必须得到相同的结果
+ */
+public final class PartitionKey {
+
+    private final String column; // 分区键所在的列
+    private final String expression; // 分区表达式，仅用于描述
+    private final Function<Object, Object> function; // 由列值计算分区的函数
+
+    private PartitionKey(String column, String expression, Function<Object, Object> function) {
+        this.column = column;
+        this.expression = expression;
+        this.function = function;
+    }
+
+    /**
+     * 创建自定义的分区键
+     *
+     * @param column     分区键所在的列
+     * @param expression 分区表达式，仅用于描述
+     * @param function   由列值计算分区的函数，返回值需要正确实现equals和hashCode
+     * @return 分区键
+     */
+    public static PartitionKey of(String column, String expression, Function<Object, Object> function) {
+        return new PartitionKey(column, expression, function);
+    }
+
+    /**
+     * 按列值本身分区，对应PARTITION BY column
+     *
+     * @param column 分区键所在的列
+     * @return 分区键
+     */
+    public static PartitionKey identity(String column) {
+        return new PartitionKey(column, column, Function.identity());
+    }
+
+    /**
+     * 按天分区，对应PARTITION BY toYYYYMMDD(column)
+     *
+     * @param column 分区键所在的列
+     * @return 分区键
+     */
+    public static PartitionKey toYYYYMMDD(String column) {
+        return toYYYYMMDD(column, null);
+    }
+
+    /**
+     * 按天分区，对应PARTITION BY toYYYYMMDD(column)
+     *
+     * @param column 分区键所在的列
+     * @param zone   Instant和Date类型的值换算日期使用的时区，应与列的时区一致，为null时使用UTC；
+     *               ZonedDateTime和OffsetDateTime类型的值为null时使用值本身的时区
+     * @return 分区键
+     */
+    public static PartitionKey toYYYYMMDD(String column, ZoneId zone) {
+        return new PartitionKey(column, "toYYYYMMDD(" + column + ")", value -> {
+            LocalDate date = toLocalDate(value, zone);
+            return (null == date) ? null : date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+        });
+    }
+
+    /**
+     * 按月分区，对应PARTITION BY toYYYYMM(column)
+     *
+     * @param column 分区键所在的列
+     * @return 分区键
+     */
+    public static PartitionKey toYYYYMM(String column) {
+        return toYYYYMM(column, null);
+    }
+
+    /**
+     * 按月分区，对应PARTITION BY toYYYYMM(column)
+     *
+     * @param column 分区键所在的列
+     * @param zone   换算日期使用的时区，参见toYYYYMMDD(String, ZoneId)
+     * @return 分区键
+     */
+    public static PartitionKey toYYYYMM(String column, ZoneId zone) {
+        return new PartitionKey(column, "toYYYYMM(" + column + ")", value -> {
+            LocalDate date = toLocalDate(value, zone);
+            return (null == date) ? null : date.getYear() * 100 + date.getMonthValue();
+        });
+    }
+
+    /**
+     * 按日期分区，对应PARTITION BY toDate(column)
+     *
+     * @param column 分区键所在的列
+     * @param zone   换算日期使用的时区，参见toYYYYMMDD(String, ZoneId)
+     * @return 分区键
+     */
+    public static PartitionKey toDate(String column, ZoneId zone) {
+        return new PartitionKey(column, "toDate(" + column + ")", value -> toLocalDate(value, zone));
+    }
+
+    /**
+     * 计算列值所属的分区
+     *
+     * @param value 分区键所在列的值
+     * @return 分区，值为null时可能返回null
+     * @throws SQLException 如果列值的类型不受支持
+     */
+    public Object partitionOf(Object value) throws SQLException {
+        try {
+            return function.apply(value);
+        } catch (IllegalArgumentException | ClassCastException e) {
+            throw new SQLException("Cannot compute partition " + expression + " of value " + value, e);
+        }
+    }
+
+    public String column() {
+        return column;
+    }
+
+    public String expression() {
+        return expression;
+    }
+
+    private static LocalDate toLocalDate(Object value, ZoneId zone) {
+        if (null == value) {
+            return null;
+        }
+        if (value instanceof LocalDate) {
+            return (LocalDate) value;
+        }
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).toLocalDate();
+        }
+        if (value instanceof ZonedDateTime) {
+            ZonedDateTime dateTime = (ZonedDateTime) value;
+            return ((null == zone) ? dateTime : dateTime.withZoneSameInstant(zone)).toLocalDate();
+        }
+        if (value instanceof OffsetDateTime) {
+            OffsetDateTime dateTime = (OffsetDateTime) value;
+            return (null == zone) ? dateTime.toLocalDate() : dateTime.atZoneSameInstant(zone).toLocalDate();
+        }
+        if (value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate();
+        }
+        if (value instanceof Instant) {
+            return ((Instant) value).atZone(null == zone ? ZoneOffset.UTC : zone).toLocalDate();
+        }
+        if (value instanceof Date) {
+            return ((Date) value).toInstant().atZone(null == zone ? ZoneOffset.UTC : zone).toLocalDate();
+        }
+        throw new IllegalArgumentException("Unsupported date value type " + value.getClass().getName());
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,290 @@
+package com.berry.clickhouse.tcp.client.meta;
+
+import com.berry.clickhouse.tcp.client.buffer.BuffedWriter;
+import com.berry.clickhouse.tcp.client.data.IDataType;
+import com.berry.clickhouse.tcp.client.data.type.BaseDataTypeInt;
+import com.berry.clickhouse.tcp.client.data.type.DataTypeFloat32;
+import com.berry.clickhouse.tcp.client.data.type.DataTypeFloat64;
+import com.berry.clickhouse.tcp.client.data.type.complex.DataTypeDateTime64;
+import com.berry.clickhouse.tcp.client.data.type.complex.DataTypeDecimal;
+import com.berry.clickhouse.tcp.client.data.type.complex.DataTypeEnum16;
+import com.berry.clickhouse.tcp.client.data.type.complex.DataTypeEnum8;
+import com.berry.clickhouse.tcp.client.data.type.complex.DataTypeFixedString;
+import com.berry.clickhouse.tcp.client.data.type.complex.DataTypeLowCardinality;
+import com.berry.clickhouse.tcp.client.data.type.complex.DataTypeNullable;
+import com.berry.clickhouse.tcp.client.data.type.complex.DataTypeString;
+import com.berry.clickhouse.tcp.client.misc.ClickHouseCityHash;
+import com.berry.clickhouse.tcp.client.misc.Validate;
+import com.berry.clickhouse.tcp.client.serde.BinarySerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * ShardingKey类在客户端计算一行数据的分片键，对应Distributed表的sharding_key表达式
+ * 分片键对分片权重之和取模（按无符号数）选择分片，与Distributed表的路由规则一致，
+ * 因此直接写入各分片本地表的数据与经过Distributed表写入的数据落在相同的分片上
+ */
+public final class ShardingKey {
+
+    private final String[] columns; // 分片键依赖的列
+    private final String expression; // 分片表达式，仅用于描述
+    private final Function function; // 由列值计算分片键的函数
+    private final Predicate<IDataType<?>> supports; // 列的数据类型是否受支持
+
+    private ShardingKey(String[] columns, String expression, Function function, Predicate<IDataType<?>> supports) {
+        this.columns = columns;
+        this.expression = expression;
+        this.function = function;
+        this.supports = supports;
+    }
+
+    /**
+     * 创建自定义的分片键，例如使用murmurHash3_64或xxHash64时由调用方提供与服务端一致的实现
+     *
+     * @param columns    分片键依赖的列
+     * @param expression 分片表达式，仅用于描述
+     * @param function   由列值（按columns的顺序排列）计算分片键的函数，返回值按无符号数处理
+     * @return 分片键
+     */
+    public static ShardingKey of(String[] columns, String expression, ToLongFunction<Object[]> function) {
+        Validate.ensure(null != columns && null != function, "columns and function must not be null");
+        return new ShardingKey(columns.clone(), expression, (values, types) -> function.applyAsLong(values), type -> true);
+    }
+
+    /**
+     * 以整数列的值作为分片键，对应sharding_key = column
+     * 与Distributed表一致，不超过4字节的整数先转换为UInt32：有符号数按符号扩展，无符号数按零扩展
+     *
+     * @param column 分片键所在的列，必须是整数类型
+     * @return 分片键
+     */
+    public static ShardingKey identity(String column) {
+        return new ShardingKey(new String[]{column}, column, (values, types) -> {
+            Object value = values[0];
+            if (!(value instanceof Number)) {
+                throw new SQLException("Sharding key " + column + " requires an integer value, got " + value);
+            }
+            long key = ((Number) value).longValue();
+            IDataType<?> type = unwrapLowCardinality(types[0]);
+            if (type.byteSize() >= Long.BYTES) {
+                return key;
+            }
+            return (type.isSigned() ? key : key & mask(type.byteSize())) & 0xFFFFFFFFL;
+        }, type -> unwrapLowCardinality(type) instanceof BaseDataTypeInt);
+    }
+
+    /**
+     * 按一个或多个列的cityHash64分片，对应sharding_key = cityHash64(column, ...)
+     * 支持整数、浮点、日期、日期时间、DateTime64、Decimal32/64、枚举、字符串和定长字符串列，
+     * 超过8字节的定长类型（如Decimal128、UUID）不受支持
+     *
+     * @param columns 分片键依赖的列
+     * @return 分片键
+     */
+    public static ShardingKey cityHash64(String... columns) {
+        Validate.ensure(null != columns && columns.length > 0, "columns must not be empty");
+        return new ShardingKey(columns.clone(), "cityHash64(" + String.join(", ", columns) + ")", (values, types) -> {
+            long hash = hashValue(columns[0], values[0], types[0]);
+            for (int i = 1; i < values.length; i++) {
+                hash = ClickHouseCityHash.hash128to64(hash, hashValue(columns[i], values[i], types[i]));
+            }
+            return hash;
+        }, ShardingKey::isHashable);
+    }
+
+    /**
+     * 随机分片，对应sharding_key = rand()
+     *
+     * @return 分片键
+     */
+    public static ShardingKey random() {
+        return new ShardingKey(new String[0], "rand()", (values, types) -> ThreadLocalRandom.current().nextInt() & 0xFFFFFFFFL,
+                type -> true);
+    }
+
+    /**
+     * 计算一行数据的分片键
+     *
+     * @param values 分片键依赖的列的值，按columns()的顺序排列
+     * @param types  分片键依赖的列的数据类型，按columns()的顺序排列
+     * @return 分片键，按无符号数处理
+     * @throws SQLException 如果列值为null或类型不受支持
+     */
+    public long keyOf(Object[] values, IDataType<?>[] types) throws SQLException {
+        try {
+            return function.apply(values, types);
+        } catch (IllegalArgumentException | ClassCastException e) {
+            throw new SQLException("Cannot compute sharding key " + expression + " of values " + Arrays.toString(values), e);
+        }
+    }
+
+    /**
+     * 检查分片键依赖的列的数据类型，在创建分片插入器时报告不受支持的类型，而不是在写入第一行时
+     *
+     * @param types 分片键依赖的列的数据类型，按columns()的顺序排列
+     * @throws SQLException 如果某列的数据类型不受支持
+     */
+    public void validate(IDataType<?>[] types) throws SQLException {
+        for (int i = 0; i < types.length; i++) {
+            if (!supports.test(types[i])) {
+                throw new SQLException("Unsupported sharding key column " + columns[i] + " of type " + types[i].name()
+                        + " for " + expression + ", use ShardingKey.of with a custom function");
+            }
+        }
+    }
+
+    /**
+     * 获取分片键依赖的列
+     *
+     * @return 列名
+     */
+    public String[] columns() {
+        return columns.clone();
+    }
+
+    public String expression() {
+        return expression;
+    }
+
+    /**
+     * 按ClickHouse的cityHash64计算单个参数的哈希值：字符串按字节使用CityHash64，
+     * 不超过8字节的定长类型按列中存储的值（按位零扩展）使用intHash64，
+     * 即枚举的数值、DateTime64的刻度数和Decimal的未缩放整数
+     */
+    private static long hashValue(String column, Object value, IDataType<?> type) throws SQLException {
+        if (null == value) {
+            throw new SQLException("Sharding key column " + column + " must not be null");
+        }
+        IDataType<?> leaf = leafType(type);
+        if (leaf instanceof DataTypeString || leaf instanceof DataTypeFixedString) {
+            byte[] bytes = (value instanceof byte[]) ? (byte[]) value
+                    : ((CharSequence) value).toString().getBytes(StandardCharsets.UTF_8);
+            if (leaf instanceof DataTypeFixedString && bytes.length < leaf.byteSize()) {
+                bytes = Arrays.copyOf(bytes, leaf.byteSize()); // 定长字符串按末尾补零后的字节计算
+            }
+            return ClickHouseCityHash.cityHash64(bytes, 0, bytes.length);
+        }
+        long bits;
+        if (leaf instanceof DataTypeEnum8 || leaf instanceof DataTypeEnum16) {
+            bits = (value instanceof Number) ? ((Number) value).longValue() : encode(leaf, value); // 按名称对应的数值
+        } else if (leaf instanceof DataTypeDecimal) {
+            bits = encode(leaf, (value instanceof BigDecimal) ? value : new BigDecimal(value.toString()));
+        } else if (leaf instanceof DataTypeDateTime64) {
+            bits = encode(leaf, toZonedDateTime(column, value));
+        } else if (value instanceof Number && leaf instanceof DataTypeFloat32) {
+            bits = Float.floatToRawIntBits(((Number) value).floatValue()) & 0xFFFFFFFFL;
+        } else if (value instanceof Number && leaf instanceof DataTypeFloat64) {
+            bits = Double.doubleToRawLongBits(((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            bits = ((Number) value).longValue();
+        } else if (value instanceof Boolean) {
+            bits = ((Boolean) value) ? 1 : 0;
+        } else if (value instanceof LocalDate) {
+            bits = ((LocalDate) value).toEpochDay();
+        } else if (value instanceof ZonedDateTime || value instanceof OffsetDateTime || value instanceof Instant) {
+            bits = toZonedDateTime(column, value).toEpochSecond();
+        } else {
+            throw new SQLException("Unsupported sharding key value type " + value.getClass().getName()
+                    + " of column " + column + ", use ShardingKey.of with a custom function");
+        }
+        return ClickHouseCityHash.intHash64(bits & mask(leaf.byteSize()));
+    }
+
+    /**
+     * 按列的数据类型编码值，返回按小端序读取并零扩展的位，与插入时写入的字节一致
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static long encode(IDataType type, Object value) throws SQLException {
+        RawBitsWriter writer = new RawBitsWriter();
+        try {
+            type.serializeBinary(value, new BinarySerializer(writer, false));
+        } catch (IOException e) {
+            throw new SQLException("Cannot encode sharding key value " + value + " as " + type.name(), e);
+        }
+        return writer.bits;
+    }
+
+    private static ZonedDateTime toZonedDateTime(String column, Object value) throws SQLException {
+        if (value instanceof ZonedDateTime) {
+            return (ZonedDateTime) value;
+        } else if (value instanceof OffsetDateTime) {
+            return ((OffsetDateTime) value).toZonedDateTime();
+        } else if (value instanceof Instant) {
+            return ((Instant) value).atZone(ZoneOffset.UTC);
+        }
+        throw new SQLException("Sharding key column " + column + " requires a date time value, got " + value);
+    }
+
+    private static boolean isHashable(IDataType<?> type) {
+        IDataType<?> leaf = leafType(type);
+        return leaf instanceof DataTypeString || leaf instanceof DataTypeFixedString
+                || (leaf.byteSize() > 0 && leaf.byteSize() <= Long.BYTES);
+    }
+
+    private static IDataType<?> leafType(IDataType<?> type) {
+        type = unwrapLowCardinality(type);
+        return (type instanceof DataTypeNullable) ? ((DataTypeNullable) type).getNestedDataType() : type;
+    }
+
+    private static IDataType<?> unwrapLowCardinality(IDataType<?> type) {
+        return (type instanceof DataTypeLowCardinality) ? ((DataTypeLowCardinality) type).getNestedDataType() : type;
+    }
+
+    private static long mask(int byteSize) {
+        return (byteSize <= 0 || byteSize >= 8) ? -1L : (1L << (byteSize * 8)) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * 由列值和列类型计算分片键的函数
+     */
+    @FunctionalInterface
+    private interface Function {
+
+        long apply(Object[] values, IDataType<?>[] types) throws SQLException;
+    }
+
+    /**
+     * 收集不超过8字节的编码结果，按小端序组成long
+     */
+    private static final class RawBitsWriter implements BuffedWriter {
+
+        private long bits; // 已写入的位
+        private int size; // 已写入的字节数
+
+        @Override
+        public void writeBinary(byte byt) throws IOException {
+            if (size >= Long.BYTES) {
+                throw new IOException("Sharding key value is wider than " + Long.BYTES + " bytes");
+            }
+            bits |= (byt & 0xFFL) << (Byte.SIZE * size++);
+        }
+
+        @Override
+        public void writeBinary(byte[] bytes, int offset, int length) throws IOException {
+            for (int i = 0; i < length; i++) {
+                writeBinary(bytes[offset + i]);
+            }
+        }
+
+        @Override
+        public void flushToTarget(boolean force) {
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.berry.clickhouse.tcp.client.misc;
+
+/**
+ * CheckedConsumer接口用于定义带有异常的消费者
+ * 
+ * @param <T> 参数类型
+ * @param <E> 异常类型
+ */
+@FunctionalInterface
+public interface CheckedConsumer<T, E extends Throwable> {
+
+    /**
+     * 处理参数
+     * 
+     * @param t 参数
+     * @throws E 可能抛出的异常
+     */
+    void accept(T t) throws E;
+}
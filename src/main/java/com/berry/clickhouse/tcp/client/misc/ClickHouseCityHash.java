@@ -57,7 +57,14 @@ public class ClickHouseCityHash {
         return val ^ (val >>> 47);
     }
 
-    private static long hash128to64(long u, long v) {
+    /**
+     * 将128位哈希值折叠为64位，ClickHouse的cityHash64用它合并多个参数的哈希值
+     *
+     * @param u 低64位
+     * @param v 高64位
+     * @return 64位哈希值
+     */
+    public static long hash128to64(long u, long v) {
         long a = (u ^ v) * kMul;
         a ^= (a >>> 47);
         long b = (v ^ a) * kMul;
@@ -81,11 +88,11 @@ public class ClickHouseCityHash {
             return hashLen16((a << 3) + len, fetch32(s, pos + len - 4));
         }
         if (len > 0) {
-            byte a = s[pos];
-            byte b = s[pos + (len >>> 1)];
-            byte c = s[pos + len - 1];
-            int y = (int) a + (((int) b) << 8);
-            int z = len + (((int) c) << 2);
+            int a = s[pos] & 0xFF; // 按无符号字节读取
+            int b = s[pos + (len >>> 1)] & 0xFF;
+            int c = s[pos + len - 1] & 0xFF;
+            int y = a + (b << 8);
+            int z = len + (c << 2);
             return shiftMix(y * k2 ^ z * k3) * k2;
         }
         return k2;
@@ -226,6 +233,99 @@ public class ClickHouseCityHash {
         };
     }
 
+    private static long hashLen17to32(byte[] s, int pos, int len) {
+        long a = fetch64(s, pos) * k1;
+        long b = fetch64(s, pos + 8);
+        long c = fetch64(s, pos + len - 8) * k2;
+        long d = fetch64(s, pos + len - 16) * k0;
+        return hashLen16(rotate(a - b, 43) + rotate(c, 30) + d,
+                a + rotate(b ^ k3, 20) - c + len);
+    }
+
+    private static long hashLen33to64(byte[] s, int pos, int len) {
+        long z = fetch64(s, pos + 24);
+        long a = fetch64(s, pos) + (len + fetch64(s, pos + len - 16)) * k0;
+        long b = rotate(a + z, 52);
+        long c = rotate(a, 37);
+        a += fetch64(s, pos + 8);
+        c += rotate(a, 7);
+        a += fetch64(s, pos + 16);
+        long vf = a + z;
+        long vs = b + rotate(a, 31) + c;
+        a = fetch64(s, pos + 16) + fetch64(s, pos + len - 32);
+        z = fetch64(s, pos + len - 8);
+        b = rotate(a + z, 52);
+        c = rotate(a, 37);
+        a += fetch64(s, pos + len - 24);
+        c += rotate(a, 7);
+        a += fetch64(s, pos + len - 16);
+        long wf = a + z;
+        long ws = b + rotate(a, 31) + c;
+        long r = shiftMix((vf + ws) * k2 + (wf + vs) * k0);
+        return shiftMix(r * k0 + vs) * k2;
+    }
+
+    /**
+     * 计算CityHash64（v1.0.2），与ClickHouse的cityHash64函数对字符串参数的结果一致
+     *
+     * @param s 字节数组
+     * @param pos 偏移量
+     * @param len 长度
+     * @return 64位哈希值
+     */
+    public static long cityHash64(byte[] s, int pos, int len) {
+        if (len <= 32) {
+            if (len <= 16) {
+                return hashLen0to16(s, pos, len);
+            }
+            return hashLen17to32(s, pos, len);
+        } else if (len <= 64) {
+            return hashLen33to64(s, pos, len);
+        }
+
+        long x = fetch64(s, pos);
+        long y = fetch64(s, pos + len - 16) ^ k1;
+        long z = fetch64(s, pos + len - 56) ^ k0;
+        long[] v = weakHashLen32WithSeeds(s, pos + len - 64, len, y);
+        long[] w = weakHashLen32WithSeeds(s, pos + len - 32, len * k1, k0);
+        z += shiftMix(v[1]) * k1;
+        x = rotate(z + x, 39) * k1;
+        y = rotate(y, 33) * k1;
+
+        len = (len - 1) & ~63;
+        do {
+            x = rotate(x + y + v[0] + fetch64(s, pos + 16), 37) * k1;
+            y = rotate(y + v[1] + fetch64(s, pos + 48), 42) * k1;
+            x ^= w[1];
+            y ^= v[0];
+            z = rotate(z ^ w[0], 33);
+            v = weakHashLen32WithSeeds(s, pos, v[1] * k1, x + w[0]);
+            w = weakHashLen32WithSeeds(s, pos + 32, z + w[1], y);
+            long t = z;
+            z = x;
+            x = t;
+            pos += 64;
+            len -= 64;
+        } while (len != 0);
+        return hashLen16(hashLen16(v[0], w[0]) + shiftMix(y) * k1 + z,
+                hashLen16(v[1], w[1]) + x);
+    }
+
+    /**
+     * ClickHouse的intHash64，cityHash64对不超过8字节的数值参数使用它代替按字节计算
+     *
+     * @param x 按位零扩展到64位的数值
+     * @return 64位哈希值
+     */
+    public static long intHash64(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+
     public static long[] cityHash128(byte[] s, int pos, int len) {
 
         if (len >= 16) {
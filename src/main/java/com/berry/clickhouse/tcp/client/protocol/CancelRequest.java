@@ -0,0 +1,45 @@
+/**
+ * ClickHouse取消请求类
+ * 用于取消当前连接上正在执行的查询
+ * 发送此请求后，服务器停止执行查询，并以EndOfStream或异常响应结束数据流
+ */
+package com.berry.clickhouse.tcp.client.protocol;
+
+import com.berry.clickhouse.tcp.client.serde.BinarySerializer;
+
+import java.io.IOException;
+
+/**
+ * 取消请求实现类
+ * 只包含请求类型，不包含任何额外数据
+ * 发送后仍需读取剩余的响应直到数据流结束，连接才能继续使用
+ */
+public class CancelRequest implements Request {
+
+    /**
+     * 单例实例，所有取消请求共享此实例
+     */
+    public static final CancelRequest INSTANCE = new CancelRequest();
+
+    /**
+     * 获取请求类型
+     * 
+     * @return 请求类型（REQUEST_CANCEL）
+     */
+    @Override
+    public ProtoType type() {
+        return ProtoType.REQUEST_CANCEL;
+    }
+
+    /**
+     * 写入请求内容
+     * 取消请求不包含额外数据，因此此方法不执行任何操作
+     * 
+     * @param serializer 二进制序列化器
+     * @throws IOException 如果写入操作失败
+     */
+    @Override
+    public void writeImpl(BinarySerializer serializer) throws IOException {
+        // 不包含任何数据
+    }
+}
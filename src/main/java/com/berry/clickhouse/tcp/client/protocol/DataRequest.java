@@ -34,6 +34,16 @@ public class DataRequest implements Request {
      */
     private final Block block;
 
+    /**
+     * 发送的起始行（包含），小于0表示发送整个数据块
+     */
+    private final int fromRow;
+
+    /**
+     * 发送的结束行（不包含）
+     */
+    private final int toRow;
+
     /**
      * 创建一个空的数据请求
      * 
@@ -50,8 +60,22 @@ public class DataRequest implements Request {
      * @param block 要发送的数据块
      */
     public DataRequest(String name, Block block) {
+        this(name, block, -1, -1);
+    }
+
+    /**
+     * 创建一个只包含数据块中[fromRow, toRow)范围内的行的数据请求
+     * 
+     * @param name 数据块名称
+     * @param block 要发送的数据块
+     * @param fromRow 起始行（包含），小于0表示发送整个数据块
+     * @param toRow 结束行（不包含）
+     */
+    public DataRequest(String name, Block block, int fromRow, int toRow) {
         this.name = name;
         this.block = block;
+        this.fromRow = fromRow;
+        this.toRow = toRow;
     }
 
     /**
@@ -78,7 +102,11 @@ public class DataRequest implements Request {
         serializer.writeUTF8StringBinary(name);
 
         serializer.maybeEnableCompressed();
-        block.writeTo(serializer);
+        if (fromRow < 0) {
+            block.writeTo(serializer);
+        } else {
+            block.writeTo(serializer, fromRow, toRow);
+        }
         serializer.maybeDisableCompressed();
     }
 }
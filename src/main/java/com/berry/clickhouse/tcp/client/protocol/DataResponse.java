@@ -41,6 +41,9 @@ public class DataResponse implements Response {
         // 如果不需要序列化且提供了可复用的block，则使用复用模式
         if (!serialize && null != block) {
             newBlock = Block.readFrom(deserializer, block);
+        } else if (null != block) {
+            // 反序列化模式下覆盖调用方已释放的数据块
+            newBlock = Block.refillFrom(deserializer, info, block);
         } else {
             // 否则创建新的Block
             newBlock = Block.readFrom(deserializer, info, serialize);
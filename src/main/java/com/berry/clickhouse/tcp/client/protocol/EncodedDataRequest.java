@@ -0,0 +1,140 @@
+/**
+ * ClickHouse预编码数据请求类
+ * 保存一次插入的全部数据包（包括结束插入的空数据块）编码后的字节，可以在多个连接上重复发送
+ */
+package com.berry.clickhouse.tcp.client.protocol;
+
+import com.berry.clickhouse.tcp.client.buffer.ByteArrayWriter;
+import com.berry.clickhouse.tcp.client.buffer.SegmentGrowthPolicy;
+import com.berry.clickhouse.tcp.client.data.Block;
+import com.berry.clickhouse.tcp.client.serde.BinarySerializer;
+import com.berry.clickhouse.tcp.client.settings.ClickHouseDefines;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 预编码数据请求实现类
+ * 数据块按单个数据包的行数和字节数上限拆分后逐个编码（启用压缩时包括压缩帧），末尾追加空数据块，
+ * 编码结果保存在堆内分段中，与数据块的写入缓冲区无关，数据块被清理后仍可发送
+ */
+public class EncodedDataRequest implements Request {
+
+    /**
+     * 第一个分段的字节数
+     */
+    private static final int INITIAL_SEGMENT_BYTES = 64 * 1024;
+
+    /**
+     * 单个分段的最大字节数
+     */
+    private static final int MAX_SEGMENT_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * 编码后的分段，每个分段的[0, limit)为有效字节
+     */
+    private final List<ByteBuffer> segments;
+
+    /**
+     * 数据块的行数
+     */
+    private final int rows;
+
+    /**
+     * 编码后的字节数
+     */
+    private final long bytes;
+
+    private EncodedDataRequest(List<ByteBuffer> segments, int rows, long bytes) {
+        this.segments = segments;
+        this.rows = rows;
+        this.bytes = bytes;
+    }
+
+    /**
+     * 将数据块编码为一次插入的全部数据包
+     *
+     * @param block 数据块
+     * @param maxRows 单个数据包的最大行数
+     * @param maxBytes 单个数据包的最大字节数
+     * @return 预编码数据请求
+     * @throws SQLException 如果编码失败
+     */
+    public static EncodedDataRequest encode(Block block, long maxRows, long maxBytes) throws SQLException {
+        ByteArrayWriter writer = new ByteArrayWriter(0,
+                size -> ByteBuffer.allocate((size <= 0) ? INITIAL_SEGMENT_BYTES : Math.min(size, MAX_SEGMENT_BYTES)),
+                buffer -> { }, SegmentGrowthPolicy.DOUBLING);
+        BinarySerializer serializer = new BinarySerializer(writer, ClickHouseDefines.COMPRESSION);
+        try {
+            int[] bounds = block.splitRows(maxRows, maxBytes);
+            if (bounds.length <= 2) {
+                new DataRequest("", block).writeTo(serializer);
+            } else {
+                for (int i = 0; i + 1 < bounds.length; i++) {
+                    new DataRequest("", block, bounds[i], bounds[i + 1]).writeTo(serializer);
+                }
+            }
+            DataRequest.EMPTY.writeTo(serializer); // 结束插入
+        } catch (IOException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+
+        List<ByteBuffer> segments = new ArrayList<>(writer.segmentCount());
+        long bytes = 0;
+        for (ByteBuffer segment : writer.getBufferList()) {
+            ByteBuffer encoded = segment.duplicate();
+            ((Buffer) encoded).flip();
+            if (encoded.hasRemaining()) {
+                segments.add(encoded);
+                bytes += encoded.remaining();
+            }
+        }
+        return new EncodedDataRequest(Collections.unmodifiableList(segments), block.rowCnt(), bytes);
+    }
+
+    /**
+     * 获取数据块的行数
+     *
+     * @return 行数
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * 获取编码后的字节数
+     *
+     * @return 字节数
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    @Override
+    public ProtoType type() {
+        return ProtoType.REQUEST_DATA;
+    }
+
+    /**
+     * 编码结果已经包含每个数据包的类型，直接写入原始字节
+     *
+     * @param serializer 二进制序列化器
+     * @throws IOException 如果写入操作失败
+     */
+    @Override
+    public void writeTo(BinarySerializer serializer) throws IOException {
+        writeImpl(serializer);
+    }
+
+    @Override
+    public void writeImpl(BinarySerializer serializer) throws IOException {
+        for (ByteBuffer segment : segments) {
+            serializer.writeBytes(segment.duplicate()); // 复制位置信息，分段本身可以重复发送
+        }
+    }
+}
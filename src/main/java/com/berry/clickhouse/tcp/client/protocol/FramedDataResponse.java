@@ -0,0 +1,149 @@
+/**
+ * ClickHouse已分帧的数据响应类
+ * 读取线程只确定数据块的边界，解码推迟到其他线程进行
+ */
+package com.berry.clickhouse.tcp.client.protocol;
+
+import com.berry.clickhouse.tcp.client.NativeContext;
+import com.berry.clickhouse.tcp.client.buffer.ByteArrayBuffedReader;
+import com.berry.clickhouse.tcp.client.data.Block;
+import com.berry.clickhouse.tcp.client.data.BlockSettings;
+import com.berry.clickhouse.tcp.client.data.DataTypeFactory;
+import com.berry.clickhouse.tcp.client.serde.BinaryDeserializer;
+import com.berry.clickhouse.tcp.client.serde.BinarySerializer;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 已分帧的数据响应实现类
+ * 读取时按列类型跳过各列的数据（不创建值对象），同时记录数据块解压后的字节；
+ * decode()在任意线程中从记录的字节解码出DataResponse，与原始数据包的解码结果相同
+ */
+public class FramedDataResponse implements Response {
+
+    /**
+     * 从二进制流中读取数据包并记录数据块的字节，不解码列数据
+     *
+     * @param deserializer 二进制反序列化器
+     * @param info 服务器上下文信息
+     * @return 已分帧的数据响应
+     * @throws IOException 如果读取操作失败
+     * @throws SQLException 如果列类型无法解析
+     */
+    public static FramedDataResponse readFrom(BinaryDeserializer deserializer, NativeContext.ServerContext info)
+            throws IOException, SQLException {
+        // 读取数据块名称
+        String name = deserializer.readUTF8StringBinary();
+
+        // 启用压缩（如果需要），解压在读取线程中完成
+        deserializer.maybeEnableCompressed();
+        deserializer.startRecording();
+        int rowCnt;
+        List<byte[]> segments;
+        try {
+            BlockSettings.readFrom(deserializer);
+            int columnCnt = (int) deserializer.readVarInt();
+            rowCnt = (int) deserializer.readVarInt();
+            for (int i = 0; i < columnCnt; i++) {
+                deserializer.readUTF8StringBinary();
+                String type = deserializer.readUTF8StringBinary();
+                if (rowCnt > 0) {
+                    DataTypeFactory.get(type, info).skipBinaryBulk(rowCnt, deserializer);
+                }
+            }
+        } finally {
+            segments = deserializer.stopRecording();
+        }
+        // 禁用压缩
+        deserializer.maybeDisableCompressed();
+        return new FramedDataResponse(name, rowCnt, segments);
+    }
+
+    /**
+     * 数据块名称
+     */
+    private final String name;
+
+    /**
+     * 数据块的行数
+     */
+    private final int rowCnt;
+
+    /**
+     * 数据块解压后的字节段
+     */
+    private final List<byte[]> segments;
+
+    private FramedDataResponse(String name, int rowCnt, List<byte[]> segments) {
+        this.name = name;
+        this.rowCnt = rowCnt;
+        this.segments = segments;
+    }
+
+    /**
+     * 解码数据块，可以在读取线程之外的线程中调用；记录的字节不会被修改，可以多次解码，每次得到新的数据块
+     *
+     * @param info 服务器上下文信息
+     * @param serialize 是否序列化数据
+     * @return 数据响应
+     * @throws IOException 如果读取操作失败
+     * @throws SQLException 如果解码时发生SQL错误
+     */
+    public DataResponse decode(NativeContext.ServerContext info, boolean serialize) throws IOException, SQLException {
+        BinaryDeserializer deserializer = new BinaryDeserializer(new ByteArrayBuffedReader(segments), false);
+        return new DataResponse(name, Block.readFrom(deserializer, info, serialize));
+    }
+
+    /**
+     * 按Native格式写入数据块，即记录的字节去掉开头的BlockSettings，不解码列数据
+     *
+     * @param serializer 二进制序列化器
+     * @throws IOException 如果写入操作失败
+     */
+    public void writeNativeTo(BinarySerializer serializer) throws IOException {
+        ByteArrayBuffedReader reader = new ByteArrayBuffedReader(segments);
+        BlockSettings.readFrom(new BinaryDeserializer(reader, false));
+        long skip = reader.position(); // BlockSettings的字节数
+        for (byte[] segment : segments) {
+            if (skip >= segment.length) {
+                skip -= segment.length;
+                continue;
+            }
+            serializer.writeBytes(segment, (int) skip, segment.length - (int) skip);
+            skip = 0;
+        }
+    }
+
+    /**
+     * 获取响应类型
+     *
+     * @return 响应类型（RESPONSE_DATA）
+     */
+    @Override
+    public ProtoType type() {
+        return ProtoType.RESPONSE_DATA;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int rowCnt() {
+        return rowCnt;
+    }
+
+    /**
+     * 获取记录的数据块字节数（解压后）
+     *
+     * @return 字节数
+     */
+    public long bytes() {
+        long bytes = 0;
+        for (byte[] segment : segments) {
+            bytes += segment.length;
+        }
+        return bytes;
+    }
+}
@@ -63,6 +63,11 @@ public interface Request {
          * 数据请求，用于发送数据块（如INSERT语句的数据）
          */
         REQUEST_DATA(2),
+
+        /**
+         * 取消请求，用于取消正在执行的查询
+         */
+        REQUEST_CANCEL(3),
         
         /**
          * Ping请求，用于检测连接是否有效
@@ -38,7 +38,29 @@ public interface Response {
      * @throws SQLException 如果处理响应时发生SQL错误
      */
     static Response readFrom(BinaryDeserializer deserializer, NativeContext.ServerContext info, boolean serialize, Block block) throws IOException, SQLException {
-        switch ((int) deserializer.readVarInt()) {
+        return readFrom((int) deserializer.readVarInt(), deserializer, info, serialize, block);
+    }
+
+    /**
+     * 从反序列化器读取响应，数据响应只分帧不解码，返回FramedDataResponse，其余响应与readFrom相同
+     *
+     * @param deserializer 二进制反序列化器
+     * @param info 服务器上下文信息
+     * @return 响应对象
+     * @throws IOException 如果读取操作失败
+     * @throws SQLException 如果处理响应时发生SQL错误
+     */
+    static Response readFramedFrom(BinaryDeserializer deserializer, NativeContext.ServerContext info) throws IOException, SQLException {
+        int type = (int) deserializer.readVarInt();
+        if (type == ProtoType.RESPONSE_DATA.id()) {
+            return FramedDataResponse.readFrom(deserializer, info);
+        }
+        return readFrom(type, deserializer, info, true, null);
+    }
+
+    private static Response readFrom(int type, BinaryDeserializer deserializer, NativeContext.ServerContext info,
+                                     boolean serialize, Block block) throws IOException, SQLException {
+        switch (type) {
             case 0:
                 return HelloResponse.readFrom(deserializer);
             case 1:
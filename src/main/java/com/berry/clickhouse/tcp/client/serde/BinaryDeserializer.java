@@ -7,10 +7,12 @@ package com.berry.clickhouse.tcp.client.serde;
 
 import com.berry.clickhouse.tcp.client.buffer.BuffedReader;
 import com.berry.clickhouse.tcp.client.buffer.CompressedBuffedReader;
+import com.berry.clickhouse.tcp.client.buffer.RecordingBuffedReader;
 import com.berry.clickhouse.tcp.client.misc.Switcher;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * 二进制反序列化器类
@@ -29,6 +31,11 @@ public class BinaryDeserializer {
      */
     private final boolean enableCompress;
 
+    /**
+     * 正在记录读取字节的读取器，为null时不记录
+     */
+    private RecordingBuffedReader recorder;
+
     /**
      * 创建一个新的二进制反序列化器
      * 
@@ -54,7 +61,7 @@ public class BinaryDeserializer {
     public long readVarInt() throws IOException {
         long result = 0;
         for (int i = 0; i < 10; i++) {
-            int currentByte = switcher.get().readBinary();
+            int currentByte = reader().readBinary();
             long valueChunk = currentByte & 0x7F;
             result |= (valueChunk << (7 * i));
             if ((currentByte & 0x80) == 0) {
@@ -72,8 +79,8 @@ public class BinaryDeserializer {
      */
     @SuppressWarnings("PointlessBitwiseExpression")
     public short readShort() throws IOException {
-        return (short) (((switcher.get().readBinary() & 0xFF) << 0)
-                      + ((switcher.get().readBinary() & 0xFF) << 8)); // 读取短整数
+        return (short) (((reader().readBinary() & 0xFF) << 0)
+                      + ((reader().readBinary() & 0xFF) << 8)); // 读取短整数
     }
 
     /**
@@ -85,10 +92,10 @@ public class BinaryDeserializer {
     @SuppressWarnings("PointlessBitwiseExpression")
     public int readInt() throws IOException {
         // @formatter:off
-        return ((switcher.get().readBinary() & 0xFF) << 0)
-             + ((switcher.get().readBinary() & 0xFF) << 8)
-             + ((switcher.get().readBinary() & 0xFF) << 16)
-             + ((switcher.get().readBinary() & 0xFF) << 24); // 读取整数
+        return ((reader().readBinary() & 0xFF) << 0)
+             + ((reader().readBinary() & 0xFF) << 8)
+             + ((reader().readBinary() & 0xFF) << 16)
+             + ((reader().readBinary() & 0xFF) << 24); // 读取整数
         // @formatter:on
     }
 
@@ -101,14 +108,14 @@ public class BinaryDeserializer {
     @SuppressWarnings("PointlessBitwiseExpression")
     public long readLong() throws IOException {
         // @formatter:off
-        return ((switcher.get().readBinary() & 0xFFL) << 0)
-             + ((switcher.get().readBinary() & 0xFFL) << 8)
-             + ((switcher.get().readBinary() & 0xFFL) << 16)
-             + ((switcher.get().readBinary() & 0xFFL) << 24)
-             + ((switcher.get().readBinary() & 0xFFL) << 32)
-             + ((switcher.get().readBinary() & 0xFFL) << 40)
-             + ((switcher.get().readBinary() & 0xFFL) << 48)
-             + ((switcher.get().readBinary() & 0xFFL) << 56); // 读取长整数
+        return ((reader().readBinary() & 0xFFL) << 0)
+             + ((reader().readBinary() & 0xFFL) << 8)
+             + ((reader().readBinary() & 0xFFL) << 16)
+             + ((reader().readBinary() & 0xFFL) << 24)
+             + ((reader().readBinary() & 0xFFL) << 32)
+             + ((reader().readBinary() & 0xFFL) << 40)
+             + ((reader().readBinary() & 0xFFL) << 48)
+             + ((reader().readBinary() & 0xFFL) << 56); // 读取长整数
         // @formatter:on
     }
 
@@ -119,7 +126,7 @@ public class BinaryDeserializer {
      * @throws IOException 如果读取失败
      */
     public boolean readBoolean() throws IOException {
-        return (switcher.get().readBinary() != 0); // 读取布尔值
+        return (reader().readBinary() != 0); // 读取布尔值
     }
 
     /**
@@ -130,7 +137,7 @@ public class BinaryDeserializer {
      */
     public byte[] readBytesBinary() throws IOException {
         byte[] data = new byte[(int) readVarInt()]; // 读取字节数组长度
-        switcher.get().readBinary(data); // 读取字节数组
+        reader().readBinary(data); // 读取字节数组
         return data;
     }
 
@@ -142,7 +149,49 @@ public class BinaryDeserializer {
      */
     public String readUTF8StringBinary() throws IOException {
         byte[] data = new byte[(int) readVarInt()]; // 读取字符串长度
-        return switcher.get().readBinary(data) > 0 ? new String(data, StandardCharsets.UTF_8) : ""; // 返回字符串
+        return reader().readBinary(data) > 0 ? new String(data, StandardCharsets.UTF_8) : ""; // 返回字符串
+    }
+
+    /**
+     * 跳过指定数量的字节
+     *
+     * @param length 字节数
+     * @throws IOException 如果读取失败
+     */
+    public void skipBytes(long length) throws IOException {
+        reader().skip(length);
+    }
+
+    /**
+     * 跳过一个带长度前缀的字节数组
+     *
+     * @throws IOException 如果读取失败
+     */
+    public void skipBytesBinary() throws IOException {
+        skipBytes(readVarInt());
+    }
+
+    /**
+     * 开始记录之后读取的全部字节，用于只确定数据包边界、由其他线程解码的场景
+     * 记录期间不能切换压缩状态
+     */
+    public void startRecording() {
+        recorder = new RecordingBuffedReader(switcher.get());
+    }
+
+    /**
+     * 结束记录
+     *
+     * @return 开始记录以来读取的字节段，可以通过ByteArrayBuffedReader重新读取
+     */
+    public List<byte[]> stopRecording() {
+        List<byte[]> segments = recorder.segments();
+        recorder = null;
+        return segments;
+    }
+
+    private BuffedReader reader() {
+        return (null == recorder) ? switcher.get() : recorder;
     }
 
     /**
@@ -152,7 +201,7 @@ public class BinaryDeserializer {
      * @throws IOException 如果读取失败
      */
     public byte readByte() throws IOException {
-        return (byte) switcher.get().readBinary(); // 读取字节
+        return (byte) reader().readBinary(); // 读取字节
     }
 
     /**
@@ -160,7 +209,7 @@ public class BinaryDeserializer {
      */
     public void maybeEnableCompressed() {
         if (enableCompress) {
-            switcher.select(true); // 启用压缩
+            switcher.select(false); // 启用压缩，左侧为压缩流
         }
     }
 
@@ -169,7 +218,7 @@ public class BinaryDeserializer {
      */
     public void maybeDisableCompressed() {
         if (enableCompress) {
-            switcher.select(false); // 禁用压缩
+            switcher.select(true); // 禁用压缩
         }
     }
 
@@ -182,10 +231,10 @@ public class BinaryDeserializer {
     @SuppressWarnings("PointlessBitwiseExpression")
     public float readFloat() throws IOException {
         // @formatter:off
-        int i = ((switcher.get().readBinary() & 0xFF) << 0)
-              + ((switcher.get().readBinary() & 0xFF) << 8)
-              + ((switcher.get().readBinary() & 0xFF) << 16)
-              + ((switcher.get().readBinary() & 0xFF) << 24); // 读取浮点数
+        int i = ((reader().readBinary() & 0xFF) << 0)
+              + ((reader().readBinary() & 0xFF) << 8)
+              + ((reader().readBinary() & 0xFF) << 16)
+              + ((reader().readBinary() & 0xFF) << 24); // 读取浮点数
         // @formatter:on
         return Float.intBitsToFloat(i); // 转换为浮点数
     }
@@ -199,14 +248,14 @@ public class BinaryDeserializer {
     @SuppressWarnings("PointlessBitwiseExpression")
     public double readDouble() throws IOException {
         // @formatter:off
-        long l = ((switcher.get().readBinary() & 0xFFL) << 0)
-               + ((switcher.get().readBinary() & 0xFFL) << 8)
-               + ((switcher.get().readBinary() & 0xFFL) << 16)
-               + ((switcher.get().readBinary() & 0xFFL) << 24)
-               + ((switcher.get().readBinary() & 0xFFL) << 32)
-               + ((switcher.get().readBinary() & 0xFFL) << 40)
-               + ((switcher.get().readBinary() & 0xFFL) << 48)
-               + ((switcher.get().readBinary() & 0xFFL) << 56); // 读取双精度浮点数
+        long l = ((reader().readBinary() & 0xFFL) << 0)
+               + ((reader().readBinary() & 0xFFL) << 8)
+               + ((reader().readBinary() & 0xFFL) << 16)
+               + ((reader().readBinary() & 0xFFL) << 24)
+               + ((reader().readBinary() & 0xFFL) << 32)
+               + ((reader().readBinary() & 0xFFL) << 40)
+               + ((reader().readBinary() & 0xFFL) << 48)
+               + ((reader().readBinary() & 0xFFL) << 56); // 读取双精度浮点数
         // @formatter:on
         return Double.longBitsToDouble(l); // 转换为双精度浮点数
     }
@@ -220,7 +269,7 @@ public class BinaryDeserializer {
      */
     public byte[] readBytes(int size) throws IOException {
         byte[] bytes = new byte[size]; // 创建字节数组
-        switcher.get().readBinary(bytes); // 读取字节数组
+        reader().readBinary(bytes); // 读取字节数组
         return bytes;
     }
 }
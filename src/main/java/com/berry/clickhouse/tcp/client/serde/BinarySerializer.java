@@ -7,10 +7,12 @@ package com.berry.clickhouse.tcp.client.serde;
 
 import com.berry.clickhouse.tcp.client.buffer.BuffedWriter;
 import com.berry.clickhouse.tcp.client.buffer.CompressedBuffedWriter;
+import com.berry.clickhouse.tcp.client.buffer.CompressionMethod;
 import com.berry.clickhouse.tcp.client.misc.Switcher;
 import com.berry.clickhouse.tcp.client.settings.ClickHouseDefines;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
@@ -43,10 +45,20 @@ public class BinarySerializer {
      * @param enableCompress 是否启用压缩
      */
     public BinarySerializer(BuffedWriter writer, boolean enableCompress) {
-        this.enableCompress = enableCompress;
+        this(writer, enableCompress ? CompressionMethod.LZ4 : null);
+    }
+
+    /**
+     * 创建一个新的二进制序列化器，使用指定的压缩方法
+     * 
+     * @param writer 缓冲写入器
+     * @param method 压缩方法，为null时不压缩
+     */
+    public BinarySerializer(BuffedWriter writer, CompressionMethod method) {
+        this.enableCompress = null != method;
         BuffedWriter compressWriter = null;
         if (enableCompress) {
-            compressWriter = new CompressedBuffedWriter(ClickHouseDefines.SOCKET_SEND_BUFFER_BYTES, writer);
+            compressWriter = new CompressedBuffedWriter(ClickHouseDefines.SOCKET_SEND_BUFFER_BYTES, writer, method);
         }
         switcher = new Switcher<>(compressWriter, writer);
         writeBuffer = new byte[8]; // 初始化写入缓冲区
@@ -197,7 +209,7 @@ public class BinarySerializer {
      */
     public void maybeEnableCompressed() {
         if (enableCompress) {
-            switcher.select(true); // 启用压缩
+            switcher.select(false); // 启用压缩，左侧为压缩流
         }
     }
 
@@ -209,7 +221,7 @@ public class BinarySerializer {
     public void maybeDisableCompressed() throws IOException {
         if (enableCompress) {
             switcher.get().flushToTarget(true); // 刷新数据
-            switcher.select(false); // 禁用压缩
+            switcher.select(true); // 禁用压缩
         }
     }
 
@@ -267,4 +279,14 @@ public class BinarySerializer {
     public void writeBytes(byte[] bytes, int offset, int length) throws IOException {
         switcher.get().writeBinary(bytes, offset, length); // 写入字节数组的指定部分
     }
+
+    /**
+     * 写入字节缓冲区中剩余的字节（不包含长度前缀），支持内存映射缓冲区
+     *
+     * @param buffer 要写入的字节缓冲区
+     * @throws IOException 如果写入失败
+     */
+    public void writeBytes(ByteBuffer buffer) throws IOException {
+        switcher.get().writeBinary(buffer); // 写入字节缓冲区
+    }
 }
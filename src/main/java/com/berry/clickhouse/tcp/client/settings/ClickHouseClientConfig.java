@@ -2,15 +2,22 @@ package com.berry.clickhouse.tcp.client.settings;
 
 import com.berry.clickhouse.tcp.client.buffer.BufferPoolManager;
 import com.berry.clickhouse.tcp.client.buffer.DefaultBufferPoolManager;
+import com.berry.clickhouse.tcp.client.buffer.MemoryBudget;
+import com.berry.clickhouse.tcp.client.buffer.SegmentGrowthPolicy;
+import com.berry.clickhouse.tcp.client.buffer.SpillPolicy;
+import com.berry.clickhouse.tcp.client.data.ColumnWriterBufferCache;
 import com.berry.clickhouse.tcp.client.data.ColumnWriterBufferPoolManager;
 import com.berry.clickhouse.tcp.client.data.DefaultColumnWriterBufferPoolManager;
+import com.berry.clickhouse.tcp.client.insert.InsertRetryPolicy;
 import com.berry.clickhouse.tcp.client.jdbc.ClickhousePropertiesParser;
 import com.berry.clickhouse.tcp.client.misc.StrUtil;
 
 import java.io.Serializable;
 import java.nio.charset.Charset;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.berry.clickhouse.tcp.client.jdbc.ClickhousePropertiesParser.HOST_DELIMITER;
 
@@ -41,6 +48,25 @@ public class ClickHouseClientConfig implements Serializable {
     private final String serializedIPv6; // 序列化的IPv6地址
     private final ColumnWriterBufferPoolManager columnWriterBufferPoolManager; // 列写入缓冲池管理器
     private final BufferPoolManager bufferPoolManager; // 缓冲池管理器
+    private final boolean leakDetection; // 是否启用列写入缓冲区泄漏检测
+    private final int leakDetectionSamplingInterval; // 泄漏检测分配堆栈的采样间隔
+    private final long maxInsertBlockBytes; // 插入时单个数据包的最大字节数
+    private final long maxInsertBlockRows; // 插入时单个数据包的最大行数
+    private final Duration tableMetaDataTtl; // 自动采集的表结构的有效期
+    private final ForkJoinPool encodePool; // 并行编码列的线程池，为null时不并行编码
+    private final int parallelEncodeMinCells; // 并行编码的最小单元格数（行数乘以列数）
+    private final InsertRetryPolicy insertRetryPolicy; // 插入失败后的重试策略，为null时不重试
+    private final ForkJoinPool decodePool; // 并行解码查询结果的线程池，为null时在读取线程中解码
+    private final long queryCacheMaxBytes; // 查询结果缓存的最大字节数，小于等于0时不缓存
+    private final Duration queryCacheTtl; // 查询结果缓存的默认有效期
+    private final long querySpoolThresholdBytes; // 立即加载的查询结果超过该字节数时写入临时文件，小于等于0时不写入
+    private final String querySpoolDirectory; // 查询结果临时文件目录，为null时使用系统临时目录
+    private final long memoryBudgetBytes; // 写入缓冲区内存预算（字节），小于等于0时不限制
+    private final Duration memoryBudgetWait; // 内存预算不足时的最长等待时间
+    private final int selfColumMagazineLength; // 列缓冲区线程本地缓存长度
+    private final SegmentGrowthPolicy segmentGrowthPolicy; // 列缓冲区分段增长策略
+    private final long spillThresholdBytes; // 列缓冲区溢写阈值（字节）
+    private final String spillDirectory; // 溢写临时文件目录，为null时使用系统临时目录
 
     /**
      * 构造函数
@@ -65,6 +91,25 @@ public class ClickHouseClientConfig implements Serializable {
      * @param serializedIPv6 序列化的IPv6地址
      * @param columnWriterBufferPoolManager 列写入缓冲池管理器
      * @param bufferPoolManager 缓冲池管理器
+     * @param leakDetection 是否启用列写入缓冲区泄漏检测
+     * @param leakDetectionSamplingInterval 泄漏检测分配堆栈的采样间隔
+     * @param maxInsertBlockBytes 插入时单个数据包的最大字节数
+     * @param maxInsertBlockRows 插入时单个数据包的最大行数
+     * @param tableMetaDataTtl 自动采集的表结构的有效期
+     * @param encodePool 并行编码列的线程池
+     * @param parallelEncodeMinCells 并行编码的最小单元格数
+     * @param insertRetryPolicy 插入失败后的重试策略
+     * @param decodePool 并行解码查询结果的线程池
+     * @param queryCacheMaxBytes 查询结果缓存的最大字节数
+     * @param queryCacheTtl 查询结果缓存的默认有效期
+     * @param querySpoolThresholdBytes 立即加载的查询结果写入临时文件的阈值
+     * @param querySpoolDirectory 查询结果临时文件目录
+     * @param memoryBudgetBytes 写入缓冲区内存预算（字节），小于等于0时不限制
+     * @param memoryBudgetWait 内存预算不足时的最长等待时间
+     * @param selfColumMagazineLength 列缓冲区线程本地缓存长度
+     * @param segmentGrowthPolicy 列缓冲区分段增长策略
+     * @param spillThresholdBytes 列缓冲区溢写阈值（字节）
+     * @param spillDirectory 溢写临时文件目录，为null时使用系统临时目录
      */
     private ClickHouseClientConfig(String host, int port, String database, String user, String password,
                                    Duration queryTimeout, Duration connectTimeout, boolean tcpKeepAlive,
@@ -76,7 +121,26 @@ public class ClickHouseClientConfig implements Serializable {
                                    String serializedIPv4,
                                    String serializedIPv6,
                                    ColumnWriterBufferPoolManager columnWriterBufferPoolManager,
-                                   BufferPoolManager bufferPoolManager) {
+                                   BufferPoolManager bufferPoolManager,
+                                   boolean leakDetection,
+                                   int leakDetectionSamplingInterval,
+                                   long maxInsertBlockBytes,
+                                   long maxInsertBlockRows,
+                                   Duration tableMetaDataTtl,
+                                   ForkJoinPool encodePool,
+                                   int parallelEncodeMinCells,
+                                   InsertRetryPolicy insertRetryPolicy,
+                                   ForkJoinPool decodePool,
+                                   long queryCacheMaxBytes,
+                                   Duration queryCacheTtl,
+                                   long querySpoolThresholdBytes,
+                                   String querySpoolDirectory,
+                                   long memoryBudgetBytes,
+                                   Duration memoryBudgetWait,
+                                   int selfColumMagazineLength,
+                                   SegmentGrowthPolicy segmentGrowthPolicy,
+                                   long spillThresholdBytes,
+                                   String spillDirectory) {
         this.host = host;
         this.hosts = Arrays.asList(host.split(HOST_DELIMITER));
         this.port = port;
@@ -98,6 +162,25 @@ public class ClickHouseClientConfig implements Serializable {
         this.settings = settings;
         this.bufferPoolManager = bufferPoolManager;
         this.columnWriterBufferPoolManager = columnWriterBufferPoolManager;
+        this.leakDetection = leakDetection;
+        this.leakDetectionSamplingInterval = leakDetectionSamplingInterval;
+        this.maxInsertBlockBytes = maxInsertBlockBytes;
+        this.maxInsertBlockRows = maxInsertBlockRows;
+        this.tableMetaDataTtl = tableMetaDataTtl;
+        this.encodePool = encodePool;
+        this.parallelEncodeMinCells = parallelEncodeMinCells;
+        this.insertRetryPolicy = insertRetryPolicy;
+        this.decodePool = decodePool;
+        this.queryCacheMaxBytes = queryCacheMaxBytes;
+        this.queryCacheTtl = queryCacheTtl;
+        this.querySpoolThresholdBytes = querySpoolThresholdBytes;
+        this.querySpoolDirectory = querySpoolDirectory;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.memoryBudgetWait = memoryBudgetWait;
+        this.selfColumMagazineLength = selfColumMagazineLength;
+        this.segmentGrowthPolicy = segmentGrowthPolicy;
+        this.spillThresholdBytes = spillThresholdBytes;
+        this.spillDirectory = spillDirectory;
     }
 
     // 各种getter方法
@@ -241,6 +324,25 @@ public class ClickHouseClientConfig implements Serializable {
         private Charset charset; // 字符集
         private String clientName; // 客户端名称
         private int selfColumStackLength; // 列堆栈长度
+        private int selfColumMagazineLength = -1; // 列缓冲区线程本地缓存长度
+        private SegmentGrowthPolicy segmentGrowthPolicy; // 列缓冲区分段增长策略
+        private long spillThresholdBytes; // 列缓冲区溢写阈值（字节）
+        private String spillDirectory; // 溢写临时文件目录
+        private boolean leakDetection; // 是否启用列写入缓冲区泄漏检测
+        private int leakDetectionSamplingInterval = -1; // 泄漏检测分配堆栈的采样间隔
+        private long maxInsertBlockBytes; // 插入时单个数据包的最大字节数
+        private long maxInsertBlockRows; // 插入时单个数据包的最大行数
+        private Duration tableMetaDataTtl; // 自动采集的表结构的有效期
+        private int encodeParallelism; // 并行编码列的线程数
+        private ForkJoinPool encodePool; // 并行编码列的线程池
+        private int parallelEncodeMinCells; // 并行编码的最小单元格数
+        private InsertRetryPolicy insertRetryPolicy; // 插入失败后的重试策略
+        private int decodeParallelism; // 并行解码查询结果的线程数
+        private ForkJoinPool decodePool; // 并行解码查询结果的线程池
+        private long queryCacheMaxBytes; // 查询结果缓存的最大字节数
+        private Duration queryCacheTtl; // 查询结果缓存的默认有效期
+        private long querySpoolThresholdBytes; // 立即加载的查询结果写入临时文件的阈值
+        private String querySpoolDirectory; // 查询结果临时文件目录
         private int selfByteBufferSize; // 字节缓冲区大小
         private int selfByteBufferLength; // 字节缓冲区长度
         private int connectionPoolMaxIdle; // 连接池最大空闲连接数
@@ -251,6 +353,8 @@ public class ClickHouseClientConfig implements Serializable {
         private Map<SettingKey, Serializable> settings = new HashMap<>(); // 设置键值对
         private BufferPoolManager bufferPoolManager; // 缓冲池管理器
         private ColumnWriterBufferPoolManager columnWriterBufferPoolManager; // 列写入缓冲池管理器
+        private long memoryBudgetBytes; // 写入缓冲区内存预算（字节）
+        private Duration memoryBudgetWait; // 内存预算不足时的最长等待时间
 
         private Builder() {
         }
@@ -296,6 +400,222 @@ public class ClickHouseClientConfig implements Serializable {
             return this;
         }
 
+        /**
+         * 设置每个线程本地缓存的列写入缓冲区数量，为0时只使用共享队列
+         *
+         * @param selfColumMagazineLength 线程本地缓存长度
+         * @return Builder实例
+         */
+        public Builder selfColumMagazineLength(int selfColumMagazineLength) {
+            this.selfColumMagazineLength = selfColumMagazineLength; // 设置线程本地缓存长度
+            return this;
+        }
+
+        /**
+         * 设置列写入缓冲区写满后新分段的大小策略，默认每个分段大小相同
+         *
+         * @param segmentGrowthPolicy 分段增长策略
+         * @return Builder实例
+         */
+        public Builder segmentGrowthPolicy(SegmentGrowthPolicy segmentGrowthPolicy) {
+            this.segmentGrowthPolicy = segmentGrowthPolicy; // 设置分段增长策略
+            return this;
+        }
+
+        /**
+         * 设置列写入缓冲区溢写到内存映射临时文件的阈值，仅对默认的列写入缓冲池管理器生效
+         * 内存预算（见memoryBudgetBytes）在等待时间内仍无法满足新分段时，已写入的字节数达到阈值的列改为溢写，
+         * 新的分段不再占用堆内存；未设置内存预算时不会溢写，小于等于0表示不溢写
+         *
+         * @param spillThresholdBytes 溢写阈值（字节）
+         * @return Builder实例
+         */
+        public Builder spillThresholdBytes(long spillThresholdBytes) {
+            this.spillThresholdBytes = spillThresholdBytes; // 设置溢写阈值
+            return this;
+        }
+
+        /**
+         * 设置溢写临时文件目录，默认使用系统临时目录
+         *
+         * @param spillDirectory 临时文件目录
+         * @return Builder实例
+         */
+        public Builder spillDirectory(String spillDirectory) {
+            this.spillDirectory = spillDirectory; // 设置溢写临时文件目录
+            return this;
+        }
+
+        /**
+         * 设置是否启用列写入缓冲区泄漏检测
+         * 启用后未经回收就被垃圾回收的缓冲区会被记录，并将其分段归还给缓冲池
+         *
+         * @param leakDetection 是否启用泄漏检测
+         * @return Builder实例
+         */
+        public Builder leakDetection(boolean leakDetection) {
+            this.leakDetection = leakDetection; // 设置是否启用泄漏检测
+            return this;
+        }
+
+        /**
+         * 设置泄漏检测捕获分配堆栈的采样间隔，每隔该数量的分配捕获一次，为0时不捕获
+         *
+         * @param leakDetectionSamplingInterval 采样间隔
+         * @return Builder实例
+         */
+        public Builder leakDetectionSamplingInterval(int leakDetectionSamplingInterval) {
+            this.leakDetectionSamplingInterval = leakDetectionSamplingInterval; // 设置采样间隔
+            return this;
+        }
+
+        /**
+         * 设置插入时单个数据包的最大字节数，超过的数据块在行边界拆分为多个数据包发送
+         * 数据块只能在每1024行的边界上拆分，不超过1024行或者含有Tuple、Map列的数据块超过上限时整体发送并记录警告
+         *
+         * @param maxInsertBlockBytes 最大字节数，小于等于0时使用ClickHouseDefines.MAX_BLOCK_BYTES
+         * @return Builder实例
+         */
+        public Builder maxInsertBlockBytes(long maxInsertBlockBytes) {
+            this.maxInsertBlockBytes = maxInsertBlockBytes; // 设置单个数据包的最大字节数
+            return this;
+        }
+
+        /**
+         * 设置插入时单个数据包的最大行数，超过的数据块在行边界拆分为多个数据包发送
+         *
+         * @param maxInsertBlockRows 最大行数，小于等于0时使用max_insert_block_size设置或ClickHouseDefines.MAX_INSERT_BLOCK_ROWS
+         * @return Builder实例
+         */
+        public Builder maxInsertBlockRows(long maxInsertBlockRows) {
+            this.maxInsertBlockRows = maxInsertBlockRows; // 设置单个数据包的最大行数
+            return this;
+        }
+
+        /**
+         * 设置自动采集的表结构的有效期，未注册元数据的表首次创建数据块时采集样本数据块的结构，
+         * 有效期内再次创建数据块不再访问服务端
+         *
+         * @param tableMetaDataTtl 有效期，为0时不自动采集
+         * @return Builder实例
+         */
+        public Builder tableMetaDataTtl(Duration tableMetaDataTtl) {
+            this.tableMetaDataTtl = tableMetaDataTtl; // 设置自动采集的表结构的有效期
+            return this;
+        }
+
+        /**
+         * 设置并行编码列的线程数，大于1时批量写入的行按列在ForkJoinPool中并行编码
+         *
+         * @param encodeParallelism 线程数，小于等于1时不并行编码
+         * @return Builder实例
+         */
+        public Builder encodeParallelism(int encodeParallelism) {
+            this.encodeParallelism = encodeParallelism; // 设置并行编码列的线程数
+            return this;
+        }
+
+        /**
+         * 设置并行编码列使用的线程池，优先于encodeParallelism
+         *
+         * @param encodePool 线程池
+         * @return Builder实例
+         */
+        public Builder encodePool(ForkJoinPool encodePool) {
+            this.encodePool = encodePool; // 设置并行编码列的线程池
+            return this;
+        }
+
+        /**
+         * 设置并行编码的最小单元格数（行数乘以列数），较小的批量在调用线程中编码
+         *
+         * @param parallelEncodeMinCells 最小单元格数
+         * @return Builder实例
+         */
+        public Builder parallelEncodeMinCells(int parallelEncodeMinCells) {
+            this.parallelEncodeMinCells = parallelEncodeMinCells; // 设置并行编码的最小单元格数
+            return this;
+        }
+
+        /**
+         * 设置插入失败后的重试策略，启用后数据块只编码一次，失败时在新的连接上用同一个去重令牌重新发送编码后的数据
+         *
+         * @param insertRetryPolicy 重试策略，为null时不重试
+         * @return Builder实例
+         */
+        public Builder insertRetryPolicy(InsertRetryPolicy insertRetryPolicy) {
+            this.insertRetryPolicy = insertRetryPolicy; // 设置插入失败后的重试策略
+            return this;
+        }
+
+        /**
+         * 设置并行解码查询结果的线程数，大于1时读取线程只负责读取和解压数据包，数据块的列在ForkJoinPool中解码，
+         * 多个数据块同时解码，仍按接收顺序返回
+         *
+         * @param decodeParallelism 线程数，小于等于1时在读取线程中解码
+         * @return Builder实例
+         */
+        public Builder decodeParallelism(int decodeParallelism) {
+            this.decodeParallelism = decodeParallelism; // 设置并行解码查询结果的线程数
+            return this;
+        }
+
+        /**
+         * 设置并行解码查询结果使用的线程池，优先于decodeParallelism
+         *
+         * @param decodePool 线程池
+         * @return Builder实例
+         */
+        public Builder decodePool(ForkJoinPool decodePool) {
+            this.decodePool = decodePool; // 设置并行解码查询结果的线程池
+            return this;
+        }
+
+        /**
+         * 设置查询结果缓存的最大字节数，按缓存的数据块解压后的字节数计算，超过时淘汰最近最少使用的结果
+         *
+         * @param queryCacheMaxBytes 最大字节数，小于等于0时不缓存
+         * @return Builder实例
+         */
+        public Builder queryCacheMaxBytes(long queryCacheMaxBytes) {
+            this.queryCacheMaxBytes = queryCacheMaxBytes; // 设置查询结果缓存的最大字节数
+            return this;
+        }
+
+        /**
+         * 设置查询结果缓存的默认有效期
+         *
+         * @param queryCacheTtl 有效期，默认1分钟
+         * @return Builder实例
+         */
+        public Builder queryCacheTtl(Duration queryCacheTtl) {
+            this.queryCacheTtl = queryCacheTtl; // 设置查询结果缓存的默认有效期
+            return this;
+        }
+
+        /**
+         * 设置立即加载（非懒加载）的查询结果在内存中保留的最大字节数，按数据块解压后的字节数计算，
+         * 超过时全部数据块按Native格式写入临时文件，迭代时通过内存映射读取，结果大小不再受堆内存限制
+         *
+         * @param querySpoolThresholdBytes 阈值（字节），小于等于0时不写入临时文件
+         * @return Builder实例
+         */
+        public Builder querySpoolThresholdBytes(long querySpoolThresholdBytes) {
+            this.querySpoolThresholdBytes = querySpoolThresholdBytes; // 设置查询结果写入临时文件的阈值
+            return this;
+        }
+
+        /**
+         * 设置查询结果临时文件的目录
+         *
+         * @param querySpoolDirectory 目录，为空时使用系统临时目录
+         * @return Builder实例
+         */
+        public Builder querySpoolDirectory(String querySpoolDirectory) {
+            this.querySpoolDirectory = querySpoolDirectory; // 设置查询结果临时文件目录
+            return this;
+        }
+
         public Builder bufferPoolManager(BufferPoolManager bufferPoolManager) {
             this.bufferPoolManager = bufferPoolManager; // 设置缓冲池管理器
             return this;
@@ -306,6 +626,29 @@ public class ClickHouseClientConfig implements Serializable {
             return this;
         }
 
+        /**
+         * 设置写入缓冲区的全局内存预算，仅对默认的缓冲池管理器生效
+         * 小于等于0表示不限制
+         *
+         * @param memoryBudgetBytes 内存预算（字节）
+         * @return Builder实例
+         */
+        public Builder memoryBudgetBytes(long memoryBudgetBytes) {
+            this.memoryBudgetBytes = memoryBudgetBytes; // 设置内存预算
+            return this;
+        }
+
+        /**
+         * 设置内存预算不足时分配缓冲区的最长等待时间，为0时立即失败
+         *
+         * @param memoryBudgetWait 最长等待时间
+         * @return Builder实例
+         */
+        public Builder memoryBudgetWait(Duration memoryBudgetWait) {
+            this.memoryBudgetWait = memoryBudgetWait; // 设置内存预算等待时间
+            return this;
+        }
+
         public static Builder builder() {
             return new Builder(); // 创建新的Builder实例
         }
@@ -324,6 +667,32 @@ public class ClickHouseClientConfig implements Serializable {
                     .ssl(cfg.ssl())
                     .sslMode(cfg.sslMode())
                     .clientName(cfg.clientName())
+                    .connectionPoolTotal(cfg.getConnectionPoolTotal())
+                    .connectionPooMinIdle(cfg.getConnectionPoolMinIdle())
+                    .connectionPoolMaxIdle(cfg.getConnectionPoolMaxIdle())
+                    .serializedIPv4(cfg.getSerializedIPv4())
+                    .serializedIPv6(cfg.getSerializedIPv6())
+                    .maxInsertBlockBytes(cfg.getMaxInsertBlockBytes())
+                    .maxInsertBlockRows(cfg.getMaxInsertBlockRows())
+                    .tableMetaDataTtl(cfg.getTableMetaDataTtl())
+                    .encodePool(cfg.getEncodePool())
+                    .parallelEncodeMinCells(cfg.getParallelEncodeMinCells())
+                    .insertRetryPolicy(cfg.getInsertRetryPolicy())
+                    .decodePool(cfg.getDecodePool())
+                    .queryCacheMaxBytes(cfg.getQueryCacheMaxBytes())
+                    .queryCacheTtl(cfg.getQueryCacheTtl())
+                    .querySpoolThresholdBytes(cfg.getQuerySpoolThresholdBytes())
+                    .querySpoolDirectory(cfg.getQuerySpoolDirectory())
+                    .memoryBudgetBytes(cfg.getMemoryBudgetBytes())
+                    .memoryBudgetWait(cfg.getMemoryBudgetWait())
+                    .bufferPoolManager(cfg.getBufferPoolManager()) // 共用同一个内存预算
+                    .leakDetection(cfg.isLeakDetection())
+                    .leakDetectionSamplingInterval(cfg.getLeakDetectionSamplingInterval())
+                    .selfColumMagazineLength(cfg.getSelfColumMagazineLength())
+                    .segmentGrowthPolicy(cfg.getSegmentGrowthPolicy())
+                    .spillThresholdBytes(cfg.getSpillThresholdBytes())
+                    .spillDirectory(cfg.getSpillDirectory())
+                    .columnWriterBufferPoolManager(cfg.getColumnWriterBufferPoolManager()) // 共用同一组列缓冲池
                     .withSettings(cfg.settings()); // 从现有配置构建新的Builder
         }
 
@@ -432,10 +801,32 @@ public class ClickHouseClientConfig implements Serializable {
             this.clientName = (String) this.settings.getOrDefault(SettingKey.client_name,
                     String.format(Locale.ROOT, "%s %s", ClickHouseDefines.NAME, "client"));
             this.selfByteBufferSize = (this.selfByteBufferSize <= 0) ? 1024 * 1024 : this.selfByteBufferSize;
-            this.bufferPoolManager = (null == bufferPoolManager) ? new DefaultBufferPoolManager(this.selfByteBufferSize) : bufferPoolManager;
+            this.memoryBudgetWait = (null == this.memoryBudgetWait) ? Duration.ZERO : this.memoryBudgetWait;
+            this.bufferPoolManager = (null == bufferPoolManager) ? new DefaultBufferPoolManager(this.selfByteBufferSize,
+                    new MemoryBudget(this.memoryBudgetBytes, this.memoryBudgetWait)) : bufferPoolManager;
             this.selfColumStackLength = (this.selfColumStackLength <= 0) ? 1024 : this.selfColumStackLength;
             this.selfByteBufferLength = (this.selfByteBufferLength <= 0) ? 1: this.selfByteBufferLength;
-            this.columnWriterBufferPoolManager = (null == columnWriterBufferPoolManager) ? new DefaultColumnWriterBufferPoolManager(this.selfColumStackLength, this.selfByteBufferLength) : columnWriterBufferPoolManager;
+            this.segmentGrowthPolicy = (null == this.segmentGrowthPolicy) ? SegmentGrowthPolicy.FIXED : this.segmentGrowthPolicy;
+            this.selfColumMagazineLength = (this.selfColumMagazineLength < 0) ? ColumnWriterBufferCache.DEFAULT_MAGAZINE_SIZE : this.selfColumMagazineLength;
+            this.columnWriterBufferPoolManager = (null == columnWriterBufferPoolManager) ? new DefaultColumnWriterBufferPoolManager(this.selfColumStackLength,
+                    this.selfByteBufferLength, this.selfColumMagazineLength, this.segmentGrowthPolicy,
+                    new SpillPolicy(this.spillThresholdBytes, StrUtil.isBlank(this.spillDirectory) ? null : Paths.get(this.spillDirectory),
+                            SpillPolicy.DEFAULT_SEGMENT_SIZE)) : columnWriterBufferPoolManager;
+
+            this.leakDetectionSamplingInterval = (this.leakDetectionSamplingInterval < 0) ? 128 : this.leakDetectionSamplingInterval;
+            this.maxInsertBlockBytes = (this.maxInsertBlockBytes <= 0) ? ClickHouseDefines.MAX_BLOCK_BYTES : this.maxInsertBlockBytes;
+            this.maxInsertBlockRows = (this.maxInsertBlockRows <= 0) ? ((Number) this.settings.getOrDefault(
+                    SettingKey.max_insert_block_size, ClickHouseDefines.MAX_INSERT_BLOCK_ROWS)).longValue() : this.maxInsertBlockRows;
+            this.tableMetaDataTtl = (null == this.tableMetaDataTtl || this.tableMetaDataTtl.isNegative())
+                    ? Duration.ofMinutes(10) : this.tableMetaDataTtl;
+            this.encodePool = (null == this.encodePool && this.encodeParallelism > 1)
+                    ? new ForkJoinPool(this.encodeParallelism) : this.encodePool;
+            this.parallelEncodeMinCells = (this.parallelEncodeMinCells <= 0) ? 64 * 1024 : this.parallelEncodeMinCells;
+            this.decodePool = (null == this.decodePool && this.decodeParallelism > 1)
+                    ? new ForkJoinPool(this.decodeParallelism) : this.decodePool;
+            this.queryCacheTtl = (null == this.queryCacheTtl || this.queryCacheTtl.isNegative() || this.queryCacheTtl.isZero())
+                    ? Duration.ofMinutes(1) : this.queryCacheTtl;
+            this.querySpoolDirectory = StrUtil.isBlank(this.querySpoolDirectory) ? null : this.querySpoolDirectory;
 
             revisit();
             purgeSettings();
@@ -443,7 +834,12 @@ public class ClickHouseClientConfig implements Serializable {
             return new ClickHouseClientConfig(host, port, database, user, password, queryTimeout, connectTimeout,
                     tcpKeepAlive, ssl, sslMode, charset.name(), clientName, settings,
                     connectionPoolMaxIdle, connectionPooMinIdle, connectionPoolTotal,
-                    serializedIPv4, serializedIPv6, columnWriterBufferPoolManager, bufferPoolManager);
+                    serializedIPv4, serializedIPv6, columnWriterBufferPoolManager, bufferPoolManager,
+                    leakDetection, leakDetectionSamplingInterval, maxInsertBlockBytes, maxInsertBlockRows,
+                    tableMetaDataTtl, encodePool, parallelEncodeMinCells, insertRetryPolicy, decodePool,
+                    queryCacheMaxBytes, queryCacheTtl, querySpoolThresholdBytes, querySpoolDirectory,
+                    memoryBudgetBytes, memoryBudgetWait, selfColumMagazineLength, segmentGrowthPolicy,
+                    spillThresholdBytes, spillDirectory);
         }
 
         private void revisit() {
@@ -502,4 +898,84 @@ public class ClickHouseClientConfig implements Serializable {
     public BufferPoolManager getBufferPoolManager() {
         return bufferPoolManager; // 返回缓冲池管理器
     }
+
+    public boolean isLeakDetection() {
+        return leakDetection; // 返回是否启用列写入缓冲区泄漏检测
+    }
+
+    public int getLeakDetectionSamplingInterval() {
+        return leakDetectionSamplingInterval; // 返回泄漏检测分配堆栈的采样间隔
+    }
+
+    public long getMaxInsertBlockBytes() {
+        return maxInsertBlockBytes; // 返回插入时单个数据包的最大字节数
+    }
+
+    public long getMaxInsertBlockRows() {
+        return maxInsertBlockRows; // 返回插入时单个数据包的最大行数
+    }
+
+    public Duration getTableMetaDataTtl() {
+        return tableMetaDataTtl; // 返回自动采集的表结构的有效期
+    }
+
+    public ForkJoinPool getEncodePool() {
+        return encodePool; // 返回并行编码列的线程池
+    }
+
+    public int getParallelEncodeMinCells() {
+        return parallelEncodeMinCells; // 返回并行编码的最小单元格数
+    }
+
+    public InsertRetryPolicy getInsertRetryPolicy() {
+        return insertRetryPolicy; // 返回插入失败后的重试策略
+    }
+
+    public ForkJoinPool getDecodePool() {
+        return decodePool; // 返回并行解码查询结果的线程池
+    }
+
+    public long getQueryCacheMaxBytes() {
+        return queryCacheMaxBytes; // 返回查询结果缓存的最大字节数
+    }
+
+    public Duration getQueryCacheTtl() {
+        return queryCacheTtl; // 返回查询结果缓存的默认有效期
+    }
+
+    public long getQuerySpoolThresholdBytes() {
+        return querySpoolThresholdBytes; // 返回查询结果写入临时文件的阈值
+    }
+
+    public String getQuerySpoolDirectory() {
+        return querySpoolDirectory; // 返回查询结果临时文件目录
+    }
+
+    public MemoryBudget getMemoryBudget() {
+        return bufferPoolManager.getMemoryBudget(); // 返回写入缓冲区内存预算
+    }
+
+    public long getMemoryBudgetBytes() {
+        return memoryBudgetBytes; // 返回写入缓冲区内存预算（字节）
+    }
+
+    public Duration getMemoryBudgetWait() {
+        return memoryBudgetWait; // 返回内存预算不足时的最长等待时间
+    }
+
+    public int getSelfColumMagazineLength() {
+        return selfColumMagazineLength; // 返回列缓冲区线程本地缓存长度
+    }
+
+    public SegmentGrowthPolicy getSegmentGrowthPolicy() {
+        return segmentGrowthPolicy; // 返回列缓冲区分段增长策略
+    }
+
+    public long getSpillThresholdBytes() {
+        return spillThresholdBytes; // 返回列缓冲区溢写阈值（字节）
+    }
+
+    public String getSpillDirectory() {
+        return spillDirectory; // 返回溢写临时文件目录
+    }
 }
@@ -24,6 +24,7 @@ public class ClickHouseDefines {
     public static int SOCKET_RECV_BUFFER_BYTES = 1024 * 1024; // 套接字接收缓冲区大小
 
     public static int MAX_BLOCK_BYTES = 10 * 1024 * 1024; // 最大块字节数
+    public static int MAX_INSERT_BLOCK_ROWS = 1024 * 1024; // 插入时单个数据包的最大行数
     public static int COLUMN_BUFFER_BYTES = 1024 * 1024; // 列缓冲区字节数
 
     public static int DATA_TYPE_CACHE_SIZE = 1024; // 数据类型缓存大小
@@ -356,6 +356,12 @@ public class SettingKey implements Serializable {
             .withDescription("For INSERT queries in the replicated table, specifies that deduplication of insertings blocks should be preformed")
             .build();
 
+    public static SettingKey insert_deduplication_token = SettingKey.builder()
+            .withName("insert_deduplication_token")
+            .withType(SettingType.UTF8)
+            .withDescription("If not empty, used for duplicate detection instead of data digest")
+            .build();
+
     public static SettingKey insert_quorum = SettingKey.builder()
             .withName("insert_quorum")
             .withType(SettingType.Int64)
@@ -0,0 +1,104 @@
+package com.berry.clickhouse.tcp.client.stream;
+
+import com.berry.clickhouse.tcp.client.data.Block;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * BlockRing类是流式读取使用的固定数量的数据块环
+ * 读取线程优先覆盖调用方已释放的数据块（复用列对象和值数组），环中的数据块都在使用中时等待调用方释放，
+ * 因此无论查询返回多少个数据块，占用的数据块数量都不超过环的大小
+ * 读取线程调用prepare()、reuse()和accept()，调用方调用release()
+ */
+public class BlockRing {
+
+    private final int size; // 环中数据块的数量
+    private final BlockingQueue<Block> free; // 调用方已释放的数据块
+    private final Set<Block> owned = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>())); // 属于环的数据块
+    private volatile boolean armed; // 结果头部是否已经读取，头部不占用环中的数据块
+    private Block spare; // 下一个数据包将覆盖的数据块，仅由读取线程访问
+
+    /**
+     * @param size 环中数据块的数量，应大于预取数量，为调用方正在处理的数据块留出位置
+     */
+    public BlockRing(int size) {
+        this.size = size;
+        this.free = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * 结果头部读取完成后开始复用数据块
+     */
+    void arm() {
+        armed = true;
+    }
+
+    /**
+     * 读取下一个数据包之前调用，环中的数据块都已创建且都未释放时阻塞
+     *
+     * @throws InterruptedException 如果等待时被中断
+     */
+    void prepare() throws InterruptedException {
+        if (null == spare && owned.size() >= size) {
+            spare = free.take();
+        }
+    }
+
+    /**
+     * 获取下一个数据包可以覆盖的数据块
+     *
+     * @return 数据块，没有可覆盖的数据块时返回null
+     */
+    public Block reuse() {
+        return armed ? spare : null;
+    }
+
+    /**
+     * 读取到数据块后调用，新创建的数据块加入环
+     *
+     * @param block 读取到的数据块
+     */
+    void accept(Block block) {
+        if (block == spare) {
+            spare = null;
+            return;
+        }
+        if (null != spare) {
+            owned.remove(spare); // 列结构变化时spare的列可能已经属于新的数据块
+            spare = null;
+        }
+        if (owned.size() < size) {
+            owned.add(block);
+        }
+    }
+
+    /**
+     * 读取线程直接复用不返回给调用方的数据块（例如没有行的数据块）
+     *
+     * @param block 数据块
+     */
+    void recycle(Block block) {
+        if (owned.contains(block)) {
+            spare = block;
+        }
+    }
+
+    /**
+     * 调用方处理完数据块后释放，释放后不能再访问该数据块
+     *
+     * @param block 数据块，不属于环的数据块被忽略
+     */
+    public void release(Block block) {
+        if (owned.contains(block) && !free.contains(block)) {
+            free.offer(block);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,291 @@
+package com.berry.clickhouse.tcp.client.stream;
+
+import com.berry.clickhouse.tcp.client.data.Block;
+import com.berry.clickhouse.tcp.client.exception.ClickHouseClientException;
+import com.berry.clickhouse.tcp.client.jdbc.ClickHouseConnection;
+import com.berry.clickhouse.tcp.client.log.Logger;
+import com.berry.clickhouse.tcp.client.log.LoggerFactory;
+import com.berry.clickhouse.tcp.client.misc.CheckedIterator;
+import com.berry.clickhouse.tcp.client.protocol.DataResponse;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * BlockStream类按数据块流式返回查询结果
+ * 后台读取线程从连接读取数据块，最多预取prefetch个数据块放入有界队列，网络读取与调用方的处理并行进行；
+ * 读取完成（或出错）时由读取线程归还连接；调用方提前关闭（或取消）时向服务器发送取消请求，
+ * 由读取线程在后台读取并丢弃剩余的响应直到数据流结束，然后把连接归还连接池，未读完的结果不会留在连接上
+ * 使用BlockRing时，调用方处理完每个数据块后调用release()，读取线程覆盖已释放的数据块，内存占用与结果大小无关
+ */
+public class BlockStream implements CheckedIterator<Block, SQLException>, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BlockStream.class);
+
+    private static final Object END = new Object(); // 结果读取完成
+
+    private final ClickHouseConnection connection; // 执行查询的连接
+    private final ConnectionReleaser releaser; // 归还或关闭连接
+    private final Block header; // 查询结果的列结构
+    private final BlockingQueue<Object> prefetched; // 预取的数据块、结束标记或读取异常
+    private final AtomicBoolean released = new AtomicBoolean(); // 连接是否已经归还或关闭
+    private final Object releaseLock = new Object(); // 保证取消请求不会发送到已经归还的连接上
+    private final String queryId; // 查询ID
+    private final Thread reader; // 后台读取线程
+    private final BlockRing ring; // 复用的数据块环，为null时每个数据包创建新的数据块
+    private Object next; // 已取出但尚未返回的元素
+    private boolean finished; // 是否已经取到结束标记或异常
+    private volatile boolean closed; // 是否已关闭
+
+    /**
+     * 创建流式查询结果并启动后台读取线程
+     *
+     * @param connection 已发送查询的连接
+     * @param result     懒加载的查询结果
+     * @param prefetch   最多预取的数据块数量，必须为正数
+     * @param releaser   归还或关闭连接
+     * @throws SQLException 如果读取结果头部失败
+     */
+    public BlockStream(ClickHouseConnection connection, QueryResult result, int prefetch, ConnectionReleaser releaser)
+            throws SQLException {
+        this(connection, result, prefetch, null, releaser);
+    }
+
+    /**
+     * 创建流式查询结果并启动后台读取线程
+     *
+     * @param connection 已发送查询的连接
+     * @param result     懒加载的查询结果，数据包优先覆盖ring提供的数据块
+     * @param prefetch   最多预取的数据块数量，必须为正数
+     * @param ring       复用的数据块环，为null时不复用
+     * @param releaser   归还或关闭连接
+     * @throws SQLException 如果读取结果头部失败
+     */
+    public BlockStream(ClickHouseConnection connection, QueryResult result, int prefetch, BlockRing ring,
+                       ConnectionReleaser releaser) throws SQLException {
+        this.connection = connection;
+        this.releaser = releaser;
+        this.ring = ring;
+        this.queryId = connection.queryId();
+        this.header = result.header();
+        if (null != ring) {
+            ring.arm();
+        }
+        this.prefetched = new ArrayBlockingQueue<>(prefetch);
+        this.reader = new Thread(() -> readLoop(result.data()), "clickhouse-query-prefetch");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * 获取查询结果的列结构，不包含数据
+     *
+     * @return 结果头部
+     */
+    public Block header() {
+        return header;
+    }
+
+    /**
+     * 获取查询ID
+     *
+     * @return 查询ID
+     */
+    public String queryId() {
+        return queryId;
+    }
+
+    /**
+     * 连接是否已经释放（结果读取完成、出错或取消后的剩余响应已经读完）
+     *
+     * @return 连接已经归还或关闭时返回true
+     */
+    public boolean isReleased() {
+        return released.get();
+    }
+
+    @Override
+    public boolean hasNext() throws SQLException {
+        if (null != next) {
+            return true;
+        }
+        if (finished || closed) {
+            return false;
+        }
+        Object element;
+        try {
+            element = prefetched.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the next block", e);
+        }
+        if (element == END) {
+            finished = true;
+            return false;
+        }
+        if (element instanceof SQLException) {
+            finished = true;
+            throw (SQLException) element;
+        }
+        next = element;
+        return true;
+    }
+
+    @Override
+    public Block next() throws SQLException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Block block = (Block) next;
+        next = null;
+        return block;
+    }
+
+    /**
+     * 释放处理完的数据块，使读取线程可以覆盖它；未使用BlockRing时没有作用
+     *
+     * @param block next()返回的数据块，释放后不能再访问
+     */
+    public void release(Block block) {
+        if (null != ring) {
+            ring.release(block);
+        }
+    }
+
+    /**
+     * 转换为java.util.stream.Stream，读取异常包装为ClickHouseClientException抛出，关闭Stream时关闭本对象
+     *
+     * @return 数据块流
+     */
+    public Stream<Block> stream() {
+        Iterator<Block> iterator = new Iterator<Block>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return BlockStream.this.hasNext();
+                } catch (SQLException e) {
+                    throw new ClickHouseClientException(e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public Block next() {
+                try {
+                    return BlockStream.this.next();
+                } catch (SQLException e) {
+                    throw new ClickHouseClientException(e.getMessage(), e);
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    /**
+     * 取消查询，等同于close()，可以在任意线程中调用
+     * 已经取出的数据块仍然可以访问，之后hasNext()返回false
+     */
+    public void cancel() {
+        close();
+    }
+
+    /**
+     * 关闭流式查询结果；结果尚未读完时向服务器发送取消请求，
+     * 读取线程在后台读取剩余的响应直到数据流结束后归还连接，发送取消请求失败时关闭连接
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        synchronized (releaseLock) {
+            if (!released.get()) {
+                try {
+                    connection.cancelQuery();
+                } catch (SQLException e) {
+                    // 读取线程在读取剩余响应时同样会失败，由它关闭连接
+                    LOG.warn("Failed to cancel query [{}]: {}", queryId, e.getMessage());
+                }
+            }
+        }
+        reader.interrupt(); // 唤醒等待队列空间或等待数据块释放的读取线程
+        prefetched.clear();
+        next = null;
+    }
+
+    private void readLoop(CheckedIterator<DataResponse, SQLException> data) {
+        Object terminal = END;
+        try {
+            while (!closed) {
+                if (null != ring) {
+                    ring.prepare(); // 环中的数据块都在使用中时等待调用方释放
+                }
+                if (!data.hasNext()) {
+                    break;
+                }
+                Block block = data.next().block();
+                if (null != ring) {
+                    ring.accept(block);
+                }
+                if (block.rowCnt() > 0) {
+                    prefetched.put(block);
+                } else if (null != ring) {
+                    ring.recycle(block);
+                }
+            }
+        } catch (SQLException e) {
+            terminal = e;
+        } catch (RuntimeException e) {
+            terminal = new SQLException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            // 调用方已关闭
+        } finally {
+            boolean reusable;
+            if (closed) {
+                Thread.interrupted(); // 清除close()设置的中断状态，继续读取剩余的响应
+                reusable = connection.drainQuery();
+            } else {
+                reusable = END == terminal;
+            }
+            // 先释放连接，再等待调用方取走结束标记
+            synchronized (releaseLock) {
+                if (released.compareAndSet(false, true)) {
+                    releaser.release(connection, reusable);
+                } else if (!closed) {
+                    LOG.warn("Connection of query stream was released before the stream ended");
+                }
+            }
+        }
+        if (!closed) {
+            try {
+                prefetched.put(terminal);
+            } catch (InterruptedException ignore) {
+                // 调用方已关闭
+            }
+        } else {
+            prefetched.offer(END); // 唤醒在其他线程取消时仍在等待数据块的调用方
+        }
+    }
+
+    /**
+     * 归还或关闭执行查询的连接
+     */
+    @FunctionalInterface
+    public interface ConnectionReleaser {
+
+        /**
+         * @param connection 连接
+         * @param reusable   结果已经完整读取、连接可以归还连接池时为true，否则应关闭连接
+         */
+        void release(ClickHouseConnection connection, boolean reusable);
+    }
+}
@@ -0,0 +1,73 @@
+package com.berry.clickhouse.tcp.client.stream;
+
+import com.berry.clickhouse.tcp.client.NativeContext;
+import com.berry.clickhouse.tcp.client.protocol.FramedDataResponse;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * CachedQueryResult类保存一次查询的完整结果，用于查询结果缓存
+ * 保存的是数据块解压后的字节（FramedDataResponse），字节数即缓存占用的内存；
+ * 每次open()都从字节重新解码出新的数据块，调用方可以任意修改返回的数据块而不影响缓存
+ */
+public class CachedQueryResult {
+
+    private final List<FramedDataResponse> frames; // 按接收顺序排列的数据块，第一个为结果头部
+    private final long bytes; // 数据块解压后的总字节数
+    private final long rowCnt; // 结果的总行数
+
+    /**
+     * @param frames 按接收顺序排列的数据块，第一个为结果头部
+     */
+    public CachedQueryResult(List<FramedDataResponse> frames) {
+        this.frames = frames;
+        long bytes = 0;
+        long rowCnt = 0;
+        for (FramedDataResponse frame : frames) {
+            bytes += frame.bytes();
+            rowCnt += frame.rowCnt();
+        }
+        this.bytes = bytes;
+        this.rowCnt = rowCnt;
+    }
+
+    /**
+     * 从缓存的字节解码出查询结果，数据块在迭代时逐个解码
+     *
+     * @param info 服务器上下文信息
+     * @return 查询结果
+     */
+    public QueryResult open(NativeContext.ServerContext info) {
+        int[] next = new int[1];
+        return new ClickHouseQueryResult(() -> {
+            if (next[0] == frames.size()) {
+                return null; // 结果结束
+            }
+            try {
+                return frames.get(next[0]++).decode(info, true);
+            } catch (IOException e) {
+                throw new SQLException(e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * 获取数据块解压后的总字节数
+     *
+     * @return 字节数
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * 获取结果的总行数
+     *
+     * @return 行数
+     */
+    public long rowCnt() {
+        return rowCnt;
+    }
+}
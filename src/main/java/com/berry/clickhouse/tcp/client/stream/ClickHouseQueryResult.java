@@ -10,6 +10,7 @@ import com.berry.clickhouse.tcp.client.protocol.Response;
 import com.berry.clickhouse.tcp.client.protocol.listener.ProgressListener;
 
 import java.sql.SQLException;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -29,11 +30,13 @@ public class ClickHouseQueryResult implements QueryResult {
     /**
      * 构造函数，使用数据块列表初始化ClickHouseQueryResult
      * 
-     * @param blocks 数据块列表
+     * @param blocks 数据块列表，第一个数据块为结果头部
      */
     public ClickHouseQueryResult(List<Block> blocks) {
-        this.responseSupplier = null;
+        Iterator<Block> iterator = blocks.iterator();
+        this.responseSupplier = () -> iterator.hasNext() ? new DataResponse("", iterator.next()) : null; // 按顺序返回数据块
         this.blocks = blocks;
+        this.data = data();
     }
 
     /**
@@ -0,0 +1,106 @@
+package com.berry.clickhouse.tcp.client.stream;
+
+import com.berry.clickhouse.tcp.client.NativeContext;
+import com.berry.clickhouse.tcp.client.misc.CheckedSupplier;
+import com.berry.clickhouse.tcp.client.protocol.EOFStreamResponse;
+import com.berry.clickhouse.tcp.client.protocol.FramedDataResponse;
+import com.berry.clickhouse.tcp.client.protocol.Response;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * ParallelResponseDecoder类按接收顺序返回响应，数据块在线程池中并行解码
+ * 调用get()的线程作为读取线程，只读取、解压数据包并确定数据块边界（FramedDataResponse），
+ * 随后把数据块交给线程池解码并继续读取下一个数据包，最多同时有window个数据块在解码；
+ * 响应按接收顺序排队，调用方总是按服务器发送的顺序拿到响应
+ */
+public class ParallelResponseDecoder implements CheckedSupplier<Response, SQLException> {
+
+    private final CheckedSupplier<Response, SQLException> framedSupplier; // 读取已分帧的响应
+    private final NativeContext.ServerContext info; // 服务器上下文信息
+    private final ForkJoinPool decodePool; // 解码数据块的线程池
+    private final int window; // 最多同时解码的数据块数量
+    private final ArrayDeque<Future<Response>> pending = new ArrayDeque<>(); // 按接收顺序排列的响应
+    private SQLException failure; // 读取线程遇到的异常，排在已接收的响应之后抛出
+    private boolean atEnd; // 是否已经读取到流结束或异常
+
+    /**
+     * @param framedSupplier 读取已分帧的响应，数据响应为FramedDataResponse
+     * @param info           服务器上下文信息
+     * @param decodePool     解码数据块的线程池
+     * @param window         最多同时解码的数据块数量，必须为正数
+     */
+    public ParallelResponseDecoder(CheckedSupplier<Response, SQLException> framedSupplier,
+                                   NativeContext.ServerContext info, ForkJoinPool decodePool, int window) {
+        this.framedSupplier = framedSupplier;
+        this.info = info;
+        this.decodePool = decodePool;
+        this.window = window;
+    }
+
+    @Override
+    public Response get() throws SQLException {
+        // 队首的响应尚未解码完成时继续读取后续数据包，直到达到窗口大小
+        while (!atEnd && pending.size() < window && (pending.isEmpty() || !pending.peekFirst().isDone())) {
+            readAhead();
+        }
+        Future<Response> head = pending.pollFirst();
+        if (null == head) {
+            if (null != failure) {
+                SQLException e = failure;
+                failure = null;
+                throw e;
+            }
+            return null;
+        }
+        try {
+            return head.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while decoding block", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 读取下一个数据包，数据块提交到线程池解码，其余响应直接排队
+     */
+    private void readAhead() {
+        Response response;
+        try {
+            response = framedSupplier.get();
+        } catch (SQLException e) {
+            failure = e;
+            atEnd = true;
+            return;
+        }
+        if (response instanceof FramedDataResponse) {
+            FramedDataResponse framed = (FramedDataResponse) response;
+            pending.addLast(decodePool.submit(() -> decode(framed)));
+            return;
+        }
+        if (null == response || response instanceof EOFStreamResponse) {
+            atEnd = true;
+        }
+        pending.addLast(CompletableFuture.completedFuture(response));
+    }
+
+    private Response decode(FramedDataResponse framed) throws SQLException {
+        try {
+            return framed.decode(info, true);
+        } catch (IOException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.berry.clickhouse.tcp.client.stream;
+
+import com.berry.clickhouse.tcp.client.misc.CheckedSupplier;
+import com.berry.clickhouse.tcp.client.settings.SettingKey;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * QueryResultCache类在客户端缓存查询结果，与LRUCache一样按最近最少使用淘汰，但容量按结果的字节数计算
+ * 键为规范化的SQL（折叠引号外的空白、去掉末尾的分号）加上查询设置；每个结果有各自的有效期；
+ * 同一个键同时只有一个线程执行查询，其余线程等待并共享该结果；
+ * 可以按表失效，结果引用的表从SQL的FROM和JOIN子句中识别；无法完整识别引用的表（如引用表函数）的查询不缓存
+ */
+public class QueryResultCache {
+
+    private static final float HASH_TABLE_LOAD_FACTOR = 0.75f; // 哈希表负载因子
+
+    // FROM或JOIN之后的表名，可以带数据库名，可以用反引号或双引号引用；表名之后紧跟括号时为表函数
+    private static final String IDENTIFIER = "(?:`[^`]+`|\"[^\"]+\"|[A-Za-z_][\\w$]*)";
+    private static final Pattern CLAUSE_PATTERN = Pattern.compile("\\b(FROM|JOIN)\\b\\s*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TABLE_PATTERN = Pattern.compile(
+            "(" + IDENTIFIER + "(?:\\s*\\.\\s*" + IDENTIFIER + ")?)(\\s*\\()?");
+    // FROM子句中表的别名和分隔下一个表的逗号，例如FROM a AS x, b y
+    private static final Pattern NEXT_TABLE_PATTERN = Pattern.compile(
+            "(?:\\s+(?:AS\\s+)?" + IDENTIFIER + ")?\\s*,\\s*", Pattern.CASE_INSENSITIVE);
+
+    private final long maxBytes; // 缓存的最大字节数
+    private final Duration defaultTtl; // 默认有效期
+    private final LinkedHashMap<String, Entry> entries; // 按访问顺序排列的缓存结果
+    private final ConcurrentMap<String, CompletableFuture<CachedQueryResult>> loading = new ConcurrentHashMap<>(); // 正在查询的键
+    private long usedBytes; // 已缓存的字节数
+    private long generation; // 每次失效时加1，失效前开始的查询结果不再写入缓存
+
+    /**
+     * @param maxBytes   缓存的最大字节数，必须为正数
+     * @param defaultTtl 默认有效期
+     */
+    public QueryResultCache(long maxBytes, Duration defaultTtl) {
+        this.maxBytes = maxBytes;
+        this.defaultTtl = defaultTtl;
+        this.entries = new LinkedHashMap<>(16, HASH_TABLE_LOAD_FACTOR, true);
+    }
+
+    /**
+     * 获取缓存的查询结果，不存在或已过期时调用loader执行查询并缓存结果
+     * 同一个键的并发请求只调用一次loader；结果大于缓存容量，或者无法识别查询引用的表时不缓存
+     *
+     * @param query    SQL查询语句
+     * @param settings 查询设置
+     * @param ttl      有效期，为null时使用默认有效期
+     * @param loader   执行查询
+     * @return 查询结果
+     * @throws SQLException 如果查询失败
+     */
+    public CachedQueryResult get(String query, Map<SettingKey, Serializable> settings, Duration ttl,
+                                 CheckedSupplier<CachedQueryResult, SQLException> loader) throws SQLException {
+        String normalized = normalize(query);
+        Set<String> tables = tables(normalized);
+        if (null == tables) {
+            return loader.get(); // 无法按表失效，不缓存
+        }
+        String key = key(normalized, settings);
+        CachedQueryResult result = lookup(key);
+        if (null != result) {
+            return result;
+        }
+
+        CompletableFuture<CachedQueryResult> future = new CompletableFuture<>();
+        CompletableFuture<CachedQueryResult> running = loading.putIfAbsent(key, future);
+        if (null != running) {
+            return await(running); // 其他线程正在执行相同的查询
+        }
+        try {
+            result = lookup(key);
+            if (null == result) {
+                long startGeneration = currentGeneration();
+                result = loader.get();
+                store(key, tables, result, null == ttl ? defaultTtl : ttl, startGeneration);
+            }
+            future.complete(result);
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * 使引用指定表的缓存结果失效
+     * 表名可以带数据库名，带数据库名时也匹配SQL中不带数据库名的引用，反之亦然
+     *
+     * @param table 表名
+     */
+    public synchronized void invalidateTable(String table) {
+        String name = unquote(table);
+        generation++;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (references(entry.tables, name)) {
+                usedBytes -= entry.result.bytes();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 使全部缓存结果失效
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * 获取已缓存的字节数
+     *
+     * @return 字节数
+     */
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * 获取已缓存的结果数量
+     *
+     * @return 结果数量
+     */
+    public synchronized int cacheSize() {
+        return entries.size();
+    }
+
+    private synchronized CachedQueryResult lookup(String key) {
+        Entry entry = entries.get(key);
+        if (null == entry) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt >= 0) {
+            entries.remove(key); // 已过期
+            usedBytes -= entry.result.bytes();
+            return null;
+        }
+        return entry.result;
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+
+    private synchronized void store(String key, Set<String> tables, CachedQueryResult result, Duration ttl,
+                                    long startGeneration) {
+        if (startGeneration != generation || result.bytes() > maxBytes) {
+            return; // 查询期间发生过失效，或者结果大于缓存容量
+        }
+        Entry previous = entries.remove(key);
+        if (null != previous) {
+            usedBytes -= previous.result.bytes();
+        }
+        long now = System.nanoTime();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (usedBytes + result.bytes() > maxBytes && iterator.hasNext()) {
+            usedBytes -= iterator.next().result.bytes(); // 淘汰最近最少使用的结果
+            iterator.remove();
+        }
+        entries.put(key, new Entry(result, tables, now + ttl.toNanos()));
+        usedBytes += result.bytes();
+    }
+
+    private static CachedQueryResult await(CompletableFuture<CachedQueryResult> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the cached query", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        }
+    }
+
+    private static String key(String normalized, Map<SettingKey, Serializable> settings) {
+        Map<String, Serializable> sorted = new TreeMap<>();
+        for (Map.Entry<SettingKey, Serializable> setting : settings.entrySet()) {
+            if (SettingKey.query_id != setting.getKey()) {
+                sorted.put(setting.getKey().name(), setting.getValue()); // 查询ID不影响结果
+            }
+        }
+        return normalized + '\n' + sorted;
+    }
+
+    /**
+     * 规范化SQL：折叠引号外连续的空白，去掉首尾空白和末尾的分号，引号内的内容保持不变
+     *
+     * @param query SQL查询语句
+     * @return 规范化的SQL
+     */
+    static String normalize(String query) {
+        StringBuilder builder = new StringBuilder(query.length());
+        char quote = 0;
+        boolean space = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (0 != quote) {
+                builder.append(c);
+                if (c == '\\' && i + 1 < query.length()) {
+                    builder.append(query.charAt(++i)); // 转义字符
+                } else if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space && builder.length() > 0) {
+                builder.append(' ');
+            }
+            space = false;
+            if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            }
+            builder.append(c);
+        }
+        int end = builder.length();
+        while (end > 0 && builder.charAt(end - 1) == ';') {
+            end--;
+        }
+        return builder.substring(0, end).trim();
+    }
+
+    /**
+     * 识别SQL的FROM和JOIN子句引用的表，FROM之后可以是逗号分隔的多个表或子查询，子查询中的表同样识别
+     *
+     * @param query 规范化的SQL
+     * @return 表名，带数据库名时为database.table；引用表函数或括号不匹配时无法确定引用的表，返回null
+     */
+    static Set<String> tables(String query) {
+        Set<String> tables = new HashSet<>();
+        Matcher clause = CLAUSE_PATTERN.matcher(query);
+        Matcher table = TABLE_PATTERN.matcher(query);
+        Matcher next = NEXT_TABLE_PATTERN.matcher(query);
+        while (clause.find()) {
+            boolean list = "FROM".equalsIgnoreCase(clause.group(1)); // JOIN之后只有一个表
+            int position = clause.end();
+            while (true) {
+                if (position < query.length() && query.charAt(position) == '(') {
+                    position = skipParentheses(query, position); // 子查询中的表由外层循环识别
+                    if (position < 0) {
+                        return null;
+                    }
+                } else if (table.region(position, query.length()).lookingAt()) {
+                    if (null != table.group(2)) {
+                        return null; // 表函数
+                    }
+                    tables.add(unquote(table.group(1)));
+                    position = table.end();
+                } else {
+                    break;
+                }
+                if (!list || !next.region(position, query.length()).lookingAt()) {
+                    break;
+                }
+                position = next.end();
+            }
+        }
+        return tables.isEmpty() ? Collections.emptySet() : tables;
+    }
+
+    /**
+     * 跳过从open开始的一对括号，忽略引号中的括号
+     *
+     * @return 右括号之后的位置，括号不匹配时返回-1
+     */
+    private static int skipParentheses(String query, int open) {
+        int depth = 0;
+        char quote = 0;
+        for (int i = open; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (0 != quote) {
+                if (c == '\\') {
+                    i++; // 转义字符
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static String unquote(String table) {
+        StringBuilder builder = new StringBuilder(table.length());
+        for (int i = 0; i < table.length(); i++) {
+            char c = table.charAt(i);
+            if (c != '`' && c != '"' && !Character.isWhitespace(c)) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean references(Set<String> tables, String table) {
+        for (String t : tables) {
+            if (t.equals(table) || t.endsWith("." + table) || table.endsWith("." + t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 缓存的查询结果
+     */
+    private static final class Entry {
+        private final CachedQueryResult result; // 查询结果
+        private final Set<String> tables; // 结果引用的表
+        private final long expiresAt; // 过期时间（System.nanoTime()）
+
+        private Entry(CachedQueryResult result, Set<String> tables, long expiresAt) {
+            this.result = result;
+            this.tables = tables;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.berry.clickhouse.tcp.client.stream;
+
+import com.berry.clickhouse.tcp.client.NativeContext;
+import com.berry.clickhouse.tcp.client.data.NativeFileWriter;
+import com.berry.clickhouse.tcp.client.log.Logger;
+import com.berry.clickhouse.tcp.client.log.LoggerFactory;
+import com.berry.clickhouse.tcp.client.protocol.FramedDataResponse;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * QuerySpool类接收立即加载的查询结果，超过内存阈值时把数据块写入临时文件
+ * 未超过阈值时数据块以解压后的字节（FramedDataResponse）保存在内存中；超过阈值后已保存的和后续的数据块
+ * 全部按Native格式（不压缩）写入临时文件，单个文件超过SPOOL_FILE_BYTES时写入新的文件，
+ * 接收完成后文件以只读方式映射到内存并删除，映射的区域在被垃圾回收前仍然有效
+ * 非线程安全，在接收结果的线程中使用
+ */
+public class QuerySpool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuerySpool.class);
+
+    private static final long SPOOL_FILE_BYTES = 1L << 30; // 单个临时文件的最大字节数，须小于MappedByteBuffer的上限
+
+    private final long thresholdBytes; // 内存中保存的最大字节数
+    private final Path directory; // 临时文件目录
+    private final NativeContext.ServerContext info; // 服务器上下文信息
+    private final List<FramedDataResponse> frames = new ArrayList<>(); // 内存中的数据块
+    private final List<Path> files = new ArrayList<>(); // 已创建的临时文件
+    private final List<Integer> blockCounts = new ArrayList<>(); // 每个已写完的临时文件中的数据块数量
+    private FramedDataResponse header; // 结果头部
+    private long memoryBytes; // 内存中数据块的字节数
+    private NativeFileWriter writer; // 正在写入的临时文件
+
+    /**
+     * @param thresholdBytes 内存中保存的最大字节数
+     * @param directory      临时文件目录，为null时使用系统临时目录
+     * @param info           服务器上下文信息
+     */
+    public QuerySpool(long thresholdBytes, String directory, NativeContext.ServerContext info) {
+        this.thresholdBytes = thresholdBytes;
+        this.directory = Paths.get(null == directory ? System.getProperty("java.io.tmpdir") : directory);
+        this.info = info;
+    }
+
+    /**
+     * 接收一个数据块，第一个数据块为结果头部，没有行的数据块不保存
+     *
+     * @param frame 已分帧的数据响应
+     * @throws SQLException 如果写入临时文件失败
+     */
+    public void add(FramedDataResponse frame) throws SQLException {
+        if (null == header) {
+            header = frame;
+            return;
+        }
+        if (frame.rowCnt() <= 0) {
+            return;
+        }
+        if (null == writer && files.isEmpty() && memoryBytes + frame.bytes() <= thresholdBytes) {
+            frames.add(frame);
+            memoryBytes += frame.bytes();
+            return;
+        }
+        try {
+            if (null == writer || writer.writtenBytes() >= SPOOL_FILE_BYTES) {
+                roll();
+            }
+            for (FramedDataResponse memory : frames) {
+                writer.write(memory); // 先写入内存中的数据块，保持接收顺序
+            }
+            frames.clear();
+            memoryBytes = 0;
+            writer.write(frame);
+        } catch (IOException e) {
+            throw new SQLException("Failed to spool query result to " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 结束接收，返回查询结果
+     *
+     * @return 查询结果
+     * @throws SQLException 如果关闭或映射临时文件失败
+     */
+    public QueryResult finish() throws SQLException {
+        if (null == header) {
+            throw new SQLException("Query result has no header block");
+        }
+        try {
+            closeWriter();
+            List<MappedByteBuffer> buffers = new ArrayList<>(files.size());
+            for (Path file : files) {
+                try (FileChannel channel = FileChannel.open(file)) {
+                    buffers.add(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                }
+            }
+            return new SpooledQueryResult(header, frames, buffers, blockCounts, info);
+        } catch (IOException e) {
+            throw new SQLException("Failed to map spooled query result: " + e.getMessage(), e);
+        } finally {
+            deleteFiles();
+        }
+    }
+
+    /**
+     * 放弃接收，关闭并删除临时文件
+     */
+    public void discard() {
+        try {
+            closeWriter();
+        } catch (IOException e) {
+            LOG.warn("Failed to close spool file: {}", e.getMessage());
+        }
+        deleteFiles();
+        frames.clear();
+    }
+
+    private void roll() throws IOException {
+        closeWriter();
+        Files.createDirectories(directory);
+        Path file = Files.createTempFile(directory, "clickhouse-result-", ".native");
+        files.add(file);
+        writer = new NativeFileWriter(file);
+    }
+
+    private void closeWriter() throws IOException {
+        if (null != writer) {
+            NativeFileWriter closing = writer;
+            writer = null;
+            blockCounts.add(closing.blocks());
+            closing.close();
+        }
+    }
+
+    private void deleteFiles() {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOG.warn("Failed to delete spool file {}: {}", file, e.getMessage());
+                file.toFile().deleteOnExit();
+            }
+        }
+        files.clear();
+    }
+}
@@ -0,0 +1,113 @@
+package com.berry.clickhouse.tcp.client.stream;
+
+import com.berry.clickhouse.tcp.client.NativeContext;
+import com.berry.clickhouse.tcp.client.buffer.MappedByteBufferReader;
+import com.berry.clickhouse.tcp.client.data.Block;
+import com.berry.clickhouse.tcp.client.misc.CheckedIterator;
+import com.berry.clickhouse.tcp.client.protocol.DataResponse;
+import com.berry.clickhouse.tcp.client.protocol.FramedDataResponse;
+import com.berry.clickhouse.tcp.client.serde.BinaryDeserializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * SpooledQueryResult类是QuerySpool接收完成的查询结果
+ * 数据块保存在内存（解压后的字节）或内存映射的临时文件中，迭代时逐个解码，
+ * 同一时刻只有正在迭代的数据块以对象形式存在；每次调用data()都从第一个数据块开始
+ */
+public class SpooledQueryResult implements QueryResult {
+
+    private final Block header; // 结果头部
+    private final List<FramedDataResponse> frames; // 内存中的数据块
+    private final List<MappedByteBuffer> buffers; // 映射的临时文件
+    private final List<Integer> blockCounts; // 每个临时文件中的数据块数量
+    private final NativeContext.ServerContext info; // 服务器上下文信息
+
+    /**
+     * @param header      结果头部
+     * @param frames      内存中的数据块
+     * @param buffers     映射的临时文件，按写入顺序排列
+     * @param blockCounts 每个临时文件中的数据块数量
+     * @param info        服务器上下文信息
+     * @throws SQLException 如果解码结果头部失败
+     */
+    SpooledQueryResult(FramedDataResponse header, List<FramedDataResponse> frames, List<MappedByteBuffer> buffers,
+                       List<Integer> blockCounts, NativeContext.ServerContext info) throws SQLException {
+        this.header = decode(header, info).block();
+        this.frames = frames;
+        this.buffers = buffers;
+        this.blockCounts = blockCounts;
+        this.info = info;
+    }
+
+    /**
+     * 结果是否写入了临时文件
+     *
+     * @return 写入了临时文件时返回true
+     */
+    public boolean isSpooled() {
+        return !buffers.isEmpty();
+    }
+
+    @Override
+    public Block header() {
+        return header;
+    }
+
+    @Override
+    public CheckedIterator<DataResponse, SQLException> data() {
+        return new CheckedIterator<DataResponse, SQLException>() {
+
+            private int frame; // 下一个内存中数据块的索引
+            private int file = -1; // 当前临时文件的索引
+            private int remaining; // 当前临时文件中剩余的数据块数量
+            private BinaryDeserializer deserializer; // 当前临时文件的反序列化器
+
+            @Override
+            public boolean hasNext() {
+                if (frame < frames.size() || remaining > 0) {
+                    return true;
+                }
+                while (file + 1 < buffers.size()) {
+                    file++;
+                    remaining = blockCounts.get(file);
+                    if (remaining > 0) {
+                        ByteBuffer buffer = ((ByteBuffer) buffers.get(file)).duplicate(); // 每次迭代独立的读取位置，不使用Java 13起的协变重载
+                        deserializer = new BinaryDeserializer(new MappedByteBufferReader(buffer), false);
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public DataResponse next() throws SQLException {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (frame < frames.size()) {
+                    return decode(frames.get(frame++), info);
+                }
+                remaining--;
+                try {
+                    return new DataResponse("", Block.readNativeFrom(deserializer, info, true));
+                } catch (IOException e) {
+                    throw new SQLException("Failed to read spooled block: " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    private static DataResponse decode(FramedDataResponse frame, NativeContext.ServerContext info) throws SQLException {
+        try {
+            return frame.decode(info, true);
+        } catch (IOException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+}
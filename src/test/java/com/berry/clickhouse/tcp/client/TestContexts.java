@@ -0,0 +1,22 @@
+package com.berry.clickhouse.tcp.client;
+
+import com.berry.clickhouse.tcp.client.data.ColumnWriterBufferFactory;
+import com.berry.clickhouse.tcp.client.settings.ClickHouseClientConfig;
+import com.berry.clickhouse.tcp.client.settings.ClickHouseDefines;
+
+import java.time.ZoneId;
+
+/**
+ * 不连接服务端的测试使用的服务器上下文
+ */
+public final class TestContexts {
+
+    private TestContexts() {
+    }
+
+    public static NativeContext.ServerContext serverContext() {
+        ClickHouseClientConfig config = ClickHouseClientConfig.Builder.builder().build();
+        return new NativeContext.ServerContext(21, 8, ClickHouseDefines.CLIENT_REVISION, config,
+                ZoneId.of("UTC"), "test", ColumnWriterBufferFactory.getInstance(config));
+    }
+}
@@ -0,0 +1,117 @@
+package com.berry.clickhouse.tcp.client.buffer;
+
+import com.berry.clickhouse.tcp.client.exception.MemoryBudgetExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryBudgetTest {
+
+    @Test
+    void acquireFailsImmediatelyWhenExhaustedWithoutWait() {
+        MemoryBudget budget = new MemoryBudget(1024, Duration.ZERO);
+        budget.acquire(1000);
+
+        assertThrows(MemoryBudgetExceededException.class, () -> budget.acquire(100));
+        assertEquals(1000, budget.used()); // 失败的申请不占用预算
+        assertEquals(24, budget.available());
+    }
+
+    @Test
+    void requestLargerThanLimitFailsWithoutWaiting() {
+        MemoryBudget budget = new MemoryBudget(1024, Duration.ofMinutes(1));
+
+        long start = System.nanoTime();
+        assertThrows(MemoryBudgetExceededException.class, () -> budget.acquire(2048));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        assertEquals(0, budget.used());
+    }
+
+    @Test
+    void acquireTimesOutAfterWait() {
+        MemoryBudget budget = new MemoryBudget(1024, Duration.ofMillis(50));
+        budget.acquire(1024);
+
+        long start = System.nanoTime();
+        assertThrows(MemoryBudgetExceededException.class, () -> budget.acquire(1));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void waiterProceedsAfterRelease() throws Exception {
+        MemoryBudget budget = new MemoryBudget(1024, Duration.ofSeconds(30));
+        budget.acquire(1024);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            Future<?> waiter = executor.submit(() -> {
+                started.countDown();
+                budget.acquire(512);
+            });
+            started.await();
+            Thread.sleep(50);
+            assertFalse(waiter.isDone());
+
+            budget.release(512);
+            waiter.get(10, TimeUnit.SECONDS);
+            assertEquals(1024, budget.used());
+            assertEquals(1024, budget.peak());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void tryAcquireNeverBlocks() {
+        MemoryBudget budget = new MemoryBudget(1024, Duration.ofMinutes(1));
+
+        assertTrue(budget.tryAcquire(1024));
+        assertFalse(budget.tryAcquire(1));
+        budget.release(1);
+        assertTrue(budget.tryAcquire(1));
+    }
+
+    @Test
+    void unlimitedBudgetOnlyCounts() {
+        MemoryBudget budget = MemoryBudget.unlimited();
+        budget.acquire(Long.MAX_VALUE / 2);
+
+        assertFalse(budget.isLimited());
+        assertEquals(Long.MAX_VALUE, budget.available());
+        assertEquals(Long.MAX_VALUE / 2, budget.used());
+    }
+
+    @Test
+    void poolManagerChargesAndRefundsBudget() {
+        MemoryBudget budget = new MemoryBudget(4096, Duration.ZERO);
+        DefaultBufferPoolManager manager = new DefaultBufferPoolManager(2048, budget);
+
+        ByteBuffer first = manager.allocate("c", null);
+        ByteBuffer second = manager.allocate("c", null);
+        assertEquals(4096, budget.used());
+        assertThrows(MemoryBudgetExceededException.class, () -> manager.allocate("c", null));
+
+        manager.recycle(first);
+        assertEquals(2048, budget.used());
+        ByteBuffer small = manager.allocate("c", null, 100); // 预期大小向上取整到最小分段
+        assertEquals(DefaultBufferPoolManager.MIN_SEGMENT_SIZE, small.capacity());
+        assertEquals(2048 + DefaultBufferPoolManager.MIN_SEGMENT_SIZE, budget.used());
+
+        manager.recycle(second);
+        manager.recycle(small);
+        assertEquals(0, budget.used());
+        assertEquals(4096, budget.peak());
+    }
+}
@@ -0,0 +1,51 @@
+package com.berry.clickhouse.tcp.client.buffer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpillFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void deleteIsDeferredUntilLastSegmentIsReleased() throws Exception {
+        SpillFile file = new SpillFile(directory);
+        MappedByteBuffer first = file.map(4096);
+        MappedByteBuffer second = file.map(4096);
+        first.putLong(42L);
+
+        file.close();
+        assertTrue(Files.exists(file.path()), "closed with live segments");
+        assertEquals(42L, first.getLong(0));
+        assertThrows(RuntimeException.class, () -> file.map(4096));
+
+        assertTrue(file.release(first));
+        assertTrue(Files.exists(file.path()));
+        file.release(second);
+        assertTrue(file.isDeleted());
+        assertFalse(Files.exists(file.path()));
+    }
+
+    @Test
+    void lastReleaseClosesAndDeletes() throws Exception {
+        SpillFile file = new SpillFile(directory);
+        MappedByteBuffer segment = file.map(1024);
+
+        assertFalse(file.release(ByteBuffer.allocate(16)), "foreign buffers are ignored");
+        assertEquals(1, file.outstandingSegments());
+        assertTrue(file.release(segment));
+        assertFalse(Files.exists(file.path()));
+        assertTrue(file.release(segment), "double release is ignored");
+    }
+}
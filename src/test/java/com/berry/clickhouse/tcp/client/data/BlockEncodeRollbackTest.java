@@ -0,0 +1,59 @@
+package com.berry.clickhouse.tcp.client.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BlockEncodeRollbackTest {
+
+    private static final String[] LAYOUT = {"id", "Int64", "name", "Nullable(String)", "tags", "Array(String)"};
+
+    @Test
+    void failedBatchKeepsEarlierRows() throws Exception {
+        Block block = TestBlocks.writeBlock(LAYOUT);
+        block.appendRows(new Object[][]{
+                {1L, "a", new String[]{"x"}},
+                {2L, null, new String[0]}});
+        long bytes = block.writtenBytes();
+
+        assertThrows(SQLException.class, () -> block.appendRows(new Object[][]{
+                {3L, "c", new String[]{"y", "z"}},
+                {4L, "d", new Object[]{new Object()}}}));
+        assertEquals(2, block.rowCnt());
+        assertEquals(bytes, block.writtenBytes());
+
+        block.appendRows(new Object[][]{{5L, "e", new String[]{"w"}}});
+
+        Block expected = TestBlocks.writeBlock(LAYOUT);
+        expected.appendRows(new Object[][]{
+                {1L, "a", new String[]{"x"}},
+                {2L, null, new String[0]},
+                {5L, "e", new String[]{"w"}}});
+        assertEquals(3, block.rowCnt());
+        assertArrayEquals(TestBlocks.encode(expected), TestBlocks.encode(block));
+    }
+
+    @Test
+    void rollbackAcrossSegments() throws Exception {
+        Block block = TestBlocks.writeBlock("id", "Int64", "name", "String");
+        Object[][] rows = new Object[5000][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[]{(long) i, "row-" + i};
+        }
+        block.appendRows(rows);
+        byte[] before = TestBlocks.encode(block);
+
+        Object[][] bad = new Object[300_000][];
+        for (int i = 0; i < bad.length; i++) {
+            bad[i] = new Object[]{(long) i, (i == bad.length - 1) ? (Object) 1 : "some longer value " + i};
+        }
+        assertThrows(SQLException.class, () -> block.appendRows(bad));
+
+        assertEquals(rows.length, block.rowCnt());
+        assertArrayEquals(before, TestBlocks.encode(block));
+    }
+}
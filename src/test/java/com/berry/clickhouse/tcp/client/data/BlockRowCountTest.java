@@ -0,0 +1,41 @@
+package com.berry.clickhouse.tcp.client.data;
+
+import com.berry.clickhouse.tcp.client.buffer.ByteArrayWriter;
+import com.berry.clickhouse.tcp.client.serde.BinarySerializer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BlockRowCountTest {
+
+    @Test
+    void mismatchedColumnsAreRejectedBeforeAnyByteIsWritten() throws Exception {
+        Block block = TestBlocks.writeBlock("id", "Int64", "name", "String");
+        block.setColumnData("id", new long[]{1, 2, 3});
+        byte[] arena = "ab".getBytes(StandardCharsets.UTF_8);
+        block.setColumnData("name", arena, new int[]{0, 1, 2});
+
+        ByteArrayWriter writer = new ByteArrayWriter(() -> ByteBuffer.allocate(1024), buffer -> { });
+        assertThrows(SQLException.class, block::checkRowCounts);
+        assertThrows(SQLException.class, () -> block.writeTo(new BinarySerializer(writer, false)));
+        assertEquals(0, writer.writtenBytes());
+        assertThrows(SQLException.class, () -> block.writeTo(new BinarySerializer(writer, false), 0, 2));
+    }
+
+    @Test
+    void matchingColumnsPass() throws Exception {
+        Block block = TestBlocks.writeBlock("id", "Int64", "name", "String");
+        block.setColumnData("id", new long[]{1, 2});
+        block.setColumnData("name", "ab".getBytes(StandardCharsets.UTF_8), new int[]{0, 1, 2});
+
+        assertDoesNotThrow(block::checkRowCounts);
+        assertEquals(2, block.rowCnt());
+        TestBlocks.encode(block);
+    }
+}
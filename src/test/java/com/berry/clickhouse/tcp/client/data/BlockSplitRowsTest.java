@@ -0,0 +1,71 @@
+package com.berry.clickhouse.tcp.client.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BlockSplitRowsTest {
+
+    private static long[] longs(int rows) {
+        long[] values = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = i;
+        }
+        return values;
+    }
+
+    private static Block int64Block(int rows) throws SQLException {
+        Block block = TestBlocks.writeBlock("id", "Int64");
+        block.setColumnData("id", longs(rows));
+        return block;
+    }
+
+    @Test
+    void smallBlocksAreNotSplit() throws Exception {
+        Block block = int64Block(10_000);
+        assertArrayEquals(new int[]{0, 10_000}, block.splitRows(10_000, 80_000));
+    }
+
+    @Test
+    void splitsAtRowMarksByBytes() throws Exception {
+        // 每行8字节，20000字节最多容纳2500行，向下取到1024的整数倍
+        assertArrayEquals(new int[]{0, 2048, 4096, 6144, 8192, 10_000}, int64Block(10_000).splitRows(1 << 20, 20_000));
+    }
+
+    @Test
+    void splitsAtRowMarksByRows() throws Exception {
+        assertArrayEquals(new int[]{0, 3072, 6144, 10_000}, int64Block(10_000).splitRows(4000, Long.MAX_VALUE));
+    }
+
+    @Test
+    void partsLargerThanTheLimitStillAdvanceByOneRowMark() throws Exception {
+        assertArrayEquals(new int[]{0, 1024, 2048, 3000}, int64Block(3000).splitRows(100, Long.MAX_VALUE));
+    }
+
+    @Test
+    void blocksBelowOneRowMarkAreSentWhole() throws Exception {
+        assertArrayEquals(new int[]{0, 1000}, int64Block(1000).splitRows(10, 10));
+    }
+
+    @Test
+    void tupleColumnsAreSentWhole() throws Exception {
+        Block block = TestBlocks.writeBlock("id", "Int64", "pair", "Tuple(Int32, String)");
+        Object[][] rows = new Object[4096][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[]{(long) i, new Object[]{i, "v" + i}};
+        }
+        block.appendRows(rows);
+        assertArrayEquals(new int[]{0, 4096}, block.splitRows(1024, Long.MAX_VALUE));
+    }
+
+    @Test
+    void mismatchedRowCountsFail() throws Exception {
+        Block block = TestBlocks.writeBlock("a", "Int64", "b", "Int64");
+        block.setColumnData("a", longs(5000));
+        block.setColumnData("b", longs(4000));
+        assertThrows(SQLException.class, () -> block.splitRows(1024, Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,80 @@
+package com.berry.clickhouse.tcp.client.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnWriterBufferCacheTest {
+
+    @Test
+    void pollOnEmptyCacheReturnsNull() {
+        ColumnWriterBufferCache cache = new ColumnWriterBufferCache(4, 2);
+
+        assertNull(cache.poll());
+    }
+
+    @Test
+    void offerFailsOnceMagazineAndDepotAreFull() {
+        ColumnWriterBufferCache cache = new ColumnWriterBufferCache(3, 2);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(cache.offer(newBuffer()), "offer " + i);
+        }
+        assertEquals(3, cache.depotSize());
+        assertFalse(cache.offer(newBuffer()));
+
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(cache.poll(), "poll " + i);
+        }
+        assertNull(cache.poll());
+    }
+
+    @Test
+    void withoutMagazineOnlyDepotIsUsed() {
+        ColumnWriterBufferCache cache = new ColumnWriterBufferCache(1, 0);
+        ColumnWriterBuffer buffer = newBuffer();
+
+        assertTrue(cache.offer(buffer));
+        assertEquals(1, cache.depotSize());
+        assertFalse(cache.offer(newBuffer()));
+        assertSame(buffer, cache.poll());
+    }
+
+    @Test
+    void buffersOfTerminatedThreadAreReclaimed() throws InterruptedException {
+        ColumnWriterBufferCache cache = new ColumnWriterBufferCache(4, 2);
+        Map<ColumnWriterBuffer, Boolean> offered = new IdentityHashMap<>();
+        ColumnWriterBuffer first = newBuffer();
+        ColumnWriterBuffer second = newBuffer();
+        offered.put(first, true);
+        offered.put(second, true);
+
+        Thread owner = new Thread(() -> {
+            cache.offer(first);
+            cache.offer(second);
+        });
+        owner.start();
+        owner.join();
+        assertEquals(0, cache.depotSize()); // 缓冲区仍在已结束线程的弹匣中
+
+        ColumnWriterBuffer reclaimed = cache.poll();
+        assertNotNull(reclaimed);
+        assertTrue(offered.containsKey(reclaimed));
+        assertEquals(1, cache.depotSize()); // 其余缓冲区移入共享仓库
+        assertNotNull(cache.poll());
+    }
+
+    private static ColumnWriterBuffer newBuffer() {
+        return new ColumnWriterBuffer(null, 1, () -> ByteBuffer.allocate(64), b -> {
+        });
+    }
+}
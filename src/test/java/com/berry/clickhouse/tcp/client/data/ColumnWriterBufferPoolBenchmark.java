@@ -0,0 +1,119 @@
+package com.berry.clickhouse.tcp.client.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比ArrayBlockingQueue与线程本地缓存的取还吞吐量
+ * 每次调用模拟构建宽表Block：一次取出COLUMNS个列缓冲区再全部归还；线程数默认为8，可用-t覆盖
+ * 运行方式：mvn -P benchmark test-compile exec:exec -Djmh.args="ColumnWriterBufferPoolBenchmark -t 32"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ColumnWriterBufferPoolBenchmark {
+
+    private static final int COLUMNS = 64; // 每个数据块的列数
+    private static final int POOL_SIZE = 1024; // 共享池容量
+
+    interface Pool {
+        ColumnWriterBuffer poll();
+
+        boolean offer(ColumnWriterBuffer buffer);
+    }
+
+    /**
+     * 所有线程共享的缓冲池
+     */
+    @State(Scope.Benchmark)
+    public static class SharedPool {
+
+        @Param({"queue", "cache"})
+        public String pool; // 缓冲池实现
+
+        Pool impl;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            impl = "queue".equals(pool) ? queuePool() : cachePool();
+        }
+    }
+
+    /**
+     * 每个线程持有的列缓冲区
+     */
+    @State(Scope.Thread)
+    public static class Held {
+        final ColumnWriterBuffer[] buffers = new ColumnWriterBuffer[COLUMNS];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLUMNS * 2)
+    public void pollAndOffer(SharedPool shared, Held held, Blackhole blackhole) {
+        Pool pool = shared.impl;
+        ColumnWriterBuffer[] buffers = held.buffers;
+        for (int c = 0; c < COLUMNS; c++) {
+            ColumnWriterBuffer buffer = pool.poll();
+            buffers[c] = (null == buffer) ? newBuffer() : buffer;
+        }
+        for (int c = 0; c < COLUMNS; c++) {
+            blackhole.consume(pool.offer(buffers[c]));
+            buffers[c] = null;
+        }
+    }
+
+    private static Pool queuePool() {
+        ArrayBlockingQueue<ColumnWriterBuffer> queue = new ArrayBlockingQueue<>(POOL_SIZE);
+        return new Pool() {
+            @Override
+            public ColumnWriterBuffer poll() {
+                return queue.poll();
+            }
+
+            @Override
+            public boolean offer(ColumnWriterBuffer buffer) {
+                return queue.offer(buffer);
+            }
+        };
+    }
+
+    private static Pool cachePool() {
+        ColumnWriterBufferCache cache = new ColumnWriterBufferCache(POOL_SIZE, ColumnWriterBufferCache.DEFAULT_MAGAZINE_SIZE);
+        return new Pool() {
+            @Override
+            public ColumnWriterBuffer poll() {
+                return cache.poll();
+            }
+
+            @Override
+            public boolean offer(ColumnWriterBuffer buffer) {
+                return cache.offer(buffer);
+            }
+        };
+    }
+
+    private static ColumnWriterBuffer newBuffer() {
+        return new ColumnWriterBuffer(null, 1, () -> ByteBuffer.allocate(64), b -> {
+        });
+    }
+}
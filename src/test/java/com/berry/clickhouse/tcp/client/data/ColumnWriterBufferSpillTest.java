@@ -0,0 +1,82 @@
+package com.berry.clickhouse.tcp.client.data;
+
+import com.berry.clickhouse.tcp.client.buffer.DefaultBufferPoolManager;
+import com.berry.clickhouse.tcp.client.buffer.MemoryBudget;
+import com.berry.clickhouse.tcp.client.buffer.SegmentGrowthPolicy;
+import com.berry.clickhouse.tcp.client.buffer.SpillPolicy;
+import com.berry.clickhouse.tcp.client.data.type.DataTypeInt64;
+import com.berry.clickhouse.tcp.client.exception.MemoryBudgetExceededException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ColumnWriterBufferSpillTest {
+
+    private static final int SEGMENT = 1024;
+
+    @TempDir
+    Path directory;
+
+    private ColumnWriterBuffer buffer(MemoryBudget budget, long spillThreshold) {
+        IColumn column = ColumnFactory.createColumn("c", new DataTypeInt64(), new byte[0], null);
+        return new ColumnWriterBuffer(null, 4, new DefaultBufferPoolManager(SEGMENT, budget), column, -1,
+                SegmentGrowthPolicy.FIXED, new SpillPolicy(spillThreshold, directory, 4 * SEGMENT));
+    }
+
+    private static void writeLongs(ColumnWriterBuffer buffer, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            buffer.column.writeLong(i);
+        }
+    }
+
+    private long spillFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void spillsOnlyWhenTheBudgetIsExhausted() throws Exception {
+        MemoryBudget budget = new MemoryBudget(4 * SEGMENT, Duration.ZERO);
+        ColumnWriterBuffer buffer = buffer(budget, 1);
+
+        writeLongs(buffer, 4 * SEGMENT / Long.BYTES);
+        assertEquals(0, spillFiles(), "heap segments are used while the budget lasts");
+
+        writeLongs(buffer, 4 * SEGMENT / Long.BYTES);
+        assertEquals(1, spillFiles());
+        assertEquals(4 * SEGMENT, budget.used(), "spilled segments are not charged to the budget");
+        assertEquals(8 * SEGMENT, buffer.writtenBytes());
+
+        buffer.release();
+        assertEquals(0, spillFiles());
+        assertEquals(0, budget.used());
+    }
+
+    @Test
+    void neverSpillsWithoutBudgetPressure() throws Exception {
+        ColumnWriterBuffer buffer = buffer(MemoryBudget.unlimited(), 1);
+        writeLongs(buffer, 16 * SEGMENT / Long.BYTES);
+        assertEquals(0, spillFiles());
+        buffer.release();
+    }
+
+    @Test
+    void smallColumnsFailInsteadOfSpilling() throws Exception {
+        MemoryBudget budget = new MemoryBudget(2 * SEGMENT, Duration.ZERO);
+        ColumnWriterBuffer buffer = buffer(budget, 64 * SEGMENT);
+
+        assertThrows(MemoryBudgetExceededException.class, () -> writeLongs(buffer, 4 * SEGMENT / Long.BYTES));
+        assertEquals(0, spillFiles());
+        buffer.release();
+        assertEquals(0, budget.used());
+    }
+}
@@ -0,0 +1,50 @@
+package com.berry.clickhouse.tcp.client.data;
+
+import com.berry.clickhouse.tcp.client.NativeContext;
+import com.berry.clickhouse.tcp.client.TestContexts;
+import com.berry.clickhouse.tcp.client.buffer.ByteArrayWriter;
+import com.berry.clickhouse.tcp.client.serde.BinarySerializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+/**
+ * 测试用的写入模式数据块
+ */
+public final class TestBlocks {
+
+    private TestBlocks() {
+    }
+
+    /**
+     * 创建写入模式的数据块
+     *
+     * @param namesAndTypes 依次排列的列名和类型
+     * @return 数据块
+     */
+    public static Block writeBlock(String... namesAndTypes) throws SQLException {
+        NativeContext.ServerContext context = TestContexts.serverContext();
+        IColumn[] columns = new IColumn[namesAndTypes.length / 2];
+        for (int i = 0; i < columns.length; i++) {
+            String name = namesAndTypes[2 * i];
+            columns[i] = ColumnFactory.createColumn(name, DataTypeFactory.get(namesAndTypes[2 * i + 1], context),
+                    name.getBytes(StandardCharsets.UTF_8), null);
+        }
+        return Block.createFrom(columns, context);
+    }
+
+    /**
+     * 将数据块按Native格式编码为字节数组
+     */
+    public static byte[] encode(Block block) throws IOException, SQLException {
+        ByteArrayWriter writer = new ByteArrayWriter(() -> ByteBuffer.allocate(4096), buffer -> { });
+        block.writeTo(new BinarySerializer(writer, false));
+        ByteBuffer out = ByteBuffer.allocate((int) writer.writtenBytes());
+        for (ByteBuffer segment : writer.getBufferList()) {
+            out.put(segment.array(), segment.arrayOffset(), segment.position());
+        }
+        return out.array();
+    }
+}
@@ -0,0 +1,199 @@
+package com.berry.clickhouse.tcp.client.insert;
+
+import com.berry.clickhouse.tcp.client.ClickHouseClient;
+import com.berry.clickhouse.tcp.client.data.Block;
+import com.berry.clickhouse.tcp.client.data.TestBlocks;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 使用不连接服务端的客户端验证BatchingInserter的封存、flush和close
+ */
+class BatchingInserterTest {
+
+    private static final String TABLE = "t";
+
+    private ClickHouseClient client;
+    private final List<Integer> sentRows = new CopyOnWriteArrayList<>(); // 每个发送的数据块的行数
+    private final List<BatchResult> flushed = new CopyOnWriteArrayList<>(); // 发送成功的回调
+    private final List<BatchResult> failed = new CopyOnWriteArrayList<>(); // 发送失败的回调
+
+    private final BatchListener listener = new BatchListener() {
+        @Override
+        public void onFlush(BatchResult result) {
+            flushed.add(result);
+        }
+
+        @Override
+        public void onFailure(BatchResult result, Throwable cause) {
+            failed.add(result);
+        }
+    };
+
+    @BeforeEach
+    void setUp() throws Exception {
+        client = mock(ClickHouseClient.class);
+        when(client.createBlock(TABLE)).thenAnswer(inv -> TestBlocks.writeBlock("id", "Int32"));
+        doAnswer(inv -> {
+            Block block = inv.getArgument(0);
+            sentRows.add(block.rowCnt());
+            block.cleanup();
+            return null;
+        }).when(client).insert(any(Block.class), anyBoolean());
+        doAnswer(inv -> {
+            ((Block) inv.getArgument(0)).cleanup();
+            return null;
+        }).when(client).releaseBlock(any(Block.class));
+        doAnswer(inv -> {
+            ((Block) inv.getArgument(0)).cleanup();
+            return null;
+        }).when(client).cleanBlock(any(Block.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        sentRows.clear();
+        flushed.clear();
+        failed.clear();
+    }
+
+    private BatchingInserter.Builder builder() {
+        return BatchingInserter.builder(client, TABLE)
+                .maxLatency(Duration.ofMinutes(10))
+                .listener(listener);
+    }
+
+    @Test
+    void sealsOnMaxRowsAndFlushesRemainder() throws Exception {
+        try (BatchingInserter inserter = builder().maxRows(3).build()) {
+            for (int i = 0; i < 7; i++) {
+                inserter.addRow(i);
+            }
+            inserter.flush();
+
+            assertEquals(List.of(3, 3, 1), sentRows);
+            assertEquals(FlushReason.ROWS, flushed.get(0).getReason());
+            assertEquals(FlushReason.ROWS, flushed.get(1).getReason());
+            assertEquals(FlushReason.EXPLICIT, flushed.get(2).getReason());
+            assertEquals(3, inserter.flushedBlocks());
+            assertEquals(7, inserter.flushedRows());
+            assertEquals(0, inserter.pendingBlocks());
+        }
+    }
+
+    @Test
+    void flushWaitsForSenders() throws Exception {
+        AtomicBoolean sent = new AtomicBoolean();
+        doAnswer(inv -> {
+            Thread.sleep(100);
+            ((Block) inv.getArgument(0)).cleanup();
+            sent.set(true);
+            return null;
+        }).when(client).insert(any(Block.class), anyBoolean());
+
+        try (BatchingInserter inserter = builder().build()) {
+            inserter.addRow(1);
+            inserter.flush();
+
+            assertTrue(sent.get());
+            assertEquals(0, inserter.pendingBlocks());
+            assertEquals(1, inserter.flushedRows());
+        }
+    }
+
+    @Test
+    void flushWithoutRowsSendsNothing() throws Exception {
+        try (BatchingInserter inserter = builder().build()) {
+            inserter.flush();
+        }
+
+        assertTrue(sentRows.isEmpty());
+        assertTrue(flushed.isEmpty());
+    }
+
+    @Test
+    void closeSendsRemainingRowsAndRejectsFurtherWrites() throws Exception {
+        BatchingInserter inserter = builder().build();
+        inserter.addRow(1);
+        inserter.addRow(2);
+        inserter.close();
+
+        assertEquals(List.of(2), sentRows);
+        assertEquals(FlushReason.CLOSE, flushed.get(0).getReason());
+        assertEquals(0, inserter.pendingBlocks());
+        SQLException e = assertThrows(SQLException.class, () -> inserter.addRow(3));
+        assertTrue(e.getMessage().contains("closed"));
+
+        inserter.close(); // 重复关闭不再发送
+        assertEquals(1, sentRows.size());
+    }
+
+    @Test
+    void closeReleasesSpareBlock() throws Exception {
+        BatchingInserter inserter = builder().build();
+        assertThrows(SQLException.class, () -> inserter.addRow(1, 2)); // 列数不符，仅创建了用于解析列结构的数据块
+        inserter.close();
+
+        assertTrue(sentRows.isEmpty());
+        verify(client, atLeastOnce()).releaseBlock(any(Block.class));
+    }
+
+    @Test
+    void failedSendIsReportedAndBlockCleaned() throws Exception {
+        doThrow(new SQLException("boom")).when(client).insert(any(Block.class), anyBoolean());
+
+        try (BatchingInserter inserter = builder().build()) {
+            inserter.addRow(1);
+            inserter.addRow(2);
+            inserter.flush();
+
+            assertEquals(1, inserter.failedBlocks());
+            assertEquals(2, inserter.failedRows());
+            assertEquals(0, inserter.flushedBlocks());
+        }
+        assertEquals(1, failed.size());
+        assertTrue(flushed.isEmpty());
+        verify(client).cleanBlock(any(Block.class));
+    }
+
+    @Test
+    void latencyTimerSealsIdleBlock() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        try (BatchingInserter inserter = BatchingInserter.builder(client, TABLE)
+                .maxLatency(Duration.ofMillis(20))
+                .listener(new BatchListener() {
+                    @Override
+                    public void onFlush(BatchResult result) {
+                        flushed.add(result);
+                        done.countDown();
+                    }
+                })
+                .build()) {
+            inserter.addRow(1);
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(FlushReason.LATENCY, flushed.get(0).getReason());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.berry.clickhouse.tcp.client.meta;
+
+import com.berry.clickhouse.tcp.client.TestContexts;
+import com.berry.clickhouse.tcp.client.data.DataTypeFactory;
+import com.berry.clickhouse.tcp.client.data.IDataType;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 期望值按ClickHouse的定义计算：字符串使用CityHash v1.0.2的CityHash64，
+ * 不超过8字节的数值按位零扩展后使用intHash64，多个参数用Hash128to64依次合并
+ */
+class ShardingKeyTest {
+
+    private static IDataType<?> type(String name) throws SQLException {
+        return DataTypeFactory.get(name, TestContexts.serverContext());
+    }
+
+    private static long cityHash64(String type, Object value) throws SQLException {
+        return ShardingKey.cityHash64("c").keyOf(new Object[]{value}, new IDataType<?>[]{type(type)});
+    }
+
+    private static void assertUnsigned(String expected, long actual) {
+        assertEquals(Long.parseUnsignedLong(expected), actual, () -> Long.toUnsignedString(actual));
+    }
+
+    @Test
+    void stringsUseCityHash64() throws Exception {
+        assertUnsigned("11160318154034397263", cityHash64("String", "")); // SELECT cityHash64('')
+        assertUnsigned("2603192927274642682", cityHash64("String", "a"));
+        assertUnsigned("4220206313085259313", cityHash64("String", "abc"));
+        assertUnsigned("4220206313085259313", cityHash64("LowCardinality(Nullable(String))", "abc"));
+    }
+
+    @Test
+    void integersUseIntHash64OfTheZeroExtendedBits() throws Exception {
+        assertUnsigned("0", cityHash64("UInt64", 0L));
+        assertUnsigned("12994781566227106604", cityHash64("UInt8", 1));
+        assertUnsigned("9297814886316923340", cityHash64("UInt32", 42L));
+        assertUnsigned("1297215527019907880", cityHash64("Int8", (byte) -1)); // 0xFF
+        assertUnsigned("14731816277868330182", cityHash64("Int32", -1)); // 0xFFFFFFFF
+        assertUnsigned("7256831767414464289", cityHash64("Int64", -1L));
+    }
+
+    @Test
+    void argumentsAreCombinedInOrder() throws Exception {
+        ShardingKey key = ShardingKey.cityHash64("s", "n");
+        assertUnsigned("4269513251738724440",
+                key.keyOf(new Object[]{"abc", 42L}, new IDataType<?>[]{type("String"), type("UInt32")}));
+    }
+
+    @Test
+    void identityWidensSmallIntegersToUInt32() throws Exception {
+        ShardingKey key = ShardingKey.identity("c");
+        assertEquals(0xFFFFFFFFL, key.keyOf(new Object[]{(byte) -1}, new IDataType<?>[]{type("Int8")}));
+        assertEquals(0xFFL, key.keyOf(new Object[]{(short) 255}, new IDataType<?>[]{type("UInt8")}));
+        assertEquals(-1L, key.keyOf(new Object[]{-1L}, new IDataType<?>[]{type("Int64")}));
+    }
+
+    @Test
+    void unsupportedTypesAreRejectedUpFront() throws Exception {
+        assertThrows(SQLException.class, () -> ShardingKey.identity("c").validate(new IDataType<?>[]{type("Float64")}));
+        assertThrows(SQLException.class, () -> ShardingKey.cityHash64("c").validate(new IDataType<?>[]{type("UUID")}));
+        assertThrows(SQLException.class, () -> cityHash64("String", null));
+    }
+}
@@ -0,0 +1,99 @@
+package com.berry.clickhouse.tcp.client.settings;
+
+import com.berry.clickhouse.tcp.client.buffer.SegmentGrowthPolicy;
+import com.berry.clickhouse.tcp.client.insert.InsertRetryPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * 校验ClickHouseClientConfig的复制构建器不会丢失任何配置项
+ */
+class ClickHouseClientConfigTest {
+
+    private static ClickHouseClientConfig customConfig() {
+        return ClickHouseClientConfig.Builder.builder()
+                .host("10.0.0.1")
+                .port(9440)
+                .database("test")
+                .user("u")
+                .password("p")
+                .connectTimeout(Duration.ofSeconds(3))
+                .queryTimeout(Duration.ofSeconds(7))
+                .connectionPoolTotal(17)
+                .connectionPooMinIdle(3)
+                .connectionPoolMaxIdle(9)
+                .serializedIPv4("127.0.0.1")
+                .serializedIPv6("::1")
+                .leakDetection(true)
+                .leakDetectionSamplingInterval(5)
+                .selfColumMagazineLength(7)
+                .segmentGrowthPolicy(SegmentGrowthPolicy.DOUBLING)
+                .spillThresholdBytes(1 << 20)
+                .spillDirectory("/tmp/spill")
+                .maxInsertBlockBytes(1 << 22)
+                .maxInsertBlockRows(4096)
+                .tableMetaDataTtl(Duration.ofMinutes(3))
+                .parallelEncodeMinCells(999)
+                .insertRetryPolicy(InsertRetryPolicy.builder().maxAttempts(4).build())
+                .queryCacheMaxBytes(1 << 16)
+                .queryCacheTtl(Duration.ofSeconds(30))
+                .querySpoolThresholdBytes(1 << 18)
+                .querySpoolDirectory("/tmp/spool")
+                .memoryBudgetBytes(1 << 24)
+                .memoryBudgetWait(Duration.ofMillis(250))
+                .build();
+    }
+
+    @Test
+    void copyBuilderKeepsEveryGetter() throws Exception {
+        ClickHouseClientConfig cfg = customConfig();
+        assertSameConfig(cfg, ClickHouseClientConfig.Builder.builder(cfg).build(), new HashSet<>());
+    }
+
+    @Test
+    void withMethodsOnlyChangeTheirOwnSetting() throws Exception {
+        ClickHouseClientConfig cfg = customConfig();
+        ClickHouseClientConfig copy = cfg.withQueryTimeout(Duration.ofSeconds(11));
+
+        assertEquals(Duration.ofSeconds(11), copy.queryTimeout());
+        assertSameConfig(cfg, copy, new HashSet<>(Arrays.asList("queryTimeout", "settings")));
+        assertSameConfig(cfg, cfg.withDatabase("other"), new HashSet<>(Arrays.asList("database", "settings")));
+    }
+
+    @Test
+    void knobsAreStoredInTheConfig() {
+        ClickHouseClientConfig cfg = customConfig();
+        assertEquals(7, cfg.getSelfColumMagazineLength());
+        assertEquals(SegmentGrowthPolicy.DOUBLING, cfg.getSegmentGrowthPolicy());
+        assertEquals(1 << 20, cfg.getSpillThresholdBytes());
+        assertEquals("/tmp/spill", cfg.getSpillDirectory());
+        assertEquals(5, cfg.getLeakDetectionSamplingInterval());
+        assertEquals(1 << 24, cfg.getMemoryBudgetBytes());
+        assertNotEquals(ClickHouseClientConfig.Builder.builder().build().getSpillThresholdBytes(),
+                cfg.getSpillThresholdBytes());
+    }
+
+    /**
+     * 逐个比较所有无参访问方法的返回值，池和预算等对象要求为同一实例
+     */
+    private static void assertSameConfig(ClickHouseClientConfig expected, ClickHouseClientConfig actual,
+                                         Set<String> skipped) throws Exception {
+        for (Method method : ClickHouseClientConfig.class.getDeclaredMethods()) {
+            if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers())
+                    || method.getParameterCount() != 0 || method.getReturnType() == void.class
+                    || skipped.contains(method.getName())) {
+                continue;
+            }
+            assertEquals(method.invoke(expected), method.invoke(actual), method.getName());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.berry.clickhouse.tcp.client.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class QueryResultCacheTest {
+
+    private final QueryResultCache cache = new QueryResultCache(1 << 20, Duration.ofMinutes(1));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private CachedQueryResult get(String query) throws SQLException {
+        return cache.get(query, Collections.emptyMap(), null, () -> {
+            loads.incrementAndGet();
+            return new CachedQueryResult(Collections.emptyList());
+        });
+    }
+
+    @Test
+    void repeatedQueriesHitTheCache() throws Exception {
+        CachedQueryResult first = get("SELECT * FROM db.events WHERE id = 1");
+        assertSame(first, get("SELECT *\n  FROM db.events WHERE id = 1;"));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.cacheSize());
+    }
+
+    @Test
+    void invalidateTableDropsOnlyQueriesReferencingIt() throws Exception {
+        get("SELECT * FROM db.events");
+        get("SELECT count() FROM events e JOIN users u ON e.uid = u.id");
+        get("SELECT * FROM db.other");
+        assertEquals(3, cache.cacheSize());
+
+        cache.invalidateTable("`db`.`events`"); // 带数据库名时也匹配不带数据库名的引用
+        assertEquals(1, cache.cacheSize());
+
+        get("SELECT * FROM db.other");
+        assertEquals(3, loads.get());
+        get("SELECT * FROM db.events");
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void joinedAndCommaSeparatedTablesAreTracked() throws Exception {
+        get("SELECT * FROM a, b AS bb WHERE a.x = bb.x");
+        get("SELECT * FROM c LEFT JOIN (SELECT * FROM d) AS dd USING (x)");
+        cache.invalidateTable("b");
+        assertEquals(1, cache.cacheSize());
+        cache.invalidateTable("d");
+        assertEquals(0, cache.cacheSize());
+    }
+
+    @Test
+    void tableFunctionsAreNotCached() throws Exception {
+        assertNull(QueryResultCache.tables(QueryResultCache.normalize("SELECT * FROM numbers(10)")));
+        get("SELECT * FROM numbers(10)");
+        get("SELECT * FROM numbers(10)");
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.cacheSize());
+    }
+
+    @Test
+    void invalidationDuringLoadIsNotCached() throws Exception {
+        cache.get("SELECT * FROM t", Collections.emptyMap(), null, () -> {
+            loads.incrementAndGet();
+            cache.invalidateTable("t"); // 查询期间有写入
+            return new CachedQueryResult(Collections.emptyList());
+        });
+        assertEquals(0, cache.cacheSize());
+        get("SELECT * FROM t");
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void expiredResultsAreReloaded() throws Exception {
+        cache.get("SELECT * FROM t", Collections.emptyMap(), Duration.ofNanos(1), () -> {
+            loads.incrementAndGet();
+            return new CachedQueryResult(Collections.emptyList());
+        });
+        get("SELECT * FROM t");
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidateAllClearsEverything() throws Exception {
+        get("SELECT * FROM a");
+        get("SELECT * FROM b");
+        cache.invalidateAll();
+        assertEquals(0, cache.cacheSize());
+        assertEquals(0, cache.usedBytes());
+    }
+}